@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.LoadFailedException;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+
+/**
+ * A corpus circuit loaded from disk and ready to be simulated, with handles
+ * on its input pins.
+ */
+class BenchCircuit {
+	final File file;
+	final Circuit circuit;
+	final CircuitState state;
+	final Propagator propagator;
+	private final InstanceState[] inputs;
+	private final BitWidth[] widths;
+	private final Random random = new Random(0);
+
+	BenchCircuit(String name) throws IOException, LoadFailedException {
+		file = CircuitCorpus.generateTemporary(name);
+		LogisimFile logisimFile = new Loader(null).openLogisimFile(file);
+		Project proj = new Project(logisimFile);
+		circuit = logisimFile.getMainCircuit();
+		state = new CircuitState(proj, circuit);
+		proj.setCircuitState(state);
+		propagator = state.getPropagator();
+		propagator.propagate();
+
+		ArrayList<InstanceState> pins = new ArrayList<InstanceState>();
+		for (Component comp : circuit.getNonWires()) {
+			if (comp.getFactory() instanceof Pin) {
+				Instance pin = Instance.getInstanceFor(comp);
+				if (Pin.FACTORY.isInputPin(pin))
+					pins.add(state.getInstanceState(pin));
+			}
+		}
+		inputs = pins.toArray(new InstanceState[pins.size()]);
+		widths = new BitWidth[inputs.length];
+		for (int i = 0; i < inputs.length; i++)
+			widths[i] = Pin.FACTORY.getWidth(inputs[i].getInstance());
+	}
+
+	/** Drives every input pin with a fresh pseudo-random value. */
+	void randomizeInputs() {
+		for (int i = 0; i < inputs.length; i++) {
+			int width = widths[i].getWidth();
+			int value = width < 32 ? random.nextInt(1 << width) : random
+					.nextInt();
+			Pin.FACTORY.setValue(inputs[i], Value.createKnown(widths[i], value));
+			inputs[i].fireInvalidated();
+		}
+	}
+}
@@ -0,0 +1,407 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.std.arith.Arithmetic;
+import com.cburch.logisim.std.gates.Gates;
+import com.cburch.logisim.std.memory.Memory;
+import com.cburch.logisim.std.wiring.Clock;
+import com.cburch.logisim.std.wiring.Constant;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.tools.AddTool;
+import com.cburch.logisim.tools.Library;
+
+/**
+ * Generates the .circ files used by the benchmarks. A circuit is named by its
+ * kind and size, e.g. <code>gatechain-500</code>. Port positions are taken
+ * from the component factories themselves, so the generated layouts stay
+ * connected when a component's geometry changes.
+ */
+public class CircuitCorpus {
+	private static class Sheet {
+		private StringBuilder xml = new StringBuilder();
+
+		Location[] comp(String lib, String name, ComponentFactory factory,
+				Location loc, String... attrs) {
+			xml.append("    <comp");
+			if (lib != null)
+				xml.append(" lib=\"").append(lib).append("\"");
+			xml.append(" loc=\"").append(loc).append("\" name=\"")
+					.append(name).append(attrs.length == 0 ? "\"/>\n" : "\">\n");
+			for (int i = 0; i < attrs.length; i += 2) {
+				xml.append("      <a name=\"").append(attrs[i])
+						.append("\" val=\"").append(attrs[i + 1])
+						.append("\"/>\n");
+			}
+			if (attrs.length > 0)
+				xml.append("    </comp>\n");
+			Component comp = create(factory, loc, attrs);
+			Location[] ret = new Location[comp.getEnds().size()];
+			for (int i = 0; i < ret.length; i++)
+				ret[i] = comp.getEnd(i).getLocation();
+			return ret;
+		}
+
+		Location pin(Location loc, String label, int width, boolean output) {
+			if (output)
+				comp("0", "Pin", Pin.FACTORY, loc, "facing", "west",
+						"output", "true", "width", "" + width, "label",
+						label);
+			else
+				comp("0", "Pin", Pin.FACTORY, loc, "width", "" + width,
+						"label", label);
+			return loc;
+		}
+
+		void segment(Location a, Location b) {
+			if (a.equals(b))
+				return;
+			xml.append("    <wire from=\"").append(a).append("\" to=\"")
+					.append(b).append("\"/>\n");
+		}
+
+		// horizontal first, then vertical
+		void wire(Location a, Location b) {
+			Location corner = Location.create(b.getX(), a.getY());
+			segment(a, corner);
+			segment(corner, b);
+		}
+
+		// vertical first, then horizontal
+		void wireVertical(Location a, Location b) {
+			Location corner = Location.create(a.getX(), b.getY());
+			segment(a, corner);
+			segment(corner, b);
+		}
+	}
+
+	public static final String GATE_CHAIN = "gatechain";
+	public static final String RIPPLE_ADDER = "ripple";
+	public static final String RAM_BANK = "rambank";
+	public static final String HIERARCHY = "hierarchy";
+
+	/** The circuits written by {@link #main}. */
+	public static final String[] DEFAULT_CORPUS = { "gatechain-500",
+			"ripple-64", "rambank-16", "hierarchy-8" };
+
+	private static final ComponentFactory NOT_GATE = factory(new Gates(),
+			"NOT Gate");
+	private static final ComponentFactory ADDER = factory(new Arithmetic(),
+			"Adder");
+	private static final ComponentFactory RAM = factory(new Memory(), "RAM");
+	private static final ComponentFactory COUNTER = factory(new Memory(),
+			"Counter");
+
+	private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"
+			+ "<project source=\"2.14.3\" version=\"1.0\">\n"
+			+ "  <lib desc=\"#Wiring\" name=\"0\"/>\n"
+			+ "  <lib desc=\"#Gates\" name=\"1\"/>\n"
+			+ "  <lib desc=\"#Arithmetic\" name=\"3\"/>\n"
+			+ "  <lib desc=\"#Memory\" name=\"4\"/>\n"
+			+ "  <main name=\"main\"/>\n"
+			+ "  <options/>\n";
+
+	private static void circuit(StringBuilder out, String name, Sheet sheet) {
+		out.append("  <circuit name=\"").append(name).append("\">\n");
+		out.append("    <a name=\"circuit\" val=\"").append(name)
+				.append("\"/>\n");
+		out.append(sheet.xml);
+		out.append("  </circuit>\n");
+	}
+
+	private static Component create(ComponentFactory factory, Location loc,
+			String... attrs) {
+		AttributeSet set = factory.createAttributeSet();
+		for (int i = 0; i < attrs.length; i += 2)
+			parse(set, attrs[i], attrs[i + 1]);
+		return factory.createComponent(loc, set);
+	}
+
+	private static ComponentFactory factory(Library lib, String name) {
+		return ((AddTool) lib.getTool(name)).getFactory();
+	}
+
+	private static Location find(Component comp, boolean input) {
+		for (EndData end : comp.getEnds()) {
+			if (input ? end.isInput() && !end.isOutput() : end.isOutput())
+				return end.getLocation();
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the text of the corpus circuit with the given name, e.g.
+	 * <code>ripple-64</code>.
+	 */
+	public static String generate(String name) throws IOException {
+		int dash = name.lastIndexOf('-');
+		if (dash < 0)
+			throw new IllegalArgumentException(name);
+		String kind = name.substring(0, dash);
+		int size = Integer.parseInt(name.substring(dash + 1));
+		if (kind.equals(GATE_CHAIN))
+			return gateChain(size);
+		else if (kind.equals(RIPPLE_ADDER))
+			return rippleAdder(size);
+		else if (kind.equals(RAM_BANK))
+			return ramBank(size);
+		else if (kind.equals(HIERARCHY))
+			return hierarchy(size);
+		throw new IllegalArgumentException(name);
+	}
+
+	/**
+	 * Writes the corpus circuit with the given name into a temporary file,
+	 * deleted when the virtual machine exits.
+	 */
+	public static File generateTemporary(String name) throws IOException {
+		File file = File.createTempFile(name + "-", Loader.LOGISIM_EXTENSION);
+		file.deleteOnExit();
+		write(name, file);
+		return file;
+	}
+
+	/**
+	 * Writes the corpus circuit with the given name into dir and returns the
+	 * resulting file.
+	 */
+	public static File generate(String name, File dir) throws IOException {
+		File file = new File(dir, name + Loader.LOGISIM_EXTENSION);
+		write(name, file);
+		return file;
+	}
+
+	private static void write(String name, File file) throws IOException {
+		Writer out = new OutputStreamWriter(new FileOutputStream(file),
+				"UTF-8");
+		try {
+			out.write(generate(name));
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * A chain of inverters between one input and one output pin. Chains
+	 * longer than the simulation limit (1000 by default) are reported as
+	 * oscillating.
+	 */
+	public static String gateChain(int length) {
+		Sheet sheet = new Sheet();
+		Location out = sheet.pin(Location.create(100, 100), "in", 1, false);
+		// 0 output, 1 input
+		Location in = create(NOT_GATE, Location.create(0, 0)).getEnd(1)
+				.getLocation();
+		for (int i = 0; i < length; i++) {
+			Location next = out.translate(10, 0);
+			sheet.segment(out, next);
+			Location loc = next.translate(-in.getX(), -in.getY());
+			out = sheet.comp("1", "NOT Gate", NOT_GATE, loc)[0];
+		}
+		sheet.pin(out, "out", 1, true);
+		StringBuilder ret = new StringBuilder(HEADER);
+		circuit(ret, "main", sheet);
+		return ret.append("</project>\n").toString();
+	}
+
+	/**
+	 * A chain of nested subcircuits: each level instantiates the previous
+	 * one twice in series, the innermost level being a single inverter.
+	 */
+	public static String hierarchy(int depth) throws IOException {
+		// the port positions of a subcircuit come from its appearance, so
+		// they are read from a loaded copy of the innermost level; every
+		// level has the same pins and thus the same appearance
+		StringBuilder leaf = new StringBuilder(HEADER.replace("\"main\"/>",
+				"\"" + levelName(0) + "\"/>"));
+		circuit(leaf, levelName(0), hierarchyLevel(0, null));
+		leaf.append("</project>\n");
+		LogisimFile file = LogisimFile.load(new ByteArrayInputStream(leaf
+				.toString().getBytes("UTF-8")), new Loader(null));
+		ComponentFactory factory = file.getCircuit(levelName(0))
+				.getSubcircuitFactory();
+
+		StringBuilder ret = new StringBuilder(HEADER.replace("\"main\"/>",
+				"\"" + levelName(depth) + "\"/>"));
+		for (int level = 0; level <= depth; level++)
+			circuit(ret, levelName(level), hierarchyLevel(level, factory));
+		return ret.append("</project>\n").toString();
+	}
+
+	private static Sheet hierarchyLevel(int level, ComponentFactory factory) {
+		Sheet sheet = new Sheet();
+		Location in = sheet.pin(Location.create(100, 100), "in", 1, false);
+		Location out = sheet.pin(Location.create(1000, 100), "out", 1, true);
+		if (level == 0) {
+			Location[] gate = sheet.comp("1", "NOT Gate", NOT_GATE,
+					Location.create(400, 100));
+			sheet.wire(in, gate[1]);
+			sheet.wire(gate[0], out);
+			return sheet;
+		}
+		Component probe = create(factory, Location.create(0, 0));
+		Location subIn = find(probe, true);
+		Location subOut = find(probe, false);
+		int span = (probe.getBounds().getWidth() + 69) / 10 * 10;
+		Location prev = in;
+		for (int i = 0; i < 2; i++) {
+			Location loc = Location.create(200 + i * span - subIn.getX(),
+					100 - subIn.getY());
+			sheet.comp(null, levelName(level - 1), factory, loc);
+			sheet.wire(prev, loc.translate(subIn.getX(), subIn.getY()));
+			prev = loc.translate(subOut.getX(), subOut.getY());
+		}
+		sheet.wire(prev, out);
+		return sheet;
+	}
+
+	private static String levelName(int level) {
+		// fixed length, since the name is drawn inside the subcircuit box
+		return "level" + (level < 10 ? "0" : "") + level;
+	}
+
+	public static void main(String[] args) throws IOException {
+		File dir = new File(args.length > 0 ? args[0] : ".");
+		dir.mkdirs();
+		String[] names = args.length > 1 ? new String[args.length - 1]
+				: DEFAULT_CORPUS;
+		if (args.length > 1)
+			System.arraycopy(args, 1, names, 0, names.length);
+		for (String name : names)
+			System.out.println(generate(name, dir));
+	}
+
+	private static <V> void parse(AttributeSet set, Attribute<V> attr,
+			String value) {
+		set.setValue(attr, attr.parse(value));
+	}
+
+	private static void parse(AttributeSet set, String name, String value) {
+		for (Attribute<?> attr : set.getAttributes()) {
+			if (attr.getName().equals(name))
+				parse(set, attr, value);
+		}
+	}
+
+	/**
+	 * A bank of synchronous RAMs sharing a clocked counter as address and
+	 * data; each RAM stores and reads back every tick.
+	 */
+	public static String ramBank(int rams) {
+		Sheet sheet = new Sheet();
+		String[] ramAttrs = { "addrWidth", "8", "dataWidth", "8", "databus",
+				"bibus" };
+		String[] counterAttrs = { "width", "8", "max", "0xff" };
+
+		Location counterLoc = Location.create(200, 100);
+		Location[] cnt = sheet.comp("4", "Counter", COUNTER, counterLoc,
+				counterAttrs);
+		Component ramProbe = create(RAM, Location.create(0, 0), ramAttrs);
+		int ramHeight = ramProbe.getBounds().getHeight() + 40;
+		int ramX = cnt[0].getX() + 100;
+		int dataBus = ramX - 60;
+		int clockBus = ramX - 40;
+
+		// clock to counter and down the clock bus
+		Location clk = Location.create(100, counterLoc.getY() - 40);
+		sheet.comp("0", "Clock", Clock.FACTORY, clk);
+		sheet.wireVertical(clk, cnt[2]);
+		Location clockTop = Location.create(clockBus, clk.getY());
+		sheet.segment(clk, clockTop);
+		Location dataTop = Location.create(dataBus, cnt[0].getY());
+		sheet.segment(cnt[0], dataTop);
+
+		int y = cnt[0].getY() + 60;
+		Location clockBottom = clockTop;
+		Location dataBottom = dataTop;
+		for (int i = 0; i < rams; i++) {
+			Location[] ends = sheet.comp("4", "RAM", RAM,
+					Location.create(ramX, y), ramAttrs);
+			// 0 data out, 1 address, 2 output enable, 3 write enable,
+			// 4 clock, 5 data in
+			sheet.segment(Location.create(dataBus, ends[1].getY()), ends[1]);
+			sheet.segment(Location.create(dataBus, ends[5].getY()), ends[5]);
+			sheet.segment(Location.create(clockBus, ends[4].getY()), ends[4]);
+			sheet.comp("0", "Constant", Constant.FACTORY, ends[2]);
+			sheet.comp("0", "Constant", Constant.FACTORY, ends[3]);
+			sheet.pin(ends[0], "d" + i, 8, true);
+			dataBottom = Location.create(dataBus,
+					Math.max(ends[1].getY(), ends[5].getY()));
+			clockBottom = Location.create(clockBus, ends[4].getY());
+			y += ramHeight;
+		}
+		sheet.segment(dataTop, dataBottom);
+		sheet.segment(clockTop, clockBottom);
+		StringBuilder ret = new StringBuilder(HEADER);
+		circuit(ret, "main", sheet);
+		return ret.append("</project>\n").toString();
+	}
+
+	/**
+	 * A ripple-carry adder made of one-bit adders, with pins a<i>k</i>,
+	 * b<i>k</i>, s<i>k</i> and co.
+	 */
+	public static String rippleAdder(int bits) {
+		Sheet sheet = new Sheet();
+		Location carry = null;
+		for (int i = 0; i < bits; i++) {
+			Location[] ends = sheet.comp("3", "Adder", ADDER,
+					Location.create(200, 100 + 100 * i), "width", "1");
+			// 0 a, 1 b, 2 sum, 3 carry in, 4 carry out
+			sheet.pin(ends[0], "a" + i, 1, false);
+			sheet.pin(ends[1], "b" + i, 1, false);
+			sheet.pin(ends[2], "s" + i, 1, true);
+			if (carry != null)
+				sheet.wire(carry, ends[3]);
+			carry = ends[4];
+		}
+		if (carry != null)
+			sheet.pin(carry, "co", 1, true);
+		StringBuilder ret = new StringBuilder(HEADER);
+		circuit(ret, "main", sheet);
+		return ret.append("</project>\n").toString();
+	}
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+
+/**
+ * The Value operations performed by components and wires on every event,
+ * over a mix of widths with some unknown and error bits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValueBenchmark {
+	private static final int COUNT = 1024;
+
+	private Value[] left = new Value[COUNT];
+	private Value[] right = new Value[COUNT];
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void and(Blackhole hole) {
+		for (int i = 0; i < COUNT; i++)
+			hole.consume(left[i].and(right[i]));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void combine(Blackhole hole) {
+		for (int i = 0; i < COUNT; i++)
+			hole.consume(left[i].combine(right[i]));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void createKnown(Blackhole hole) {
+		for (int i = 0; i < COUNT; i++)
+			hole.consume(Value.createKnown(left[i].getBitWidth(), i));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void equals(Blackhole hole) {
+		for (int i = 0; i < COUNT; i++)
+			hole.consume(left[i].equals(right[i]));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void getBit(Blackhole hole) {
+		for (int i = 0; i < COUNT; i++)
+			hole.consume(left[i].get(i % left[i].getWidth()));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void not(Blackhole hole) {
+		for (int i = 0; i < COUNT; i++)
+			hole.consume(left[i].not());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void or(Blackhole hole) {
+		for (int i = 0; i < COUNT; i++)
+			hole.consume(left[i].or(right[i]));
+	}
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(0);
+		for (int i = 0; i < COUNT; i++) {
+			BitWidth width = BitWidth.create(1 + random.nextInt(32));
+			left[i] = randomValue(random, width);
+			right[i] = randomValue(random, width);
+		}
+	}
+
+	private static Value randomValue(Random random, BitWidth width) {
+		Value[] bits = new Value[width.getWidth()];
+		for (int i = 0; i < bits.length; i++) {
+			int r = random.nextInt(16);
+			bits[i] = r == 0 ? Value.ERROR : r == 1 ? Value.UNKNOWN
+					: r < 9 ? Value.TRUE : Value.FALSE;
+		}
+		return Value.create(bits);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void toIntValue(Blackhole hole) {
+		for (int i = 0; i < COUNT; i++)
+			hole.consume(left[i].toIntValue());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void xor(Blackhole hole) {
+		for (int i = 0; i < COUNT; i++)
+			hole.consume(left[i].xor(right[i]));
+	}
+}
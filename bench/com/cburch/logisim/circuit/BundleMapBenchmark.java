@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.cburch.logisim.bench.CircuitCorpus;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+
+/**
+ * Time to bring the wire bundles of a circuit up to date after one of its
+ * wires is removed and put back. It lives in the circuit package to reach
+ * CircuitWires directly; the edits are batched on the event thread, where
+ * the editor makes them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BundleMapBenchmark {
+	private static final int EDITS = 16;
+
+	@Param({ "gatechain-500", "ripple-64", "rambank-16" })
+	public String circuit;
+
+	private CircuitWires wires;
+	private Wire wire;
+	private Runnable edits = new Runnable() {
+		public void run() {
+			for (int i = 0; i < EDITS; i++) {
+				wires.remove(wire);
+				wires.add(wire);
+				wires.getWidthIncompatibilityData();
+			}
+		}
+	};
+
+	@Benchmark
+	@OperationsPerInvocation(EDITS)
+	public void rebuild() throws Exception {
+		SwingUtilities.invokeAndWait(edits);
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		LogisimFile file = new Loader(null).openLogisimFile(CircuitCorpus
+				.generateTemporary(circuit));
+		wires = file.getMainCircuit().wires;
+		wire = wires.getWires().iterator().next();
+	}
+}
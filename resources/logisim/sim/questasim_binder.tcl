@@ -19,115 +19,159 @@
 # Version   Author Date               Description
 #	v1.1			CMR			25.06.14					- Exit if socket fails
 #	v1.2			CMR			23.07.14					- Better error handling, add reset option
+#	v1.3			-				18.10.26					- Binary frames, one exchange per simulation step
 #-------------------------------------------------------------------------------
-set Version 1.2
+set Version 1.3
+
+# Every message is a frame: a 32-bit big-endian length followed by the
+# payload. A payload starts with a command byte:
+#   E   end the simulation
+#   R   restart the simulation
+#   S   simulation step, followed by records
+#         N id(16) type(8) length(16) name    declare a signal
+#         B id(16) width(16) bytes            drive packed bits, msb first
+#         V id(16) width(16) chars            drive a value given as chars
+# A step is answered by a frame of V records holding the output signals whose
+# value changed since the previous answer.
 
-set msgs {}
 set channel 0
 
-proc MessageReceived {channel} {
-	global msgs ;
+proc ReadFrame {channel} {
+	set header [read $channel 4]
+	if {[string length $header] < 4} {
+		return -code error "connection closed"
+	}
+	binary scan $header Iu length
+	set frame [read $channel $length]
+	if {[string length $frame] < $length} {
+		return -code error "connection closed"
+	}
+	return $frame
+}
 
-	if {[eof $channel] || [catch {gets $channel msg}]} {
-		end_binder $channel
-  } else {
+proc SendFrame {channel frame} {
+	puts -nonewline $channel [binary format I [string length $frame]]$frame
+	flush $channel
+}
+
+proc DriveSignal {id value} {
+	global names types
+
+	# If signal is "in"
+	if {$types($id) == 1} {
+		# Drive simulation signal (force signal, no internal logic changes possible)
+		if {[catch {force -freeze sim:/top_sim/$names($id) $value} errmsg]} {
+			puts "Error forcing simulation signal: $errmsg"
+		}
 
-		# If end of communication is asked
-		if {$msg == "end"} {
+	# If signal is "inout"
+	} elseif {$types($id) == 3} {
 
-			# Sim end procedure
-			end_binder $channel
+		# Use deposit so value can be changed by internal logic
+		if {[catch {force -deposit sim:/top_sim/$names($id) $value} errmsg]} {
+			puts "Error forcing simulation signal: $errmsg"
+		}
+	}
+}
 
-		# When restart is requested
-		} elseif {$msg == "restart"} {
-			puts "Restart simulation"
-			if {[catch {restart -f} errmsg]} {
-				puts "Error at simulation reset: $errmsg"
+proc Step {channel frame} {
+	global names types outputs lastOut
+
+	set length [string length $frame]
+	set pos 1
+	while {$pos < $length} {
+		set record [string index $frame $pos]
+		binary scan $frame @[expr {$pos + 1}]Su id
+		set pos [expr {$pos + 3}]
+
+		if {$record == "N"} {
+			# Declaration of a signal
+			binary scan $frame @${pos}cuSu type nameLength
+			set pos [expr {$pos + 3}]
+			set names($id) [string range $frame $pos [expr {$pos + $nameLength - 1}]]
+			set types($id) $type
+			if {$type == 2 || $type == 3} {
+				lappend outputs $id
 			}
-			set msgs {}
-
-		# When a sync is received
-		} elseif {$msg == "sync"} {
-
-			# Drive input signals in simulation
-			foreach msg $msgs {
-
-				# Get parameters from message
-				set signal [split $msg :]
-				set type [lindex $signal 0]
-				set name [lindex $signal 1]
-				set value [lindex $signal 2]
-				set id [lindex $signal 3]
-
-				# If signal is "in"
-				if {$type == 1} {
-					# Drive simulation signal (force signal, no internal logic changes possible)
-					if {[catch {force -freeze sim:/top_sim/$name $value} errmsg]} {
-						puts "Error forcing simulation signal: $errmsg"
-					}
-
-				# If signal is "inout"
-				} elseif {$type == 3} {
-
-					# Use deposit so value can be changed by internal logic
-					if {[catch {force -deposit sim:/top_sim/$name $value} errmsg]} {
-						puts "Error forcing simulation signal: $errmsg"
-					}
-				}
+			set pos [expr {$pos + $nameLength}]
+		} else {
+			# New value of an input signal
+			binary scan $frame @${pos}Su width
+			set pos [expr {$pos + 2}]
+			if {$record == "B"} {
+				binary scan $frame @${pos}B$width value
+				set pos [expr {$pos + ($width + 7) / 8}]
+			} else {
+				set value [string range $frame $pos [expr {$pos + $width - 1}]]
+				set pos [expr {$pos + $width}]
 			}
+			DriveSignal $id $value
+		}
+	}
 
-			# Run the simulation
-			if {[catch {run 100} errmsg]} {
-				puts "Error running simulation: $errmsg"
-			}
+	# Run the simulation
+	if {[catch {run 100} errmsg]} {
+		puts "Error running simulation: $errmsg"
+	}
 
-			# Read output signals from simulation
-			foreach msg $msgs {
-				# Get signal and value from message
-				set signal [split $msg :]
-				set type [lindex $signal 0]
-				set name [lindex $signal 1]
-				set value [lindex $signal 2]
-				set id [lindex $signal 3]
-
-				# If signal is "out" or "inout"
-				if {$type == 2 || $type == 3} {
-
-					# Read in sim
-					if {[catch {set value [examine sim:/top_sim/$name]} errmsg]} {
-						puts "Error examining simulation signal: $errmsg"
-					} else {
-						# Send to logisim
-						puts $channel [concat $name:$value:$id]
-					}
-				}
-			}
+	# Read output signals from simulation, and answer with those that changed
+	set reply ""
+	foreach id $outputs {
+		if {[catch {set value [examine sim:/top_sim/$names($id)]} errmsg]} {
+			puts "Error examining simulation signal: $errmsg"
+		} elseif {![info exists lastOut($id)] || $lastOut($id) ne $value} {
+			set lastOut($id) $value
+			append reply [binary format aSS V $id [string length $value]] $value
+		}
+	}
+	SendFrame $channel $reply
+}
+
+proc MessageReceived {channel} {
+	global lastOut
+
+	if {[eof $channel] || [catch {ReadFrame $channel} frame]} {
+		end_binder $channel
+		return
+	}
 
-			# Send sync to alert logisim of end of step
-			puts $channel "sync"
-			#puts "sent : sync"
-			flush $channel
+	set command [string index $frame 0]
 
-			set msgs {}
+	# If end of communication is asked
+	if {$command == "E"} {
 
-		# If it's a signal, add to list
-		} else {
-			lappend msgs $msg ;
+		# Sim end procedure
+		end_binder $channel
+
+	# When restart is requested
+	} elseif {$command == "R"} {
+		puts "Restart simulation"
+		if {[catch {restart -f} errmsg]} {
+			puts "Error at simulation reset: $errmsg"
 		}
-  }
+		array unset lastOut
+
+	# When a simulation step is requested
+	} elseif {$command == "S"} {
+		Step $channel $frame
+	}
 }
 
 proc {main} {port} {
 
 	global argv
 	global channel
+	global outputs
 
 	set server localhost
+	set outputs {}
 
 	if {[catch {set channel [socket $server $port]} errmsg]} {
 		puts "Error : $errmsg"
 		exit
 	} else {
+		fconfigure $channel -translation binary -blocking 1
+
 		puts "TCL_BINDER_CONNECTED"
 		puts "TCL_BINDER_RUNNING"
 
@@ -18,11 +18,25 @@
 # Version   Author Date               Description
 # v1.0      CMR 20.08.2014  Original, copied from questasim_binder
 # v1.1      YSR 26.06.2015  Modifications to support and fix issues with sequential systems
+# v2.0      -   18.10.2026  Binary frames carrying only the changed ports, no sync
 #-------------------------------------------------------------------------------
-set Version 1.1
+set Version 2.0
+
+# Every message is a frame: a 32-bit big-endian length followed by the
+# payload. A payload from Logisim starts with a command byte:
+#   E   end the wrapper
+#   F   new clock tick: drive the inputs, call logisimForce and answer with
+#       the outputs whose value changed
+#   X   drive the inputs and call logisimExamine, there is no answer
+# followed by records for the ports whose value changed
+#   N id(16) type(8) length(16) name    declare a port
+#   B id(16) width(16) bytes            drive packed bits, msb first
+#   V id(16) width(16) chars            drive a value given as chars
+# A payload to Logisim holds V records for the outputs, and T records asking
+# Logisim for a clock tick.
 
 set channel 0
-set msgs {}
+set outputs {}
 
 
 
@@ -85,9 +99,6 @@ proc force2 {signal value} {
 
 	#echo "Forcing signal $signal_name to $value"
 	set $signal_name $value
-
-	# Asynchronous not supported
-	#send_socket $channel "[getName $signal]:$value"
 }
 
 proc force3 {type signal value} {
@@ -100,7 +111,7 @@ proc force3 {type signal value} {
 proc run {args} {
 	global channel
 
-	send_socket $channel "run"
+	SendFrame $channel T
 }
 
 proc restart {args} {
@@ -133,107 +144,105 @@ proc getIndex {signal} {
 	return $index
 }
 
-proc MessageReceived {channel} {
-	global msgs
+proc ReadFrame {channel} {
+	set header [read $channel 4]
+	if {[string length $header] < 4} {
+		return -code error "connection closed"
+	}
+	binary scan $header Iu length
+	set frame [read $channel $length]
+	if {[string length $frame] < $length} {
+		return -code error "connection closed"
+	}
+	return $frame
+}
 
-	if {[eof $channel] || [catch {gets $channel msg}]} {
-		end_binder $channel
-  } else {
-
-		# If end of communication is asked
-		if {$msg == "end"} {
-
-			# Sim end procedure
-			end_binder $channel
-
-		# When a sync_force is received
-		} elseif {$msg == "sync_force"} {
-                        #echo "Recieved sync_force!"
-
-			# Drive input signals in simulation
-			foreach msg $msgs {
-
-				# Get parameters from message
-				set signal [split $msg :]
-				set type [lindex $signal 0]
-				set name [lindex $signal 1]
-				set value [lindex $signal 2]
-				set id [lindex $signal 3]
-
-				global $name
-				# If signal is "in" or "inout"
-				if {$type == 1 || $type == 3} {
-					#echo "Received from Logsim : $name:$value"
-					set $name $value
-				} else {
-					set $name X
-				}
-			}
+proc SendFrame {channel frame} {
+	puts -nonewline $channel [binary format I [string length $frame]]$frame
+	flush $channel
+}
 
-			logisimForce
+proc ReceivePorts {frame} {
+	global names types outputs
+
+	set length [string length $frame]
+	set pos 1
+	while {$pos < $length} {
+		set record [string index $frame $pos]
+		binary scan $frame @[expr {$pos + 1}]Su id
+		set pos [expr {$pos + 3}]
+
+		if {$record == "N"} {
+			# Declaration of a port
+			binary scan $frame @${pos}cuSu type nameLength
+			set pos [expr {$pos + 3}]
+			set names($id) [string range $frame $pos [expr {$pos + $nameLength - 1}]]
+			set types($id) $type
+			if {$type == 2 || $type == 3} {
+				lappend outputs $id
+			}
+			set pos [expr {$pos + $nameLength}]
+		} else {
+			# New value of an input port
+			binary scan $frame @${pos}Su width
+			set pos [expr {$pos + 2}]
+			if {$record == "B"} {
+				binary scan $frame @${pos}B$width value
+				set pos [expr {$pos + ($width + 7) / 8}]
+			} else {
+				set value [string range $frame $pos [expr {$pos + $width - 1}]]
+				set pos [expr {$pos + $width}]
+			}
+			#echo "Received from Logsim : $names($id):$value"
+			set ::$names($id) $value
+		}
+	}
+}
 
-			# Read output signals from simulation
-			foreach msg $msgs {
+proc MessageReceived {channel} {
+	global names outputs lastOut
 
-				# Get signal and value from message
-				set signal [split $msg :]
-				set type [lindex $signal 0]
-				set name [lindex $signal 1]
-				set value [lindex $signal 2]
-				set id [lindex $signal 3]
+	if {[eof $channel] || [catch {ReadFrame $channel} frame]} {
+		end_binder $channel
+		return
+	}
 
+	set command [string index $frame 0]
 
-				# If signal is "out" or "inout"
-				if {$type == 2 || $type == 3} {
-					#echo "Send [concat $name:[set $name]:$id] to logisim"
-					# Send to logisim
-					send_socket $channel [concat $name:[set $name]:$id]
-				}
-			}
+	# If end of communication is asked
+	if {$command == "E"} {
 
-			# Send sync to alert logisim of end of step
-			#echo "Send : sync"
-			send_socket $channel "sync"
-
-			set msgs {}
-
-		# When a sync_examine is received
-		} elseif {$msg == "sync_examine"} {
-                        #echo "Recieved sync_examine!"
-
-			# Drive input signals in simulation
-			foreach msg $msgs {
-
-				# Get parameters from message
-				set signal [split $msg :]
-				set type [lindex $signal 0]
-				set name [lindex $signal 1]
-				set value [lindex $signal 2]
-				set id [lindex $signal 3]
-
-				global $name
-				# If signal is "in" or "inout"
-				if {$type == 1 || $type == 3} {
-					#echo "Received from Logsim : $name:$value"
-					set $name $value
-				} else {
-					set $name X
-				}
-			}
+		# Sim end procedure
+		end_binder $channel
 
-			logisimExamine
+	# On a new tick, force the sti and send back those that changed
+	} elseif {$command == "F"} {
+		ReceivePorts $frame
 
-			# Send sync to alert logisim of end of step
-			#echo "Send : sync"
-			send_socket $channel "sync"
+		foreach id $outputs {
+			set ::$names($id) X
+		}
 
-			set msgs {}
+		logisimForce
 
-		# If it's a signal, add to list
-		} else {
-			lappend msgs $msg ;
+		set reply ""
+		foreach id $outputs {
+			set value [set ::$names($id)]
+			if {![info exists lastOut($id)] || $lastOut($id) ne $value} {
+				set lastOut($id) $value
+				append reply [binary format aSS V $id [string length $value]] $value
+			}
 		}
-  }
+		if {$reply ne ""} {
+			SendFrame $channel $reply
+		}
+
+	# Otherwise simply update the obs
+	} elseif {$command == "X"} {
+		ReceivePorts $frame
+
+		logisimExamine
+	}
 }
 
 proc end_binder {channel} {
@@ -245,7 +254,6 @@ proc end_binder {channel} {
 
 proc init_wrapper {} {
 
-	global msgs
 	global argv
 	global channel
 
@@ -262,16 +270,11 @@ proc init_wrapper {} {
 		puts "TCL_WRAPPER_RUNNING"
 	}
 
-	# fconfigure $channel -buffering line
+	fconfigure $channel -translation binary -blocking 1
 	fileevent $channel readable [list MessageReceived $channel]
 
 }
 
-proc send_socket {channel message} {
-	puts $channel $message
-	flush $channel
-}
-
 proc echo {message} {
 	puts "\[TCL\] $message"
 }
@@ -174,8 +174,8 @@ public class Caret {
 					HexModel model = hex.getModel();
 					if (model != null && cursor >= model.getFirstOffset()
 							&& cursor <= model.getLastOffset()) {
-						int curValue = model.get(cursor);
-						int newValue = 16 * curValue + digit;
+						long curValue = model.get(cursor);
+						long newValue = 16 * curValue + digit;
 						model.set(cursor, newValue);
 					}
 				}
@@ -44,7 +44,7 @@ import javax.swing.SwingConstants;
 public class HexEditor extends JComponent implements Scrollable {
 	private class Listener implements HexModelListener {
 		public void bytesChanged(HexModel source, long start, long numBytes,
-				int[] oldValues) {
+				long[] oldValues) {
 			repaint(0, measures.toY(start), getWidth(),
 					measures.toY(start + numBytes) + measures.getCellHeight());
 		}
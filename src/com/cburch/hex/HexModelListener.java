@@ -32,7 +32,7 @@ package com.cburch.hex;
 
 public interface HexModelListener {
 	public void bytesChanged(HexModel source, long start, long numBytes,
-			int[] oldValues);
+			long[] oldValues);
 
 	public void metainfoChanged(HexModel source);
 }
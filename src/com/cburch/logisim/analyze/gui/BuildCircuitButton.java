@@ -35,6 +35,9 @@ import java.awt.GridBagLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
@@ -44,6 +47,7 @@ import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.SwingWorker;
 
 import com.cburch.logisim.analyze.model.AnalyzerModel;
 import com.cburch.logisim.analyze.model.Expression;
@@ -228,8 +232,39 @@ class BuildCircuitButton extends JButton {
 		setText(Strings.get("buildCircuitButton"));
 	}
 
-	private void performAction(Project dest, String name, boolean replace,
-			final boolean twoInputs, final boolean useNands) {
+	private void performAction(final Project dest, final String name,
+			final boolean replace, final boolean twoInputs,
+			final boolean useNands) {
+		// large tables are minimized in the background: wait for the
+		// expressions the circuit is built from, but not on this thread
+		final List<Future<?>> pending = model.getOutputExpressions()
+				.getPendingExpressions();
+		if (!pending.isEmpty()) {
+			setEnabled(false);
+			new SwingWorker<Void, Void>() {
+				@Override
+				protected Void doInBackground() throws InterruptedException {
+					for (Future<?> f : pending) {
+						try {
+							f.get();
+						} catch (CancellationException e) {
+							// a newer run replaced it
+						} catch (ExecutionException e) {
+							// the expression is recomputed when applied
+						}
+					}
+					return null;
+				}
+
+				@Override
+				protected void done() {
+					setEnabled(true);
+					performAction(dest, name, replace, twoInputs, useNands);
+				}
+			}.execute();
+			return;
+		}
+
 		if (replace) {
 			final Circuit circuit = dest.getLogisimFile().getCircuit(name);
 			if (circuit == null) {
@@ -0,0 +1,404 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.analyze.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Heuristic two-level minimizer in the style of Espresso. Cubes are packed
+ * into longs, with the don't-care inputs in the high word and the values of
+ * the other inputs in the low word, and the cover is improved by repeated
+ * expand, irredundant and reduce passes instead of enumerating every prime
+ * implicant. The result is not always minimal, but it stays fast for tables
+ * far too large for Quine-McCluskey.
+ */
+class CubeMinimizer {
+	private static final int MAX_PASSES = 8;
+
+	static List<Implicant> minimize(int format, Entry[] column, int inputs) {
+		Entry desired = format == AnalyzerModel.FORMAT_SUM_OF_PRODUCTS ? Entry.ONE
+				: Entry.ZERO;
+		Entry undesired = desired == Entry.ONE ? Entry.ZERO : Entry.ONE;
+		return new CubeMinimizer(column, inputs, desired, undesired)
+				.minimize();
+	}
+
+	private static long cube(int unknowns, int values) {
+		return ((long) unknowns << 32) | (values & 0xFFFFFFFFL);
+	}
+
+	private static int unknowns(long cube) {
+		return (int) (cube >>> 32);
+	}
+
+	private static int values(long cube) {
+		return (int) cube;
+	}
+
+	private static void checkCancelled() {
+		if (Thread.currentThread().isInterrupted())
+			throw new CancellationException();
+	}
+
+	private final int inputs;
+	private final int[] on; // rows to cover
+	private final int[] off; // rows no cube may contain
+	private final int[] onIndex; // index into on for each row, or -1
+	private final long[] offBits; // off as a bitmap over all rows
+	private int[] coverCount;
+
+	private CubeMinimizer(Entry[] column, int inputs, Entry desired,
+			Entry undesired) {
+		this.inputs = inputs;
+		int rows = 1 << inputs;
+		onIndex = new int[rows];
+		offBits = new long[(rows + 63) >>> 6];
+		int[] onRows = new int[rows];
+		int[] offRows = new int[rows];
+		int onCount = 0;
+		int offCount = 0;
+		for (int i = 0; i < rows; i++) {
+			Entry entry = i < column.length ? column[i] : Entry.DONT_CARE;
+			onIndex[i] = -1;
+			if (entry == desired) {
+				onIndex[i] = onCount;
+				onRows[onCount++] = i;
+			} else if (entry == undesired) {
+				offRows[offCount++] = i;
+				offBits[i >>> 6] |= 1L << i;
+			}
+		}
+		on = Arrays.copyOf(onRows, onCount);
+		off = Arrays.copyOf(offRows, offCount);
+	}
+
+	private List<Implicant> minimize() {
+		long[] seeds = new long[on.length];
+		for (int i = 0; i < on.length; i++)
+			seeds[i] = cube(0, on[i]);
+		long[] cover = irredundant(expand(seeds, false));
+		for (int pass = 1; pass < MAX_PASSES; pass++) {
+			long[] next = irredundant(expand(reduce(cover), (pass & 1) != 0));
+			if (!cheaper(next, cover))
+				break;
+			cover = next;
+		}
+
+		ArrayList<Implicant> ret = new ArrayList<Implicant>(cover.length);
+		for (long c : cover)
+			ret.add(new Implicant(unknowns(c), values(c)));
+		Collections.sort(ret);
+		return ret;
+	}
+
+	private boolean cheaper(long[] a, long[] b) {
+		if (a.length != b.length)
+			return a.length < b.length;
+		return literals(a) < literals(b);
+	}
+
+	private int literals(long[] cover) {
+		int ret = 0;
+		for (long c : cover)
+			ret += inputs - Integer.bitCount(unknowns(c));
+		return ret;
+	}
+
+	//
+	// expand: grow each cube as far as the off-set allows
+	//
+	private long[] expand(long[] cubes, boolean reverse) {
+		long[] order = cubes.clone();
+		sortBySize(order, false);
+		boolean[] covered = new boolean[on.length];
+		long[] ret = new long[order.length];
+		int count = 0;
+		for (long c : order) {
+			checkCancelled();
+			if (!coversUncovered(c, covered))
+				continue;
+			long prime = raise(c, covered, reverse);
+			markCovered(prime, covered);
+			ret[count++] = prime;
+		}
+		return Arrays.copyOf(ret, count);
+	}
+
+	private long raise(long c, boolean[] covered, boolean reverse) {
+		int unk = unknowns(c);
+		int val = values(c);
+		// try first the inputs whose removal picks up the most rows that
+		// still need covering
+		int free = ~unk & ((1 << inputs) - 1);
+		int n = Integer.bitCount(free);
+		long[] candidates = new long[n];
+		int k = 0;
+		for (int bits = free; bits != 0; bits &= bits - 1) {
+			int bit = Integer.numberOfTrailingZeros(bits);
+			int gain = countUncovered(unk, val ^ (1 << bit), covered);
+			int tie = reverse ? inputs - bit : bit;
+			candidates[k++] = ((long) gain << 32) | ((long) tie << 8) | bit;
+		}
+		Arrays.sort(candidates);
+		for (int i = n - 1; i >= 0; i--) {
+			int bit = (int) (candidates[i] & 0xFF);
+			int mask = 1 << bit;
+			// the cube is already clear of the off-set, so only the half it
+			// would gain needs checking
+			if (!hitsOff(unk, val ^ mask)) {
+				unk |= mask;
+				val &= ~mask;
+			}
+		}
+		return cube(unk, val);
+	}
+
+	//
+	// irredundant: drop cubes whose rows are all covered by others
+	//
+	private long[] irredundant(long[] cover) {
+		coverCount = new int[on.length];
+		for (long c : cover)
+			addCount(c, 1);
+		long[] order = cover.clone();
+		sortBySize(order, true);
+		boolean[] removed = new boolean[order.length];
+		int kept = order.length;
+		for (int i = 0; i < order.length; i++) {
+			checkCancelled();
+			if (isRedundant(order[i])) {
+				addCount(order[i], -1);
+				removed[i] = true;
+				kept--;
+			}
+		}
+		long[] ret = new long[kept];
+		int k = 0;
+		for (int i = 0; i < order.length; i++) {
+			if (!removed[i])
+				ret[k++] = order[i];
+		}
+		return ret;
+	}
+
+	//
+	// reduce: shrink each cube to the rows only it covers, so that the next
+	// expand can grow it in another direction
+	//
+	private long[] reduce(long[] cover) {
+		long[] order = cover.clone();
+		sortBySize(order, false);
+		long[] ret = new long[order.length];
+		int k = 0;
+		for (long c : order) {
+			checkCancelled();
+			long reduced = soleSupercube(c);
+			addCount(c, -1);
+			if (reduced != -1L) {
+				addCount(reduced, 1);
+				ret[k++] = reduced;
+			}
+		}
+		return Arrays.copyOf(ret, k);
+	}
+
+	//
+	// row helpers; each walks whichever is smaller, the rows of the cube or
+	// the list of rows it is checked against
+	//
+	private boolean hitsOff(int unk, int val) {
+		if (off.length == 0)
+			return false;
+		if ((1L << Integer.bitCount(unk)) <= off.length) {
+			for (int s = unk;; s = (s - 1) & unk) {
+				int row = val | s;
+				if ((offBits[row >>> 6] & (1L << row)) != 0)
+					return true;
+				if (s == 0)
+					return false;
+			}
+		}
+		int care = ~unk;
+		for (int row : off) {
+			if ((row & care) == val)
+				return true;
+		}
+		return false;
+	}
+
+	private boolean useRows(int unk) {
+		return (1L << Integer.bitCount(unk)) <= on.length;
+	}
+
+	private int countUncovered(int unk, int val, boolean[] covered) {
+		int ret = 0;
+		if (useRows(unk)) {
+			for (int s = unk;; s = (s - 1) & unk) {
+				int idx = onIndex[val | s];
+				if (idx >= 0 && !covered[idx])
+					ret++;
+				if (s == 0)
+					break;
+			}
+		} else {
+			int care = ~unk;
+			for (int i = 0; i < on.length; i++) {
+				if (!covered[i] && (on[i] & care) == val)
+					ret++;
+			}
+		}
+		return ret;
+	}
+
+	private boolean coversUncovered(long c, boolean[] covered) {
+		return countUncovered(unknowns(c), values(c), covered) > 0;
+	}
+
+	private void markCovered(long c, boolean[] covered) {
+		int unk = unknowns(c);
+		int val = values(c);
+		if (useRows(unk)) {
+			for (int s = unk;; s = (s - 1) & unk) {
+				int idx = onIndex[val | s];
+				if (idx >= 0)
+					covered[idx] = true;
+				if (s == 0)
+					break;
+			}
+		} else {
+			int care = ~unk;
+			for (int i = 0; i < on.length; i++) {
+				if ((on[i] & care) == val)
+					covered[i] = true;
+			}
+		}
+	}
+
+	private void addCount(long c, int delta) {
+		int unk = unknowns(c);
+		int val = values(c);
+		if (useRows(unk)) {
+			for (int s = unk;; s = (s - 1) & unk) {
+				int idx = onIndex[val | s];
+				if (idx >= 0)
+					coverCount[idx] += delta;
+				if (s == 0)
+					break;
+			}
+		} else {
+			int care = ~unk;
+			for (int i = 0; i < on.length; i++) {
+				if ((on[i] & care) == val)
+					coverCount[i] += delta;
+			}
+		}
+	}
+
+	private boolean isRedundant(long c) {
+		int unk = unknowns(c);
+		int val = values(c);
+		if (useRows(unk)) {
+			for (int s = unk;; s = (s - 1) & unk) {
+				int idx = onIndex[val | s];
+				if (idx >= 0 && coverCount[idx] < 2)
+					return false;
+				if (s == 0)
+					return true;
+			}
+		}
+		int care = ~unk;
+		for (int i = 0; i < on.length; i++) {
+			if ((on[i] & care) == val && coverCount[i] < 2)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the smallest cube containing the rows that only c covers, or
+	 * -1 if there are none.
+	 */
+	private long soleSupercube(long c) {
+		int unk = unknowns(c);
+		int val = values(c);
+		int first = -1;
+		int diff = 0;
+		if (useRows(unk)) {
+			for (int s = unk;; s = (s - 1) & unk) {
+				int row = val | s;
+				int idx = onIndex[row];
+				if (idx >= 0 && coverCount[idx] == 1) {
+					if (first < 0)
+						first = row;
+					else
+						diff |= row ^ first;
+				}
+				if (s == 0)
+					break;
+			}
+		} else {
+			int care = ~unk;
+			for (int i = 0; i < on.length; i++) {
+				if ((on[i] & care) == val && coverCount[i] == 1) {
+					if (first < 0)
+						first = on[i];
+					else
+						diff |= on[i] ^ first;
+				}
+			}
+		}
+		return first < 0 ? -1L : cube(diff, first & ~diff);
+	}
+
+	private static void sortBySize(long[] cubes, boolean ascending) {
+		// bucket by the number of unknowns, keeping the cubes of each size
+		// in value order so that the result does not depend on input order
+		Arrays.sort(cubes);
+		int[] start = new int[34];
+		for (long c : cubes)
+			start[sizeKey(c, ascending) + 1]++;
+		for (int i = 1; i < start.length; i++)
+			start[i] += start[i - 1];
+		long[] sorted = new long[cubes.length];
+		for (long c : cubes)
+			sorted[start[sizeKey(c, ascending)]++] = c;
+		System.arraycopy(sorted, 0, cubes, 0, cubes.length);
+	}
+
+	private static int sizeKey(long c, boolean ascending) {
+		int size = Integer.bitCount(unknowns(c));
+		return ascending ? size : 32 - size;
+	}
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.analyze.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CubeMinimizerTest {
+
+	private static final int[] FORMATS = {
+			AnalyzerModel.FORMAT_SUM_OF_PRODUCTS,
+			AnalyzerModel.FORMAT_PRODUCT_OF_SUMS };
+
+	/**
+	 * Checks that the cover includes every row with the value wanted by the
+	 * format and none with the opposite value; don't cares may go either
+	 * way.
+	 */
+	private static void assertCovers(int format, Entry[] column,
+			List<Implicant> cover) {
+		Entry want = format == AnalyzerModel.FORMAT_SUM_OF_PRODUCTS ? Entry.ONE
+				: Entry.ZERO;
+		boolean[] covered = new boolean[column.length];
+		for (Implicant imp : cover) {
+			for (Implicant term : imp.getTerms()) {
+				covered[term.getRow()] = true;
+			}
+		}
+		for (int row = 0; row < column.length; row++) {
+			if (column[row] == want) {
+				assertTrue("row " + row + " not covered", covered[row]);
+			} else if (column[row] != Entry.DONT_CARE) {
+				assertFalse("row " + row + " wrongly covered", covered[row]);
+			}
+		}
+	}
+
+	private static Entry[] randomColumn(Random rnd, int inputs, int onesIn10) {
+		Entry[] column = new Entry[1 << inputs];
+		for (int row = 0; row < column.length; row++) {
+			int x = rnd.nextInt(10);
+			column[row] = x < onesIn10 ? Entry.ONE : x < 9 ? Entry.ZERO
+					: Entry.DONT_CARE;
+		}
+		return column;
+	}
+
+	@Test
+	public final void testRandomSmallTables() {
+		Random rnd = new Random(1);
+		for (int t = 0; t < 300; t++) {
+			int inputs = 2 + rnd.nextInt(7);
+			int density = new int[] { 2, 5, 8 }[rnd.nextInt(3)];
+			Entry[] column = randomColumn(rnd, inputs, density);
+			for (int format : FORMATS) {
+				assertCovers(format, column,
+						CubeMinimizer.minimize(format, column, inputs));
+			}
+		}
+	}
+
+	@Test
+	public final void testRandomLargeTables() {
+		Random rnd = new Random(2);
+		for (int inputs = 9; inputs <= 12; inputs++) {
+			Entry[] column = randomColumn(rnd, inputs, 4);
+			for (int format : FORMATS) {
+				List<Implicant> cover = Implicant.computeMinimal(format,
+						column, inputs);
+				assertCovers(format, column, cover);
+			}
+		}
+	}
+
+	@Test
+	public final void testStructuredTableMerges() {
+		// a > b on two 5-bit inputs: far fewer cubes than rows
+		int inputs = 10;
+		Entry[] column = new Entry[1 << inputs];
+		int ones = 0;
+		for (int row = 0; row < column.length; row++) {
+			boolean greater = (row & 0x1f) > (row >> 5);
+			column[row] = greater ? Entry.ONE : Entry.ZERO;
+			if (greater)
+				ones++;
+		}
+		for (int format : FORMATS) {
+			List<Implicant> cover = CubeMinimizer.minimize(format, column,
+					inputs);
+			assertCovers(format, column, cover);
+			assertTrue(cover.size() < ones / 4);
+		}
+	}
+
+	@Test
+	public final void testConstantTables() {
+		int inputs = 9;
+		Entry[] ones = new Entry[1 << inputs];
+		Arrays.fill(ones, Entry.ONE);
+		List<Implicant> cover = CubeMinimizer.minimize(
+				AnalyzerModel.FORMAT_SUM_OF_PRODUCTS, ones, inputs);
+		assertCovers(AnalyzerModel.FORMAT_SUM_OF_PRODUCTS, ones, cover);
+		assertEquals(1, cover.size());
+		assertEquals(inputs, cover.get(0).getUnknownCount());
+
+		cover = CubeMinimizer.minimize(AnalyzerModel.FORMAT_PRODUCT_OF_SUMS,
+				ones, inputs);
+		assertEquals(0, cover.size());
+	}
+}
@@ -73,12 +73,38 @@ public class Implicant implements Comparable<Implicant> {
 		}
 	}
 
+	// tables with more inputs go to the heuristic cube minimizer, in the
+	// background; up to this size Quine-McCluskey is exact and quick enough
+	// to run on the event thread
+	static final int EXACT_MAX_INPUTS = 8;
+
 	static List<Implicant> computeMinimal(int format, AnalyzerModel model,
 			String variable) {
 		TruthTable table = model.getTruthTable();
 		int column = model.getOutputs().indexOf(variable);
 		if (column < 0)
 			return Collections.emptyList();
+		return computeMinimal(format, getColumn(table, column),
+				table.getInputColumnCount());
+	}
+
+	/**
+	 * Minimizes one output column. Only the column is read, so this may run
+	 * on another thread while the table is being edited.
+	 */
+	static List<Implicant> computeMinimal(int format, Entry[] column,
+			int inputs) {
+		boolean knownFound = false;
+		for (Entry entry : column) {
+			if (entry == Entry.ZERO || entry == Entry.ONE) {
+				knownFound = true;
+				break;
+			}
+		}
+		if (!knownFound)
+			return null;
+		if (inputs > EXACT_MAX_INPUTS)
+			return CubeMinimizer.minimize(format, column, inputs);
 
 		Entry desired = format == AnalyzerModel.FORMAT_SUM_OF_PRODUCTS ? Entry.ONE
 				: Entry.ZERO;
@@ -88,23 +114,17 @@ public class Implicant implements Comparable<Implicant> {
 		// that we need to cover.
 		HashMap<Implicant, Entry> base = new HashMap<Implicant, Entry>();
 		HashSet<Implicant> toCover = new HashSet<Implicant>();
-		boolean knownFound = false;
-		for (int i = 0; i < table.getRowCount(); i++) {
-			Entry entry = table.getOutputEntry(i, column);
-			if (entry == undesired) {
-				knownFound = true;
-			} else if (entry == desired) {
-				knownFound = true;
+		for (int i = 0; i < column.length; i++) {
+			Entry entry = column[i];
+			if (entry == desired) {
 				Implicant imp = new Implicant(0, i);
 				base.put(imp, entry);
 				toCover.add(imp);
-			} else {
+			} else if (entry != undesired) {
 				Implicant imp = new Implicant(0, i);
 				base.put(imp, entry);
 			}
 		}
-		if (!knownFound)
-			return null;
 
 		// work up to more general implicants, discovering
 		// any prime implicants.
@@ -234,6 +254,13 @@ public class Implicant implements Comparable<Implicant> {
 		return ret;
 	}
 
+	static Entry[] getColumn(TruthTable table, int column) {
+		Entry[] ret = new Entry[table.getRowCount()];
+		for (int i = 0; i < ret.length; i++)
+			ret[i] = table.getOutputEntry(i, column);
+		return ret;
+	}
+
 	static Expression toExpression(int format, AnalyzerModel model,
 			List<Implicant> implicants) {
 		if (implicants == null)
@@ -262,7 +289,7 @@ public class Implicant implements Comparable<Implicant> {
 
 	private int values;
 
-	private Implicant(int unknowns, int values) {
+	Implicant(int unknowns, int values) {
 		this.unknowns = unknowns;
 		this.values = values;
 	}
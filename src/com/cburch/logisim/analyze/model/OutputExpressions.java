@@ -35,6 +35,15 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
 
 public class OutputExpressions {
 	private class MyListener implements VariableListListener,
@@ -113,6 +122,10 @@ public class OutputExpressions {
 		List<Implicant> minimalImplicants = null;
 		Expression minimalExpr = null;
 
+		// minimization running in the background for large tables
+		private Future<List<Implicant>> pending = null;
+		private boolean pendingFormatChanged = false;
+
 		private boolean invalidating = false;
 
 		OutputData(String output) {
@@ -120,21 +133,25 @@ public class OutputExpressions {
 			invalidate(true, false);
 		}
 
+		// none of the getters wait for a background run: they return the
+		// last result applied, and the views are told when a newer one is
 		Expression getExpression() {
 			return expr;
 		}
 
 		String getExpressionString() {
 			if (exprString == null) {
-				if (expr == null)
+				if (expr == null && pending == null)
 					invalidate(false, false);
-				exprString = expr == null ? "" : expr.toString();
+				if (expr == null)
+					return "";
+				exprString = expr.toString();
 			}
 			return exprString;
 		}
 
 		Expression getMinimalExpression() {
-			if (minimalExpr == null)
+			if (minimalExpr == null && pending == null)
 				invalidate(false, false);
 			return minimalExpr;
 		}
@@ -143,6 +160,27 @@ public class OutputExpressions {
 			return minimalImplicants;
 		}
 
+		/**
+		 * Returns the background run whose result will replace the
+		 * expression, or null if the expression is up to date or was entered
+		 * by the user and still agrees with the truth table.
+		 */
+		Future<List<Implicant>> getPendingExpression() {
+			if (pending == null)
+				return null;
+			if (pending.isDone()) {
+				applyPending(pending);
+				return null;
+			}
+			if (expr == null || expr == minimalExpr)
+				return pending;
+			int column = model.getOutputs().indexOf(output);
+			Entry[] current = model.getTruthTable().getOutputColumn(column);
+			if (columnsMatch(current, computeColumn(model.getTruthTable(), expr)))
+				return null;
+			return pending;
+		}
+
 		int getMinimizedFormat() {
 			return format;
 		}
@@ -150,12 +188,70 @@ public class OutputExpressions {
 		private void invalidate(boolean initializing, boolean formatChanged) {
 			if (invalidating)
 				return;
+			TruthTable table = model.getTruthTable();
+			int inputs = table.getInputColumnCount();
+			int column = model.getOutputs().indexOf(output);
+			if (inputs <= Implicant.EXACT_MAX_INPUTS || column < 0) {
+				cancelPending();
+				applyMinimal(Implicant.computeMinimal(format, model, output),
+						initializing, formatChanged);
+				return;
+			}
+
+			// snapshot the column so the table can keep changing while the
+			// minimizer runs; a newer edit cancels the older run
+			if (pending != null) {
+				formatChanged |= pendingFormatChanged;
+				cancelPending();
+			}
+			final Entry[] values = Implicant.getColumn(table, column);
+			final int fmt = format;
+			FutureTask<List<Implicant>> task = new FutureTask<List<Implicant>>(
+					() -> Implicant.computeMinimal(fmt, values, inputs)) {
+				@Override
+				protected void done() {
+					if (!isCancelled())
+						SwingUtilities.invokeLater(() -> applyPending(this));
+				}
+			};
+			pending = task;
+			pendingFormatChanged = formatChanged;
+			minimizer().execute(task);
+		}
+
+		// called on the event thread once a background run finishes; the
+		// getters returned the older result meanwhile, so listeners are told
+		// of the new one even when the run was started while initializing
+		private void applyPending(Future<List<Implicant>> task) {
+			if (pending != task || outputData.get(output) != this)
+				return;
+			pending = null;
+			List<Implicant> result;
+			try {
+				result = task.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (CancellationException | ExecutionException e) {
+				result = Implicant.computeMinimal(format, model, output);
+			}
+			applyMinimal(result, false, pendingFormatChanged);
+		}
+
+		private void cancelPending() {
+			if (pending != null) {
+				pending.cancel(true);
+				pending = null;
+			}
+		}
+
+		private void applyMinimal(List<Implicant> implicants,
+				boolean initializing, boolean formatChanged) {
 			invalidating = true;
 			try {
 				List<Implicant> oldImplicants = minimalImplicants;
 				Expression oldMinExpr = minimalExpr;
-				minimalImplicants = Implicant.computeMinimal(format, model,
-						output);
+				minimalImplicants = implicants;
 				minimalExpr = Implicant.toExpression(format, model,
 						minimalImplicants);
 				boolean minChanged = !implicantsSame(oldImplicants,
@@ -174,7 +270,8 @@ public class OutputExpressions {
 							|| isAllUndefined(outputColumn) || formatChanged) {
 						// if not, then we need to change the expression to
 						// maintain consistency
-						boolean exprChanged = expr != oldMinExpr || minChanged;
+						boolean exprChanged = expr != oldMinExpr || minChanged
+								|| expr == null;
 						expr = minimalExpr;
 						if (exprChanged) {
 							exprString = null;
@@ -201,6 +298,7 @@ public class OutputExpressions {
 		}
 
 		private void removeInput(String input) {
+			cancelPending();
 			Expression oldMinExpr = minimalExpr;
 			minimalImplicants = null;
 			minimalExpr = null;
@@ -274,6 +372,23 @@ public class OutputExpressions {
 		}
 	}
 
+	private static ExecutorService minimizer;
+
+	private static synchronized ExecutorService minimizer() {
+		if (minimizer == null) {
+			int count = Math.max(1,
+					Runtime.getRuntime().availableProcessors() - 1);
+			minimizer = Executors.newFixedThreadPool(count, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "Minimizer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return minimizer;
+	}
+
 	private static boolean columnsMatch(Entry[] a, Entry[] b) {
 		if (a.length != b.length)
 			return false;
@@ -429,6 +544,23 @@ public class OutputExpressions {
 			data.invalidate(false, false);
 	}
 
+	/**
+	 * Returns the minimizations still running in the background whose
+	 * results will replace the expressions of their outputs, after applying
+	 * those that have finished. The expressions are up to date once the list
+	 * is empty. It has to be called on the event thread, but the futures may
+	 * be waited for on any other thread.
+	 */
+	public List<Future<?>> getPendingExpressions() {
+		List<Future<?>> ret = new ArrayList<Future<?>>();
+		for (OutputData data : new ArrayList<OutputData>(outputData.values())) {
+			Future<?> f = data.getPendingExpression();
+			if (f != null && !f.isDone())
+				ret.add(f);
+		}
+		return ret;
+	}
+
 	public boolean isExpressionMinimal(String output) {
 		OutputData data = getOutputData(output, false);
 		return data == null ? true : data.isExpressionMinimal();
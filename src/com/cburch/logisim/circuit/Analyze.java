@@ -39,6 +39,10 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
 
 import com.cburch.logisim.analyze.model.AnalyzerModel;
 import com.cburch.logisim.analyze.model.Entry;
@@ -152,39 +156,34 @@ public class Analyze {
 	//
 	// ComputeTable
 	//
-	/** Returns a truth table corresponding to the circuit. */
-	public static void computeTable(AnalyzerModel model, Project proj,
-			Circuit circuit, Map<Instance, String> pinLabels) {
-		ArrayList<Instance> inputPins = new ArrayList<Instance>();
-		ArrayList<String> inputNames = new ArrayList<String>();
-		ArrayList<Instance> outputPins = new ArrayList<Instance>();
-		ArrayList<String> outputNames = new ArrayList<String>();
-		for (Map.Entry<Instance, String> entry : pinLabels.entrySet()) {
-			Instance pin = entry.getKey();
-			if (Pin.FACTORY.isInputPin(pin)) {
-				inputPins.add(pin);
-				inputNames.add(entry.getValue());
-			} else {
-				outputPins.add(pin);
-				outputNames.add(entry.getValue());
-			}
+	private static class TableEvaluator {
+		private final CircuitState circuitState;
+		private final Propagator prop;
+		private final Instance[] inputPins;
+		private final Instance[] outputPins;
+		private final Entry[][] columns;
+
+		TableEvaluator(Project proj, Circuit circuit, Instance[] inputPins,
+				Instance[] outputPins, Entry[][] columns) {
+			this.circuitState = new CircuitState(proj, circuit);
+			this.prop = circuitState.getPropagator();
+			this.inputPins = inputPins;
+			this.outputPins = outputPins;
+			this.columns = columns;
 		}
 
-		int inputCount = inputPins.size();
-		int rowCount = 1 << inputCount;
-		Entry[][] columns = new Entry[outputPins.size()][rowCount];
-
-		for (int i = 0; i < rowCount; i++) {
-			CircuitState circuitState = new CircuitState(proj, circuit);
+		void evaluate(int row) {
+			// reuse the state instead of building a fresh one for every row
+			prop.reset();
+			int inputCount = inputPins.length;
 			for (int j = 0; j < inputCount; j++) {
-				Instance pin = inputPins.get(j);
-				InstanceState pinState = circuitState.getInstanceState(pin);
-				boolean value = TruthTable.isInputSet(i, j, inputCount);
+				InstanceState pinState = circuitState
+						.getInstanceState(inputPins[j]);
+				boolean value = TruthTable.isInputSet(row, j, inputCount);
 				Pin.FACTORY
 						.setValue(pinState, value ? Value.TRUE : Value.FALSE);
 			}
 
-			Propagator prop = circuitState.getPropagator();
 			prop.propagate();
 			/*
 			 * TODO for the SimulatorPrototype class do { prop.step(); } while
@@ -194,12 +193,12 @@ public class Analyze {
 
 			if (prop.isOscillating()) {
 				for (int j = 0; j < columns.length; j++) {
-					columns[j][i] = Entry.OSCILLATE_ERROR;
+					columns[j][row] = Entry.OSCILLATE_ERROR;
 				}
 			} else {
 				for (int j = 0; j < columns.length; j++) {
-					Instance pin = outputPins.get(j);
-					InstanceState pinState = circuitState.getInstanceState(pin);
+					InstanceState pinState = circuitState
+							.getInstanceState(outputPins[j]);
 					Entry out;
 					Value outValue = Pin.FACTORY.getValue(pinState).get(0);
 					if (outValue == Value.TRUE)
@@ -210,15 +209,187 @@ public class Analyze {
 						out = Entry.BUS_ERROR;
 					else
 						out = Entry.DONT_CARE;
-					columns[j][i] = out;
+					columns[j][row] = out;
 				}
 			}
 		}
+	}
 
-		model.setVariables(inputNames, outputNames);
-		for (int i = 0; i < columns.length; i++) {
-			model.getTruthTable().setOutputColumn(i, columns[i]);
+	private static class TableWorker extends Thread {
+		private final TableEvaluator evaluator;
+		private final AtomicInteger nextRow;
+		private final AtomicInteger rowsDone;
+		private final int rowCount;
+		private volatile boolean canceled = false;
+		private volatile Throwable failure = null;
+
+		TableWorker(TableEvaluator evaluator, AtomicInteger nextRow,
+				AtomicInteger rowsDone, int rowCount) {
+			super("TableWorker");
+			this.evaluator = evaluator;
+			this.nextRow = nextRow;
+			this.rowsDone = rowsDone;
+			this.rowCount = rowCount;
+		}
+
+		/** Evaluates one block of rows; returns false when none are left. */
+		boolean evaluateBlock() {
+			if (canceled)
+				return false;
+			int first = nextRow.getAndAdd(TABLE_BLOCK_SIZE);
+			if (first >= rowCount)
+				return false;
+			int last = Math.min(rowCount, first + TABLE_BLOCK_SIZE);
+			for (int i = first; i < last; i++) {
+				evaluator.evaluate(i);
+			}
+			rowsDone.addAndGet(last - first);
+			return true;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (evaluateBlock()) {
+				}
+			} catch (Throwable t) {
+				// rethrown by computeTable once every worker has stopped
+				failure = t;
+			}
+		}
+	}
+
+	private static final int TABLE_BLOCK_SIZE = 64;
+
+	/** Returns a truth table corresponding to the circuit. */
+	public static void computeTable(AnalyzerModel model, Project proj,
+			Circuit circuit, Map<Instance, String> pinLabels) {
+		computeTable(model, proj, circuit, pinLabels, null);
+	}
+
+	/**
+	 * Computes the truth table corresponding to the circuit, spreading the
+	 * rows over the available processors. Progress is reported to
+	 * <code>monitor</code> if it is not null; returns false, leaving the model
+	 * untouched, if the computation was canceled through it. An exception
+	 * thrown while evaluating any row, on whichever thread, is rethrown here
+	 * once all the workers have stopped, and the model is left untouched.
+	 */
+	public static boolean computeTable(final AnalyzerModel model,
+			Project proj, Circuit circuit, Map<Instance, String> pinLabels,
+			ProgressMonitor monitor) {
+		final ArrayList<String> inputNames = new ArrayList<String>();
+		final ArrayList<String> outputNames = new ArrayList<String>();
+		ArrayList<Instance> inputPins = new ArrayList<Instance>();
+		ArrayList<Instance> outputPins = new ArrayList<Instance>();
+		for (Map.Entry<Instance, String> entry : pinLabels.entrySet()) {
+			Instance pin = entry.getKey();
+			if (Pin.FACTORY.isInputPin(pin)) {
+				inputPins.add(pin);
+				inputNames.add(entry.getValue());
+			} else {
+				outputPins.add(pin);
+				outputNames.add(entry.getValue());
+			}
+		}
+
+		int rowCount = 1 << inputPins.size();
+		final Entry[][] columns = new Entry[outputPins.size()][rowCount];
+		Instance[] inputs = inputPins.toArray(new Instance[inputPins.size()]);
+		Instance[] outputs = outputPins
+				.toArray(new Instance[outputPins.size()]);
+		if (monitor != null) {
+			final ProgressMonitor m = monitor;
+			final int max = rowCount;
+			onEventThread(() -> {
+				m.setMinimum(0);
+				m.setMaximum(max);
+			});
+		}
+
+		// The first row is done on the calling thread: it lays out the wire
+		// bundles of every circuit involved before any worker needs them.
+		AtomicInteger nextRow = new AtomicInteger(1);
+		AtomicInteger rowsDone = new AtomicInteger(1);
+		int workerCount = Math.min(Runtime.getRuntime().availableProcessors(),
+				(rowCount + TABLE_BLOCK_SIZE - 1) / TABLE_BLOCK_SIZE);
+		TableWorker[] workers = new TableWorker[Math.max(workerCount, 1)];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new TableWorker(new TableEvaluator(proj, circuit,
+					inputs, outputs, columns), nextRow, rowsDone, rowCount);
 		}
+		workers[0].evaluator.evaluate(0);
+		for (int i = 1; i < workers.length; i++) {
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+
+		boolean canceled = false;
+		try {
+			while (workers[0].evaluateBlock()) {
+				if (monitor != null) {
+					if (monitor.isCanceled()) {
+						canceled = true;
+						break;
+					}
+					final ProgressMonitor m = monitor;
+					final int progress = rowsDone.get();
+					onEventThread(() -> m.setProgress(progress));
+				}
+			}
+		} catch (RuntimeException | Error e) {
+			workers[0].failure = e;
+		}
+		for (int i = 1; i < workers.length; i++) {
+			if (canceled || workers[0].failure != null)
+				workers[i].canceled = true;
+			while (workers[i].isAlive()) {
+				try {
+					workers[i].join();
+				} catch (InterruptedException e) {
+				}
+			}
+		}
+		// a row that failed leaves a hole in the table: report the failure
+		// rather than publishing what was computed
+		for (TableWorker worker : workers) {
+			Throwable t = worker.failure;
+			if (t instanceof RuntimeException)
+				throw (RuntimeException) t;
+			if (t instanceof Error)
+				throw (Error) t;
+			if (t != null)
+				throw new RuntimeException(t);
+		}
+		if (canceled || (monitor != null && monitor.isCanceled()))
+			return false;
+
+		Runnable update = new Runnable() {
+			public void run() {
+				model.setVariables(inputNames, outputNames);
+				for (int i = 0; i < columns.length; i++) {
+					model.getTruthTable().setOutputColumn(i, columns[i]);
+				}
+			}
+		};
+		if (monitor == null || SwingUtilities.isEventDispatchThread()) {
+			update.run();
+		} else {
+			try {
+				SwingUtilities.invokeAndWait(update);
+			} catch (Exception e) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Swing components may only be touched from the event thread
+	private static void onEventThread(Runnable r) {
+		if (SwingUtilities.isEventDispatchThread())
+			r.run();
+		else
+			SwingUtilities.invokeLater(r);
 	}
 
 	// computes outputs of affected components
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.cburch.logisim.analyze.model.AnalyzerModel;
+import com.cburch.logisim.analyze.model.Entry;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceFactory;
+import com.cburch.logisim.instance.InstancePainter;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.Port;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+
+public class AnalyzeTest {
+
+	private static final int INPUTS = 8;
+
+	/**
+	 * Fails to propagate whenever its input is high, but only on the helper
+	 * threads, whose failures used to be lost.
+	 */
+	private static class Faulty extends InstanceFactory {
+		private final Thread caller = Thread.currentThread();
+
+		Faulty() {
+			super("Faulty");
+			setOffsetBounds(Bounds.create(0, -10, 20, 20));
+			setPorts(new Port[] { new Port(0, 0, Port.INPUT, 1) });
+		}
+
+		@Override
+		public void paintInstance(InstancePainter painter) {
+		}
+
+		@Override
+		public void propagate(InstanceState state) {
+			if (state.getPortValue(0) == Value.TRUE
+					&& Thread.currentThread() != caller)
+				throw new IllegalStateException("faulty component");
+		}
+	}
+
+	private static Component pin(Location loc, boolean output) {
+		AttributeSet attrs = Pin.FACTORY.createAttributeSet();
+		attrs.setValue(StdAttr.WIDTH, BitWidth.ONE);
+		attrs.setValue(Pin.ATTR_TYPE, Boolean.valueOf(output));
+		return Pin.FACTORY.createComponent(loc, attrs);
+	}
+
+	/**
+	 * Eight inputs wired straight through to eight outputs; when
+	 * <code>faultyInput</code> is not negative, that input also drives a
+	 * component that throws.
+	 */
+	private static boolean compute(AnalyzerModel model, int faultyInput) {
+		LogisimFile file = LogisimFile.createNew(new Loader(null), null);
+		Project proj = new Project(file);
+		Circuit circuit = file.getMainCircuit();
+		CircuitMutation m = new CircuitMutation(circuit);
+		Map<Instance, String> labels = new HashMap<Instance, String>();
+		for (int i = 0; i < INPUTS; i++) {
+			Location in = Location.create(100, 100 + 40 * i);
+			Location out = Location.create(300, 100 + 40 * i);
+			Component a = pin(in, false);
+			Component y = pin(out, true);
+			m.add(a);
+			m.add(y);
+			m.add(Wire.create(in, out));
+			labels.put(Instance.getInstanceFor(a), "a" + i);
+			labels.put(Instance.getInstanceFor(y), "y" + i);
+			if (i == faultyInput) {
+				Faulty faulty = new Faulty();
+				m.add(faulty.createComponent(Location.create(200, 100 + 40 * i),
+						faulty.createAttributeSet()));
+			}
+		}
+		m.execute();
+		return Analyze.computeTable(model, proj, circuit, labels, null);
+	}
+
+	@Test
+	public void testComputesEveryRow() {
+		AnalyzerModel model = new AnalyzerModel();
+		assertTrue(compute(model, -1));
+		assertEquals(INPUTS, model.getInputs().size());
+		int rows = 1 << INPUTS;
+		for (int out = 0; out < INPUTS; out++) {
+			int in = model.getInputs().indexOf("a" + out);
+			int col = model.getOutputs().indexOf("y" + out);
+			for (int row = 0; row < rows; row++) {
+				boolean set = (row >> (INPUTS - 1 - in) & 1) != 0;
+				assertEquals(set ? Entry.ONE : Entry.ZERO, model
+						.getTruthTable().getOutputEntry(row, col));
+			}
+		}
+	}
+
+	@Test
+	public void testHelperFailureIsRethrown() {
+		assumeTrue(Runtime.getRuntime().availableProcessors() > 1);
+		for (int faulty = 0; faulty < INPUTS; faulty++) {
+			AnalyzerModel model = new AnalyzerModel();
+			try {
+				compute(model, faulty);
+				fail("failure in a row was swallowed");
+			} catch (IllegalStateException e) {
+				assertEquals("faulty component", e.getMessage());
+			}
+			// no partial table is published
+			assertEquals(0, model.getInputs().size());
+		}
+	}
+}
@@ -31,6 +31,7 @@
 package com.cburch.logisim.circuit;
 
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -125,6 +126,10 @@ public class Circuit {
 	private class MyComponentListener implements ComponentListener {
 		@Override
 		public void componentInvalidated(ComponentEvent e) {
+			ComponentFactory factory = e.getSource().getFactory();
+			if (!(factory instanceof Pin) && !(factory instanceof Clock))
+				compiledValid = false;
+			grid.update(e.getSource());
 			fireEvent(CircuitEvent.ACTION_INVALIDATE, e.getSource());
 		}
 
@@ -133,12 +138,14 @@ public class Circuit {
 			locker.checkForWritePermission("ends changed");
 			Annotated = false;
 			MyNetList.clear();
+			compiledValid = false;
 			Component comp = e.getSource();
 			HashMap<Location, EndData> toRemove = toMap(e.getOldData());
 			HashMap<Location, EndData> toAdd = toMap(e.getData());
 			EndChangedTransaction xn = new EndChangedTransaction(comp,
 					toRemove, toAdd);
 			locker.execute(xn);
+			grid.update(comp);
 			fireEvent(CircuitEvent.ACTION_INVALIDATE, comp);
 		}
 
@@ -242,6 +249,7 @@ public class Circuit {
 	// include
 	// wires
 	CircuitWires wires = new CircuitWires();
+	private ComponentGrid grid = new ComponentGrid(); // comps and wires
 	private ArrayList<Component> clocks = new ArrayList<Component>();
 	private ArrayList<Component> ticking = new ArrayList<Component>();
 	private CircuitLocker locker;
@@ -250,6 +258,10 @@ public class Circuit {
 
 	private WeakHashMap<Component, Circuit> circuitsUsingThis;
 	private Netlist MyNetList;
+	// what the simulator sees: the components as of the last commit
+	private volatile NetlistSnapshot snapshot = NetlistSnapshot.EMPTY;
+	private volatile CompiledCircuit compiled = null;
+	private volatile boolean compiledValid = false;
 	private boolean Annotated;
 	private Project proj;
 
@@ -466,8 +478,20 @@ public class Circuit {
 	 */
 	public void doTestVector(Project project, Instance pin[], Value[] val)
 			throws TestException {
-		CircuitState state = project.getCircuitState();
-		state.reset();
+		doTestVector(project.getCircuitState(), pin, val);
+	}
+
+	/**
+	 * Applies one test vector to the given state, which need not be the
+	 * project's, so that several vectors can be checked at the same time.
+	 */
+	public void doTestVector(CircuitState state, Instance pin[], Value[] val)
+			throws TestException {
+		Propagator prop = state.getPropagator();
+		if (prop.getRootState() == state)
+			prop.reset(); // also drops events left over by an oscillation
+		else
+			state.reset();
 
 		for (int i = 0; i < pin.length; ++i) {
 			if (Pin.FACTORY.isInputPin(pin[i])) {
@@ -476,8 +500,6 @@ public class Circuit {
 			}
 		}
 
-		Propagator prop = state.getPropagator();
-
 		try {
 			prop.propagate();
 		} catch (Throwable thr) {
@@ -516,12 +538,19 @@ public class Circuit {
 	//
 	public void draw(ComponentDrawContext context, Collection<Component> hidden) {
 		Graphics g = context.getGraphics();
+		Rectangle clip = g.getClipBounds();
+		Collection<Component> visible = null;
+		if (clip != null)
+			visible = grid.query(Bounds.create(clip));
 		Graphics g_copy = g.create();
 		context.setGraphics(g_copy);
-		wires.draw(context, hidden);
+		wires.draw(context, hidden, visible);
 
+		Collection<Component> toDraw = visible == null ? comps : visible;
 		if (hidden == null || hidden.size() == 0) {
-			for (Component c : comps) {
+			for (Component c : toDraw) {
+				if (c instanceof Wire)
+					continue;
 				Graphics g_new = g.create();
 				context.setGraphics(g_new);
 				g_copy.dispose();
@@ -530,8 +559,8 @@ public class Circuit {
 				c.draw(context);
 			}
 		} else {
-			for (Component c : comps) {
-				if (!hidden.contains(c)) {
+			for (Component c : toDraw) {
+				if (!(c instanceof Wire) && !hidden.contains(c)) {
 					Graphics g_new = g.create();
 					context.setGraphics(g_new);
 					g_copy.dispose();
@@ -563,7 +592,7 @@ public class Circuit {
 
 	public Collection<Component> getAllContaining(Location pt) {
 		LinkedHashSet<Component> ret = new LinkedHashSet<Component>();
-		for (Component comp : getComponents()) {
+		for (Component comp : grid.query(pt)) {
 			if (comp.contains(pt))
 				ret.add(comp);
 		}
@@ -572,7 +601,7 @@ public class Circuit {
 
 	public Collection<Component> getAllContaining(Location pt, Graphics g) {
 		LinkedHashSet<Component> ret = new LinkedHashSet<Component>();
-		for (Component comp : getComponents()) {
+		for (Component comp : grid.query(pt)) {
 			if (comp.contains(pt, g))
 				ret.add(comp);
 		}
@@ -581,7 +610,7 @@ public class Circuit {
 
 	public Collection<Component> getAllWithin(Bounds bds) {
 		LinkedHashSet<Component> ret = new LinkedHashSet<Component>();
-		for (Component comp : getComponents()) {
+		for (Component comp : getCandidates(bds)) {
 			if (bds.contains(comp.getBounds()))
 				ret.add(comp);
 		}
@@ -590,7 +619,7 @@ public class Circuit {
 
 	public Collection<Component> getAllWithin(Bounds bds, Graphics g) {
 		LinkedHashSet<Component> ret = new LinkedHashSet<Component>();
-		for (Component comp : getComponents()) {
+		for (Component comp : getCandidates(bds)) {
 			if (bds.contains(comp.getBounds(g)))
 				ret.add(comp);
 		}
@@ -682,6 +711,11 @@ public class Circuit {
 		return ticking;
 	}
 
+	private Collection<Component> getCandidates(Bounds bds) {
+		Collection<Component> ret = grid.query(bds);
+		return ret != null ? ret : getComponents();
+	}
+
 	private Set<Component> getComponents() {
 		return CollectionUtil.createUnmodifiableSetUnion(comps,
 				wires.getWires());
@@ -706,10 +740,22 @@ public class Circuit {
 		return staticAttrs.getValue(CircuitAttributes.NAME_ATTR);
 	}
 
+	CompiledCircuit getCompiled() {
+		if (!compiledValid) {
+			compiledValid = true;
+			compiled = CompiledCircuit.compile(this);
+		}
+		return compiled;
+	}
+
 	public Netlist getNetList() {
 		return MyNetList;
 	}
 
+	NetlistSnapshot getSnapshot() {
+		return snapshot;
+	}
+
 	public Set<Component> getNonWires() {
 		return comps;
 	}
@@ -766,6 +812,15 @@ public class Circuit {
 		return wires.points.hasConflict(comp);
 	}
 
+	/**
+	 * Publishes the components as they are now for the simulator. Called
+	 * by the mutator when a transaction that changed this circuit commits.
+	 */
+	void publishSnapshot() {
+		snapshot = new NetlistSnapshot(snapshot.getVersion() + 1, comps);
+		compiledValid = false;
+	}
+
 	public boolean isConnected(Location loc, Component ignore) {
 		for (Component o : wires.points.getComponents(loc)) {
 			if (o != ignore)
@@ -780,6 +835,7 @@ public class Circuit {
 
 		Annotated = false;
 		MyNetList.clear();
+		compiledValid = false;
 		if (c instanceof Wire) {
 			Wire w = (Wire) c;
 			if (w.getEnd0().equals(w.getEnd1()))
@@ -787,6 +843,7 @@ public class Circuit {
 			boolean added = wires.add(w);
 			if (!added)
 				return;
+			grid.add(w);
 		} else {
 			// add it into the circuit
 			boolean added = comps.add(c);
@@ -804,6 +861,7 @@ public class Circuit {
 				subcirc.getSubcircuit().circuitsUsingThis.put(c, this);
 			}
 			c.addComponentListener(myComponentListener);
+			grid.add(c);
 		}
 		RemoveWrongLabels(c.getFactory().getName());
 		fireEvent(CircuitEvent.ACTION_ADD, c);
@@ -815,9 +873,11 @@ public class Circuit {
 		Set<Component> oldComps = comps;
 		comps = new LinkedHashSet<Component>();
 		wires = new CircuitWires();
+		grid.clear();
 		clocks.clear();
 		ticking.clear();
 		MyNetList.clear();
+		compiledValid = false;
 		Annotated = false;
 		for (Component comp : oldComps) {
 			if (comp.getFactory() instanceof SubcircuitFactory) {
@@ -835,6 +895,8 @@ public class Circuit {
 
 		Annotated = false;
 		MyNetList.clear();
+		compiledValid = false;
+		grid.remove(c);
 		if (c instanceof Wire) {
 			wires.remove(c);
 		} else {
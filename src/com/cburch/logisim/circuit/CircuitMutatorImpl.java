@@ -103,6 +103,19 @@ class CircuitMutatorImpl implements CircuitMutator {
 		return ret;
 	}
 
+	/**
+	 * Publishes a new netlist snapshot for every circuit this mutator
+	 * changed and still holds, so the simulator picks up the committed
+	 * state. Circuits locked by an enclosing transaction are published
+	 * when that one commits.
+	 */
+	void publishSnapshots() {
+		for (Circuit circuit : modified) {
+			if (circuit.getLocker().getMutator() == this)
+				circuit.publishSnapshot();
+		}
+	}
+
 	void markModified(Circuit circuit) {
 		modified.add(circuit);
 	}
@@ -30,20 +30,23 @@
 
 package com.cburch.logisim.circuit;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.ConcurrentModificationException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.cburch.logisim.circuit.Propagator.SetData;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.ComponentDrawContext;
 import com.cburch.logisim.comp.ComponentState;
 import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.instance.*;
@@ -54,6 +57,48 @@ import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
 public class CircuitState implements InstanceData {
+	/**
+	 * Marks collected from the editor and the simulator, handed to the
+	 * propagation thread as a whole. A mark is a plain hash insert under the
+	 * set's lock; the propagation thread swaps in an empty set and then owns
+	 * the marks it took without any further synchronization.
+	 */
+	private static class DirtySet<T> {
+		private LinkedHashSet<T> marks = new LinkedHashSet<T>();
+
+		synchronized void add(T value) {
+			marks.add(value);
+		}
+
+		synchronized void addAll(Collection<? extends T> values) {
+			marks.addAll(values);
+		}
+
+		synchronized void clear() {
+			marks.clear();
+		}
+
+		synchronized ArrayList<T> copy() {
+			return new ArrayList<T>(marks);
+		}
+
+		synchronized boolean isEmpty() {
+			return marks.isEmpty();
+		}
+
+		synchronized void remove(T value) {
+			marks.remove(value);
+		}
+
+		synchronized Set<T> take() {
+			if (marks.isEmpty())
+				return Collections.emptySet();
+			LinkedHashSet<T> ret = marks;
+			marks = new LinkedHashSet<T>();
+			return ret;
+		}
+	}
+
 
 	private class MyCircuitListener implements CircuitListener {
 		public void circuitChanged(CircuitEvent event) {
@@ -89,6 +134,7 @@ public class CircuitState implements InstanceData {
 					markPointAsDirty(w.getEnd0());
 					markPointAsDirty(w.getEnd1());
 				} else {
+					instanceStates.remove(comp);
 					if (base != null)
 						base.checkComponentEnds(CircuitState.this, comp);
 					dirtyComponents.remove(comp);
@@ -100,6 +146,7 @@ public class CircuitState implements InstanceData {
 				substates.clear();
 				wireData = null;
 				componentData.clear();
+				instanceStates.clear();
 				values.clear();
 				dirtyComponents.clear();
 				dirtyPoints.clear();
@@ -134,6 +181,7 @@ public class CircuitState implements InstanceData {
 						circuit);
 				if (map != null) {
 					for (Component comp : map.getReplacedComponents()) {
+						instanceStates.remove(comp);
 						Object compState = componentData.remove(comp);
 						if (compState != null) {
 							Class<?> compFactory = comp.getFactory().getClass();
@@ -169,10 +217,19 @@ public class CircuitState implements InstanceData {
 
 	private CircuitWires.State wireData = null;
 	private HashMap<Component, Object> componentData = new HashMap<Component, Object>();
+	// handles passed to instance components, created once per component
+	private ConcurrentHashMap<Component, InstanceStateImpl> instanceStates = new ConcurrentHashMap<Component, InstanceStateImpl>();
 	private Long2ObjectMap<Value> values = new Long2ObjectOpenHashMap<>();
-	private CopyOnWriteArraySet<Component> dirtyComponents = new CopyOnWriteArraySet<Component>();
-	private CopyOnWriteArraySet<Location> dirtyPoints = new CopyOnWriteArraySet<Location>();
+	private DirtySet<Component> dirtyComponents = new DirtySet<Component>();
+	private DirtySet<Location> dirtyPoints = new DirtySet<Location>();
 	HashMap<Location, SetData> causes = new HashMap<Location, SetData>();
+	// net values when the circuit is evaluated through its compiled form
+	CompiledCircuit.State compiledState = null;
+	// what changed since the canvas last repainted, if it is watching
+	private volatile DirtyRegion dirtyRegion = null;
+	// whether this state or one containing it may be collecting changes;
+	// when false, noteChanged has nothing to do
+	private volatile boolean tracked = false;
 
 	private static int lastId = 0;
 	private int id = lastId++;
@@ -240,8 +297,8 @@ public class CircuitState implements InstanceData {
 			this.wireData = (CircuitWires.State) src.wireData.clone();
 		}
 		this.values.putAll(src.values);
-		this.dirtyComponents.addAll(src.dirtyComponents);
-		this.dirtyPoints.addAll(src.dirtyPoints);
+		this.dirtyComponents.addAll(src.dirtyComponents.copy());
+		this.dirtyPoints.addAll(src.dirtyPoints.copy());
 	}
 
 	public void drawOscillatingPoints(ComponentDrawContext context) {
@@ -269,7 +326,17 @@ public class CircuitState implements InstanceData {
 	public InstanceState getInstanceState(Component comp) {
 		Object factory = comp.getFactory();
 		if (factory instanceof InstanceFactory) {
-			return ((InstanceFactory) factory).createInstanceState(this, comp);
+			InstanceStateImpl ret = instanceStates.get(comp);
+			if (ret == null) {
+				ret = (InstanceStateImpl) ((InstanceFactory) factory)
+						.createInstanceState(this, comp);
+				if (circuit.getSnapshot().contains(comp)) {
+					InstanceStateImpl old = instanceStates.putIfAbsent(comp, ret);
+					if (old != null)
+						ret = old;
+				}
+			}
+			return ret;
 		} else {
 			throw new RuntimeException(
 					"getInstanceState requires instance component");
@@ -279,8 +346,7 @@ public class CircuitState implements InstanceData {
 	public InstanceState getInstanceState(Instance instance) {
 		Object factory = instance.getFactory();
 		if (factory instanceof InstanceFactory) {
-			return ((InstanceFactory) factory).createInstanceState(this,
-					instance);
+			return getInstanceState(instance.getComponent());
 		} else {
 			throw new RuntimeException(
 					"getInstanceState requires instance component");
@@ -312,6 +378,12 @@ public class CircuitState implements InstanceData {
 	}
 
 	public Value getValue(Location pt) {
+		CompiledCircuit.State compiled = compiledState;
+		if (compiled != null) {
+			Value ret = compiled.getValue(pt);
+			if (ret != null)
+				return ret;
+		}
 		Value ret = values.get(pt.toLong());
 		if (ret != null)
 			return ret;
@@ -320,6 +392,20 @@ public class CircuitState implements InstanceData {
 		return Value.createUnknown(wid);
 	}
 
+	/**
+	 * Returns the area covering the locations and components whose
+	 * appearance changed since the previous call, or null if it is unknown
+	 * and the whole circuit should be repainted. Changes are only collected
+	 * after {@link #setTrackingChanges} has been turned on.
+	 */
+	public Bounds getChangedBounds() {
+		DirtyRegion region = dirtyRegion;
+		if (region == null)
+			return null;
+		Bounds ret = region.take(circuit);
+		return compiledState != null ? null : ret;
+	}
+
 	Value getValueByWire(Location p) {
 		return values.get(p.toLong());
 	}
@@ -338,18 +424,12 @@ public class CircuitState implements InstanceData {
 	//
 	// private methods
 	//
-	private void markAllComponentsDirty() {
-		dirtyComponents.addAll(circuit.getNonWires());
+	void markAllComponentsDirty() {
+		dirtyComponents.addAll(circuit.getSnapshot().getComponents());
 	}
 
 	public void markComponentAsDirty(Component comp) {
-		try {
-			dirtyComponents.add(comp);
-		} catch (RuntimeException e) {
-			CopyOnWriteArraySet<Component> set = new CopyOnWriteArraySet<Component>();
-			set.add(comp);
-			dirtyComponents = set;
-		}
+		dirtyComponents.add(comp);
 	}
 
 	public void markComponentsDirty(Collection<Component> comps) {
@@ -360,77 +440,72 @@ public class CircuitState implements InstanceData {
 		dirtyPoints.add(pt);
 	}
 
+	private void noteChanged(Location pt, Component comp) {
+		if (!tracked)
+			return;
+		DirtyRegion region = dirtyRegion;
+		if (region != null) {
+			if (pt != null)
+				region.addPoint(pt);
+			else
+				region.addComponent(comp);
+		}
+		// the subcircuit components showing this state change as well
+		for (CircuitState s = this; s.parentState != null; s = s.parentState) {
+			region = s.parentState.dirtyRegion;
+			if (region != null && !region.addComponent(s.parentComp))
+				break;
+		}
+	}
+
 	void processDirtyComponents() {
-		if (!dirtyComponents.isEmpty()) {
-			// This seeming wasted copy is to avoid ConcurrentModifications
-			// if we used an iterator instead.
-			Object[] toProcess;
-			RuntimeException firstException = null;
-			for (int tries = 4; true; tries--) {
-				try {
-					toProcess = dirtyComponents.toArray();
-					break;
-				} catch (RuntimeException e) {
-					if (firstException == null)
-						firstException = e;
-					if (tries == 0) {
-						toProcess = new Object[0];
-						dirtyComponents = new CopyOnWriteArraySet<Component>();
-						throw firstException;
-					}
-				}
-			}
+		if (compiledState != null) {
+			// evaluated as a whole by the enclosing subcircuit component
 			dirtyComponents.clear();
-			for (Object compObj : toProcess) {
-				if (compObj instanceof Component) {
-					Component comp = (Component) compObj;
-					comp.propagate(this);
-					if (comp.getFactory() instanceof Pin && parentState != null) {
-						// should be propagated in superstate
-						parentComp.propagate(parentState);
-					}
+		} else {
+			for (Component comp : dirtyComponents.take()) {
+				comp.propagate(this);
+				noteChanged(null, comp);
+				if (comp.getFactory() instanceof Pin && parentState != null) {
+					// should be propagated in superstate
+					parentComp.propagate(parentState);
 				}
 			}
 		}
 
 		CircuitState[] subs = new CircuitState[substates.size()];
-		for (CircuitState substate : substates.toArray(subs)) {
-			substate.processDirtyComponents();
+		substates.toArray(subs);
+		if (subs.length > 1 && base != null && base.isParallel()) {
+			base.processInParallel(subs, false);
+		} else {
+			for (CircuitState substate : subs) {
+				substate.processDirtyComponents();
+			}
 		}
 	}
 
 	void processDirtyPoints() {
-		HashSet<Location> dirty = new HashSet<Location>(dirtyPoints);
-		dirtyPoints.clear();
-		if (circuit.wires.isMapVoided()) {
-			for (int i = 3; i >= 0; i--) {
-				try {
-					dirty.addAll(circuit.wires.points.getSplitLocations());
-					break;
-				} catch (ConcurrentModificationException e) {
-					// try again...
-					try {
-						Thread.sleep(1);
-					} catch (InterruptedException e2) {
-					}
-					if (i == 0)
-						e.printStackTrace();
-				}
-			}
-		}
-		if (!dirty.isEmpty()) {
+		Set<Location> dirty = dirtyPoints.take();
+		if (compiledState == null && (!dirty.isEmpty()
+				|| circuit.wires.isMapChanged(wireData))) {
 			circuit.wires.propagate(this, dirty);
 		}
 
 		CircuitState[] subs = new CircuitState[substates.size()];
-		for (CircuitState substate : substates.toArray(subs)) {
+		substates.toArray(subs);
+		if (subs.length > 1 && base != null && base.isParallel()) {
+			base.processInParallel(subs, true);
+		} else {
+			for (CircuitState substate : subs) {
 /* TODO: Analyze why this bug happens, e.g. a substate that is null! */
-			if (substate != null) substate.processDirtyPoints();
+				if (substate != null) substate.processDirtyPoints();
+			}
 		}
 	}
 
 	void reset() {
 		wireData = null;
+		compiledState = null;
 		for (Iterator<Component> it = componentData.keySet().iterator(); it
 				.hasNext();) {
 			Component comp = it.next();
@@ -442,6 +517,9 @@ public class CircuitState implements InstanceData {
 		dirtyPoints.clear();
 		causes.clear();
 		markAllComponentsDirty();
+		DirtyRegion region = dirtyRegion;
+		if (region != null)
+			region.markAll();
 
 		for (CircuitState sub : substates) {
 			sub.reset();
@@ -468,6 +546,7 @@ public class CircuitState implements InstanceData {
 					newState.base = this.base;
 					newState.parentState = this;
 					newState.parentComp = comp;
+					newState.updateTracked();
 					newState.markAllComponentsDirty();
 				}
 			}
@@ -503,6 +582,30 @@ public class CircuitState implements InstanceData {
 
 			if (found && base != null)
 				base.locationTouched(this, p);
+			noteChanged(p, null);
+		}
+	}
+
+	public void setTrackingChanges(boolean value) {
+		if (!value) {
+			dirtyRegion = null;
+		} else if (dirtyRegion == null) {
+			DirtyRegion region = new DirtyRegion();
+			region.markAll();
+			dirtyRegion = region;
+		}
+		updateTracked();
+	}
+
+	// A state left behind by a detached subcircuit keeps its flag, which
+	// only costs a walk up the parents that finds no region.
+	private void updateTracked() {
+		CircuitState parent = parentState;
+		tracked = dirtyRegion != null || (parent != null && parent.tracked);
+		CircuitState[] subs = new CircuitState[substates.size()];
+		for (CircuitState sub : substates.toArray(subs)) {
+			if (sub != null)
+				sub.updateTracked();
 		}
 	}
 
@@ -78,6 +78,7 @@ public abstract class CircuitTransaction {
 				}
 			}
 
+			mutator.publishSnapshots();
 			result = new CircuitTransactionResult(mutator);
 			for (Circuit circuit : result.getModifiedCircuits()) {
 				circuit.fireEvent(CircuitEvent.TRANSACTION_DONE, result);
@@ -34,20 +34,20 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Stroke;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.atomic.AtomicReference;
-import javax.swing.SwingUtilities;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,12 +71,42 @@ import com.cburch.logisim.util.IteratorUtil;
 class CircuitWires {
 
 	static class BundleMap {
-		HashMap<Location, WireBundle> pointBundles = new HashMap<Location, WireBundle>();
-		HashSet<WireBundle> bundles = new HashSet<WireBundle>();
+		HashMap<Location, WireBundle> pointBundles;
+		HashSet<WireBundle> bundles;
 		boolean isValid = true;
 		// NOTE: It would make things more efficient if we also had
 		// a set of just the first bundle in each tree.
 		HashSet<WidthIncompatibilityData> incompatibilityData = null;
+		// the width conflicts within each bundle, kept from map to map so
+		// that only the rebuilt bundles need looking at
+		HashMap<WireBundle, WidthIncompatibilityData> bundleConflicts;
+
+		// the map this one was derived from, the points whose bundles
+		// were rebuilt since then, and the threads that no longer exist
+		BundleMap previous = null;
+		HashSet<Location> changedPoints = null;
+		ArrayList<WireThread> removedThreads = null;
+
+		// threads and bundles by their index, with null for unused slots
+		WireThread[] threadAt;
+		WireBundle[] bundleAt;
+
+		BundleMap() {
+			pointBundles = new HashMap<Location, WireBundle>();
+			bundles = new HashSet<WireBundle>();
+			threadAt = new WireThread[0];
+			bundleAt = new WireBundle[0];
+			bundleConflicts = new HashMap<WireBundle, WidthIncompatibilityData>();
+		}
+
+		BundleMap(BundleMap base) {
+			pointBundles = new HashMap<Location, WireBundle>(base.pointBundles);
+			bundles = new HashSet<WireBundle>(base.bundles);
+			threadAt = base.threadAt;
+			bundleAt = base.bundleAt;
+			bundleConflicts = new HashMap<WireBundle, WidthIncompatibilityData>(
+					base.bundleConflicts);
+		}
 
 		void addWidthIncompatibilityData(WidthIncompatibilityData e) {
 			if (incompatibilityData == null) {
@@ -123,39 +153,90 @@ class CircuitWires {
 		void setBundleAt(Location p, WireBundle b) {
 			pointBundles.put(p, b);
 		}
-	}
-
-	static class SplitterData {
-		WireBundle[] end_bundle; // PointData associated with each end
 
-		SplitterData(int fan_out) {
-			end_bundle = new WireBundle[fan_out + 1];
+		// Collects the points rebuilt and the threads dropped between old
+		// and this map; returns null if old is no longer in the history.
+		HashSet<Location> getChangesSince(BundleMap old,
+				ArrayList<WireThread> removed) {
+			HashSet<Location> ret = new HashSet<Location>();
+			for (BundleMap m = this; m != old; m = m.previous) {
+				if (m == null || m.changedPoints == null)
+					return null;
+				ret.addAll(m.changedPoints);
+				removed.addAll(m.removedThreads);
+			}
+			return ret;
 		}
 	}
 
 	static class State {
 		BundleMap bundleMap;
-		Int2ObjectMap<Value> thr_values = new Int2ObjectOpenHashMap<>();
+		Value[] thr_values; // indexed like bundleMap.threadAt
+
+		// work lists for propagate, kept between calls
+		private int[] dirtyThreads = new int[16];
+		private int dirtyThreadCount = 0;
+		private BitSet threadMarks = new BitSet();
+		private int[] dirtyBundles = new int[16];
+		private int dirtyBundleCount = 0;
+		private BitSet bundleMarks = new BitSet();
+		private Value[] scratch = new Value[8];
 
 		State(BundleMap bundleMap) {
 			this.bundleMap = bundleMap;
+			this.thr_values = new Value[bundleMap.threadAt.length];
 		}
 
 		@Override
 		public Object clone() {
 			State ret = new State(this.bundleMap);
-			ret.thr_values.putAll(this.thr_values);
+			System.arraycopy(this.thr_values, 0, ret.thr_values, 0,
+					this.thr_values.length);
 			return ret;
 		}
-	}
 
-	static class ThreadBundle {
-		private static long lastId = 0;
-		private static synchronized long getNextId() {
-			return lastId++;
+		void clearDirty() {
+			threadMarks.clear();
+			dirtyThreadCount = 0;
+			bundleMarks.clear();
+			dirtyBundleCount = 0;
+		}
+
+		void markBundle(int index) {
+			if (!bundleMarks.get(index)) {
+				bundleMarks.set(index);
+				if (dirtyBundleCount == dirtyBundles.length)
+					dirtyBundles = Arrays.copyOf(dirtyBundles,
+							2 * dirtyBundleCount);
+				dirtyBundles[dirtyBundleCount++] = index;
+			}
+		}
+
+		void markThread(int index) {
+			if (!threadMarks.get(index)) {
+				threadMarks.set(index);
+				if (dirtyThreadCount == dirtyThreads.length)
+					dirtyThreads = Arrays.copyOf(dirtyThreads,
+							2 * dirtyThreadCount);
+				dirtyThreads[dirtyThreadCount++] = index;
+			}
+		}
+
+		// a reusable array for the thread values of one bundle
+		Value[] scratch(int length) {
+			if (scratch.length < length)
+				scratch = new Value[Math.max(length, 2 * scratch.length)];
+			return scratch;
 		}
-		public final long uniqueId = getNextId();
 
+		void setBundleMap(BundleMap map) {
+			bundleMap = map;
+			if (thr_values.length < map.threadAt.length)
+				thr_values = Arrays.copyOf(thr_values, map.threadAt.length);
+		}
+	}
+
+	static class ThreadBundle {
 		int loc;
 		WireBundle b;
 
@@ -166,13 +247,21 @@ class CircuitWires {
 	}
 
 	private class TunnelListener implements AttributeListener {
+		private Component comp;
+
+		TunnelListener(Component comp) {
+			this.comp = comp;
+		}
+
 		public void attributeListChanged(AttributeEvent e) {
 		}
 
 		public void attributeValueChanged(AttributeEvent e) {
 			Attribute<?> attr = e.getAttribute();
-			if (attr == StdAttr.LABEL || attr == PullResistor.ATTR_PULL_TYPE) {
-				voidBundleMap();
+			if (comp instanceof Splitter || attr == StdAttr.LABEL
+					|| attr == PullResistor.ATTR_PULL_TYPE) {
+				// a splitter may remap its bits without moving any end
+				voidBundleMap(comp);
 			}
 		}
 	}
@@ -205,7 +294,7 @@ class CircuitWires {
 																	// with
 																	// Tunnel
 																	// factory
-	private TunnelListener tunnelListener = new TunnelListener();
+	private HashMap<Component, TunnelListener> tunnelListeners = new HashMap<Component, TunnelListener>();
 	private HashSet<Component> pulls = new HashSet<Component>(); // of
 																	// Components
 																	// with
@@ -217,6 +306,18 @@ class CircuitWires {
 	private Bounds bounds = Bounds.EMPTY_BOUNDS;
 
 	private final AtomicReference<BundleMap> masterBundleMap = new AtomicReference<>(null);
+	// last map successfully built, and the points touched since then;
+	// a null base means the next map is built from scratch
+	private BundleMap baseBundleMap = null;
+	private HashSet<Location> dirtyPoints = new HashSet<Location>();
+	// allocation of the dense thread and bundle indices of the maps built
+	// from baseBundleMap
+	private int threadCount = 0;
+	private int bundleCount = 0;
+	private IntArrayList freeThreads = new IntArrayList();
+	private IntArrayList freeBundles = new IntArrayList();
+
+	private static final int MAX_HISTORY = 4;
 
 	CircuitWires() {
 	}
@@ -224,34 +325,43 @@ class CircuitWires {
 	//
 	// action methods
 	//
-	// NOTE: this could be made much more efficient in most cases to
-	// avoid voiding the bundle map.
-	/*synchronized*/ boolean add(Component comp) {
+	synchronized boolean add(Component comp) {
 		boolean added = true;
 		if (comp instanceof Wire) {
 			added = addWire((Wire) comp);
-		} else if (comp instanceof Splitter) {
-			splitters.add((Splitter) comp);
 		} else {
-			Object factory = comp.getFactory();
-			if (factory instanceof Tunnel) {
-				tunnels.add(comp);
-				comp.getAttributeSet().addAttributeListener(tunnelListener);
-			} else if (factory instanceof PullResistor) {
-				pulls.add(comp);
-				comp.getAttributeSet().addAttributeListener(tunnelListener);
+			if (comp instanceof Splitter) {
+				splitters.add((Splitter) comp);
+				addTunnelListener(comp);
+			} else {
+				Object factory = comp.getFactory();
+				if (factory instanceof Tunnel) {
+					tunnels.add(comp);
+					addTunnelListener(comp);
+				} else if (factory instanceof PullResistor) {
+					pulls.add(comp);
+					addTunnelListener(comp);
+				}
 			}
 		}
 		if (added) {
 			points.add(comp);
-			voidBundleMap();
+			voidBundleMap(comp);
 		}
 		return added;
 	}
 
-	/*synchronized*/ void add(Component comp, EndData end) {
+	synchronized void add(Component comp, EndData end) {
 		points.add(comp, end);
-		voidBundleMap();
+		voidBundleMap(end);
+	}
+
+	private void addTunnelListener(Component comp) {
+		if (!tunnelListeners.containsKey(comp)) {
+			TunnelListener l = new TunnelListener(comp);
+			tunnelListeners.put(comp, l);
+			comp.getAttributeSet().addAttributeListener(l);
+		}
 	}
 
 	private boolean addWire(Wire w) {
@@ -265,16 +375,97 @@ class CircuitWires {
 		return true;
 	}
 
-	// To be called by getBundleMap only
-	private void computeBundleMap(BundleMap ret) {
+	private static void addThreads(ArrayList<WireThread> dest, WireBundle b) {
+		if (b.threads != null) {
+			for (WireThread t : b.threads) {
+				dest.add(t);
+			}
+		}
+	}
+
+	// To be called by getBundleMap only. Rebuilds the bundles around the
+	// dirty points and keeps every bundle of base those points cannot
+	// reach; objects used by base are never modified. The rebuilding is
+	// local, but a few steps still cost time in the size of the circuit:
+	// copying base's point and bundle tables and its thread and bundle
+	// indices, and walking every tunnel and pull resistor. The width
+	// conflicts are carried over from base, so only the rebuilt bundles
+	// are checked for them.
+	private BundleMap computeBundleMap(BundleMap base, Set<Location> dirty) {
+		BundleMap ret = new BundleMap(base);
+
+		// determine the sets of tunnels
+		HashMap<String, ArrayList<Location>> tunnelSets = new HashMap<String, ArrayList<Location>>();
+		HashMap<Location, ArrayList<String>> tunnelLabels = new HashMap<Location, ArrayList<String>>();
+		for (Component comp : tunnels) {
+			String label = comp.getAttributeSet().getValue(StdAttr.LABEL);
+			label = label.trim();
+			if (!label.equals("")) {
+				ArrayList<Location> tunnelSet = tunnelSets.get(label);
+				if (tunnelSet == null) {
+					tunnelSet = new ArrayList<Location>(3);
+					tunnelSets.put(label, tunnelSet);
+				}
+				tunnelSet.add(comp.getLocation());
+				ArrayList<String> labels = tunnelLabels.get(comp.getLocation());
+				if (labels == null) {
+					labels = new ArrayList<String>(1);
+					tunnelLabels.put(comp.getLocation(), labels);
+				}
+				labels.add(label);
+			}
+		}
+
+		// find all points whose bundle may change: the old bundles at the
+		// dirty points, and whatever is now wired or tunnelled to them.
+		// Wires and labels only change at dirty points, so elsewhere the
+		// old bundle already covers everything they connect.
+		HashSet<Location> region = new HashSet<Location>();
+		HashSet<WireBundle> oldBundles = new HashSet<WireBundle>();
+		HashSet<String> seenLabels = new HashSet<String>();
+		ArrayList<Location> todo = new ArrayList<Location>(dirty);
+		while (!todo.isEmpty()) {
+			Location p = todo.remove(todo.size() - 1);
+			if (!region.add(p))
+				continue;
+			WireBundle old = base.getBundleAt(p);
+			if (old != null && oldBundles.add(old))
+				todo.addAll(old.points);
+			if (!dirty.contains(p))
+				continue;
+			for (Wire w : points.getWires(p))
+				todo.add(w.getOtherEnd(p));
+			ArrayList<String> labels = tunnelLabels.get(p);
+			if (labels != null) {
+				for (String label : labels) {
+					if (seenLabels.add(label))
+						todo.addAll(tunnelSets.get(label));
+				}
+			}
+		}
+		ArrayList<WireThread> removedThreads = new ArrayList<WireThread>();
+		ArrayList<WireBundle> removedBundles = new ArrayList<WireBundle>(oldBundles);
+		for (WireBundle old : oldBundles) {
+			ret.bundles.remove(old);
+			addThreads(removedThreads, old);
+		}
+		for (Location p : region) {
+			ret.pointBundles.remove(p);
+		}
+
 		// create bundles corresponding to wires and tunnels
-		connectWires(ret);
-		connectTunnels(ret);
-		connectPullResistors(ret);
+		connectWires(ret, region);
+		connectTunnels(ret, tunnelSets, region);
+		connectPullResistors(ret, region);
 
 		// merge any WireBundle objects united by previous steps
-		for (Iterator<WireBundle> it = ret.getBundles().iterator(); it
-				.hasNext();) {
+		HashSet<WireBundle> fresh = new HashSet<WireBundle>();
+		for (Location p : region) {
+			WireBundle b = ret.getBundleAt(p);
+			if (b != null)
+				fresh.add(b);
+		}
+		for (Iterator<WireBundle> it = fresh.iterator(); it.hasNext();) {
 			WireBundle b = it.next();
 			WireBundle bpar = b.find();
 			if (bpar != b) { // b isn't group's representative
@@ -283,82 +474,121 @@ class CircuitWires {
 					bpar.points.add(pt);
 				}
 				bpar.addPullValue(b.getPullValue());
+				ret.bundles.remove(b);
 				it.remove();
 			}
 		}
 
 		// make a WireBundle object for each end of a splitter
-		for (Splitter spl : splitters) {
-			List<EndData> ends = new ArrayList<EndData>(spl.getEnds());
-			for (EndData end : ends) {
-				Location p = end.getLocation();
-				WireBundle pb = ret.createBundleAt(p);
-				pb.setWidth(end.getWidth(), p);
+		boolean hasSplitters = !splitters.isEmpty();
+		if (hasSplitters) {
+			for (Location p : region) {
+				if (ret.getBundleAt(p) == null) {
+					for (Component comp : points.getComponents(p)) {
+						if (comp instanceof Splitter) {
+							fresh.add(ret.createBundleAt(p));
+							break;
+						}
+					}
+				}
 			}
 		}
 
-		// set the width for each bundle whose size is known
-		// based on components
-		for (Location p : ret.getBundlePoints()) {
-			WireBundle pb = ret.getBundleAt(p);
-			BitWidth width = points.getWidth(p);
-			if (width != BitWidth.UNKNOWN) {
-				pb.setWidth(width, p);
+		// threads run through splitters, so bundles joined to a new one by
+		// a splitter need new threads as well; these are copied, since
+		// base still uses the old ones
+		HashSet<Location> changed = new HashSet<Location>(region);
+		HashSet<Splitter> spls = new HashSet<Splitter>();
+		ArrayList<WireBundle> pending = new ArrayList<WireBundle>();
+		if (hasSplitters)
+			pending.addAll(fresh);
+		while (!pending.isEmpty()) {
+			WireBundle b = pending.remove(pending.size() - 1);
+			for (Location p : b.points) {
+				for (Component comp : points.getComponents(p)) {
+					if (!(comp instanceof Splitter) || !spls.add((Splitter) comp))
+						continue;
+					for (EndData end : comp.getEnds()) {
+						WireBundle eb = ret.getBundleAt(end.getLocation());
+						if (eb != null && !fresh.contains(eb)) {
+							WireBundle copy = new WireBundle();
+							copy.points.addAll(eb.points);
+							copy.addPullValue(eb.getPullValue());
+							for (Location pt : eb.points)
+								ret.setBundleAt(pt, copy);
+							ret.bundles.remove(eb);
+							ret.bundles.add(copy);
+							removedBundles.add(eb);
+							addThreads(removedThreads, eb);
+							changed.addAll(eb.points);
+							fresh.add(copy);
+							pending.add(copy);
+						}
+					}
+				}
 			}
 		}
 
-		// determine the bundles at the end of each splitter
-		for (Splitter spl : splitters) {
-			List<EndData> ends = new ArrayList<EndData>(spl.getEnds());
-			int index = -1;
-			for (EndData end : ends) {
-				index++;
+		// set the width for each bundle whose size is known
+		// based on components
+		for (Splitter spl : spls) {
+			for (EndData end : spl.getEnds()) {
 				Location p = end.getLocation();
 				WireBundle pb = ret.getBundleAt(p);
-				if (pb != null) {
+				if (pb != null)
 					pb.setWidth(end.getWidth(), p);
-					spl.wire_data.end_bundle[index] = pb;
+			}
+		}
+		for (WireBundle pb : fresh) {
+			for (Location p : pb.points) {
+				BitWidth width = points.getWidth(p);
+				if (width != BitWidth.UNKNOWN) {
+					pb.setWidth(width, p);
 				}
 			}
 		}
 
 		// unite threads going through splitters
-		for (Splitter spl : splitters) {
-			synchronized (spl) {
-				SplitterAttributes spl_attrs = (SplitterAttributes) spl
-						.getAttributeSet();
-				byte[] bit_end = spl_attrs.bit_end;
-				SplitterData spl_data = spl.wire_data;
-				WireBundle from_bundle = spl_data.end_bundle[0];
-				if (from_bundle == null || !from_bundle.isValid())
-					continue;
-
-				for (int i = 0; i < bit_end.length; i++) {
-					int j = bit_end[i];
-					if (j > 0) {
-						int thr = spl.bit_thread[i];
-						WireBundle to_bundle = spl_data.end_bundle[j];
-						WireThread[] to_threads = to_bundle.threads;
-						if (to_threads != null && to_bundle.isValid()) {
-							WireThread[] from_threads = from_bundle.threads;
-							if (i >= from_threads.length) {
-								throw new ArrayIndexOutOfBoundsException(
-										"from " + i + " of "
-												+ from_threads.length);
-							}
-							if (thr >= to_threads.length) {
-								throw new ArrayIndexOutOfBoundsException("to "
-										+ thr + " of " + to_threads.length);
-							}
-							from_threads[i].unite(to_threads[thr]);
+		for (Splitter spl : spls) {
+			List<EndData> ends = new ArrayList<EndData>(spl.getEnds());
+			WireBundle[] end_bundle = new WireBundle[ends.size()];
+			for (int i = 0; i < end_bundle.length; i++) {
+				end_bundle[i] = ret.getBundleAt(ends.get(i).getLocation());
+			}
+			SplitterAttributes spl_attrs = (SplitterAttributes) spl
+					.getAttributeSet();
+			byte[] bit_end = spl_attrs.bit_end;
+			byte[] bit_thread = spl.bit_thread;
+			WireBundle from_bundle = end_bundle[0];
+			if (from_bundle == null || !from_bundle.isValid())
+				continue;
+
+			for (int i = 0; i < bit_end.length; i++) {
+				int j = bit_end[i];
+				if (j > 0) {
+					int thr = bit_thread[i];
+					WireBundle to_bundle = end_bundle[j];
+					if (to_bundle == null)
+						continue;
+					WireThread[] to_threads = to_bundle.threads;
+					if (to_threads != null && to_bundle.isValid()) {
+						WireThread[] from_threads = from_bundle.threads;
+						if (i >= from_threads.length) {
+							throw new ArrayIndexOutOfBoundsException("from "
+									+ i + " of " + from_threads.length);
 						}
+						if (thr >= to_threads.length) {
+							throw new ArrayIndexOutOfBoundsException("to "
+									+ thr + " of " + to_threads.length);
+						}
+						from_threads[i].unite(to_threads[thr]);
 					}
 				}
 			}
 		}
 
 		// merge any threads united by previous step
-		for (WireBundle b : ret.getBundles()) {
+		for (WireBundle b : fresh) {
 			if (b.isValid() && b.threads != null) {
 				for (int i = 0; i < b.threads.length; i++) {
 					WireThread thr = b.threads[i].find();
@@ -368,6 +598,59 @@ class CircuitWires {
 			}
 		}
 
+		// give the new bundles and threads the slots of the ones dropped,
+		// or fresh ones at the end of the tables
+		BitSet freed = new BitSet();
+		for (WireThread t : removedThreads) {
+			if (t.index >= 0 && !freed.get(t.index)) {
+				freed.set(t.index);
+				freeThreads.add(t.index);
+			}
+		}
+		for (WireBundle b : removedBundles) {
+			freeBundles.add(b.index);
+		}
+		ArrayList<WireThread> newThreads = new ArrayList<WireThread>();
+		for (WireBundle b : fresh) {
+			b.index = freeBundles.isEmpty() ? bundleCount++ : freeBundles
+					.removeInt(freeBundles.size() - 1);
+			if (b.isValid() && b.threads != null) {
+				for (WireThread t : b.threads) {
+					if (t.index < 0) {
+						t.index = freeThreads.isEmpty() ? threadCount++
+								: freeThreads.removeInt(freeThreads.size() - 1);
+						newThreads.add(t);
+					}
+				}
+			}
+		}
+		ret.threadAt = Arrays.copyOf(base.threadAt, threadCount);
+		for (WireThread t : removedThreads) {
+			if (t.index >= 0)
+				ret.threadAt[t.index] = null;
+		}
+		for (WireThread t : newThreads) {
+			ret.threadAt[t.index] = t;
+		}
+		// lay out the threads running through the new bundles, now that
+		// every bundle has its index
+		Set<WireThread> touched = Collections
+				.newSetFromMap(new IdentityHashMap<WireThread, Boolean>());
+		for (WireBundle b : fresh) {
+			if (b.isValid() && b.threads != null)
+				touched.addAll(Arrays.asList(b.threads));
+		}
+		for (WireThread t : touched)
+			t.compile();
+
+		ret.bundleAt = Arrays.copyOf(base.bundleAt, bundleCount);
+		for (WireBundle b : removedBundles) {
+			ret.bundleAt[b.index] = null;
+		}
+		for (WireBundle b : fresh) {
+			ret.bundleAt[b.index] = b;
+		}
+
 		// All threads are sewn together! Compute the exception set before
 		// leaving
 		Collection<WidthIncompatibilityData> exceptions = points
@@ -377,16 +660,29 @@ class CircuitWires {
 				ret.addWidthIncompatibilityData(wid);
 			}
 		}
-		for (WireBundle b : ret.getBundles()) {
+		for (WireBundle b : removedBundles) {
+			ret.bundleConflicts.remove(b);
+		}
+		for (WireBundle b : fresh) {
 			WidthIncompatibilityData e = b.getWidthIncompatibilityData();
 			if (e != null)
-				ret.addWidthIncompatibilityData(e);
+				ret.bundleConflicts.put(b, e);
+		}
+		for (WidthIncompatibilityData e : ret.bundleConflicts.values()) {
+			ret.addWidthIncompatibilityData(e);
 		}
+
+		ret.previous = base;
+		ret.changedPoints = changed;
+		ret.removedThreads = removedThreads;
+		return ret;
 	}
 
-	private void connectPullResistors(BundleMap ret) {
+	private void connectPullResistors(BundleMap ret, Set<Location> region) {
 		for (Component comp : pulls) {
 			Location loc = comp.getEnd(0).getLocation();
+			if (!region.contains(loc))
+				continue;
 			WireBundle b = ret.getBundleAt(loc);
 			if (b == null) {
 				b = ret.createBundleAt(loc);
@@ -398,24 +694,12 @@ class CircuitWires {
 		}
 	}
 
-	private void connectTunnels(BundleMap ret) {
-		// determine the sets of tunnels
-		HashMap<String, ArrayList<Location>> tunnelSets = new HashMap<String, ArrayList<Location>>();
-		for (Component comp : tunnels) {
-			String label = comp.getAttributeSet().getValue(StdAttr.LABEL);
-			label = label.trim();
-			if (!label.equals("")) {
-				ArrayList<Location> tunnelSet = tunnelSets.get(label);
-				if (tunnelSet == null) {
-					tunnelSet = new ArrayList<Location>(3);
-					tunnelSets.put(label, tunnelSet);
-				}
-				tunnelSet.add(comp.getLocation());
-			}
-		}
-
-		// now connect the bundles that are tunnelled together
+	private void connectTunnels(BundleMap ret,
+			HashMap<String, ArrayList<Location>> tunnelSets, Set<Location> region) {
+		// connect the bundles that are tunnelled together
 		for (ArrayList<Location> tunnelSet : tunnelSets.values()) {
+			if (!region.contains(tunnelSet.get(0)))
+				continue;
 			WireBundle foundBundle = null;
 			Location foundLocation = null;
 			for (Location loc : tunnelSet) {
@@ -444,27 +728,60 @@ class CircuitWires {
 		}
 	}
 
-	private void connectWires(BundleMap ret) {
-		// make a WireBundle object for each tree of connected wires
-		for (Wire w : wires) {
-			WireBundle b0 = ret.getBundleAt(w.e0);
-			if (b0 == null) {
-				WireBundle b1 = ret.createBundleAt(w.e1);
-				b1.points.add(w.e0);
-				ret.setBundleAt(w.e0, b1);
-			} else {
-				WireBundle b1 = ret.getBundleAt(w.e1);
-				if (b1 == null) { // t1 doesn't exist
-					b0.points.add(w.e1);
-					ret.setBundleAt(w.e1, b0);
-				} else {
-					b1.unite(b0); // unite b0 and b1
+	private void connectWires(BundleMap ret, Set<Location> region) {
+		// make a WireBundle object for each tree of connected wires; the
+		// region already holds every point wired to one of its points
+		ArrayList<Location> found = new ArrayList<Location>();
+		ArrayList<Location> todo = new ArrayList<Location>();
+		for (Location start : region) {
+			if (ret.getBundleAt(start) != null)
+				continue;
+			WireBundle b = null;
+			todo.add(start);
+			while (!todo.isEmpty()) {
+				Location p = todo.remove(todo.size() - 1);
+				for (Component comp : points.getComponents(p)) {
+					if (!(comp instanceof Wire))
+						continue;
+					Location q = ((Wire) comp).getOtherEnd(p);
+					if (ret.getBundleAt(q) == null) {
+						if (b == null) {
+							b = new WireBundle();
+							ret.setBundleAt(start, b);
+							found.add(start);
+						}
+						ret.setBundleAt(q, b);
+						found.add(q);
+						todo.add(q);
+					}
 				}
 			}
+			if (b != null) {
+				b.points.addAll(found);
+				ret.getBundles().add(b);
+				found.clear();
+			}
 		}
 	}
 
-	void draw(ComponentDrawContext context, Collection<Component> hidden) {
+	/**
+	 * Draws the wires and junction dots. If visible is non-null, only the
+	 * wires in it and the junctions at the ends of its components are drawn.
+	 */
+	void draw(ComponentDrawContext context, Collection<Component> hidden,
+			Collection<Component> visible) {
+		Collection<Wire> toDraw = wires;
+		Collection<Location> dots = points.getSplitLocations();
+		if (visible != null) {
+			toDraw = new ArrayList<Wire>();
+			dots = new HashSet<Location>();
+			for (Component comp : visible) {
+				if (comp instanceof Wire)
+					toDraw.add((Wire) comp);
+				for (EndData end : comp.getEnds())
+					dots.add(end.getLocation());
+			}
+		}
 		boolean showState = context.getShowState();
 		CircuitState state = context.getCircuitState();
 		Graphics2D g = (Graphics2D)context.getGraphics();
@@ -475,7 +792,7 @@ class CircuitWires {
 		BundleMap bmap = getBundleMap();
 		boolean isValid = bmap.isValid();
 		if (hidden == null || hidden.size() == 0) {
-			for (Wire w : wires) {
+			for (Wire w : toDraw) {
 				Location s = w.e0;
 				Location t = w.e1;
 				WireBundle wb = bmap.getBundleAt(s);
@@ -528,7 +845,7 @@ class CircuitWires {
 				}
 			}
 
-			for (Location loc : points.getSplitLocations()) {
+			for (Location loc : dots) {
 				if (points.getComponentCount(loc) > 2) {
 					WireBundle wb = bmap.getBundleAt(loc);
 					if (wb != null) {
@@ -556,7 +873,7 @@ class CircuitWires {
 				}
 			}
 		} else {
-			for (Wire w : wires) {
+			for (Wire w : toDraw) {
 				if (!hidden.contains(w)) {
 					Location s = w.e0;
 					Location t = w.e1;
@@ -588,7 +905,7 @@ class CircuitWires {
 			// this is just an approximation, but it's good enough since
 			// the problem is minor, and hidden only exists for a short
 			// while at a time anway.
-			for (Location loc : points.getSplitLocations()) {
+			for (Location loc : dots) {
 				if (points.getComponentCount(loc) > 2) {
 					int icount = 0;
 					for (Component comp : points.getComponents(loc)) {
@@ -627,46 +944,55 @@ class CircuitWires {
 	//	getBundleMap();
 	// }
 
-	// There are only two threads that need to use the bundle map, I think:
-	// the AWT event thread, and the simulation worker thread.
-	// AWT does modifications to the components and wires, then voids the
-	// masterBundleMap, and eventually recomputes a new map (if needed) during
-	// painting. AWT sometimes locks a splitter, then changes components and
-	// wires.
-	// Computing a new bundle map requires both locking splitters and touching
-	// the components and wires, so to avoid deadlock, only the AWT should
-	// create the new bundle map.
-
-	/*synchronized*/ private BundleMap getBundleMap() {
-	    BundleMap existing = masterBundleMap.get();
+	// Both the AWT event thread and the simulation thread use the bundle
+	// map. AWT modifies the components and wires through the synchronized
+	// mutators, which record the points touched and void masterBundleMap;
+	// whichever thread next needs the map rebuilds the bundles around
+	// those points while holding the same lock, and publishes the result.
+	// Splitters are deliberately not locked while building: a splitter
+	// holds its own lock while reporting its new ends to the mutators, and
+	// those reports void the map again anyway.
+
+	BundleMap getBundleMap() {
+		BundleMap existing = masterBundleMap.get();
 		if (existing != null)
 			return existing;
+		return updateBundleMap();
+	}
 
-		if (SwingUtilities.isEventDispatchThread()) {
-			// AWT event thread.
-			BundleMap ret = new BundleMap();
-			try {
-				computeBundleMap(ret);
-				masterBundleMap.set(ret);
-			} catch (Exception t) {
-				ret.invalidate();
-				logger.error("{}", t.getLocalizedMessage());
-			}
+	private synchronized BundleMap updateBundleMap() {
+		BundleMap ret = masterBundleMap.get();
+		if (ret != null)
 			return ret;
-		} else {
-			// Simulation thread.
-			try {
-				final BundleMap ret[] = new BundleMap[1];
-				SwingUtilities.invokeAndWait(new Runnable() {
-					public void run() { ret[0] = getBundleMap(); }
-				});
-				return ret[0];
-			} catch (Exception e) {
-				BundleMap ret = new BundleMap();
-				ret.invalidate();
-				return ret;
+
+		try {
+			if (baseBundleMap == null) {
+				threadCount = 0;
+				bundleCount = 0;
+				freeThreads.clear();
+				freeBundles.clear();
+				ret = computeBundleMap(new BundleMap(), points.getSplitLocations());
+				ret.previous = null;
+				ret.changedPoints = null;
+			} else {
+				ret = computeBundleMap(baseBundleMap, dirtyPoints);
+				BundleMap old = ret;
+				for (int i = 0; i < MAX_HISTORY && old != null; i++)
+					old = old.previous;
+				if (old != null)
+					old.previous = null;
 			}
+		} catch (Exception t) {
+			ret = new BundleMap();
+			ret.invalidate();
+			baseBundleMap = null; // start over next time
+			logger.error("{}", t.getLocalizedMessage());
+			return ret;
 		}
+		baseBundleMap = ret;
+		dirtyPoints = new HashSet<Location>();
+		masterBundleMap.set(ret);
+		return ret;
 	}
 
 	Iterator<? extends Component> getComponents() {
@@ -674,22 +1000,18 @@ class CircuitWires {
 				wires.iterator());
 	}
 
-	private Value getThreadValue(CircuitState state, WireThread t) {
+	private Value getThreadValue(CircuitState state, WireThread.Layout t) {
 		Value ret = Value.UNKNOWN;
-		Value pull = Value.UNKNOWN;
-		for (ThreadBundle tb : t.getBundles()) {
-			for (Location p : tb.b.points) {
-				Value val = state.getComponentOutputAt(p);
-				if (val != null && val != Value.NIL) {
-					ret = ret.combine(val.get(tb.loc));
-				}
+		Location[] points = t.points;
+		int[] bits = t.bits;
+		for (int i = 0; i < points.length; i++) {
+			Value val = state.getComponentOutputAt(points[i]);
+			if (val != null && val != Value.NIL) {
+				ret = ret.combine(val.get(bits[i]));
 			}
-			Value pullHere = tb.b.getPullValue();
-			if (pullHere != Value.UNKNOWN)
-				pull = pull.combine(pullHere);
 		}
-		if (pull != Value.UNKNOWN) {
-			ret = pullValue(ret, pull);
+		if (t.pull != Value.UNKNOWN) {
+			ret = pullValue(ret, t.pull);
 		}
 		return ret;
 	}
@@ -756,8 +1078,9 @@ class CircuitWires {
 	//
 	// query methods
 	//
-	boolean isMapVoided() {
-		return masterBundleMap.get() == null;
+	boolean isMapChanged(State s) {
+		BundleMap map = masterBundleMap.get();
+		return map == null || s == null || s.bundleMap != map;
 	}
 
 	//
@@ -765,24 +1088,46 @@ class CircuitWires {
 	//
 	void propagate(CircuitState circState, Set<Location> points) {
 		BundleMap map = getBundleMap();
-		Int2ObjectMap<WireThread> dirtyThreads = new Int2ObjectOpenHashMap<>();
 
 		// get state, or create a new one if current state is outdated
 		State s = circState.getWireData();
 		if (s == null || s.bundleMap != map) {
-			// if it is outdated, we need to compute for all threads
-			s = new State(map);
-			for (WireBundle b : map.getBundles()) {
-				WireThread[] th = b.threads;
-				if (b.isValid() && th != null) {
-					for (WireThread t : th) {
-						dirtyThreads.put(t.uniqueId, t);
-					}
+			ArrayList<WireThread> removed = new ArrayList<WireThread>();
+			HashSet<Location> changed = s == null ? null : map
+					.getChangesSince(s.bundleMap, removed);
+			if (changed == null) {
+				// if it is too outdated, we need to compute for all threads
+				s = new State(map);
+				for (WireThread t : map.threadAt) {
+					if (t != null)
+						s.markThread(t.index);
 				}
+				synchronized (this) {
+					changed = new HashSet<Location>(this.points
+							.getSplitLocations());
+				}
+				circState.setWireData(s);
+			} else {
+				// otherwise only the rebuilt bundles need new values
+				for (WireThread t : removed) {
+					if (t.index >= 0 && t.index < s.thr_values.length)
+						s.thr_values[t.index] = null;
+				}
+				s.setBundleMap(map);
 			}
-			circState.setWireData(s);
+			changed.addAll(points);
+			points = changed;
+		}
+
+		try {
+			propagate(circState, s, map, points);
+		} finally {
+			s.clearDirty();
 		}
+	}
 
+	private void propagate(CircuitState circState, State s, BundleMap map,
+			Set<Location> points) {
 		// determine affected threads, and set values for unwired points
 		for (Location p : points) {
 			WireBundle pb = map.getBundleAt(p);
@@ -802,39 +1147,40 @@ class CircuitWires {
 					}
 				} else {
 					for (WireThread t : th) {
-						dirtyThreads.put(t.uniqueId, t);
+						s.markThread(t.index);
 					}
 				}
 			}
 		}
 
-		if (dirtyThreads.isEmpty())
+		if (s.dirtyThreadCount == 0)
 			return;
 
 		// determine values of affected threads
-		Long2ObjectMap<ThreadBundle> bundles = new Long2ObjectOpenHashMap<>();
-		for (WireThread t : dirtyThreads.values()) {
-			Value v = getThreadValue(circState, t);
-			s.thr_values.put(t.uniqueId, v);
-			for(ThreadBundle bundle : t.getBundles()) {
-				bundles.put(bundle.uniqueId, bundle);
+		Value[] thr_values = s.thr_values;
+		for (int i = 0; i < s.dirtyThreadCount; i++) {
+			WireThread t = map.threadAt[s.dirtyThreads[i]];
+			WireThread.Layout layout = t.getLayout();
+			thr_values[t.index] = getThreadValue(circState, layout);
+			for (int bundle : layout.bundles) {
+				s.markBundle(bundle);
 			}
 		}
 
 		// now propagate values through circuit
-		for (ThreadBundle tb : bundles.values()) {
-			WireBundle b = tb.b;
+		for (int k = 0; k < s.dirtyBundleCount; k++) {
+			WireBundle b = map.bundleAt[s.dirtyBundles[k]];
 
 			Value bv = null;
 			if (!b.isValid() || b.threads == null) {
 				; // do nothing
 			} else if (b.threads.length == 1) {
-				bv = s.thr_values.get(b.threads[0].uniqueId);
+				bv = thr_values[b.threads[0].index];
 			} else {
-				Value[] tvs = new Value[b.threads.length];
+				Value[] tvs = s.scratch(b.threads.length);
 				boolean tvs_valid = true;
-				for (int i = 0; i < tvs.length; i++) {
-					Value tv = s.thr_values.get(b.threads[i].uniqueId);
+				for (int i = 0; i < b.threads.length; i++) {
+					Value tv = thr_values[b.threads[i].index];
 					if (tv == null) {
 						tvs_valid = false;
 						break;
@@ -842,7 +1188,7 @@ class CircuitWires {
 					tvs[i] = tv;
 				}
 				if (tvs_valid)
-					bv = Value.create(tvs);
+					bv = Value.create(tvs, b.threads.length);
 			}
 
 			if (bv != null) {
@@ -886,7 +1232,7 @@ class CircuitWires {
 		return bds;
 	}
 
-	/*synchronized*/ void remove(Component comp) {
+	synchronized void remove(Component comp) {
 		if (comp instanceof Wire) {
 			removeWire((Wire) comp);
 		} else if (comp instanceof Splitter) {
@@ -895,19 +1241,20 @@ class CircuitWires {
 			Object factory = comp.getFactory();
 			if (factory instanceof Tunnel) {
 				tunnels.remove(comp);
-				comp.getAttributeSet().removeAttributeListener(tunnelListener);
 			} else if (factory instanceof PullResistor) {
 				pulls.remove(comp);
-				comp.getAttributeSet().removeAttributeListener(tunnelListener);
 			}
 		}
+		TunnelListener l = tunnelListeners.remove(comp);
+		if (l != null)
+			comp.getAttributeSet().removeAttributeListener(l);
 		points.remove(comp);
-		voidBundleMap();
+		voidBundleMap(comp);
 	}
 
-	/*synchronized*/ void remove(Component comp, EndData end) {
+	synchronized void remove(Component comp, EndData end) {
 		points.remove(comp, end);
-		voidBundleMap();
+		voidBundleMap(end);
 	}
 
 	private void removeWire(Wire w) {
@@ -924,19 +1271,28 @@ class CircuitWires {
 		}
 	}
 
-	/*synchronized*/ void replace(Component comp, EndData oldEnd, EndData newEnd) {
+	synchronized void replace(Component comp, EndData oldEnd, EndData newEnd) {
 		points.remove(comp, oldEnd);
 		points.add(comp, newEnd);
-		voidBundleMap();
+		voidBundleMap(oldEnd);
+		voidBundleMap(newEnd);
 	}
 
 	//
 	// helper methods
 	//
-	private void voidBundleMap() {
+	private synchronized void voidBundleMap(Component comp) {
+		for (EndData end : comp.getEnds()) {
+			voidBundleMap(end);
+		}
+	}
+
+	private synchronized void voidBundleMap(EndData end) {
 		// This should really only be called by AWT thread, but main() also
 		// calls it during startup. It should not be called by the simulation
 		// thread.
+		if (end != null)
+			dirtyPoints.add(end.getLocation());
 		masterBundleMap.set(null);
 	}
 }
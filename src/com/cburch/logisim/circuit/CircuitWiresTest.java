@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.PullResistor;
+import com.cburch.logisim.std.wiring.Tunnel;
+
+public class CircuitWiresTest {
+
+	private static final int GRID = 8;
+	private static final String[] LABELS = { "a", "b", "c" };
+
+	private final Tunnel tunnel = new Tunnel();
+	private final PullResistor pull = new PullResistor();
+
+	private static Location point(Random rand) {
+		return Location.create(10 * rand.nextInt(GRID), 10 * rand.nextInt(GRID));
+	}
+
+	private static BitWidth width(Random rand) {
+		return BitWidth.create(1 + rand.nextInt(4));
+	}
+
+	/**
+	 * Describes the bundle map at the given points: the width and points of
+	 * each point's bundle, followed by the points and bits each thread runs
+	 * through.
+	 */
+	private static String describe(CircuitWires.BundleMap map,
+			Collection<Location> locs) {
+		StringBuilder ret = new StringBuilder();
+		IdentityHashMap<WireThread, TreeSet<String>> threads = new IdentityHashMap<WireThread, TreeSet<String>>();
+		for (Location p : new TreeSet<Location>(locs)) {
+			ret.append(p);
+			WireBundle b = map.getBundleAt(p);
+			if (b != null) {
+				ret.append(' ').append(b.getWidth()).append(' ')
+						.append(new TreeSet<Location>(b.points))
+						.append(' ').append(b.isValid()).append(' ')
+						.append(b.getPullValue());
+				if (b.isValid() && b.threads != null) {
+					for (int i = 0; i < b.threads.length; i++) {
+						TreeSet<String> members = threads.get(b.threads[i]);
+						if (members == null) {
+							members = new TreeSet<String>();
+							threads.put(b.threads[i], members);
+						}
+						members.add(p + "/" + i);
+					}
+				}
+			}
+			ret.append('\n');
+		}
+		TreeSet<String> sorted = new TreeSet<String>();
+		for (TreeSet<String> members : threads.values())
+			sorted.add(members.toString());
+		ret.append(sorted).append('\n');
+		ret.append(map.getWidthIncompatibilityData() == null ? 0 : map
+				.getWidthIncompatibilityData().size());
+		return ret.toString();
+	}
+
+	/** Checks the dense thread and bundle tables against the bundles. */
+	private static void checkTables(CircuitWires.BundleMap map) {
+		int bundles = 0;
+		for (WireBundle b : map.bundleAt) {
+			if (b != null)
+				bundles++;
+		}
+		assertEquals(map.getBundles().size(), bundles);
+		HashSet<WireThread> threads = new HashSet<WireThread>();
+		for (WireBundle b : map.getBundles()) {
+			assertSame(b, map.bundleAt[b.index]);
+			if (b.isValid() && b.threads != null) {
+				for (WireThread t : b.threads) {
+					assertSame(t, map.threadAt[t.index]);
+					threads.add(t);
+				}
+			}
+		}
+		int used = 0;
+		for (WireThread t : map.threadAt) {
+			if (t != null)
+				used++;
+		}
+		assertEquals(threads.size(), used);
+	}
+
+	private Component pick(Random rand, List<Component> comps, Class<?> type) {
+		ArrayList<Component> matches = new ArrayList<Component>();
+		for (Component comp : comps) {
+			if (type.isInstance(comp) || type.isInstance(comp.getFactory()))
+				matches.add(comp);
+		}
+		return matches.isEmpty() ? null : matches.get(rand.nextInt(matches
+				.size()));
+	}
+
+	@SuppressWarnings("unchecked")
+	private void edit(Random rand, CircuitMutation m, List<Component> comps) {
+		switch (rand.nextInt(10)) {
+		case 0:
+		case 1:
+		case 2: {
+			Location p = point(rand);
+			Location q = rand.nextBoolean() ? Location.create(p.getX(),
+					10 * rand.nextInt(GRID)) : Location.create(
+					10 * rand.nextInt(GRID), p.getY());
+			if (!p.equals(q))
+				m.add(Wire.create(p, q));
+			break;
+		}
+		case 3: {
+			AttributeSet attrs = Pin.FACTORY.createAttributeSet();
+			attrs.setValue(StdAttr.WIDTH, width(rand));
+			attrs.setValue(Pin.ATTR_TYPE, Boolean.valueOf(rand.nextBoolean()));
+			m.add(Pin.FACTORY.createComponent(point(rand), attrs));
+			break;
+		}
+		case 4: {
+			AttributeSet attrs = SplitterFactory.instance.createAttributeSet();
+			attrs.setValue(SplitterAttributes.ATTR_FANOUT,
+					Integer.valueOf(2 + rand.nextInt(2)));
+			attrs.setValue(SplitterAttributes.ATTR_WIDTH, width(rand));
+			m.add(SplitterFactory.instance.createComponent(point(rand), attrs));
+			break;
+		}
+		case 5: {
+			Component spl = pick(rand, comps, Splitter.class);
+			if (spl == null)
+				break;
+			SplitterAttributes attrs = (SplitterAttributes) spl
+					.getAttributeSet();
+			int bit = rand.nextInt(attrs.bit_end.length);
+			int fanout = attrs.getValue(SplitterAttributes.ATTR_FANOUT);
+			m.set(spl, attrs.getBitOutAttribute(bit),
+					Integer.valueOf(rand.nextInt(fanout + 1)));
+			break;
+		}
+		case 6: {
+			AttributeSet attrs = tunnel.createAttributeSet();
+			attrs.setValue(StdAttr.LABEL, LABELS[rand.nextInt(LABELS.length)]);
+			attrs.setValue(StdAttr.WIDTH, width(rand));
+			m.add(tunnel.createComponent(point(rand), attrs));
+			break;
+		}
+		case 7: {
+			Component t = pick(rand, comps, Tunnel.class);
+			if (t != null)
+				m.set(t, StdAttr.LABEL, LABELS[rand.nextInt(LABELS.length)]);
+			break;
+		}
+		case 8: {
+			Component p = pick(rand, comps, PullResistor.class);
+			if (p == null || rand.nextBoolean()) {
+				m.add(pull.createComponent(point(rand),
+						pull.createAttributeSet()));
+			} else {
+				m.set(p, PullResistor.ATTR_PULL_TYPE,
+						rand.nextBoolean() ? PullResistor.PULL_TYPE_ONE
+								: PullResistor.PULL_TYPE_ZERO);
+			}
+			break;
+		}
+		default:
+			if (!comps.isEmpty())
+				m.remove(comps.get(rand.nextInt(comps.size())));
+		}
+	}
+
+	@Test
+	public void testIncrementalMatchesFullRebuild() {
+		for (int seed = 0; seed < 30; seed++) {
+			Random rand = new Random(seed);
+			LogisimFile file = LogisimFile.createNew(new Loader(null), null);
+			Circuit circuit = file.getMainCircuit();
+			HashSet<Location> seen = new HashSet<Location>();
+			for (int step = 0; step < 60; step++) {
+				CircuitWires.BundleMap before = circuit.wires.getBundleMap();
+				HashSet<Location> beforeSeen = new HashSet<Location>(seen);
+				String beforeText = describe(before, beforeSeen);
+
+				ArrayList<Component> comps = new ArrayList<Component>(
+						circuit.getNonWires());
+				comps.addAll(circuit.getWires());
+				CircuitMutation m = new CircuitMutation(circuit);
+				edit(rand, m, comps);
+				m.execute();
+
+				seen.addAll(circuit.getSplitLocations());
+				CircuitWires.BundleMap after = circuit.wires.getBundleMap();
+				assertTrue(after.isValid());
+				checkTables(after);
+
+				CircuitWires full = new CircuitWires();
+				for (Component comp : circuit.getNonWires())
+					full.add(comp);
+				for (Component comp : circuit.getWires())
+					full.add(comp);
+				String where = "seed " + seed + " step " + step;
+				assertEquals(where, describe(full.getBundleMap(), seen),
+						describe(after, seen));
+				// a simulation may still be using the previous map
+				assertEquals(where, beforeText, describe(before, beforeSeen));
+			}
+		}
+	}
+}
@@ -0,0 +1,410 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceComponent;
+import com.cburch.logisim.instance.InstanceData;
+import com.cburch.logisim.instance.InstanceFactory;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.Port;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.arith.Adder;
+import com.cburch.logisim.std.arith.BitAdder;
+import com.cburch.logisim.std.arith.BitFinder;
+import com.cburch.logisim.std.arith.Comparator;
+import com.cburch.logisim.std.arith.Divider;
+import com.cburch.logisim.std.arith.Multiplier;
+import com.cburch.logisim.std.arith.Negator;
+import com.cburch.logisim.std.arith.Shifter;
+import com.cburch.logisim.std.arith.Subtractor;
+import com.cburch.logisim.std.gates.Gates;
+import com.cburch.logisim.std.plexers.BitSelector;
+import com.cburch.logisim.std.plexers.Decoder;
+import com.cburch.logisim.std.plexers.Demultiplexer;
+import com.cburch.logisim.std.plexers.Multiplexer;
+import com.cburch.logisim.std.plexers.Plexers;
+import com.cburch.logisim.std.plexers.PriorityEncoder;
+import com.cburch.logisim.std.wiring.BitExtender;
+import com.cburch.logisim.std.wiring.Constant;
+import com.cburch.logisim.std.wiring.Ground;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.Power;
+import com.cburch.logisim.std.wiring.Probe;
+import com.cburch.logisim.std.wiring.Tunnel;
+
+/**
+ * A levelized form of a purely combinational circuit. Each net of the circuit
+ * is given a slot in a value array, and the components are sorted
+ * topologically so that a single pass over them computes the outputs from the
+ * inputs. Subcircuits whose circuit can be compiled are then evaluated in one
+ * go by their {@link SubcircuitFactory} instead of through the event queue of
+ * the {@link Propagator}.
+ *
+ * Only circuits made of gates, plexers, arithmetic components and simple
+ * wiring components, without splitters, pull resistors, three-state or
+ * floating outputs, multiple drivers or feedback loops, can be compiled;
+ * other circuits are simulated event by event as before.
+ */
+class CompiledCircuit {
+	/**
+	 * The values of the nets of one instance of the circuit.
+	 */
+	static class State {
+		private CompiledCircuit compiled;
+		private Value[] values;
+		private int[] arrival;
+		private OpState opState;
+		private Instance[] pins = null;
+		private int[] pinSlots;
+
+		private State(CompiledCircuit compiled, CircuitState circState) {
+			this.compiled = compiled;
+			this.values = compiled.initialValues.clone();
+			this.arrival = new int[values.length];
+			this.opState = new OpState(this, circState);
+		}
+
+		Value getValue(Location loc) {
+			Integer slot = compiled.slotAt.get(loc);
+			return slot == null ? null : values[slot.intValue()];
+		}
+	}
+
+	private static class OpState implements InstanceState {
+		private State state;
+		private CircuitState circState;
+		private Op op;
+		private int opArrival;
+
+		private OpState(State state, CircuitState circState) {
+			this.state = state;
+			this.circState = circState;
+		}
+
+		public void fireInvalidated() {
+			Instance.getInstanceFor(op.comp).fireInvalidated();
+		}
+
+		public AttributeSet getAttributeSet() {
+			return op.comp.getAttributeSet();
+		}
+
+		public <E> E getAttributeValue(Attribute<E> attr) {
+			return op.comp.getAttributeSet().getValue(attr);
+		}
+
+		public InstanceData getData() {
+			return (InstanceData) circState.getData(op.comp);
+		}
+
+		public InstanceFactory getFactory() {
+			return op.factory;
+		}
+
+		public Instance getInstance() {
+			return ((InstanceComponent) op.comp).getInstance();
+		}
+
+		public int getPortIndex(Port port) {
+			return getInstance().getPorts().indexOf(port);
+		}
+
+		public Value getPortValue(int portIndex) {
+			return state.values[op.slots[portIndex]];
+		}
+
+		public Project getProject() {
+			return circState.getProject();
+		}
+
+		public long getTickCount() {
+			return circState.getPropagator().getTickCount();
+		}
+
+		public boolean isCircuitRoot() {
+			return false;
+		}
+
+		public boolean isPortConnected(int portIndex) {
+			return op.connected[portIndex];
+		}
+
+		public void setData(InstanceData value) {
+			circState.setData(op.comp, value);
+		}
+
+		public void setPort(int portIndex, Value value, int delay) {
+			if (!op.drives[portIndex])
+				return;
+			int slot = op.slots[portIndex];
+			state.values[slot] = value;
+			state.arrival[slot] = opArrival + Math.max(delay, 1);
+		}
+	}
+
+	private static class Op {
+		private Component comp;
+		private InstanceFactory factory;
+		private int[] slots;
+		private boolean[] drives;
+		private boolean[] connected;
+
+		private Op(Component comp, int ends) {
+			this.comp = comp;
+			this.factory = (InstanceFactory) comp.getFactory();
+			this.slots = new int[ends];
+			this.drives = new boolean[ends];
+			this.connected = new boolean[ends];
+		}
+	}
+
+	/**
+	 * Builds the levelized form of a circuit, or returns null if the circuit
+	 * contains anything that has to be simulated event by event.
+	 */
+	static CompiledCircuit compile(Circuit circuit) {
+		ArrayList<Component> comps = new ArrayList<Component>();
+		for (Component comp : circuit.getSnapshot().getComponents()) {
+			if (comp.getFactory() instanceof Tunnel)
+				continue; // merged into the nets by the bundle map
+			if (!isCompilable(comp))
+				return null;
+			comps.add(comp);
+		}
+
+		// assign a slot to each net
+		HashMap<Object, Integer> netSlots = new HashMap<Object, Integer>();
+		HashMap<Location, Integer> slotAt = new HashMap<Location, Integer>();
+		ArrayList<BitWidth> widths = new ArrayList<BitWidth>();
+		ArrayList<Op> ops = new ArrayList<Op>();
+		ArrayList<Op> drivers = new ArrayList<Op>();
+		for (Component comp : comps) {
+			List<EndData> ends = comp.getEnds();
+			Op op = new Op(comp, ends.size());
+			for (int i = 0; i < ends.size(); i++) {
+				EndData end = ends.get(i);
+				Location loc = end.getLocation();
+				WireBundle bundle = circuit.wires.getWireBundle(loc);
+				if (bundle != null && !bundle.isValid())
+					return null;
+				Object net = bundle == null ? loc : bundle;
+				Integer slot = netSlots.get(net);
+				if (slot == null) {
+					slot = Integer.valueOf(widths.size());
+					netSlots.put(net, slot);
+					widths.add(bundle == null ? end.getWidth() : bundle
+							.getWidth());
+					drivers.add(null);
+					if (bundle != null) {
+						for (Location p : bundle.points)
+							slotAt.put(p, slot);
+					}
+				}
+				slotAt.put(loc, slot);
+				op.slots[i] = slot.intValue();
+				op.connected[i] = circuit.isConnected(loc, comp);
+				if (end.isOutput()) {
+					if (drivers.get(slot.intValue()) != null)
+						return null; // several drivers on one net
+					drivers.set(slot.intValue(), op);
+					op.drives[i] = true;
+				}
+			}
+			ops.add(op);
+		}
+
+		// sort the components topologically
+		HashMap<Op, Integer> inDegree = new HashMap<Op, Integer>();
+		HashMap<Op, ArrayList<Op>> fanOut = new HashMap<Op, ArrayList<Op>>();
+		for (Op op : ops) {
+			int degree = 0;
+			for (int i = 0; i < op.slots.length; i++) {
+				Op driver = drivers.get(op.slots[i]);
+				if (!op.drives[i] && driver != null) {
+					degree++;
+					ArrayList<Op> out = fanOut.get(driver);
+					if (out == null) {
+						out = new ArrayList<Op>();
+						fanOut.put(driver, out);
+					}
+					out.add(op);
+				}
+			}
+			inDegree.put(op, Integer.valueOf(degree));
+		}
+		ArrayList<Op> order = new ArrayList<Op>(ops.size());
+		for (Op op : ops) {
+			if (inDegree.get(op).intValue() == 0)
+				order.add(op);
+		}
+		for (int i = 0; i < order.size(); i++) {
+			ArrayList<Op> out = fanOut.get(order.get(i));
+			if (out != null) {
+				for (Op next : out) {
+					int degree = inDegree.get(next).intValue() - 1;
+					inDegree.put(next, Integer.valueOf(degree));
+					if (degree == 0)
+						order.add(next);
+				}
+			}
+		}
+		if (order.size() != ops.size())
+			return null; // feedback loop
+
+		return new CompiledCircuit(order, widths, slotAt);
+	}
+
+	// factories known to compute their outputs from their inputs alone
+	private static final Set<Class<?>> COMPILABLE = new HashSet<Class<?>>(
+			Arrays.<Class<?>> asList(Multiplexer.class, Demultiplexer.class,
+					Decoder.class, PriorityEncoder.class, BitSelector.class,
+					Adder.class, Subtractor.class, Multiplier.class,
+					Divider.class, Negator.class, Comparator.class,
+					Shifter.class, BitAdder.class, BitFinder.class, Pin.class,
+					Constant.class, Ground.class, Power.class, Probe.class,
+					BitExtender.class));
+
+	private static boolean isCompilable(Component comp) {
+		ComponentFactory factory = comp.getFactory();
+		if (!Gates.isCombinational(comp)
+				&& !COMPILABLE.contains(factory.getClass()))
+			return false;
+
+		AttributeSet attrs = comp.getAttributeSet();
+		if (attrs.containsAttribute(Plexers.ATTR_TRISTATE)
+				&& attrs.getValue(Plexers.ATTR_TRISTATE).booleanValue())
+			return false;
+		// a disabled plexer lets its outputs float, which a slot cannot hold
+		if (attrs.containsAttribute(Plexers.ATTR_DISABLED)
+				&& attrs.getValue(Plexers.ATTR_DISABLED) == Plexers.DISABLED_FLOATING
+				&& (!attrs.containsAttribute(Plexers.ATTR_ENABLE) || attrs
+						.getValue(Plexers.ATTR_ENABLE).booleanValue()))
+			return false;
+		for (EndData end : comp.getEnds()) {
+			if (end.getType() == EndData.INPUT_OUTPUT)
+				return false;
+		}
+		return true;
+	}
+
+	static boolean propagate(CircuitState subState, InstanceState superState,
+			Instance[] pins) {
+		Propagator prop = subState.getPropagator();
+		CompiledCircuit compiled = prop.isCompiling() ? subState.getCircuit()
+				.getCompiled() : null;
+		State state = subState.compiledState;
+		if (compiled == null) {
+			if (state != null) {
+				// back to event-driven simulation
+				subState.compiledState = null;
+				subState.markAllComponentsDirty();
+			}
+			return false;
+		}
+		if (state == null || state.compiled != compiled) {
+			state = new State(compiled, subState);
+			subState.compiledState = state;
+		}
+		if (state.pins != pins) {
+			state.pins = pins;
+			state.pinSlots = new int[pins.length];
+			for (int i = 0; i < pins.length; i++) {
+				EndData end = pins[i].getComponent().getEnd(0);
+				Integer slot = compiled.slotAt.get(end.getLocation());
+				state.pinSlots[i] = slot == null ? -1 : slot.intValue();
+			}
+		}
+
+		// load the inputs
+		for (int i = 0; i < pins.length; i++) {
+			Instance pin = pins[i];
+			if (Pin.FACTORY.isInputPin(pin)) {
+				InstanceState pinState = subState.getInstanceState(pin);
+				Pin.FACTORY.setValue(pinState, superState.getPortValue(i));
+			}
+		}
+
+		// evaluate the components in topological order
+		Arrays.fill(state.arrival, 0);
+		OpState opState = state.opState;
+		for (Op op : compiled.ops) {
+			int arrival = 0;
+			for (int i = 0; i < op.slots.length; i++) {
+				if (!op.drives[i])
+					arrival = Math.max(arrival, state.arrival[op.slots[i]]);
+			}
+			opState.op = op;
+			opState.opArrival = arrival;
+			op.factory.propagate(opState);
+		}
+
+		// send the outputs, delayed as much as through the original gates
+		for (int i = 0; i < pins.length; i++) {
+			Instance pin = pins[i];
+			int slot = state.pinSlots[i];
+			if (!Pin.FACTORY.isInputPin(pin) && slot >= 0) {
+				superState.setPort(i, state.values[slot],
+						Math.max(state.arrival[slot], 1));
+			}
+		}
+		return true;
+	}
+
+	private Op[] ops;
+	private Value[] initialValues;
+	private HashMap<Location, Integer> slotAt;
+
+	private CompiledCircuit(List<Op> ops, List<BitWidth> widths,
+			HashMap<Location, Integer> slotAt) {
+		this.ops = ops.toArray(new Op[ops.size()]);
+		this.initialValues = new Value[widths.size()];
+		for (int i = 0; i < initialValues.length; i++) {
+			initialValues[i] = Value.createUnknown(widths.get(i));
+		}
+		this.slotAt = slotAt;
+	}
+}
@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.AttributeOption;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.file.Options;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.arith.Adder;
+import com.cburch.logisim.std.gates.Gates;
+import com.cburch.logisim.std.plexers.Multiplexer;
+import com.cburch.logisim.std.plexers.Plexers;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.tools.AddTool;
+
+public class CompiledCircuitTest {
+
+	private static final BitWidth WIDTH = BitWidth.create(4);
+
+	/**
+	 * A subcircuit choosing between a+b and x^y, instantiated a few times in
+	 * the main circuit with a pin on each of its ports.
+	 */
+	private static class Fixture {
+		final Project proj;
+		final Circuit sub;
+		final Component subComp;
+		final CircuitState state;
+		final List<InstanceState> inputs = new ArrayList<InstanceState>();
+		final List<InstanceState> outputs = new ArrayList<InstanceState>();
+
+		Fixture(boolean compiled, AttributeOption disabled) {
+			this(compiled, false, disabled, 1);
+		}
+
+		Fixture(boolean compiled, boolean parallel, AttributeOption disabled,
+				int copies) {
+			LogisimFile file = LogisimFile.createNew(new Loader(null), null);
+			proj = new Project(file);
+			proj.getOptions().getAttributeSet()
+					.setValue(Options.ATTR_SIM_COMPILED, Boolean.valueOf(compiled));
+			proj.getOptions().getAttributeSet()
+					.setValue(Options.ATTR_SIM_PARALLEL, Boolean.valueOf(parallel));
+			sub = new Circuit("sub", file, null);
+			file.addCircuit(sub);
+			CircuitMutation m = new CircuitMutation(sub);
+
+			Component adder = create(new Adder(), Location.create(300, 100));
+			Component xor = create(((AddTool) new Gates().getTool("XOR Gate"))
+					.getFactory(), Location.create(300, 300));
+			Multiplexer muxFactory = new Multiplexer();
+			AttributeSet muxAttrs = muxFactory.createAttributeSet();
+			muxAttrs.setValue(StdAttr.WIDTH, WIDTH);
+			muxAttrs.setValue(Plexers.ATTR_ENABLE,
+					Boolean.valueOf(disabled != null));
+			if (disabled != null)
+				muxAttrs.setValue(Plexers.ATTR_DISABLED, disabled);
+			Component mux = muxFactory.createComponent(
+					Location.create(600, 200), muxAttrs);
+			m.add(adder);
+			m.add(xor);
+			m.add(mux);
+			for (int i : new int[] { 0, 1 })
+				m.add(pin(adder.getEnd(i).getLocation(), WIDTH, false));
+			for (int i : new int[] { 1, 2 })
+				m.add(pin(xor.getEnd(i).getLocation(), WIDTH, false));
+			List<EndData> muxEnds = mux.getEnds();
+			m.add(pin(muxEnds.get(2).getLocation(), BitWidth.ONE, false));
+			if (disabled != null)
+				m.add(pin(muxEnds.get(3).getLocation(), BitWidth.ONE, false));
+			m.add(pin(muxEnds.get(muxEnds.size() - 1).getLocation(), WIDTH,
+					true));
+			m.add(pin(adder.getEnd(4).getLocation(), BitWidth.ONE, true));
+			wire(m, adder.getEnd(2).getLocation(), muxEnds.get(0)
+					.getLocation());
+			wire(m, xor.getEnd(0).getLocation(), muxEnds.get(1).getLocation());
+			m.execute();
+
+			Circuit main = file.getMainCircuit();
+			m = new CircuitMutation(main);
+			// sorted, so that both fixtures list their pins in the same order
+			TreeMap<Location, Component> pins = new TreeMap<Location, Component>();
+			Component first = null;
+			for (int k = 0; k < copies; k++) {
+				Component comp = create(sub.getSubcircuitFactory(),
+						Location.create(200, 200 + 300 * k));
+				if (first == null)
+					first = comp;
+				m.add(comp);
+				for (EndData end : comp.getEnds()) {
+					Component pin = pin(end.getLocation(), end.getWidth(),
+							end.isOutput());
+					pins.put(end.getLocation(), pin);
+					m.add(pin);
+				}
+			}
+			subComp = first;
+			m.execute();
+
+			state = new CircuitState(proj, main);
+			proj.setCircuitState(state);
+			for (Component comp : pins.values()) {
+				InstanceState pin = state.getInstanceState(comp);
+				if (Pin.FACTORY.isInputPin(pin.getInstance()))
+					inputs.add(pin);
+				else
+					outputs.add(pin);
+			}
+			state.getPropagator().propagate();
+		}
+
+		String run(long[] values) {
+			for (int i = 0; i < inputs.size(); i++) {
+				InstanceState pin = inputs.get(i);
+				BitWidth width = Pin.FACTORY.getWidth(pin.getInstance());
+				Pin.FACTORY.setValue(pin, Value.createKnown(width, values[i]));
+				pin.fireInvalidated();
+			}
+			state.getPropagator().propagate();
+			StringBuilder ret = new StringBuilder();
+			for (InstanceState pin : outputs)
+				ret.append(Pin.FACTORY.getValue(pin)).append(' ');
+			return ret.toString();
+		}
+	}
+
+	private static Component create(ComponentFactory factory, Location loc) {
+		AttributeSet attrs = factory.createAttributeSet();
+		if (attrs.containsAttribute(StdAttr.WIDTH))
+			attrs.setValue(StdAttr.WIDTH, WIDTH);
+		return factory.createComponent(loc, attrs);
+	}
+
+	private static Component pin(Location loc, BitWidth width, boolean output) {
+		AttributeSet attrs = Pin.FACTORY.createAttributeSet();
+		attrs.setValue(StdAttr.WIDTH, width);
+		attrs.setValue(Pin.ATTR_TYPE, Boolean.valueOf(output));
+		return Pin.FACTORY.createComponent(loc, attrs);
+	}
+
+	// horizontal first, then vertical
+	private static void wire(CircuitMutation m, Location a, Location b) {
+		Location corner = Location.create(b.getX(), a.getY());
+		if (!a.equals(corner))
+			m.add(Wire.create(a, corner));
+		if (!corner.equals(b))
+			m.add(Wire.create(corner, b));
+	}
+
+	@Test
+	public void testCompiledMatchesEventDriven() {
+		Fixture compiled = new Fixture(true, null);
+		Fixture interpreted = new Fixture(false, null);
+		assertNotNull(compiled.sub.getCompiled());
+		assertEquals(compiled.inputs.size(), interpreted.inputs.size());
+
+		Random random = new Random(0);
+		long[] values = new long[compiled.inputs.size()];
+		for (int round = 0; round < 200; round++) {
+			for (int i = 0; i < values.length; i++)
+				values[i] = random.nextInt(16);
+			String expected = interpreted.run(values);
+			assertEquals(expected, compiled.run(values));
+		}
+		CircuitState subState = compiled.sub.getSubcircuitFactory()
+				.getSubstate(compiled.state, compiled.subComp);
+		assertNotNull(subState.compiledState);
+	}
+
+	@Test
+	public void testParallelMatchesSerial() {
+		Fixture serial = new Fixture(false, false, null, 6);
+		Fixture parallel = new Fixture(false, true, null, 6);
+		Fixture both = new Fixture(true, true, null, 6);
+
+		Random random = new Random(1);
+		long[] values = new long[serial.inputs.size()];
+		for (int round = 0; round < 100; round++) {
+			for (int i = 0; i < values.length; i++)
+				values[i] = random.nextInt(16);
+			String expected = serial.run(values);
+			assertEquals(expected, parallel.run(values));
+			assertEquals(expected, both.run(values));
+		}
+	}
+
+	@Test
+	public void testFloatingPlexerIsNotCompiled() {
+		assertNull(new Fixture(true, Plexers.DISABLED_FLOATING).sub
+				.getCompiled());
+		assertNotNull(new Fixture(true, Plexers.DISABLED_ZERO).sub
+				.getCompiled());
+	}
+}
@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+package com.cburch.logisim.circuit;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.AttributeEvent;
+import com.cburch.logisim.data.AttributeListener;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Location;
+
+/**
+ * Uniform grid over the components and wires of a circuit, so that drawing
+ * and hit-testing only look at the components near the area of interest.
+ * Each component is filed under every cell its extent overlaps; the extent
+ * is its bounds including its label, plus a small margin for hit-testing
+ * tolerances and decorations. Queries return components in the order they
+ * were added, non-wires first, which is the order the circuit draws them.
+ * Extents are refreshed whenever a component's attributes change, and
+ * by the circuit when a component reports new ends or invalidates itself.
+ */
+class ComponentGrid {
+	private class Entry implements AttributeListener {
+		final Component comp;
+		final long order;
+		int x0, y0, x1, y1; // extent, inclusive
+		int mark;
+
+		Entry(Component comp, long order) {
+			this.comp = comp;
+			this.order = order;
+		}
+
+		public void attributeListChanged(AttributeEvent e) {
+		}
+
+		public void attributeValueChanged(AttributeEvent e) {
+			// size, facing and label attributes all move the extent
+			update(comp);
+		}
+
+		boolean overlaps(int qx0, int qy0, int qx1, int qy1) {
+			return x0 <= qx1 && qx0 <= x1 && y0 <= qy1 && qy0 <= y1;
+		}
+	}
+
+	private static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+		public int compare(Entry a, Entry b) {
+			return a.order < b.order ? -1 : (a.order > b.order ? 1 : 0);
+		}
+	};
+
+	private static final int CELL_BITS = 7; // cells are 128 x 128
+	private static final int MARGIN = 5;
+	private static final long WIRE_ORDER = Long.MAX_VALUE / 2;
+
+	private static long key(int cx, int cy) {
+		return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+	}
+
+	private Long2ObjectOpenHashMap<ArrayList<Entry>> cells = new Long2ObjectOpenHashMap<ArrayList<Entry>>();
+	private HashMap<Component, Entry> entries = new HashMap<Component, Entry>();
+	private ArrayList<Entry> unbounded = new ArrayList<Entry>();
+	private long nextOrder = 0;
+	private int mark = 0;
+	private Graphics measure = null;
+
+	synchronized void add(Component comp) {
+		if (entries.containsKey(comp))
+			return;
+		long order = nextOrder++;
+		if (comp instanceof Wire)
+			order += WIRE_ORDER;
+		Entry e = new Entry(comp, order);
+		entries.put(comp, e);
+		file(e);
+		if (!(comp instanceof Wire))
+			comp.getAttributeSet().addAttributeListener(e);
+	}
+
+	synchronized void clear() {
+		for (Entry e : entries.values()) {
+			if (!(e.comp instanceof Wire))
+				e.comp.getAttributeSet().removeAttributeListener(e);
+		}
+		cells.clear();
+		entries.clear();
+		unbounded.clear();
+	}
+
+	private void file(Entry e) {
+		Bounds bds = measure(e.comp);
+		if (bds == null || bds == Bounds.EMPTY_BOUNDS) {
+			unbounded.add(e);
+			return;
+		}
+		bds = bds.expand(MARGIN);
+		e.x0 = bds.getX();
+		e.y0 = bds.getY();
+		e.x1 = e.x0 + bds.getWidth();
+		e.y1 = e.y0 + bds.getHeight();
+		for (int cx = e.x0 >> CELL_BITS; cx <= e.x1 >> CELL_BITS; cx++) {
+			for (int cy = e.y0 >> CELL_BITS; cy <= e.y1 >> CELL_BITS; cy++) {
+				long k = key(cx, cy);
+				ArrayList<Entry> cell = cells.get(k);
+				if (cell == null) {
+					cell = new ArrayList<Entry>(4);
+					cells.put(k, cell);
+				}
+				cell.add(e);
+			}
+		}
+	}
+
+	private Bounds measure(Component comp) {
+		// labels are part of what gets drawn, and measuring them needs a
+		// graphics context; any one will do for deciding which cells to use
+		if (measure == null)
+			measure = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB)
+					.createGraphics();
+		try {
+			return comp.getBounds(measure);
+		} catch (RuntimeException ex) {
+			return comp.getBounds();
+		}
+	}
+
+	/**
+	 * Returns the components whose extent overlaps the given area, or null
+	 * if the area covers so many cells that the caller is better off
+	 * scanning all components.
+	 */
+	synchronized ArrayList<Component> query(Bounds area) {
+		int qx0 = area.getX();
+		int qy0 = area.getY();
+		int qx1 = qx0 + area.getWidth();
+		int qy1 = qy0 + area.getHeight();
+		long ncells = (long) ((qx1 >> CELL_BITS) - (qx0 >> CELL_BITS) + 1)
+				* ((qy1 >> CELL_BITS) - (qy0 >> CELL_BITS) + 1);
+		if (ncells > entries.size())
+			return null;
+		ArrayList<Entry> found = new ArrayList<Entry>();
+		int m = ++mark;
+		for (int cx = qx0 >> CELL_BITS; cx <= qx1 >> CELL_BITS; cx++) {
+			for (int cy = qy0 >> CELL_BITS; cy <= qy1 >> CELL_BITS; cy++) {
+				ArrayList<Entry> cell = cells.get(key(cx, cy));
+				if (cell == null)
+					continue;
+				for (int i = 0, n = cell.size(); i < n; i++) {
+					Entry e = cell.get(i);
+					if (e.mark != m && e.overlaps(qx0, qy0, qx1, qy1)) {
+						e.mark = m;
+						found.add(e);
+					}
+				}
+			}
+		}
+		return toComponents(found);
+	}
+
+	/** Returns the components whose extent contains the given point. */
+	synchronized ArrayList<Component> query(Location pt) {
+		int x = pt.getX();
+		int y = pt.getY();
+		ArrayList<Entry> found = new ArrayList<Entry>();
+		ArrayList<Entry> cell = cells.get(key(x >> CELL_BITS, y >> CELL_BITS));
+		if (cell != null) {
+			for (int i = 0, n = cell.size(); i < n; i++) {
+				Entry e = cell.get(i);
+				if (e.overlaps(x, y, x, y))
+					found.add(e);
+			}
+		}
+		return toComponents(found);
+	}
+
+	synchronized void remove(Component comp) {
+		Entry e = entries.remove(comp);
+		if (e != null) {
+			unfile(e);
+			if (!(comp instanceof Wire))
+				comp.getAttributeSet().removeAttributeListener(e);
+		}
+	}
+
+	private ArrayList<Component> toComponents(ArrayList<Entry> found) {
+		found.addAll(unbounded);
+		Collections.sort(found, ORDER);
+		ArrayList<Component> ret = new ArrayList<Component>(found.size());
+		for (Entry e : found)
+			ret.add(e.comp);
+		return ret;
+	}
+
+	private void unfile(Entry e) {
+		if (unbounded.remove(e))
+			return;
+		for (int cx = e.x0 >> CELL_BITS; cx <= e.x1 >> CELL_BITS; cx++) {
+			for (int cy = e.y0 >> CELL_BITS; cy <= e.y1 >> CELL_BITS; cy++) {
+				long k = key(cx, cy);
+				ArrayList<Entry> cell = cells.get(k);
+				if (cell != null) {
+					cell.remove(e);
+					if (cell.isEmpty())
+						cells.remove(k);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Refiles a component whose bounds may have changed. Components that
+	 * are not in the grid are ignored.
+	 */
+	synchronized void update(Component comp) {
+		Entry e = entries.get(comp);
+		if (e != null) {
+			unfile(e);
+			file(e);
+		}
+	}
+}
@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Direction;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.std.gates.Gates;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.tools.AddTool;
+
+public class ComponentGridTest {
+
+	private Circuit circuit;
+	private Random rand;
+
+	@Before
+	public void setUp() {
+		LogisimFile file = LogisimFile.createNew(new Loader(null), null);
+		circuit = new Circuit("grid", file, null);
+		rand = new Random(7);
+	}
+
+	private List<Component> all() {
+		List<Component> ret = new ArrayList<Component>(circuit.getNonWires());
+		ret.addAll(circuit.getWires());
+		return ret;
+	}
+
+	private void checkQueries(int count) {
+		Bounds bds = circuit.getBounds().expand(60);
+		for (int i = 0; i < count; i++) {
+			Location p = Location.create(
+					bds.getX() + rand.nextInt(bds.getWidth()), bds.getY()
+							+ rand.nextInt(bds.getHeight()));
+			HashSet<Component> expected = new HashSet<Component>();
+			for (Component comp : all()) {
+				if (comp.contains(p))
+					expected.add(comp);
+			}
+			assertEquals("containing " + p, expected, new HashSet<Component>(
+					circuit.getAllContaining(p)));
+
+			Bounds q = Bounds.create(p.getX(), p.getY(),
+					1 + rand.nextInt(400), 1 + rand.nextInt(400));
+			expected.clear();
+			for (Component comp : all()) {
+				if (q.contains(comp.getBounds()))
+					expected.add(comp);
+			}
+			assertEquals("within " + q, expected,
+					new HashSet<Component>(circuit.getAllWithin(q)));
+		}
+	}
+
+	private void populate(int gates, int wires) {
+		ComponentFactory and = ((AddTool) new Gates().getTool("AND Gate"))
+				.getFactory();
+		CircuitMutation m = new CircuitMutation(circuit);
+		for (int i = 0; i < gates; i++) {
+			Location loc = Location.create(10 * rand.nextInt(200),
+					10 * rand.nextInt(200));
+			ComponentFactory factory = rand.nextBoolean() ? and : Pin.FACTORY;
+			AttributeSet attrs = factory.createAttributeSet();
+			attrs.setValue(StdAttr.FACING, Direction.cardinals[rand.nextInt(4)]);
+			m.add(factory.createComponent(loc, attrs));
+		}
+		for (int i = 0; i < wires; i++) {
+			Location a = Location.create(10 * rand.nextInt(200),
+					10 * rand.nextInt(200));
+			int len = 10 * (1 + rand.nextInt(40));
+			Location b = rand.nextBoolean() ? a.translate(len, 0) : a
+					.translate(0, len);
+			m.add(Wire.create(a, b));
+		}
+		m.execute();
+	}
+
+	@Test
+	public void testQueriesMatchScan() {
+		populate(150, 150);
+		checkQueries(2000);
+	}
+
+	@Test
+	public void testQueriesAfterEdits() {
+		populate(80, 80);
+		for (int round = 0; round < 5; round++) {
+			List<Component> comps = new ArrayList<Component>(
+					circuit.getNonWires());
+			List<Wire> wires = new ArrayList<Wire>(circuit.getWires());
+			CircuitMutation m = new CircuitMutation(circuit);
+			for (int i = 0; i < 5; i++) {
+				Component comp = comps.get(rand.nextInt(comps.size()));
+				if (rand.nextBoolean())
+					m.set(comp, StdAttr.LABEL, "aRatherLongLabel" + round
+							+ "x" + i);
+				else
+					m.set(comp, StdAttr.FACING, Direction.cardinals[rand.nextInt(4)]);
+			}
+			m.execute();
+			m = new CircuitMutation(circuit);
+			m.remove(comps.get(rand.nextInt(comps.size())));
+			m.remove(wires.get(rand.nextInt(wires.size())));
+			m.execute();
+			checkQueries(500);
+		}
+	}
+
+	@Test
+	public void testDrawingOrder() {
+		ComponentGrid grid = new ComponentGrid();
+		Component w = Wire.create(Location.create(0, 0),
+				Location.create(100, 0));
+		Component a = Pin.FACTORY.createComponent(Location.create(50, 0),
+				Pin.FACTORY.createAttributeSet());
+		Component b = Pin.FACTORY.createComponent(Location.create(60, 0),
+				Pin.FACTORY.createAttributeSet());
+		grid.add(w);
+		grid.add(b);
+		grid.add(a);
+		List<Component> found = grid.query(Bounds.create(10, 1, 100, 10));
+		assertEquals(3, found.size());
+		// non-wires first, each group in insertion order
+		assertEquals(b, found.get(0));
+		assertEquals(a, found.get(1));
+		assertEquals(w, found.get(2));
+
+		grid.remove(b);
+		assertFalse(grid.query(Location.create(60, 0)).contains(b));
+		assertTrue(grid.query(Location.create(50, 0)).contains(a));
+
+		// a huge area is left to the caller to scan
+		assertNull(grid.query(Bounds.create(-100000, -100000, 200000,
+				200000)));
+	}
+
+	@Test
+	public void testMovedExtentIsRefiled() {
+		ComponentGrid grid = new ComponentGrid();
+		Component pin = Pin.FACTORY.createComponent(Location.create(1000, 1000),
+				Pin.FACTORY.createAttributeSet());
+		grid.add(pin);
+		Location far = Location.create(1000, 1000 - 400);
+		assertFalse(grid.query(far).contains(pin));
+		pin.getAttributeSet().setValue(StdAttr.LABEL,
+				"aLabelLongEnoughToReachSeveralGridCellsAway");
+		Bounds bds = pin.getBounds(new java.awt.image.BufferedImage(1, 1,
+				java.awt.image.BufferedImage.TYPE_INT_ARGB).createGraphics());
+		Location inLabel = Location.create(bds.getX() + 1, bds.getY() + 1);
+		assertTrue(grid.query(inLabel).contains(pin));
+		grid.clear();
+		assertTrue(grid.query(inLabel).isEmpty());
+	}
+}
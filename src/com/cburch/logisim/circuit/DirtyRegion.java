@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Location;
+
+/**
+ * The locations and components of a {@link CircuitState} whose appearance may
+ * have changed during propagation, collected so that the canvas can repaint
+ * only the area they cover.
+ */
+class DirtyRegion {
+	// beyond this many entries, computing the area costs more than painting
+	private static final int MAX_ENTRIES = 4096;
+
+	private HashSet<Location> points = new HashSet<Location>();
+	private HashSet<Component> comps = new HashSet<Component>();
+	private boolean all = false;
+
+	synchronized void addPoint(Location p) {
+		if (!all) {
+			points.add(p);
+			if (points.size() > MAX_ENTRIES)
+				markAll();
+		}
+	}
+
+	/**
+	 * Returns false if the component was already recorded, in which case
+	 * the states enclosing it have recorded it as well.
+	 */
+	synchronized boolean addComponent(Component comp) {
+		if (all || !comps.add(comp))
+			return false;
+		if (comps.size() > MAX_ENTRIES)
+			markAll();
+		return true;
+	}
+
+	synchronized void markAll() {
+		all = true;
+		points.clear();
+		comps.clear();
+	}
+
+	/**
+	 * Returns the area covering everything recorded since the previous call,
+	 * or null if the whole circuit should be repainted.
+	 */
+	Bounds take(Circuit circuit) {
+		ArrayList<Location> pts;
+		ArrayList<Component> cs;
+		synchronized (this) {
+			if (all) {
+				all = false;
+				return null;
+			}
+			pts = new ArrayList<Location>(points);
+			cs = new ArrayList<Component>(comps);
+			points.clear();
+			comps.clear();
+		}
+		Bounds ret = Bounds.EMPTY_BOUNDS;
+		try {
+			for (Location p : pts) {
+				for (Component comp : circuit.getComponents(p)) {
+					ret = ret.add(comp.getBounds());
+				}
+			}
+		} catch (RuntimeException e) {
+			// the circuit is being edited; repaint it all
+			return null;
+		}
+		for (Component comp : cs) {
+			ret = ret.add(comp.getBounds());
+		}
+		return ret;
+	}
+}
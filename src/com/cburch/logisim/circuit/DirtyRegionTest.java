@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.file.Options;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Clock;
+import com.cburch.logisim.std.wiring.Pin;
+
+public class DirtyRegionTest {
+
+	private Project proj;
+	private Circuit circuit;
+	private Component in, out, farIn, farOut;
+	private Wire wire, farWire;
+
+	private static Component pin(Location loc, boolean output) {
+		AttributeSet attrs = Pin.FACTORY.createAttributeSet();
+		attrs.setValue(Pin.ATTR_TYPE, Boolean.valueOf(output));
+		attrs.setValue(StdAttr.WIDTH, BitWidth.ONE);
+		return Pin.FACTORY.createComponent(loc, attrs);
+	}
+
+	@Before
+	public void setUp() {
+		LogisimFile file = LogisimFile.createNew(new Loader(null), null);
+		proj = new Project(file);
+		circuit = file.getMainCircuit();
+		in = pin(Location.create(100, 100), false);
+		out = pin(Location.create(300, 100), true);
+		wire = Wire.create(Location.create(100, 100), Location.create(300, 100));
+		farIn = pin(Location.create(100, 1000), false);
+		farOut = pin(Location.create(300, 1000), true);
+		farWire = Wire.create(Location.create(100, 1000),
+				Location.create(300, 1000));
+		CircuitMutation m = new CircuitMutation(circuit);
+		m.add(in);
+		m.add(out);
+		m.add(wire);
+		m.add(farIn);
+		m.add(farOut);
+		m.add(farWire);
+		m.execute();
+	}
+
+	@Test
+	public void testComponentsAreRecordedOnce() {
+		DirtyRegion region = new DirtyRegion();
+		assertTrue(region.addComponent(in));
+		assertFalse(region.addComponent(in));
+		assertEquals(in.getBounds(), region.take(circuit));
+		// taking clears the region
+		assertEquals(Bounds.EMPTY_BOUNDS, region.take(circuit));
+		assertTrue(region.addComponent(in));
+	}
+
+	@Test
+	public void testPointsCoverTheirComponents() {
+		DirtyRegion region = new DirtyRegion();
+		region.addPoint(Location.create(300, 100));
+		Bounds bds = region.take(circuit);
+		assertTrue(bds.contains(out.getBounds()));
+		assertTrue(bds.contains(wire.getBounds()));
+		assertFalse(bds.contains(farWire.getBounds()));
+	}
+
+	@Test
+	public void testMarkAllAndOverflow() {
+		DirtyRegion region = new DirtyRegion();
+		region.addComponent(in);
+		region.markAll();
+		assertFalse(region.addComponent(out));
+		assertNull(region.take(circuit));
+		assertEquals(Bounds.EMPTY_BOUNDS, region.take(circuit));
+
+		for (int i = 0; i < 5000; i++)
+			region.addPoint(Location.create(10 * i, 0));
+		assertNull(region.take(circuit));
+	}
+
+	@Test
+	public void testStateReportsChangedArea() {
+		CircuitState state = new CircuitState(proj, circuit);
+		proj.setCircuitState(state);
+		state.setTrackingChanges(true);
+		state.getPropagator().propagate();
+		state.getChangedBounds();
+
+		InstanceState pin = state.getInstanceState(in);
+		Pin.FACTORY.setValue(pin, Value.TRUE);
+		pin.fireInvalidated();
+		state.getPropagator().propagate();
+		assertEquals(Value.TRUE, Pin.FACTORY.getValue(state
+				.getInstanceState(out)));
+
+		Bounds changed = state.getChangedBounds();
+		assertNotNull(changed);
+		assertTrue(changed.contains(wire.getBounds()));
+		assertTrue(changed.contains(out.getBounds()));
+		assertEquals(Bounds.EMPTY_BOUNDS,
+				changed.intersect(farWire.getBounds()));
+
+		// nothing changed since
+		state.getPropagator().propagate();
+		assertEquals(Bounds.EMPTY_BOUNDS, state.getChangedBounds());
+
+		state.reset();
+		assertNull(state.getChangedBounds());
+	}
+
+	/**
+	 * Puts a subcircuit holding only a clock at (600, 600) in the main
+	 * circuit; returns the subcircuit component.
+	 */
+	private Component addClockedSubcircuit() {
+		proj.getOptions().getAttributeSet()
+				.setValue(Options.ATTR_SIM_COMPILED, Boolean.FALSE);
+		Circuit sub = new Circuit("sub", proj.getLogisimFile(), null);
+		proj.getLogisimFile().addCircuit(sub);
+		CircuitMutation m = new CircuitMutation(sub);
+		m.add(Clock.FACTORY.createComponent(Location.create(100, 100),
+				Clock.FACTORY.createAttributeSet()));
+		m.add(Wire.create(Location.create(100, 100), Location.create(200, 100)));
+		m.execute();
+
+		SubcircuitFactory factory = sub.getSubcircuitFactory();
+		Component comp = factory.createComponent(Location.create(600, 600),
+				factory.createAttributeSet());
+		m = new CircuitMutation(circuit);
+		m.add(comp);
+		m.execute();
+		return comp;
+	}
+
+	@Test
+	public void testSubcircuitChangesReachTheParent() {
+		Component subComp = addClockedSubcircuit();
+		// tracking turned on before the subcircuit's state exists, and
+		// after
+		for (boolean early : new boolean[] { true, false }) {
+			CircuitState state = new CircuitState(proj, circuit);
+			proj.setCircuitState(state);
+			if (early)
+				state.setTrackingChanges(true);
+			state.getPropagator().propagate();
+			if (!early)
+				state.setTrackingChanges(true);
+			state.getChangedBounds();
+
+			// the clock only changes values inside the subcircuit
+			state.getPropagator().tick();
+			state.getPropagator().propagate();
+			Bounds changed = state.getChangedBounds();
+			assertNotNull(changed);
+			assertEquals("early " + early, subComp.getBounds(), changed);
+
+			state.setTrackingChanges(false);
+			state.getPropagator().tick();
+			state.getPropagator().propagate();
+			assertNull(state.getChangedBounds());
+		}
+	}
+}
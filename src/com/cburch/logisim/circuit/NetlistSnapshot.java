@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.cburch.logisim.comp.Component;
+
+/**
+ * The components of a circuit as of the last committed transaction.
+ * Snapshots are never modified once published, so the simulator can walk
+ * them while the editor is changing the circuit.
+ */
+final class NetlistSnapshot {
+	static final NetlistSnapshot EMPTY = new NetlistSnapshot(0,
+			Collections.<Component> emptySet());
+
+	private final long version;
+	private final List<Component> components;
+	private final Set<Component> componentSet;
+
+	NetlistSnapshot(long version, Collection<Component> comps) {
+		this.version = version;
+		this.components = Collections.unmodifiableList(Arrays
+				.asList(comps.toArray(new Component[comps.size()])));
+		this.componentSet = new HashSet<Component>(components);
+	}
+
+	boolean contains(Component comp) {
+		return componentSet.contains(comp);
+	}
+
+	/**
+	 * Returns the components other than wires, in the order they were added.
+	 */
+	List<Component> getComponents() {
+		return components;
+	}
+
+	long getVersion() {
+		return version;
+	}
+}
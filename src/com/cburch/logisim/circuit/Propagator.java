@@ -32,6 +32,8 @@ package com.cburch.logisim.circuit;
 
 import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.ComponentDrawContext;
@@ -41,6 +43,7 @@ import com.cburch.logisim.data.AttributeListener;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.file.Options;
+import com.cburch.logisim.std.hdl.VhdlSimulator;
 import it.unimi.dsi.fastutil.ints.*;
 
 public class Propagator {
@@ -67,6 +70,56 @@ public class Propagator {
 		}
 	}
 
+	/**
+	 * A value emitted by a component while its state was processed on a
+	 * worker thread; it is handed to setValue once all workers are done.
+	 */
+	private static class DeferredValue {
+		CircuitState state;
+		Location loc;
+		Value val;
+		Component cause;
+		int delay;
+
+		DeferredValue(CircuitState state, Location loc, Value val,
+				Component cause, int delay) {
+			this.state = state;
+			this.loc = loc;
+			this.val = val;
+			this.cause = cause;
+			this.delay = delay;
+		}
+	}
+
+	private class SubstateTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private CircuitState state;
+		private boolean points;
+		private ArrayList<DeferredValue> values = new ArrayList<DeferredValue>();
+
+		SubstateTask(CircuitState state, boolean points) {
+			this.state = state;
+			this.points = points;
+		}
+
+		@Override
+		protected void compute() {
+			if (points) {
+				state.processDirtyPoints();
+				return;
+			}
+			// a worker may run other tasks while waiting on its own
+			// subtasks, so the previous buffer must be restored afterwards
+			ArrayList<DeferredValue> old = deferred.get();
+			deferred.set(values);
+			try {
+				state.processDirtyComponents();
+			} finally {
+				deferred.set(old);
+			}
+		}
+	}
+
 	private static class Listener implements AttributeListener {
 		WeakReference<Propagator> prop;
 
@@ -83,6 +136,10 @@ public class Propagator {
 				e.getSource().removeAttributeListener(this);
 			} else if (e.getAttribute().equals(Options.sim_rand_attr)) {
 				p.updateRandomness();
+			} else if (e.getAttribute().equals(Options.ATTR_SIM_ENGINE)
+					|| e.getAttribute().equals(Options.ATTR_SIM_COMPILED)
+					|| e.getAttribute().equals(Options.ATTR_SIM_PARALLEL)) {
+				p.updateEngine();
 			}
 		}
 	}
@@ -163,6 +220,28 @@ public class Propagator {
 	private Int2ObjectMap<List<SetData>> toProcess = new Int2ObjectOpenHashMap<>();
 	private IntSortedSet times = new IntAVLTreeSet();
 	private List<SetData> nextList = new ArrayList<>();
+	/**
+	 * The event queue used instead of toProcess when the timing wheel engine
+	 * is selected, or null for the classic engine. As switching engines while
+	 * events are pending would require moving them across, the requested
+	 * engine only takes effect once the queue has drained.
+	 */
+	private TimingWheel wheel = null;
+	private volatile boolean wheelRequested;
+	/**
+	 * Whether purely combinational subcircuits are evaluated through their
+	 * {@link CompiledCircuit} rather than event by event.
+	 */
+	private volatile boolean compiling;
+	/**
+	 * Whether the substates of a circuit state are processed concurrently.
+	 * Values emitted meanwhile are collected per substate and queued in the
+	 * order the serial traversal would have produced them, so that serial
+	 * numbers and random delays come out identical.
+	 */
+	private volatile boolean parallel;
+	private boolean inParallelPhase = false;
+	private final ThreadLocal<ArrayList<DeferredValue>> deferred = new ThreadLocal<ArrayList<DeferredValue>>();
 	private int clock = 0;
 	private boolean isOscillating = false;
 	private boolean oscAdding = false;
@@ -182,6 +261,8 @@ public class Propagator {
 		root.getProject().getOptions().getAttributeSet()
 				.addAttributeListener(l);
 		updateRandomness();
+		updateEngine();
+		switchEngine();
 	}
 
 	private SetData addCause(CircuitState state, SetData head, SetData data) {
@@ -215,6 +296,24 @@ public class Propagator {
 		return head;
 	}
 
+	private SetData addCause(CircuitState state, SetData head, int time,
+			int serialNumber, Location loc, Component cause, Value val) {
+		if (val == null) {
+			return removeCause(state, head, loc, cause);
+		}
+
+		// only allocate a new cause when the component was not driving the
+		// location yet; in steady state, the value is merely replaced.
+		for (SetData n = head; n != null; n = n.next) {
+			if (n.cause == cause) {
+				n.val = val;
+				return head;
+			}
+		}
+		return addCause(state, head, new SetData(time, serialNumber, state,
+				loc, cause, val));
+	}
+
 	//
 	// private methods
 	//
@@ -237,6 +336,10 @@ public class Propagator {
 
 	private void clearDirtyComponents() {
 		root.processDirtyComponents();
+		// VHDL components queue their ports, exchanged once per step
+		VhdlSimulator vhdl = root.getProject().getVhdlSimulator();
+		if (vhdl != null)
+			vhdl.flush();
 	}
 
 	private void clearDirtyPoints() {
@@ -259,11 +362,25 @@ public class Propagator {
 		return ticks;
 	}
 
+	boolean isCompiling() {
+		return compiling;
+	}
+
+	boolean isParallel() {
+		if (!parallel || Runtime.getRuntime().availableProcessors() < 2)
+			return false;
+		// the VHDL simulator talks to a single external process
+		VhdlSimulator vhdl = root.getProject().getVhdlSimulator();
+		return vhdl == null || !vhdl.isEnabled();
+	}
+
 	public boolean isOscillating() {
 		return isOscillating;
 	}
 
 	boolean isPending() {
+		if (wheel != null)
+			return !wheel.isEmpty();
 		return !toProcess.isEmpty();
 	}
 
@@ -296,11 +413,15 @@ public class Propagator {
 	 */
 
 	void locationTouched(CircuitState state, Location loc) {
-		if (oscAdding)
-			oscPoints.add(state, loc);
+		if (oscAdding) {
+			synchronized (oscPoints) {
+				oscPoints.add(state, loc);
+			}
+		}
 	}
 
 	public void propagate() {
+		switchEngine();
 		oscPoints.clear();
 		clearDirtyPoints();
 		clearDirtyComponents();
@@ -308,7 +429,7 @@ public class Propagator {
 		int oscThreshold = simLimit;
 		int logThreshold = 3 * oscThreshold / 4;
 		int iters = 0;
-		while (!toProcess.isEmpty()) {
+		while (isPending()) {
 			iters++;
 
 			if (iters < logThreshold) {
@@ -327,6 +448,31 @@ public class Propagator {
 		oscPoints.clear();
 	}
 
+	/**
+	 * Processes the dirty components or points of the given substates
+	 * concurrently, each substate together with its own substates.
+	 */
+	void processInParallel(CircuitState[] substates, boolean points) {
+		boolean top = !inParallelPhase;
+		inParallelPhase = true;
+		try {
+			ArrayList<SubstateTask> tasks = new ArrayList<SubstateTask>();
+			for (CircuitState substate : substates) {
+				if (substate != null)
+					tasks.add(new SubstateTask(substate, points));
+			}
+			ForkJoinTask.invokeAll(tasks);
+			for (SubstateTask task : tasks) {
+				for (DeferredValue v : task.values) {
+					setValue(v.state, v.loc, v.val, v.cause, v.delay);
+				}
+			}
+		} finally {
+			if (top)
+				inParallelPhase = false;
+		}
+	}
+
 	private SetData removeCause(CircuitState state, SetData head, Location loc,
 			Component cause) {
 		HashMap<Location, SetData> causes = state.causes;
@@ -355,6 +501,9 @@ public class Propagator {
 
 	void reset() {
 		toProcess.clear();
+		times.clear();
+		if (wheel != null)
+			wheel.clear();
 		root.reset();
 		isOscillating = false;
 	}
@@ -366,6 +515,13 @@ public class Propagator {
 			int delay) {
 		if (cause instanceof Wire || cause instanceof Splitter)
 			return;
+		if (inParallelPhase) {
+			ArrayList<DeferredValue> values = deferred.get();
+			if (values != null) {
+				values.add(new DeferredValue(state, pt, val, cause, delay));
+				return;
+			}
+		}
 		if (delay <= 0) {
 			delay = 1;
 		}
@@ -383,6 +539,12 @@ public class Propagator {
 				}
 			}
 		}
+		if (wheel != null) {
+			wheel.add(clock + delay, setDataSerialNumber, state, pt, cause,
+					val);
+			setDataSerialNumber++;
+			return;
+		}
 		times.add(clock + delay);
 		List<SetData> list = toProcess.putIfAbsent(clock + delay, nextList);
 		if(list == null) {
@@ -412,6 +574,10 @@ public class Propagator {
 	}
 
 	private void stepInternal(PropagationPoints changedPoints) {
+		if (wheel != null) {
+			stepWheel(changedPoints);
+			return;
+		}
 		if (toProcess.isEmpty())
 			return;
 
@@ -463,6 +629,55 @@ public class Propagator {
 		clearDirtyComponents();
 	}
 
+	private void stepWheel(PropagationPoints changedPoints) {
+		if (wheel.isEmpty())
+			return;
+
+		// update clock
+		int head = wheel.advance();
+		clock = wheel.getTime();
+
+		// propagate all values for this clock tick
+		for (int ev = head; ev >= 0; ev = wheel.next(ev)) {
+			// if it's already handled for this clock tick, continue
+			if (!wheel.markSeen(ev))
+				continue;
+
+			CircuitState state = wheel.getState(ev);
+			Location loc = wheel.getLocation(ev);
+			if (changedPoints != null)
+				changedPoints.add(state, loc);
+
+			// change the information about value
+			SetData oldHead = state.causes.get(loc);
+			Value oldVal = computeValue(oldHead);
+			SetData newHead = addCause(state, oldHead, wheel.getTime(ev),
+					wheel.getSerialNumber(ev), loc, wheel.getCause(ev),
+					wheel.getValue(ev));
+			Value newVal = computeValue(newHead);
+
+			// if the value at point has changed, propagate it
+			if (!newVal.equals(oldVal)) {
+				state.markPointAsDirty(loc);
+			}
+		}
+		wheel.release(head);
+
+		clearDirtyPoints();
+		clearDirtyComponents();
+	}
+
+	private void switchEngine() {
+		boolean useWheel = wheelRequested;
+		if (useWheel == (wheel != null) || isPending())
+			return;
+		if (useWheel) {
+			wheel = new TimingWheel(clock);
+		} else {
+			wheel = null;
+		}
+	}
+
 	public boolean tick() {
 		ticks++;
 		return root.tick(ticks);
@@ -473,6 +688,17 @@ public class Propagator {
 		return "Prop" + id;
 	}
 
+	private void updateEngine() {
+		Options opts = root.getProject().getOptions();
+		Object engine = opts.getAttributeSet().getValue(
+				Options.ATTR_SIM_ENGINE);
+		wheelRequested = engine == Options.SIM_ENGINE_WHEEL;
+		compiling = opts.getAttributeSet().getValue(Options.ATTR_SIM_COMPILED)
+				.booleanValue();
+		parallel = opts.getAttributeSet().getValue(Options.ATTR_SIM_PARALLEL)
+				.booleanValue();
+	}
+
 	private void updateRandomness() {
 		Options opts = root.getProject().getOptions();
 		Object rand = opts.getAttributeSet().getValue(Options.sim_rand_attr);
@@ -88,6 +88,8 @@ public abstract class RadixOption extends AttributeOption {
 			case 32:
 				return 11; // 1G..2G
 			default:
+				if (width.getWidth() > 32)
+					return 1 + decimalDigits(width.getWidth() - 1);
 				return 1;
 			}
 		}
@@ -145,6 +147,8 @@ public abstract class RadixOption extends AttributeOption {
 			case 32:
 				return 10;
 			default:
+				if (width.getWidth() > 32)
+					return decimalDigits(width.getWidth());
 				return 1;
 			}
 		}
@@ -216,6 +220,11 @@ public abstract class RadixOption extends AttributeOption {
 		}
 	}
 
+	private static int decimalDigits(int bits) {
+		// number of decimal digits needed for 2^bits - 1
+		return (int) Math.ceil(bits * Math.log10(2));
+	}
+
 	public static RadixOption decode(String value) {
 		for (RadixOption opt : OPTIONS) {
 			if (value.equals(opt.saveName)) {
@@ -82,9 +82,6 @@ public class Splitter extends ManagedComponent implements WireRepair,
 	// basic data
 	byte[] bit_thread; // how each bit maps to thread within end
 
-	// derived data
-	CircuitWires.SplitterData wire_data;
-
 	public Splitter(Location loc, AttributeSet attrs) {
 		super(loc, attrs, 3);
 		configureComponent();
@@ -137,7 +134,6 @@ public class Splitter extends ManagedComponent implements WireRepair,
 			x += dx;
 			y += dy;
 		}
-		wire_data = new CircuitWires.SplitterData(fanout);
 		setEnds(ends);
 		recomputeBounds();
 		fireComponentInvalidated(new ComponentEvent(this));
@@ -40,6 +40,7 @@ import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.Attributes;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Direction;
+import com.cburch.logisim.data.Value;
 import com.cburch.logisim.instance.StdAttr;
 
 class SplitterAttributes extends AbstractAttributeSet {
@@ -200,7 +201,7 @@ class SplitterAttributes extends AbstractAttributeSet {
 
 	public static final Attribute<Integer> ATTR_FANOUT = Attributes
 			.forIntegerRange("fanout", Strings.getter("splitterFanOutAttr"), 1,
-					32);
+					Value.MAX_WIDTH);
 
 	private static final List<Attribute<?>> INIT_ATTRIBUTES = Arrays
 			.asList(new Attribute<?>[] { StdAttr.FACING, ATTR_FANOUT,
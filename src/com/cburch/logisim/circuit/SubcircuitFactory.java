@@ -553,14 +553,14 @@ public class SubcircuitFactory extends InstanceFactory {
 	}
 
 	public CircuitState getSubstate(CircuitState superState, Component comp) {
-		return getSubstate(createInstanceState(superState, comp));
+		return getSubstate(superState.getInstanceState(comp));
 	}
 
 	//
 	// propagation-oriented methods
 	//
 	public CircuitState getSubstate(CircuitState superState, Instance instance) {
-		return getSubstate(createInstanceState(superState, instance));
+		return getSubstate(superState.getInstanceState(instance));
 	}
 
 	private CircuitState getSubstate(InstanceState instanceState) {
@@ -636,6 +636,8 @@ public class SubcircuitFactory extends InstanceFactory {
 		CircuitAttributes attrs = (CircuitAttributes) superState
 				.getAttributeSet();
 		Instance[] pins = attrs.getPinInstances();
+		if (CompiledCircuit.propagate(subState, superState, pins))
+			return;
 		for (int i = 0; i < pins.length; i++) {
 			Instance pin = pins[i];
 			InstanceState pinState = subState.getInstanceState(pin);
@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import java.util.Arrays;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+
+/**
+ * Event queue used by the {@link Propagator} when the "timing wheel"
+ * simulation engine is selected. Pending events are kept in parallel arrays
+ * that are recycled through a free list, and are bucketed in a circular array
+ * indexed by their time modulo the wheel size. Since all pending events lie
+ * within one revolution of the current clock, each bucket holds the events of
+ * exactly one time step. Once the arrays have grown to the size needed by a
+ * circuit, queuing and draining events does not allocate anything.
+ */
+class TimingWheel {
+	private static final int NONE = -1;
+
+	// the wheel itself: head and tail of the event chain for each time slot
+	private int[] slotHead;
+	private int[] slotTail;
+	private int mask;
+	private int now;
+	private int pending = 0;
+
+	// event records, stored as a structure of arrays
+	private int[] evTime;
+	private int[] evSerial;
+	private int[] evNext;
+	private CircuitState[] evState;
+	private Location[] evLoc;
+	private Component[] evCause;
+	private Value[] evVal;
+	private int evUsed = 0;
+	private int evFree = NONE;
+
+	// epoch-stamped table for removing duplicate events within a time step
+	private CircuitState[] seenState;
+	private Component[] seenCause;
+	private Location[] seenLoc;
+	private int[] seenStamp;
+	private int seenCount = 0;
+	private int epoch = 1;
+
+	TimingWheel(int now) {
+		this.now = now;
+		allocateSlots(64);
+		allocateEvents(256);
+		allocateSeen(256);
+	}
+
+	/**
+	 * Queues an event. The time must lie strictly after the current time.
+	 */
+	void add(int time, int serial, CircuitState state, Location loc,
+			Component cause, Value val) {
+		int delay = time - now;
+		if (delay > mask)
+			growSlots(delay);
+
+		int ev = evFree;
+		if (ev != NONE) {
+			evFree = evNext[ev];
+		} else {
+			if (evUsed == evTime.length)
+				allocateEvents(2 * evTime.length);
+			ev = evUsed++;
+		}
+		evTime[ev] = time;
+		evSerial[ev] = serial;
+		evState[ev] = state;
+		evLoc[ev] = loc;
+		evCause[ev] = cause;
+		evVal[ev] = val;
+		evNext[ev] = NONE;
+
+		int slot = time & mask;
+		if (slotHead[slot] == NONE) {
+			slotHead[slot] = ev;
+		} else {
+			evNext[slotTail[slot]] = ev;
+		}
+		slotTail[slot] = ev;
+		pending++;
+	}
+
+	private void allocateEvents(int size) {
+		if (evTime == null) {
+			evTime = new int[size];
+			evSerial = new int[size];
+			evNext = new int[size];
+			evState = new CircuitState[size];
+			evLoc = new Location[size];
+			evCause = new Component[size];
+			evVal = new Value[size];
+		} else {
+			evTime = Arrays.copyOf(evTime, size);
+			evSerial = Arrays.copyOf(evSerial, size);
+			evNext = Arrays.copyOf(evNext, size);
+			evState = Arrays.copyOf(evState, size);
+			evLoc = Arrays.copyOf(evLoc, size);
+			evCause = Arrays.copyOf(evCause, size);
+			evVal = Arrays.copyOf(evVal, size);
+		}
+	}
+
+	private void allocateSeen(int size) {
+		seenState = new CircuitState[size];
+		seenCause = new Component[size];
+		seenLoc = new Location[size];
+		seenStamp = new int[size];
+	}
+
+	private void allocateSlots(int size) {
+		slotHead = new int[size];
+		slotTail = new int[size];
+		Arrays.fill(slotHead, NONE);
+		mask = size - 1;
+	}
+
+	/**
+	 * Advances the current time to the earliest pending time step and
+	 * detaches its events. The events are then visited from the returned
+	 * index through {@link #next(int)}, and must be handed back through
+	 * {@link #release(int)} once they have been processed.
+	 */
+	int advance() {
+		int time = now + 1;
+		while (slotHead[time & mask] == NONE)
+			time++;
+		now = time;
+		int slot = time & mask;
+		int head = slotHead[slot];
+		slotHead[slot] = NONE;
+		slotTail[slot] = NONE;
+		nextEpoch();
+		return head;
+	}
+
+	void clear() {
+		Arrays.fill(slotHead, NONE);
+		Arrays.fill(evState, null);
+		Arrays.fill(evLoc, null);
+		Arrays.fill(evCause, null);
+		Arrays.fill(evVal, null);
+		evUsed = 0;
+		evFree = NONE;
+		pending = 0;
+		Arrays.fill(seenState, null);
+		Arrays.fill(seenCause, null);
+		Arrays.fill(seenLoc, null);
+		Arrays.fill(seenStamp, 0);
+		seenCount = 0;
+		epoch = 1;
+	}
+
+	Component getCause(int ev) {
+		return evCause[ev];
+	}
+
+	Location getLocation(int ev) {
+		return evLoc[ev];
+	}
+
+	int getSerialNumber(int ev) {
+		return evSerial[ev];
+	}
+
+	CircuitState getState(int ev) {
+		return evState[ev];
+	}
+
+	int getTime() {
+		return now;
+	}
+
+	int getTime(int ev) {
+		return evTime[ev];
+	}
+
+	Value getValue(int ev) {
+		return evVal[ev];
+	}
+
+	private void growSlots(int delay) {
+		int size = mask + 1;
+		while (size <= delay)
+			size <<= 1;
+		int[] oldHead = slotHead;
+		int[] oldTail = slotTail;
+		allocateSlots(size);
+		for (int i = 0; i < oldHead.length; i++) {
+			int head = oldHead[i];
+			if (head != NONE) {
+				// all events of an old slot share the same time
+				int slot = evTime[head] & mask;
+				slotHead[slot] = head;
+				slotTail[slot] = oldTail[i];
+			}
+		}
+	}
+
+	boolean isEmpty() {
+		return pending == 0;
+	}
+
+	/**
+	 * Records that the given event has been seen in the current time step.
+	 * Returns false if an event with the same state, cause and location was
+	 * already seen.
+	 */
+	boolean markSeen(int ev) {
+		if (2 * (seenCount + 1) > seenStamp.length)
+			growSeen();
+		CircuitState state = evState[ev];
+		Component cause = evCause[ev];
+		Location loc = evLoc[ev];
+		int seenMask = seenStamp.length - 1;
+		int hash = (31 * System.identityHashCode(state) + cause.hashCode())
+				* 31 + loc.hashCode();
+		int i = (hash ^ (hash >>> 16)) & seenMask;
+		while (seenStamp[i] == epoch) {
+			if (seenState[i] == state && seenCause[i].equals(cause)
+					&& seenLoc[i].equals(loc))
+				return false;
+			i = (i + 1) & seenMask;
+		}
+		seenStamp[i] = epoch;
+		seenState[i] = state;
+		seenCause[i] = cause;
+		seenLoc[i] = loc;
+		seenCount++;
+		return true;
+	}
+
+	private void growSeen() {
+		CircuitState[] oldState = seenState;
+		Component[] oldCause = seenCause;
+		Location[] oldLoc = seenLoc;
+		int[] oldStamp = seenStamp;
+		int oldEpoch = epoch;
+		allocateSeen(2 * oldStamp.length);
+		epoch = 1;
+		int seenMask = seenStamp.length - 1;
+		for (int j = 0; j < oldStamp.length; j++) {
+			if (oldStamp[j] == oldEpoch) {
+				int hash = (31 * System.identityHashCode(oldState[j]) + oldCause[j]
+						.hashCode()) * 31 + oldLoc[j].hashCode();
+				int i = (hash ^ (hash >>> 16)) & seenMask;
+				while (seenStamp[i] == epoch)
+					i = (i + 1) & seenMask;
+				seenStamp[i] = epoch;
+				seenState[i] = oldState[j];
+				seenCause[i] = oldCause[j];
+				seenLoc[i] = oldLoc[j];
+			}
+		}
+	}
+
+	int next(int ev) {
+		return evNext[ev];
+	}
+
+	private void nextEpoch() {
+		seenCount = 0;
+		epoch++;
+		if (epoch == 0) {
+			// the stamps wrapped around; start over from a clean table
+			Arrays.fill(seenStamp, 0);
+			epoch = 1;
+		}
+	}
+
+	/**
+	 * Returns the chain of events starting at the given index to the free
+	 * list.
+	 */
+	void release(int head) {
+		int ev = head;
+		while (ev != NONE) {
+			int next = evNext[ev];
+			evState[ev] = null;
+			evLoc[ev] = null;
+			evCause[ev] = null;
+			evVal[ev] = null;
+			evNext[ev] = evFree;
+			evFree = ev;
+			pending--;
+			ev = next;
+		}
+	}
+}
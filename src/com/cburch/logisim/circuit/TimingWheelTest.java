@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.std.wiring.Pin;
+
+public class TimingWheelTest {
+
+	private Component cause;
+	private TimingWheel wheel;
+
+	@Before
+	public void setUp() {
+		cause = Pin.FACTORY.createComponent(Location.create(0, 0),
+				Pin.FACTORY.createAttributeSet());
+		wheel = new TimingWheel(0);
+	}
+
+	private List<Integer> drainStep() {
+		List<Integer> serials = new ArrayList<Integer>();
+		int head = wheel.advance();
+		for (int ev = head; ev >= 0; ev = wheel.next(ev))
+			serials.add(Integer.valueOf(wheel.getSerialNumber(ev)));
+		wheel.release(head);
+		return serials;
+	}
+
+	@Test
+	public void testEventsComeOutInTimeOrder() {
+		wheel.add(5, 0, null, Location.create(10, 0), cause, Value.TRUE);
+		wheel.add(2, 1, null, Location.create(10, 0), cause, Value.FALSE);
+		wheel.add(9, 2, null, Location.create(10, 0), cause, Value.TRUE);
+		wheel.add(2, 3, null, Location.create(20, 0), cause, Value.TRUE);
+
+		assertEquals("[1, 3]", drainStep().toString());
+		assertEquals(2, wheel.getTime());
+		assertEquals("[0]", drainStep().toString());
+		assertEquals(5, wheel.getTime());
+		assertEquals("[2]", drainStep().toString());
+		assertEquals(9, wheel.getTime());
+		assertTrue(wheel.isEmpty());
+	}
+
+	@Test
+	public void testDelaysBeyondOneRevolution() {
+		// the wheel starts with 64 slots, so these force it to grow while
+		// earlier events are still pending
+		wheel.add(3, 0, null, Location.create(10, 0), cause, Value.TRUE);
+		wheel.add(1000, 1, null, Location.create(10, 0), cause, Value.TRUE);
+		wheel.add(64, 2, null, Location.create(10, 0), cause, Value.TRUE);
+		wheel.add(67, 3, null, Location.create(10, 0), cause, Value.TRUE);
+
+		assertEquals("[0]", drainStep().toString());
+		assertEquals("[2]", drainStep().toString());
+		assertEquals("[3]", drainStep().toString());
+		assertEquals("[1]", drainStep().toString());
+		assertEquals(1000, wheel.getTime());
+		assertTrue(wheel.isEmpty());
+	}
+
+	@Test
+	public void testRecycledEventsKeepOrder() {
+		for (int round = 0; round < 100; round++) {
+			int base = wheel.getTime();
+			for (int i = 0; i < 300; i++) {
+				wheel.add(base + 1 + i % 3, i, null, Location.create(i, 0),
+						cause, Value.TRUE);
+			}
+			for (int step = 0; step < 3; step++) {
+				List<Integer> serials = drainStep();
+				assertEquals(100, serials.size());
+				for (int i = 0; i < serials.size(); i++)
+					assertEquals(step + 3 * i, serials.get(i).intValue());
+			}
+		}
+		assertTrue(wheel.isEmpty());
+	}
+
+	@Test
+	public void testMarkSeenWithinOneStep() {
+		wheel.add(1, 0, null, Location.create(10, 0), cause, Value.TRUE);
+		wheel.add(1, 1, null, Location.create(10, 0), cause, Value.FALSE);
+		wheel.add(1, 2, null, Location.create(20, 0), cause, Value.TRUE);
+		wheel.add(2, 3, null, Location.create(10, 0), cause, Value.TRUE);
+
+		int head = wheel.advance();
+		int second = wheel.next(head);
+		int third = wheel.next(second);
+		assertTrue(wheel.markSeen(head));
+		assertFalse(wheel.markSeen(second));
+		assertTrue(wheel.markSeen(third));
+		wheel.release(head);
+
+		// a new time step starts with a clean table
+		head = wheel.advance();
+		assertTrue(wheel.markSeen(head));
+		wheel.release(head);
+	}
+}
@@ -42,6 +42,7 @@ class WireBundle {
 	private WireBundle parent;
 	private Location widthDeterminant = null;
 	private boolean isBuss = false;
+	int index = -1; // slot in the bundle map's bundle table
 	WireThread[] threads = null;
 	CopyOnWriteArraySet<Location> points = new CopyOnWriteArraySet<Location>(); // points
 																				// bundle
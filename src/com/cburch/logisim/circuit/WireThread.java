@@ -30,22 +30,73 @@
 
 package com.cburch.logisim.circuit;
 
+import java.util.ArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+
 class WireThread {
-	private static int lastId = 0;
-	private static synchronized int getNextId() {
-		return lastId++;
+	/**
+	 * The bundles of a thread laid out in flat arrays for propagation: every
+	 * point touching the thread with the bit it carries there, the indices of
+	 * the bundles, and the combined pull value.
+	 */
+	static final class Layout {
+		static final Layout EMPTY = new Layout(new Location[0], new int[0],
+				new int[0], Value.UNKNOWN);
+
+		final Location[] points;
+		final int[] bits;
+		final int[] bundles;
+		final Value pull;
+
+		private Layout(Location[] points, int[] bits, int[] bundles, Value pull) {
+			this.points = points;
+			this.bits = bits;
+			this.bundles = bundles;
+			this.pull = pull;
+		}
 	}
-	public final int uniqueId = getNextId();
+
+	int index = -1; // slot in the bundle map's thread table
 
 	private WireThread parent;
 	private CopyOnWriteArraySet<CircuitWires.ThreadBundle> bundles = new CopyOnWriteArraySet<CircuitWires.ThreadBundle>();
+	private volatile Layout layout = Layout.EMPTY;
 
 	WireThread() {
 		parent = this;
 	}
 
+	/**
+	 * Rebuilds the layout from the current bundles. Called once the bundle
+	 * map holding the thread is complete, after bundle indices are known.
+	 */
+	void compile() {
+		int count = 0;
+		for (CircuitWires.ThreadBundle tb : bundles)
+			count += tb.b.points.size();
+		ArrayList<Location> points = new ArrayList<Location>(count);
+		IntArrayList bits = new IntArrayList(count);
+		IntArrayList bundleIndices = new IntArrayList(bundles.size());
+		Value pull = Value.UNKNOWN;
+		for (CircuitWires.ThreadBundle tb : bundles) {
+			for (Location p : tb.b.points) {
+				points.add(p);
+				bits.add(tb.loc);
+			}
+			bundleIndices.add(tb.b.index);
+			Value pullHere = tb.b.getPullValue();
+			if (pullHere != Value.UNKNOWN)
+				pull = pull.combine(pullHere);
+		}
+		layout = new Layout(points.toArray(new Location[points.size()]),
+				bits.toIntArray(), bundleIndices.toIntArray(), pull);
+	}
+
 	WireThread find() {
 		WireThread ret = this;
 		if (ret.parent != ret) {
@@ -61,6 +112,10 @@ class WireThread {
 		return bundles;
 	}
 
+	Layout getLayout() {
+		return layout;
+	}
+
 	void unite(WireThread other) {
 		WireThread group = this.find();
 		WireThread group2 = other.find();
@@ -35,6 +35,8 @@ import java.util.List;
 
 public abstract class AbstractAttributeSet implements Cloneable, AttributeSet {
 	private ArrayList<AttributeListener> listeners = null;
+	private AttributeSnapshot snapshot = null;
+	private AttributeLayout snapshotLayout = null;
 
 	public AbstractAttributeSet() {
 	}
@@ -54,6 +56,8 @@ public abstract class AbstractAttributeSet implements Cloneable, AttributeSet {
 			throw new UnsupportedOperationException();
 		}
 		ret.listeners = new ArrayList<AttributeListener>();
+		ret.snapshot = null;
+		ret.snapshotLayout = null;
 		this.copyInto(ret);
 		return ret;
 	}
@@ -64,7 +68,15 @@ public abstract class AbstractAttributeSet implements Cloneable, AttributeSet {
 
 	protected abstract void copyInto(AbstractAttributeSet dest);
 
+	protected AttributeSnapshot createSnapshot(AttributeLayout layout) {
+		return AttributeSnapshot.create(this, layout);
+	}
+
 	protected void fireAttributeListChanged() {
+		synchronized (this) {
+			snapshot = null;
+			snapshotLayout = null;
+		}
 		if (listeners != null) {
 			AttributeEvent event = new AttributeEvent(this);
 			List<AttributeListener> ls = new ArrayList<AttributeListener>(
@@ -77,6 +89,9 @@ public abstract class AbstractAttributeSet implements Cloneable, AttributeSet {
 
 	protected <V> void fireAttributeValueChanged(Attribute<? super V> attr,
 			V value , V oldvalue) {
+		synchronized (this) {
+			snapshot = null;
+		}
 		if (listeners != null) {
 			AttributeEvent event = new AttributeEvent(this, attr, value, oldvalue);
 			List<AttributeListener> ls = new ArrayList<AttributeListener>(
@@ -98,6 +113,20 @@ public abstract class AbstractAttributeSet implements Cloneable, AttributeSet {
 
 	public abstract List<Attribute<?>> getAttributes();
 
+	/**
+	 * Returns the current values of the set. The same snapshot is returned
+	 * until the set fires an attribute event.
+	 */
+	public synchronized AttributeSnapshot getSnapshot() {
+		AttributeSnapshot ret = snapshot;
+		if (ret == null) {
+			ret = createSnapshot(snapshotLayout);
+			snapshotLayout = ret.getLayout();
+			snapshot = ret;
+		}
+		return ret;
+	}
+
 	public abstract <V> V getValue(Attribute<V> attr);
 
 	public boolean isReadOnly(Attribute<?> attr) {
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Assigns each attribute of a component factory a fixed slot, so that
+ * attribute sets sharing the layout can keep their values in a flat array.
+ */
+public final class AttributeLayout {
+	// below this size a scan of the array is cheaper than hashing
+	private static final int SCAN_LIMIT = 8;
+
+	private final Attribute<?>[] attrs;
+	private final List<Attribute<?>> attrList;
+	private final IdentityHashMap<Attribute<?>, Integer> slots;
+	private final HashMap<String, Integer> names;
+
+	public AttributeLayout(Attribute<?>[] attrs) {
+		this.attrs = attrs.clone();
+		this.attrList = Arrays.asList(this.attrs);
+		this.names = new HashMap<String, Integer>();
+		if (attrs.length > SCAN_LIMIT) {
+			slots = new IdentityHashMap<Attribute<?>, Integer>(attrs.length);
+		} else {
+			slots = null;
+		}
+		for (int i = 0; i < attrs.length; i++) {
+			Integer slot = Integer.valueOf(i);
+			if (slots != null)
+				slots.put(attrs[i], slot);
+			if (!names.containsKey(attrs[i].getName()))
+				names.put(attrs[i].getName(), slot);
+		}
+	}
+
+	public Attribute<?> get(int slot) {
+		return attrs[slot];
+	}
+
+	public Attribute<?> getAttribute(String name) {
+		Integer slot = names.get(name);
+		return slot == null ? null : attrs[slot.intValue()];
+	}
+
+	public List<Attribute<?>> getAttributes() {
+		return attrList;
+	}
+
+	/**
+	 * Returns the slot of the attribute, or -1 if it is not part of the
+	 * layout.
+	 */
+	public int indexOf(Attribute<?> attr) {
+		if (slots == null) {
+			Attribute<?>[] as = attrs;
+			for (int i = 0; i < as.length; i++) {
+				if (as[i] == attr)
+					return i;
+			}
+			return -1;
+		}
+		Integer slot = slots.get(attr);
+		return slot == null ? -1 : slot.intValue();
+	}
+
+	public int size() {
+		return attrs.length;
+	}
+}
@@ -31,45 +31,59 @@
 package com.cburch.logisim.data;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 public class AttributeSets {
 	private static class FixedSet extends AbstractAttributeSet {
-		private List<Attribute<?>> attrs;
+		private AttributeLayout layout;
 		private Object[] values;
 		private int readOnly = 0;
 
-		FixedSet(Attribute<?>[] attrs, Object[] initValues) {
-			if (attrs.length != initValues.length) {
+		FixedSet(AttributeLayout layout, Object[] initValues) {
+			if (layout.size() != initValues.length) {
 				throw new IllegalArgumentException(
 						"attribute and value arrays must have same length");
 			}
-			if (attrs.length > 32) {
+			if (layout.size() > 32) {
 				throw new IllegalArgumentException(
 						"cannot handle more than 32 attributes");
 			}
-			this.attrs = Arrays.asList(attrs);
+			this.layout = layout;
 			this.values = initValues.clone();
 		}
 
 		@Override
 		protected void copyInto(AbstractAttributeSet destSet) {
 			FixedSet dest = (FixedSet) destSet;
-			dest.attrs = this.attrs;
+			dest.layout = this.layout;
 			dest.values = this.values.clone();
 			dest.readOnly = this.readOnly;
 		}
 
+		@Override
+		protected AttributeSnapshot createSnapshot(AttributeLayout prev) {
+			return new AttributeSnapshot(layout, values.clone());
+		}
+
+		@Override
+		public boolean containsAttribute(Attribute<?> attr) {
+			return layout.indexOf(attr) >= 0;
+		}
+
+		@Override
+		public Attribute<?> getAttribute(String name) {
+			return layout.getAttribute(name);
+		}
+
 		@Override
 		public List<Attribute<?>> getAttributes() {
-			return attrs;
+			return layout.getAttributes();
 		}
 
 		@Override
 		public <V> V getValue(Attribute<V> attr) {
-			int index = attrs.indexOf(attr);
+			int index = layout.indexOf(attr);
 			if (index < 0) {
 				return null;
 			} else {
@@ -81,7 +95,7 @@ public class AttributeSets {
 
 		@Override
 		public boolean isReadOnly(Attribute<?> attr) {
-			int index = attrs.indexOf(attr);
+			int index = layout.indexOf(attr);
 			if (index < 0)
 				return true;
 			return isReadOnly(index);
@@ -93,7 +107,7 @@ public class AttributeSets {
 
 		@Override
 		public void setReadOnly(Attribute<?> attr, boolean value) {
-			int index = attrs.indexOf(attr);
+			int index = layout.indexOf(attr);
 			if (index < 0)
 				throw new IllegalArgumentException("attribute "
 						+ attr.getName() + " absent");
@@ -106,7 +120,7 @@ public class AttributeSets {
 
 		@Override
 		public <V> void setValue(Attribute<V> attr, V value) {
-			int index = attrs.indexOf(attr);
+			int index = layout.indexOf(attr);
 			if (index < 0)
 				throw new IllegalArgumentException("attribute "
 						+ attr.getName() + " absent");
@@ -204,7 +218,7 @@ public class AttributeSets {
 	public static AttributeSet fixedSet(Attribute<?>[] attrs,
 			Object[] initValues) {
 		if (attrs.length > 1) {
-			return new FixedSet(attrs, initValues);
+			return new FixedSet(new AttributeLayout(attrs), initValues);
 		} else if (attrs.length == 1) {
 			return new SingletonSet(attrs[0], initValues[0]);
 		} else {
@@ -212,10 +226,31 @@ public class AttributeSets {
 		}
 	}
 
+	public static AttributeSet fixedSet(AttributeLayout layout,
+			Object[] initValues) {
+		if (layout.size() > 1) {
+			return new FixedSet(layout, initValues);
+		} else if (layout.size() == 1) {
+			return new SingletonSet(layout.get(0), initValues[0]);
+		} else {
+			return EMPTY;
+		}
+	}
+
 	public static <V> AttributeSet fixedSet(Attribute<V> attr, V initValue) {
 		return new SingletonSet(attr, initValue);
 	}
 
+	/**
+	 * Returns the current values of an attribute set, shared until the set
+	 * changes when the set supports it.
+	 */
+	public static AttributeSnapshot snapshot(AttributeSet attrs) {
+		if (attrs instanceof AbstractAttributeSet)
+			return ((AbstractAttributeSet) attrs).getSnapshot();
+		return AttributeSnapshot.create(attrs, null);
+	}
+
 	public static final AttributeSet EMPTY = new AttributeSet() {
 		public void addAttributeListener(AttributeListener l) {
 		}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.data;
+
+import java.util.List;
+
+/**
+ * An immutable copy of the values of an attribute set. Code that reads the
+ * same attributes over and over, like a propagate method, can hold on to it
+ * until the set fires an {@link AttributeEvent}.
+ */
+public final class AttributeSnapshot {
+	static AttributeSnapshot create(AttributeSet attrs, AttributeLayout prev) {
+		List<Attribute<?>> list = attrs.getAttributes();
+		AttributeLayout layout = prev;
+		if (layout == null || !sameAttributes(layout, list))
+			layout = new AttributeLayout(list.toArray(new Attribute<?>[list
+					.size()]));
+		Object[] values = new Object[layout.size()];
+		for (int i = 0; i < values.length; i++)
+			values[i] = attrs.getValue(layout.get(i));
+		return new AttributeSnapshot(layout, values);
+	}
+
+	private static boolean sameAttributes(AttributeLayout layout,
+			List<Attribute<?>> list) {
+		if (layout.getAttributes() == list)
+			return true;
+		if (layout.size() != list.size())
+			return false;
+		for (int i = 0; i < list.size(); i++) {
+			if (layout.get(i) != list.get(i))
+				return false;
+		}
+		return true;
+	}
+
+	private final AttributeLayout layout;
+	private final Object[] values;
+
+	AttributeSnapshot(AttributeLayout layout, Object[] values) {
+		this.layout = layout;
+		this.values = values;
+	}
+
+	public Object get(int slot) {
+		return values[slot];
+	}
+
+	public AttributeLayout getLayout() {
+		return layout;
+	}
+
+	public <V> V getValue(Attribute<V> attr) {
+		int slot = layout.indexOf(attr);
+		@SuppressWarnings("unchecked")
+		V ret = slot < 0 ? null : (V) values[slot];
+		return ret;
+	}
+}
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class AttributeSnapshotTest {
+
+	private static final Attribute<Integer> WIDTH = Attributes
+			.forInteger("width");
+	private static final Attribute<String> LABEL = Attributes
+			.forString("label");
+	private static final Attribute<Integer> EXTRA = Attributes
+			.forInteger("extra");
+
+	/** A set whose attribute list grows, like a splitter's. */
+	private static class GrowingSet extends AbstractAttributeSet {
+		private List<Attribute<?>> attrs = new ArrayList<Attribute<?>>();
+		private List<Object> values = new ArrayList<Object>();
+
+		GrowingSet() {
+			attrs.add(WIDTH);
+			values.add(Integer.valueOf(1));
+		}
+
+		void addExtra(int value) {
+			List<Attribute<?>> next = new ArrayList<Attribute<?>>(attrs);
+			next.add(EXTRA);
+			attrs = next;
+			values.add(Integer.valueOf(value));
+			fireAttributeListChanged();
+		}
+
+		@Override
+		protected void copyInto(AbstractAttributeSet dest) {
+			GrowingSet d = (GrowingSet) dest;
+			d.attrs = new ArrayList<Attribute<?>>(attrs);
+			d.values = new ArrayList<Object>(values);
+		}
+
+		@Override
+		public List<Attribute<?>> getAttributes() {
+			return attrs;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <V> V getValue(Attribute<V> attr) {
+			int i = attrs.indexOf(attr);
+			return i < 0 ? null : (V) values.get(i);
+		}
+
+		@Override
+		public <V> void setValue(Attribute<V> attr, V value) {
+			int i = attrs.indexOf(attr);
+			@SuppressWarnings("unchecked")
+			V old = (V) values.set(i, value);
+			fireAttributeValueChanged(attr, value, old);
+		}
+	}
+
+	private static AbstractAttributeSet createSet() {
+		return (AbstractAttributeSet) AttributeSets.fixedSet(
+				new Attribute<?>[] { WIDTH, LABEL },
+				new Object[] { Integer.valueOf(8), "a" });
+	}
+
+	@Test
+	public final void testSnapshotIsSharedUntilChange() {
+		AbstractAttributeSet attrs = createSet();
+		AttributeSnapshot first = attrs.getSnapshot();
+		assertSame(first, attrs.getSnapshot());
+		assertSame(first, AttributeSets.snapshot(attrs));
+		assertEquals(Integer.valueOf(8), first.getValue(WIDTH));
+		assertEquals("a", first.getValue(LABEL));
+		assertNull(first.getValue(EXTRA));
+	}
+
+	@Test
+	public final void testValueChangeInvalidatesSnapshot() {
+		AbstractAttributeSet attrs = createSet();
+		AttributeSnapshot before = attrs.getSnapshot();
+		attrs.setValue(WIDTH, Integer.valueOf(16));
+
+		AttributeSnapshot after = attrs.getSnapshot();
+		assertNotSame(before, after);
+		assertEquals(Integer.valueOf(16), after.getValue(WIDTH));
+		// the old snapshot keeps the values it was taken with
+		assertEquals(Integer.valueOf(8), before.getValue(WIDTH));
+		// the attributes are the same, so is the layout
+		assertSame(before.getLayout(), after.getLayout());
+		int slot = after.getLayout().indexOf(WIDTH);
+		assertEquals(Integer.valueOf(16), after.get(slot));
+	}
+
+	@Test
+	public final void testListChangeInvalidatesLayout() {
+		GrowingSet attrs = new GrowingSet();
+		AttributeSnapshot before = attrs.getSnapshot();
+		assertEquals(1, before.getLayout().size());
+		assertNull(before.getValue(EXTRA));
+
+		attrs.addExtra(5);
+		AttributeSnapshot after = attrs.getSnapshot();
+		assertNotSame(before.getLayout(), after.getLayout());
+		assertEquals(2, after.getLayout().size());
+		assertEquals(Integer.valueOf(5), after.getValue(EXTRA));
+		assertEquals(Integer.valueOf(1), after.getValue(WIDTH));
+		assertSame(after, attrs.getSnapshot());
+	}
+
+	@Test
+	public final void testCloneTakesItsOwnSnapshot() {
+		AbstractAttributeSet attrs = createSet();
+		AttributeSnapshot original = attrs.getSnapshot();
+		AbstractAttributeSet copy = (AbstractAttributeSet) attrs.clone();
+		copy.setValue(LABEL, "b");
+
+		assertEquals("b", copy.getSnapshot().getValue(LABEL));
+		assertSame(original, attrs.getSnapshot());
+		assertEquals("a", attrs.getSnapshot().getValue(LABEL));
+	}
+}
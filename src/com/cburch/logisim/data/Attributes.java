@@ -279,6 +279,39 @@ public class Attributes {
 		}
 	}
 
+	private static class HexLongAttribute extends Attribute<Long> {
+		private HexLongAttribute(String name, StringGetter disp) {
+			super(name, disp);
+		}
+
+		@Override
+		public Long parse(String value) {
+			value = value.toLowerCase();
+			if (value.startsWith("0x")) {
+				return Long.valueOf(Long.parseUnsignedLong(value.substring(2),
+						16));
+			} else if (value.startsWith("0b")) {
+				return Long.valueOf(Long.parseUnsignedLong(value.substring(2),
+						2));
+			} else if (value.startsWith("0") && value.length() > 1) {
+				return Long.valueOf(Long.parseUnsignedLong(value.substring(1),
+						8));
+			} else {
+				return Long.valueOf(Long.parseLong(value, 10));
+			}
+		}
+
+		@Override
+		public String toDisplayString(Long value) {
+			return "0x" + Long.toHexString(value.longValue());
+		}
+
+		@Override
+		public String toStandardString(Long value) {
+			return toDisplayString(value);
+		}
+	}
+
 	private static class IntegerAttribute extends Attribute<Integer> {
 		private IntegerAttribute(String name, StringGetter disp) {
 			super(name, disp);
@@ -497,6 +530,10 @@ public class Attributes {
 		return new FontAttribute(name, disp);
 	}
 
+	public static Attribute<Long> forHexLong(String name, StringGetter disp) {
+		return new HexLongAttribute(name, disp);
+	}
+
 	public static Attribute<Integer> forHexInteger(String name) {
 		return forHexInteger(name, getter(name));
 	}
@@ -90,11 +90,12 @@ public class BitWidth implements Comparable<BitWidth> {
 
 	private static void ensurePrefab() {
 		if (prefab == null) {
-			prefab = new BitWidth[Math.min(32, Value.MAX_WIDTH)];
-			prefab[0] = ONE;
-			for (int i = 1; i < prefab.length; i++) {
-				prefab[i] = new BitWidth(i + 1);
+			BitWidth[] widths = new BitWidth[Value.MAX_WIDTH];
+			widths[0] = ONE;
+			for (int i = 1; i < widths.length; i++) {
+				widths[i] = new BitWidth(i + 1);
 			}
+			prefab = widths;
 		}
 	}
 
@@ -113,7 +114,7 @@ public class BitWidth implements Comparable<BitWidth> {
 
 	public static final BitWidth FLOAT = new BitWidth(32);
 
-	private static BitWidth[] prefab = null;
+	private static volatile BitWidth[] prefab = null;
 
 	final int width;
 
@@ -136,12 +137,21 @@ public class BitWidth implements Comparable<BitWidth> {
 	public int getMask() {
 		if (width == 0)
 			return 0;
-		else if (width == 32)
+		else if (width >= 32)
 			return -1;
 		else
 			return (1 << width) - 1;
 	}
 
+	public long getLongMask() {
+		if (width == 0)
+			return 0;
+		else if (width >= 64)
+			return -1L;
+		else
+			return (1L << width) - 1;
+	}
+
 	public int getWidth() {
 		return width;
 	}
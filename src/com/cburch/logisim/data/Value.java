@@ -37,7 +37,7 @@ import com.cburch.logisim.util.Cache;
 
 public class Value {
 
-	private static Value create(int width, int error, int unknown, int value) {
+	private static Value create(int width, long error, long unknown, long value) {
 		if (width == 0) {
 			return Value.NIL;
 		} else if (width == 1) {
@@ -50,12 +50,12 @@ public class Value {
 			else
 				return Value.FALSE;
 		} else {
-			int mask = (width == 32 ? -1 : ~(-1 << width));
+			long mask = (width == 64 ? -1L : ~(-1L << width));
 			error = error & mask;
 			unknown = unknown & mask & ~error;
 			value = value & mask & ~unknown & ~error;
 
-			int hashCode = 31 * (31 * (31 * width + error) + unknown) + value;
+			int hashCode = hash(width, error, unknown, value);
 			Object cached = cache.get(hashCode);
 			if (cached != null) {
 				Value val = (Value) cached;
@@ -69,21 +69,37 @@ public class Value {
 		}
 	}
 
+	private static int hash(int width, long error, long unknown, long value) {
+		int ret = width;
+		ret = 31 * ret + Long.hashCode(error);
+		ret = 31 * ret + Long.hashCode(unknown);
+		ret = 31 * ret + Long.hashCode(value);
+		return ret;
+	}
+
 	public static Value create(Value[] values) {
-		if (values.length == 0)
+		return create(values, values.length);
+	}
+
+	/**
+	 * Combines the first <code>count</code> entries of <code>values</code>,
+	 * each a single bit, into one value.
+	 */
+	public static Value create(Value[] values, int count) {
+		if (count == 0)
 			return NIL;
-		if (values.length == 1)
+		if (count == 1)
 			return values[0];
-		if (values.length > MAX_WIDTH)
+		if (count > MAX_WIDTH)
 			throw new RuntimeException("Cannot have more than " + MAX_WIDTH
 					+ " bits in a value");
 
-		int width = values.length;
-		int value = 0;
-		int unknown = 0;
-		int error = 0;
-		for (int i = 0; i < values.length; i++) {
-			int mask = 1 << i;
+		int width = count;
+		long value = 0;
+		long unknown = 0;
+		long error = 0;
+		for (int i = 0; i < count; i++) {
+			long mask = 1L << i;
 			if (values[i] == TRUE)
 				value |= mask;
 			else if (values[i] == FALSE) /* do nothing */
@@ -111,6 +127,10 @@ public class Value {
 		return Value.create(bits.getWidth(), 0, 0, value);
 	}
 
+	public static Value createKnown(BitWidth bits, long value) {
+		return Value.create(bits.getWidth(), 0, 0, value);
+	}
+
 	public static Value createUnknown(BitWidth bits) {
 		return Value.create(bits.getWidth(), 0, -1, 0);
 	}
@@ -164,39 +184,35 @@ public class Value {
 				throw new Exception("unexpected character '"
 						+ t.substring(i, i + 1) + "' in \"" + t + "\"");
 
-			value *= radix;
-			unknown *= radix;
-			if ((value >> (radix == 10 ? 33 : w)) != 0 || (unknown >> 36) != 0)
-				throw new Exception("too many bits in \"" + t + "\"");
-
 			if (radix != 10) {
+				int shift = Integer.numberOfTrailingZeros(radix);
+				if ((value >>> (64 - shift)) != 0)
+					throw new Exception("too many bits in \"" + t + "\"");
+				value <<= shift;
+				unknown <<= shift;
 				if (d == -1)
 					unknown |= (radix - 1);
 				else
 					value |= d;
 			} else {
-				if (d == -1)
-					unknown += (radix - 1);
-				else
-					value += d;
+				if (Long.compareUnsigned(value, Long.divideUnsigned(-1L, 10)) > 0)
+					throw new Exception("too many bits in \"" + t + "\"");
+				value = value * 10 + d;
+				if (Long.compareUnsigned(value, d) < 0)
+					throw new Exception("too many bits in \"" + t + "\"");
 			}
 
 		}
-		if (radix == 10 && t.charAt(0) == '-')
-			value = -value;
-
-		if (w == 32) {
-			if (((value & 0x7FFFFFFF) >> (w - 1)) != 0)
-				throw new Exception("too many bits in \"" + t + "\"");
-		} else {
-			if ((value >> w) != 0)
+		if (radix == 10 && t.charAt(0) == '-') {
+			// the magnitude may go up to 2^(w-1) so that -2^(w-1) still fits
+			if (Long.compareUnsigned(value, 1L << (w - 1)) > 0)
 				throw new Exception("too many bits in \"" + t + "\"");
+			value = -value;
+		} else if (w < 64 && (value >>> w) != 0) {
+			throw new Exception("too many bits in \"" + t + "\"");
 		}
 
-		unknown &= ((1L << w) - 1);
-		int v = (int) (value & 0x00000000ffffffff);
-		int u = (int) (unknown & 0x00000000ffffffff);
-		return create(w, 0, u, v);
+		return create(w, 0, unknown, value);
 	}
 
 	/**
@@ -234,7 +250,7 @@ public class Value {
 	public static final Value UNKNOWN = new Value(1, 0, 1, 0);
 	public static final Value ERROR = new Value(1, 1, 0, 0);
 	public static final Value NIL = new Value(0, 0, 0, 0);
-	public static final int MAX_WIDTH = 32;
+	public static final int MAX_WIDTH = 64;
 	public static final Color NIL_COLOR = Color.GRAY;
 	public static final Color FALSE_COLOR = new Color(0, 100, 0);
 
@@ -248,14 +264,14 @@ public class Value {
 
 	public static final Color MULTI_COLOR = Color.BLACK;
 
-	private static final Cache cache = new Cache();
+	private static final Cache cache = new Cache(12);
 
 	private final int width;
 
-	private final int error;
-	private final int unknown;
-	private final int value;
-	private Value(int width, int error, int unknown, int value) {
+	private final long error;
+	private final long unknown;
+	private final long value;
+	private Value(int width, long error, long unknown, long value) {
 		// To ensure that the one-bit values are unique, this should be called
 		// only
 		// for the one-bit values and by the private create method
@@ -275,9 +291,9 @@ public class Value {
 				return TRUE;
 			return ERROR;
 		} else {
-			int false0 = ~this.value & ~this.error & ~this.unknown;
-			int false1 = ~other.value & ~other.error & ~other.unknown;
-			int falses = false0 | false1;
+			long false0 = ~this.value & ~this.error & ~this.unknown;
+			long false1 = ~other.value & ~other.error & ~other.unknown;
+			long falses = false0 | false1;
 			return Value.create(Math.max(this.width, other.width), (this.error
 					| other.error | this.unknown | other.unknown)
 					& ~falses, 0, this.value & other.value);
@@ -300,7 +316,7 @@ public class Value {
 				return this;
 			return ERROR;
 		} else {
-			int disagree = (this.value ^ other.value)
+			long disagree = (this.value ^ other.value)
 					& ~(this.unknown | other.unknown);
 			return Value.create(Math.max(this.width, other.width), this.error
 					| other.error | disagree, this.unknown & other.unknown,
@@ -334,7 +350,7 @@ public class Value {
 	public Value extendWidth(int newWidth, Value others) {
 		if (width == newWidth)
 			return this;
-		int maskInverse = (width == 32 ? 0 : (-1 << width));
+		long maskInverse = (width == 64 ? 0 : (-1L << width));
 		if (others == Value.ERROR) {
 			return Value.create(newWidth, error | maskInverse, unknown, value);
 		} else if (others == Value.FALSE) {
@@ -349,7 +365,7 @@ public class Value {
 	public Value get(int which) {
 		if (which < 0 || which >= width)
 			return ERROR;
-		int mask = 1 << which;
+		long mask = 1L << which;
 		if ((error & mask) != 0)
 			return ERROR;
 		else if ((unknown & mask) != 0)
@@ -395,11 +411,7 @@ public class Value {
 
 	@Override
 	public int hashCode() {
-		int ret = width;
-		ret = 31 * ret + error;
-		ret = 31 * ret + unknown;
-		ret = 31 * ret + value;
-		return ret;
+		return hash(width, error, unknown, value);
 	}
 
 	public boolean isErrorValue() {
@@ -411,10 +423,10 @@ public class Value {
 	}
 
 	public boolean isUnknown() {
-		if (width == 32) {
-			return error == 0 && unknown == -1;
+		if (width == 64) {
+			return error == 0 && unknown == -1L;
 		} else {
-			return error == 0 && unknown == ((1 << width) - 1);
+			return error == 0 && unknown == ((1L << width) - 1);
 		}
 	}
 
@@ -441,9 +453,9 @@ public class Value {
 				return FALSE;
 			return ERROR;
 		} else {
-			int true0 = this.value & ~this.error & ~this.unknown;
-			int true1 = other.value & ~other.error & ~other.unknown;
-			int trues = true0 | true1;
+			long true0 = this.value & ~this.error & ~this.unknown;
+			long true1 = other.value & ~other.error & ~other.unknown;
+			long trues = true0 | true1;
 			return Value.create(Math.max(this.width, other.width), (this.error
 					| other.error | this.unknown | other.unknown)
 					& ~trues, 0, this.value | other.value);
@@ -458,7 +470,7 @@ public class Value {
 		} else if (width == 1) {
 			return val;
 		} else {
-			int mask = ~(1 << which);
+			long mask = ~(1L << which);
 			return Value.create(this.width, (this.error & mask)
 					| (val.error << which), (this.unknown & mask)
 					| (val.unknown << which), (this.value & mask)
@@ -496,14 +508,14 @@ public class Value {
 		if (!isFullyDefined())
 			return Strings.get("valueUnknown");
 
-		int value = toIntValue();
+		long value = toLongValue();
 		if (signed) {
-			if (width < 32 && (value >> (width - 1)) != 0) {
-				value |= (-1) << width;
+			if (width < 64 && (value >> (width - 1)) != 0) {
+				value |= (-1L) << width;
 			}
 			return "" + value;
 		} else {
-			return "" + (value & 0xFFFFFFFFL);
+			return Long.toUnsignedString(value);
 		}
 	}
 
@@ -546,7 +558,9 @@ public class Value {
 				return Strings.get("valueError");
 			if (!isFullyDefined())
 				return Strings.get("valueUnknown");
-			return Integer.toString(toIntValue(), radix);
+			if (width <= 32)
+				return Integer.toString(toIntValue(), radix);
+			return Long.toString(toLongValue(), radix);
 		}
 	}
 
@@ -587,7 +601,7 @@ public class Value {
 			return -1;
 		if (unknown != 0)
 			return -1;
-		return value;
+		return (int) value;
 	}
 
 	public long toLongValue() {
@@ -595,7 +609,7 @@ public class Value {
 			return -1;
 		if (unknown != 0)
 			return -1;
-		return value & 0xFFFFFFFFL;
+		return value;
 	}
 
 	public float toFloatValue() {
@@ -603,7 +617,7 @@ public class Value {
 			return Float.NaN;
 		if (unknown != 0)
 			return Float.NaN;
-		return Float.intBitsToFloat(value);
+		return Float.intBitsToFloat((int) value);
 	}
 
 	public String toOctalString() {
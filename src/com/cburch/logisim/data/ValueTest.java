@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ValueTest {
+
+	private static final Value[] BITS = { Value.FALSE, Value.TRUE,
+			Value.UNKNOWN, Value.ERROR };
+
+	@Test
+	public void testKnownRoundTrip() {
+		Random rand = new Random(1);
+		for (int width = 1; width <= 64; width++) {
+			BitWidth bw = BitWidth.create(width);
+			for (int k = 0; k < 50; k++) {
+				long v = rand.nextLong() & bw.getLongMask();
+				Value val = Value.createKnown(bw, v);
+				assertTrue(val.isFullyDefined());
+				assertEquals(width, val.getWidth());
+				assertEquals(v, val.toLongValue());
+				assertEquals((int) v, val.toIntValue());
+				for (int i = 0; i < width; i++) {
+					Value bit = ((v >>> i) & 1) != 0 ? Value.TRUE : Value.FALSE;
+					assertEquals(bit, val.get(i));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testKnownIsMaskedToWidth() {
+		Value val = Value.createKnown(BitWidth.create(40), -1L);
+		assertEquals((1L << 40) - 1, val.toLongValue());
+		assertEquals(Value.createKnown(BitWidth.create(40), (1L << 40) - 1),
+				val);
+		assertEquals(-1L,
+				Value.createKnown(BitWidth.create(64), -1L).toLongValue());
+	}
+
+	@Test
+	public void testMixedBitsRoundTrip() {
+		Random rand = new Random(2);
+		for (int width = 1; width <= 64; width++) {
+			for (int k = 0; k < 20; k++) {
+				Value[] bits = new Value[width];
+				for (int i = 0; i < width; i++)
+					bits[i] = BITS[rand.nextInt(BITS.length)];
+				Value val = Value.create(bits);
+				assertEquals(width, val.getWidth());
+				for (int i = 0; i < width; i++)
+					assertEquals(bits[i], val.get(i));
+				assertEquals(val, Value.create(val.getAll()));
+			}
+		}
+	}
+
+	@Test
+	public void testHighBitsAreKept() {
+		Value val = Value.createKnown(BitWidth.create(64), 0L);
+		val = val.set(63, Value.TRUE).set(40, Value.UNKNOWN)
+				.set(33, Value.ERROR);
+		assertEquals(Value.TRUE, val.get(63));
+		assertEquals(Value.UNKNOWN, val.get(40));
+		assertEquals(Value.ERROR, val.get(33));
+		assertEquals(Value.FALSE, val.get(31));
+		assertFalse(val.isFullyDefined());
+		assertTrue(val.isErrorValue());
+		assertEquals(-1L, val.toLongValue());
+
+		Value known = Value.createKnown(BitWidth.create(64), 0L).set(63,
+				Value.TRUE);
+		assertEquals(Long.MIN_VALUE, known.toLongValue());
+	}
+
+	@Test
+	public void testHexLongAttribute() {
+		Attribute<Long> attr = Attributes.forHexLong("value", null);
+		for (long v : new long[] { 0, 1, 0xff, 0xffffffffL,
+				0x123456789abcdefL, -1L, Long.MIN_VALUE }) {
+			String s = attr.toStandardString(Long.valueOf(v));
+			assertEquals(Long.valueOf(v), attr.parse(s));
+		}
+		assertEquals(Long.valueOf(255), attr.parse("255"));
+		assertEquals(Long.valueOf(-1), attr.parse("-1"));
+		assertEquals(Long.valueOf(5), attr.parse("0b101"));
+		assertEquals(Long.valueOf(8), attr.parse("010"));
+	}
+}
@@ -117,6 +117,12 @@ public class Loader implements LibraryLoader {
 
 	public static final String LOGISIM_EXTENSION = ".circ";
 
+	/**
+	 * Starts the line of an attribute value that refers to a memory image
+	 * file; the path is stored relative to the circuit file.
+	 */
+	public static final String IMAGE_REFERENCE_PREFIX = "image: ";
+
 	public static final FileFilter LOGISIM_FILTER = new LogisimFileFilter();
 
 	public static final FileFilter JAR_FILTER = new JarFileFilter();
@@ -367,6 +373,7 @@ public class Loader implements LibraryLoader {
 				MacCompatibility.setFileCreatorAndType(dest, "LGSM", "circ");
 			} catch (IOException e) {
 			}
+			file.flushImages();
 			fwrite = new FileOutputStream(dest);
 			file.write(fwrite, this, dest);
 			file.setName(toProjectName(dest));
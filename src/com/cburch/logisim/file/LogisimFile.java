@@ -34,6 +34,7 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -58,6 +59,8 @@ import com.cburch.logisim.circuit.CircuitListener;
 import com.cburch.logisim.circuit.SubcircuitFactory;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.proj.Projects;
 import com.cburch.logisim.tools.AddTool;
@@ -550,6 +553,23 @@ public class LogisimFile extends Library implements LibraryEventSource,CircuitLi
 	//
 	// other methods
 	//
+	/**
+	 * Writes back the saved attribute values that keep data outside the
+	 * file, such as the memory images mapped by ROMs.
+	 */
+	void flushImages() throws IOException {
+		for (Circuit circ : getCircuits()) {
+			for (Component comp : circ.getNonWires()) {
+				AttributeSet attrs = comp.getAttributeSet();
+				for (Attribute<?> attr : attrs.getAttributes()) {
+					Object val = attrs.getValue(attr);
+					if (val instanceof Flushable && attrs.isToSave(attr))
+						((Flushable) val).flush();
+				}
+			}
+		}
+	}
+
 	void write(OutputStream out, LibraryLoader loader) throws IOException {
 		write(out, loader, null);
 	}
@@ -47,6 +47,11 @@ public class Options {
 	public static final AttributeOption TICK_MAIN_HALF_PERIOD = new AttributeOption(
 			"half_period", Strings.getter("tick_main_half_period"));
 
+	public static final AttributeOption SIM_ENGINE_CLASSIC = new AttributeOption(
+			"classic", Strings.getter("simEngineClassic"));
+	public static final AttributeOption SIM_ENGINE_WHEEL = new AttributeOption(
+			"wheel", Strings.getter("simEngineWheel"));
+
 	public static final Attribute<Integer> sim_limit_attr = Attributes
 			.forInteger("simlimit", Strings.getter("simLimitOption"));
 	public static final Attribute<Integer> sim_rand_attr = Attributes
@@ -59,13 +64,23 @@ public class Options {
 			.forOption("tickmain", Strings.getter("mainTickOption"),
 					new AttributeOption[] { TICK_MAIN_HALF_PERIOD,
 							TICK_MAIN_PERIOD });
+	public static final Attribute<AttributeOption> ATTR_SIM_ENGINE = Attributes
+			.forOption("simengine", Strings.getter("simEngineOption"),
+					new AttributeOption[] { SIM_ENGINE_CLASSIC,
+							SIM_ENGINE_WHEEL });
+	public static final Attribute<Boolean> ATTR_SIM_COMPILED = Attributes
+			.forBoolean("simcompiled", Strings.getter("simCompiledOption"));
+	public static final Attribute<Boolean> ATTR_SIM_PARALLEL = Attributes
+			.forBoolean("simparallel", Strings.getter("simParallelOption"));
 
 	public static final Integer sim_rand_dflt = Integer.valueOf(32);
 
 	private static final Attribute<?>[] ATTRIBUTES = { ATTR_GATE_UNDEFINED,
-			sim_limit_attr, sim_rand_attr, ATTR_TICK_MAIN, };
+			sim_limit_attr, sim_rand_attr, ATTR_TICK_MAIN, ATTR_SIM_ENGINE,
+			ATTR_SIM_COMPILED, ATTR_SIM_PARALLEL, };
 	private static final Object[] DEFAULTS = { GATE_UNDEFINED_IGNORE,
-			Integer.valueOf(1000), Integer.valueOf(0), TICK_MAIN_HALF_PERIOD, };
+			Integer.valueOf(1000), Integer.valueOf(0), TICK_MAIN_HALF_PERIOD,
+			SIM_ENGINE_CLASSIC, Boolean.FALSE, Boolean.FALSE, };
 
 	private AttributeSet attrs;
 	private MouseMappings mmappings;
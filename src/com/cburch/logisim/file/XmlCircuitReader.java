@@ -72,13 +72,53 @@ public class XmlCircuitReader extends CircuitTransaction {
 			return (null);
 		}
 
+		ComponentFactory source = getFactory(elt.getAttribute("name"),
+				elt.getAttribute("lib"), reader);
+
+		// Determine attributes
+		AttributeSet attrs = source.createAttributeSet();
+		reader.initAttributeSet(elt, attrs, source);
+		return createComponent(source, elt.getAttribute("loc"), attrs);
+	}
+
+	/**
+	 * Same as {@link #getComponent(Element, XmlReader.ReadContext)} for a
+	 * component read by the streaming reader. The attributes already parsed
+	 * by {@link #parseAttributes} are used when present.
+	 */
+	static Component getComponent(XmlStreamReader.CompRecord comp,
+			XmlReader.ReadContext reader) throws XmlReaderException {
+		if (comp.tracked && !Main.VERSION.hasTracker()) {
+			return (null);
+		}
+
+		if (comp.attrSet == null) {
+			parseAttributes(comp, reader);
+		}
+		return createComponent(comp.factory, comp.loc, comp.attrSet);
+	}
+
+	/**
+	 * Determines the factory and the attributes of a streamed component
+	 * without creating it. It may be called from several threads at once, as
+	 * long as the factory's attribute sets do not share state.
+	 */
+	static void parseAttributes(XmlStreamReader.CompRecord comp,
+			XmlReader.ReadContext reader) throws XmlReaderException {
+		ComponentFactory source = getFactory(comp.name, comp.lib, reader);
+		AttributeSet attrs = source.createAttributeSet();
+		reader.initAttributeSet(comp, attrs, source);
+		comp.factory = source;
+		comp.attrSet = attrs;
+	}
+
+	private static ComponentFactory getFactory(String name, String libName,
+			XmlReader.ReadContext reader) throws XmlReaderException {
 		// Determine the factory that creates this element
-		String name = elt.getAttribute("name");
 		if (name == null || name.equals("")) {
 			throw new XmlReaderException(Strings.get("compNameMissingError"));
 		}
 
-		String libName = elt.getAttribute("lib");
 		Library lib = reader.findLibrary(libName);
 		if (lib == null) {
 			throw new XmlReaderException(Strings.get("compUnknownError",
@@ -95,13 +135,11 @@ public class XmlCircuitReader extends CircuitTransaction {
 						name, libName));
 			}
 		}
-		ComponentFactory source = ((AddTool) tool).getFactory();
-
-		// Determine attributes
-		String loc_str = elt.getAttribute("loc");
-		AttributeSet attrs = source.createAttributeSet();
-		reader.initAttributeSet(elt, attrs, source);
+		return ((AddTool) tool).getFactory();
+	}
 
+	private static Component createComponent(ComponentFactory source,
+			String loc_str, AttributeSet attrs) throws XmlReaderException {
 		// Create component if location known
 		if (loc_str == null || loc_str.equals("")) {
 			throw new XmlReaderException(Strings.get("compLocMissingError",
@@ -129,9 +167,15 @@ public class XmlCircuitReader extends CircuitTransaction {
 
 	void addWire(Circuit dest, CircuitMutator mutator, Element elt)
 			throws XmlReaderException {
+		addWire(dest, mutator, elt.getAttribute("from"),
+				elt.getAttribute("to"));
+	}
+
+	void addWire(Circuit dest, CircuitMutator mutator, String from, String to)
+			throws XmlReaderException {
 		Location pt0;
 		try {
-			String str = elt.getAttribute("from");
+			String str = from;
 			if (str == null || str.equals("")) {
 				throw new XmlReaderException(
 						Strings.get("wireStartMissingError"));
@@ -143,7 +187,7 @@ public class XmlCircuitReader extends CircuitTransaction {
 
 		Location pt1;
 		try {
-			String str = elt.getAttribute("to");
+			String str = to;
 			if (str == null || str.equals("")) {
 				throw new XmlReaderException(Strings.get("wireEndMissingError"));
 			}
@@ -157,6 +201,10 @@ public class XmlCircuitReader extends CircuitTransaction {
 
 	private void buildCircuit(XmlReader.CircuitData circData,
 			CircuitMutator mutator) {
+		if (circData.record != null) {
+			buildStreamedCircuit(circData, mutator);
+			return;
+		}
 		Element elt = circData.circuitElement;
 		Circuit dest = circData.circuit;
 		Map<Element, Component> knownComponents = circData.knownComponents;
@@ -214,6 +262,50 @@ public class XmlCircuitReader extends CircuitTransaction {
 		}
 	}
 
+	private void buildStreamedCircuit(XmlReader.CircuitData circData,
+			CircuitMutator mutator) {
+		XmlStreamReader.CircuitRecord record = circData.record;
+		Circuit dest = circData.circuit;
+		try {
+			/* Here we check the attribute circuitnamedbox for backwards compatibility */
+			reader.initAttributeSet(record, dest.getStaticAttributes(), null);
+			if (!record.attrs.containsKey("circuitnamedbox") && record.hasChildren) {
+				dest.getStaticAttributes().setValue(CircuitAttributes.NAMED_CIRCUIT_BOX, false);
+			}
+		} catch (XmlReaderException e) {
+			reader.addErrors(e, dest.getName() + ".static");
+		}
+
+		for (XmlStreamReader.CompRecord comp : record.comps) {
+			try {
+				Component c = comp.component;
+				if (c == null) {
+					c = getComponent(comp, reader);
+				}
+				if (c != null) {
+					mutator.add(dest, c);
+				}
+			} catch (XmlReaderException e) {
+				reader.addErrors(e, dest.getName() + "." + comp.name + "("
+						+ comp.loc + ")");
+			}
+		}
+		for (String[] wire : record.wires) {
+			try {
+				addWire(dest, mutator, wire[0], wire[1]);
+			} catch (XmlReaderException e) {
+				reader.addErrors(e, dest.getName() + ".w" + wire[0] + "-"
+						+ wire[1]);
+			}
+		}
+
+		List<AbstractCanvasObject> appearance = circData.appearance;
+		if (appearance != null && !appearance.isEmpty()) {
+			dest.getAppearance().setObjectsForce(appearance);
+			dest.getAppearance().setDefaultAppearance(false);
+		}
+	}
+
 	@Override
 	protected Map<Circuit, Integer> getAccessedCircuits() {
 		HashMap<Circuit, Integer> access = new HashMap<Circuit, Integer>();
@@ -36,11 +36,13 @@ import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinTask;
 
 import javax.swing.JOptionPane;
 import javax.xml.parsers.DocumentBuilder;
@@ -58,8 +60,10 @@ import com.cburch.draw.model.AbstractCanvasObject;
 import com.cburch.logisim.LogisimVersion;
 import com.cburch.logisim.Main;
 import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.SubcircuitFactory;
 import com.cburch.logisim.circuit.appear.AppearanceSvgReader;
 import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeDefaultProvider;
 import com.cburch.logisim.data.AttributeSet;
@@ -67,6 +71,7 @@ import com.cburch.logisim.data.Location;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.tools.AddTool;
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.tools.Tool;
 import com.cburch.logisim.util.InputEventUtil;
@@ -76,6 +81,7 @@ class XmlReader {
 
 	static class CircuitData {
 		Element circuitElement;
+		XmlStreamReader.CircuitRecord record;
 		Circuit circuit;
 		Map<Element, Component> knownComponents;
 		List<AbstractCanvasObject> appearance;
@@ -84,13 +90,28 @@ class XmlReader {
 			this.circuitElement = circuitElement;
 			this.circuit = circuit;
 		}
+
+		public CircuitData(XmlStreamReader.CircuitRecord record,
+				Circuit circuit) {
+			this.record = record;
+			this.circuit = circuit;
+		}
 	}
 
+	/** Number of components built by one task when loading in parallel. */
+	private static final int COMPONENT_CHUNK = 256;
+
+	/** Read-ahead allowed before falling back to the DOM reader. */
+	private static final int STREAM_MARK_LIMIT = 1 << 20;
+
 	class ReadContext {
 		LogisimFile file;
 		LogisimVersion sourceVersion;
 		HashMap<String, Library> libs = new HashMap<String, Library>();
 		private ArrayList<String> messages;
+		private long libraryTime;
+		private long componentTime;
+		private long buildTime;
 
 		ReadContext(LogisimFile file) {
 			this.file = file;
@@ -123,35 +144,43 @@ class XmlReader {
 
 		void initAttributeSet(Element parentElt, AttributeSet attrs,
 				AttributeDefaultProvider defaults) throws XmlReaderException {
-			ArrayList<String> messages = null;
+			int unnamed = 0;
 
 			HashMap<String, String> attrsDefined = new HashMap<String, String>();
 			for (Element attrElt : XmlIterator.forChildElements(parentElt, "a")) {
 				if (!attrElt.hasAttribute("name")) {
-					if (messages == null)
-						messages = new ArrayList<String>();
-					messages.add(Strings.get("attrNameMissingError"));
+					unnamed++;
 				} else {
 					String attrName = attrElt.getAttribute("name");
 					String attrVal;
 					if (attrElt.hasAttribute("val")) {
-						attrVal = attrElt.getAttribute("val");
-						if (attrName.equals("filePath")) {
-							/* De-relativize the path */
-							String dirPath = "";
-							if (srcFilePath != null)
-								dirPath = srcFilePath
-										.substring(0, srcFilePath
-												.lastIndexOf(File.separator));
-							Path tmp = Paths.get(dirPath, attrVal);
-							attrVal = tmp.toString();
-						}
+						attrVal = resolveAttribute(attrName,
+								attrElt.getAttribute("val"));
 					} else {
-						attrVal = attrElt.getTextContent();
+						attrVal = resolveAttribute(attrName,
+								attrElt.getTextContent());
 					}
 					attrsDefined.put(attrName, attrVal);
 				}
 			}
+			initAttributeSet(attrsDefined, unnamed, attrs, defaults);
+		}
+
+		void initAttributeSet(XmlStreamReader.AttrRecord record,
+				AttributeSet attrs, AttributeDefaultProvider defaults)
+				throws XmlReaderException {
+			initAttributeSet(record.attrs, record.unnamedAttrs, attrs, defaults);
+		}
+
+		private void initAttributeSet(Map<String, String> attrsDefined,
+				int unnamed, AttributeSet attrs,
+				AttributeDefaultProvider defaults) throws XmlReaderException {
+			ArrayList<String> messages = null;
+			for (int i = 0; i < unnamed; i++) {
+				if (messages == null)
+					messages = new ArrayList<String>();
+				messages.add(Strings.get("attrNameMissingError"));
+			}
 
 			if (attrs == null)
 				return;
@@ -260,9 +289,11 @@ class XmlReader {
 		}
 
 		private void loadAppearance(Element appearElt, CircuitData circData,
-				String context) {
+				Collection<Component> known, String context) {
 			Map<Location, Instance> pins = new HashMap<Location, Instance>();
-			for (Component comp : circData.knownComponents.values()) {
+			for (Component comp : known) {
+				if (comp == null)
+					continue;
 				if (comp.getFactory() == Pin.FACTORY) {
 					Instance instance = Instance.getInstanceFor(comp);
 					pins.put(comp.getLocation(), instance);
@@ -343,9 +374,8 @@ class XmlReader {
 			return ret;
 		}
 
-		private void toLogisimFile(Element elt,Project proj) {
+		private void checkSourceVersion(String versionString) {
 			// determine the version producing this file
-			String versionString = elt.getAttribute("source");
 			if (versionString.equals("")) {
 				sourceVersion = Main.VERSION;
 			} else {
@@ -378,34 +408,19 @@ class XmlReader {
 								"No tracking system available",
 								JOptionPane.WARNING_MESSAGE);
 			}
+		}
 
-			// first, load the sublibraries
+		private void loadLibraries(Element elt) {
+			long start = System.nanoTime();
 			for (Element o : XmlIterator.forChildElements(elt, "lib")) {
 				Library lib = toLibrary(o);
 				if (lib != null)
 					file.addLibrary(lib);
 			}
+			libraryTime = System.nanoTime() - start;
+		}
 
-			// second, create the circuits - empty for now
-			List<CircuitData> circuitsData = new ArrayList<CircuitData>();
-			for (Element circElt : XmlIterator.forChildElements(elt, "circuit")) {
-				String name = circElt.getAttribute("name");
-
-				if (name == null || name.equals("")) {
-					addError(Strings.get("circNameMissingError"), "C??");
-				}
-				CircuitData circData = new CircuitData(circElt, new Circuit(
-						name, file,proj));
-				file.addCircuit(circData.circuit);
-				circData.knownComponents = loadKnownComponents(circElt);
-				for (Element appearElt : XmlIterator.forChildElements(circElt,
-						"appear")) {
-					loadAppearance(appearElt, circData, name + ".appear");
-				}
-				circuitsData.add(circData);
-			}
-
-			// third, process the other child elements
+		private void loadOtherElements(Element elt) {
 			for (Element sub_elt : XmlIterator.forChildElements(elt)) {
 				String name = sub_elt.getTagName();
 
@@ -443,11 +458,170 @@ class XmlReader {
 							"Invalid node in logisim file: " + name);
 				}
 			}
+		}
 
-			// fourth, execute a transaction that initializes all the circuits
+		private void buildCircuits(List<CircuitData> circuitsData) {
+			long start = System.nanoTime();
 			XmlCircuitReader builder;
 			builder = new XmlCircuitReader(this, circuitsData);
 			builder.execute();
+			buildTime = System.nanoTime() - start;
+		}
+
+		private void toLogisimFile(Element elt,Project proj) {
+			checkSourceVersion(elt.getAttribute("source"));
+
+			// first, load the sublibraries
+			loadLibraries(elt);
+
+			// second, create the circuits - empty for now
+			long start = System.nanoTime();
+			List<CircuitData> circuitsData = new ArrayList<CircuitData>();
+			for (Element circElt : XmlIterator.forChildElements(elt, "circuit")) {
+				String name = circElt.getAttribute("name");
+
+				if (name == null || name.equals("")) {
+					addError(Strings.get("circNameMissingError"), "C??");
+				}
+				CircuitData circData = new CircuitData(circElt, new Circuit(
+						name, file,proj));
+				file.addCircuit(circData.circuit);
+				circData.knownComponents = loadKnownComponents(circElt);
+				for (Element appearElt : XmlIterator.forChildElements(circElt,
+						"appear")) {
+					loadAppearance(appearElt, circData,
+							circData.knownComponents.values(), name + ".appear");
+				}
+				circuitsData.add(circData);
+			}
+			componentTime = System.nanoTime() - start;
+
+			// third, process the other child elements
+			loadOtherElements(elt);
+
+			// fourth, execute a transaction that initializes all the circuits
+			buildCircuits(circuitsData);
+		}
+
+		private void toLogisimFile(XmlStreamReader stream, Project proj) {
+			checkSourceVersion(stream.getSource());
+			loadLibraries(stream.getRoot());
+
+			// create all circuits first so that the components referring to
+			// them can be built in the transaction below
+			long start = System.nanoTime();
+			List<CircuitData> circuitsData = new ArrayList<CircuitData>();
+			for (XmlStreamReader.CircuitRecord record : stream.getCircuits()) {
+				if (record.name.equals("")) {
+					addError(Strings.get("circNameMissingError"), "C??");
+				}
+				CircuitData circData = new CircuitData(record, new Circuit(
+						record.name, file, proj));
+				file.addCircuit(circData.circuit);
+				circuitsData.add(circData);
+			}
+			loadKnownComponents(stream.getCircuits());
+			for (CircuitData circData : circuitsData) {
+				List<Component> known = new ArrayList<Component>();
+				for (XmlStreamReader.CompRecord comp : circData.record.comps)
+					known.add(comp.component);
+				for (Element appearElt : circData.record.appearance) {
+					loadAppearance(appearElt, circData, known,
+							circData.record.name + ".appear");
+				}
+			}
+			componentTime = System.nanoTime() - start;
+
+			loadOtherElements(stream.getRoot());
+			buildCircuits(circuitsData);
+		}
+
+		/**
+		 * Builds the components of the streamed circuits ahead of the circuit
+		 * transaction. Only components of the built-in libraries are built
+		 * here; their attributes are parsed concurrently, but the components
+		 * themselves are created one at a time since creating an instance may
+		 * register listeners in state shared by the factory. Components of
+		 * JAR libraries and subcircuits are left to the circuit transaction.
+		 */
+		private void loadKnownComponents(
+				List<XmlStreamReader.CircuitRecord> circuits) {
+			// resolve the factories up front: they are loaded lazily
+			HashMap<String, Boolean> independent = new HashMap<String, Boolean>();
+			List<XmlStreamReader.CompRecord> comps = new ArrayList<XmlStreamReader.CompRecord>();
+			for (XmlStreamReader.CircuitRecord circ : circuits) {
+				for (XmlStreamReader.CompRecord comp : circ.comps) {
+					String key = comp.lib + ":" + comp.name;
+					Boolean ok = independent.get(key);
+					if (ok == null) {
+						try {
+							ok = Boolean.valueOf(isIndependent(comp));
+						} catch (XmlReaderException e) {
+							ok = Boolean.FALSE;
+						}
+						independent.put(key, ok);
+					}
+					if (ok.booleanValue())
+						comps.add(comp);
+				}
+			}
+
+			List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+			for (int i = 0; i < comps.size(); i += COMPONENT_CHUNK) {
+				final List<XmlStreamReader.CompRecord> chunk = comps.subList(i,
+						Math.min(comps.size(), i + COMPONENT_CHUNK));
+				tasks.add(ForkJoinTask.adapt(new Runnable() {
+					public void run() {
+						for (XmlStreamReader.CompRecord comp : chunk) {
+							try {
+								XmlCircuitReader.parseAttributes(comp,
+										ReadContext.this);
+							} catch (XmlReaderException e) {
+								// reported when the circuit is built
+							} catch (RuntimeException e) {
+								// likewise
+							}
+						}
+					}
+				}));
+			}
+			if (tasks.size() == 1)
+				tasks.get(0).invoke();
+			else if (!tasks.isEmpty())
+				ForkJoinTask.invokeAll(tasks);
+
+			for (XmlStreamReader.CompRecord comp : comps) {
+				if (comp.attrSet == null)
+					continue;
+				try {
+					comp.component = XmlCircuitReader.getComponent(comp, this);
+				} catch (XmlReaderException e) {
+					// reported when the circuit is built
+				} catch (RuntimeException e) {
+					// likewise
+				}
+			}
+		}
+
+		private boolean isIndependent(XmlStreamReader.CompRecord comp)
+				throws XmlReaderException {
+			if (comp.name.equals(""))
+				return false;
+			Library lib = findLibrary(comp.lib);
+			if (lib == null || lib instanceof LogisimFile)
+				return false;
+			try {
+				// built-in libraries are described by their name alone
+				if (!loader.getDescriptor(lib).startsWith("#"))
+					return false;
+			} catch (LoaderException e) {
+				return false;
+			}
+			Tool tool = lib.getTool(comp.name);
+			if (!(tool instanceof AddTool))
+				return false;
+			ComponentFactory factory = ((AddTool) tool).getFactory();
+			return !(factory instanceof SubcircuitFactory);
 		}
 
 		Tool toTool(Element elt) throws XmlReaderException {
@@ -603,7 +777,7 @@ class XmlReader {
 	 * @param root
 	 *            root element of the XML tree
 	 */
-	private static void fixInvalidToolbarLib(Element root) {
+	static void fixInvalidToolbarLib(Element root) {
 		assert (root != null);
 
 		// Iterate on toolbars -- though there should be only one!
@@ -983,6 +1157,36 @@ class XmlReader {
 			this.srcFilePath = null;
 	}
 
+	/**
+	 * Makes the paths of "filePath" attributes and of memory image references
+	 * absolute relative to the file being read.
+	 */
+	String resolveAttribute(String attrName, String attrVal) {
+		String dirPath = "";
+		if (srcFilePath != null)
+			dirPath = srcFilePath
+					.substring(0, srcFilePath.lastIndexOf(File.separator));
+		if (attrName.equals("filePath")) {
+			/* De-relativize the path */
+			Path tmp = Paths.get(dirPath, attrVal);
+			attrVal = tmp.toString();
+		} else if (srcFilePath != null
+				&& attrVal.indexOf(Loader.IMAGE_REFERENCE_PREFIX) >= 0) {
+			String[] lines = attrVal.split("\n", -1);
+			for (int i = 0; i < lines.length; i++) {
+				if (lines[i].startsWith(Loader.IMAGE_REFERENCE_PREFIX)) {
+					Path path = Paths.get(dirPath).resolve(
+							lines[i].substring(
+									Loader.IMAGE_REFERENCE_PREFIX.length())
+									.trim());
+					lines[i] = Loader.IMAGE_REFERENCE_PREFIX + path;
+				}
+			}
+			attrVal = String.join("\n", lines);
+		}
+		return attrVal;
+	}
+
 	private void addToLabelMap(HashMap<String, String> labelMap,
 			String srcLabel, String dstLabel, String toolNames) {
 		if (srcLabel != null && dstLabel != null) {
@@ -1056,19 +1260,57 @@ class XmlReader {
 	}
 
 	LogisimFile readLibrary(InputStream is,Project proj) throws IOException, SAXException {
+		if (is.markSupported()) {
+			is.mark(STREAM_MARK_LIMIT);
+			try {
+				return readStreamed(is, proj);
+			} catch (XmlStreamReader.LegacyFormatException e) {
+				is.reset();
+			}
+		}
+
+		long start = System.nanoTime();
 		Document doc = loadXmlFrom(is);
 		Element elt = doc.getDocumentElement();
 		elt = ensureLogisimCompatibility(elt);
 
 		considerRepairs(doc, elt);
+		long parseTime = System.nanoTime() - start;
 		LogisimFile file = new LogisimFile((Loader) loader);
 		ReadContext context = new ReadContext(file);
 
 		context.toLogisimFile(elt,proj);
+		return finishLibrary(file, context, proj, parseTime);
+	}
+
+	/**
+	 * Reads the file with a single SAX pass and builds the components of
+	 * independent circuits in parallel. Files too old for the streaming
+	 * reader throw a {@link XmlStreamReader.LegacyFormatException} before
+	 * anything has been created.
+	 */
+	private LogisimFile readStreamed(InputStream is, Project proj)
+			throws IOException, SAXException {
+		long start = System.nanoTime();
+		XmlStreamReader stream = new XmlStreamReader(this);
+		stream.parse(is);
+		long parseTime = System.nanoTime() - start;
+		LogisimFile file = new LogisimFile((Loader) loader);
+		ReadContext context = new ReadContext(file);
+
+		context.toLogisimFile(stream, proj);
+		return finishLibrary(file, context, proj, parseTime);
+	}
 
+	private LogisimFile finishLibrary(LogisimFile file, ReadContext context,
+			Project proj, long parseTime) {
 		if (file.getCircuitCount() == 0) {
 			file.addCircuit(new Circuit("main", file,proj));
 		}
+		logger.debug("Loaded {}: parse {} ms, libraries {} ms, components {} ms, circuits {} ms",
+				srcFilePath == null ? "library" : srcFilePath,
+				parseTime / 1000000, context.libraryTime / 1000000,
+				context.componentTime / 1000000, context.buildTime / 1000000);
 		if (context.messages.size() > 0) {
 			StringBuilder all = new StringBuilder();
 			for (String msg : context.messages) {
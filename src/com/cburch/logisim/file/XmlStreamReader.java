@@ -0,0 +1,332 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.file;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.cburch.logisim.LogisimVersion;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.AttributeSet;
+
+/**
+ * Reads a project file in a single SAX pass. Circuit contents, which make up
+ * the bulk of large files, are kept as flat records instead of DOM nodes; the
+ * remaining top-level elements and the appearance shapes are small and are
+ * kept as DOM elements under {@link #getRoot()} so that the existing readers
+ * can handle them. The VHDL label fixes of
+ * {@link XmlReader#ensureLogisimCompatibility} are decided while streaming.
+ *
+ * Files older than 2.6.3 need the library repairs that rewrite the tree and
+ * are rejected with a {@link LegacyFormatException}.
+ */
+class XmlStreamReader extends DefaultHandler {
+	static class LegacyFormatException extends SAXException {
+		private static final long serialVersionUID = 1L;
+
+		LegacyFormatException(String version) {
+			super("Legacy file format " + version);
+		}
+	}
+
+	static class AttrRecord {
+		HashMap<String, String> attrs = new HashMap<String, String>();
+		int unnamedAttrs = 0;
+	}
+
+	static class CompRecord extends AttrRecord {
+		String name;
+		String lib;
+		String loc;
+		boolean tracked;
+		ComponentFactory factory;
+		AttributeSet attrSet;
+		Component component;
+	}
+
+	static class CircuitRecord extends AttrRecord {
+		String name;
+		boolean hasChildren = false;
+		List<CompRecord> comps = new ArrayList<CompRecord>();
+		List<String[]> wires = new ArrayList<String[]>();
+		List<Element> appearance = new ArrayList<Element>();
+	}
+
+	private static final LogisimVersion STREAMABLE_VERSION = LogisimVersion
+			.get(2, 6, 3);
+
+	private XmlReader reader;
+	private Document doc;
+	private Element root;
+	private String source = "";
+	private List<CircuitRecord> circuits = new ArrayList<CircuitRecord>();
+
+	private Map<String, String> circuitNames = new HashMap<String, String>();
+	private Map<String, String> circuitLabels = new HashMap<String, String>();
+	private Map<String, String> compLabels = new HashMap<String, String>();
+
+	private int depth = 0;
+	private Element domParent = null;
+	private int domDepth = 0;
+	private CircuitRecord circuit = null;
+	private CompRecord comp = null;
+	private AttrRecord attrOwner = null;
+	private String attrName = null;
+	private StringBuilder attrText = null;
+
+	XmlStreamReader(XmlReader reader) {
+		this.reader = reader;
+	}
+
+	List<CircuitRecord> getCircuits() {
+		return circuits;
+	}
+
+	Element getRoot() {
+		return root;
+	}
+
+	String getSource() {
+		return source;
+	}
+
+	void parse(InputStream in) throws IOException, SAXException {
+		SAXParserFactory factory = SAXParserFactory.newInstance();
+		try {
+			factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+			SAXParser parser = factory.newSAXParser();
+			doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+					.newDocument();
+			// the caller may still need the stream if this is a legacy file
+			parser.parse(new FilterInputStream(in) {
+				@Override
+				public void close() {
+				}
+			}, this);
+		} catch (ParserConfigurationException e) {
+			throw new SAXException(e);
+		}
+	}
+
+	/** Mirrors {@link Element#getAttribute}, which never returns null. */
+	private static String valueOf(Attributes attrs, String name) {
+		String ret = attrs.getValue(name);
+		return ret == null ? "" : ret;
+	}
+
+	private void noteLabel(Map<String, String> labels, String label) {
+		if (!labels.containsKey(label) && XmlReader.labelVHDLInvalid(label))
+			labels.put(label, XmlReader.generateValidVHDLLabel(label));
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName,
+			Attributes attrs) throws SAXException {
+		depth++;
+		if (domParent != null) {
+			Element elt = doc.createElement(qName);
+			for (int i = 0, n = attrs.getLength(); i < n; i++)
+				elt.setAttribute(attrs.getQName(i), attrs.getValue(i));
+			domParent.appendChild(elt);
+			domParent = elt;
+			return;
+		}
+		if (depth == 1) {
+			source = valueOf(attrs, "source");
+			if (!source.equals("")
+					&& LogisimVersion.parse(source).compareTo(
+							STREAMABLE_VERSION) < 0)
+				throw new LegacyFormatException(source);
+			root = doc.createElement(qName);
+			for (int i = 0, n = attrs.getLength(); i < n; i++)
+				root.setAttribute(attrs.getQName(i), attrs.getValue(i));
+			doc.appendChild(root);
+		} else if (depth == 2) {
+			if (qName.equals("circuit")) {
+				circuit = new CircuitRecord();
+				circuit.name = valueOf(attrs, "name");
+				noteLabel(circuitNames, circuit.name);
+				circuits.add(circuit);
+			} else {
+				startDom(root, qName, attrs);
+			}
+		} else if (circuit != null && depth == 3) {
+			circuit.hasChildren = true;
+			if (qName.equals("a")) {
+				startAttr(circuit, attrs);
+			} else if (qName.equals("comp")) {
+				comp = new CompRecord();
+				comp.name = valueOf(attrs, "name");
+				comp.lib = attrs.getValue("lib");
+				comp.loc = valueOf(attrs, "loc");
+				comp.tracked = attrs.getValue("trackercomp") != null;
+				circuit.comps.add(comp);
+			} else if (qName.equals("wire")) {
+				circuit.wires.add(new String[] { valueOf(attrs, "from"),
+						valueOf(attrs, "to") });
+			} else if (qName.equals("appear")) {
+				Element elt = doc.createElement(qName);
+				circuit.appearance.add(elt);
+				domParent = elt;
+				domDepth = depth;
+			}
+		} else if (comp != null && depth == 4 && qName.equals("a")) {
+			startAttr(comp, attrs);
+		}
+	}
+
+	private void startAttr(AttrRecord owner, Attributes attrs) {
+		String name = attrs.getValue("name");
+		if (name == null) {
+			owner.unnamedAttrs++;
+			return;
+		}
+		String val = attrs.getValue("val");
+		if (val != null) {
+			owner.attrs.put(name, reader.resolveAttribute(name, val));
+		} else {
+			attrOwner = owner;
+			attrName = name;
+			attrText = new StringBuilder();
+		}
+	}
+
+	private void startDom(Element parent, String qName, Attributes attrs) {
+		Element elt = doc.createElement(qName);
+		for (int i = 0, n = attrs.getLength(); i < n; i++)
+			elt.setAttribute(attrs.getQName(i), attrs.getValue(i));
+		parent.appendChild(elt);
+		domParent = elt;
+		domDepth = depth;
+	}
+
+	@Override
+	public void characters(char[] ch, int start, int length) {
+		if (domParent != null) {
+			Node last = domParent.getLastChild();
+			if (last != null && last.getNodeType() == Node.TEXT_NODE)
+				last.setNodeValue(last.getNodeValue()
+						+ new String(ch, start, length));
+			else
+				domParent.appendChild(doc.createTextNode(new String(ch, start,
+						length)));
+		} else if (attrText != null) {
+			attrText.append(ch, start, length);
+		} else if (circuit != null && depth == 2) {
+			circuit.hasChildren = true;
+		}
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) {
+		if (domParent != null) {
+			if (depth == domDepth)
+				domParent = null;
+			else
+				domParent = (Element) domParent.getParentNode();
+		} else if (attrText != null) {
+			attrOwner.attrs.put(attrName,
+					reader.resolveAttribute(attrName, attrText.toString()));
+			attrOwner = null;
+			attrText = null;
+		} else if (comp != null && depth == 3) {
+			String label = comp.attrs.get("label");
+			if (comp.lib != null && label != null && label.length() > 0)
+				noteLabel(compLabels, label);
+			comp = null;
+		} else if (circuit != null && depth == 2) {
+			String label = circuit.attrs.get("label");
+			if (label != null && label.length() > 0)
+				noteLabel(circuitLabels, label);
+			circuit = null;
+		}
+		depth--;
+	}
+
+	@Override
+	public void endDocument() {
+		if (root == null)
+			return;
+		applyValidLabels();
+		XmlReader.fixInvalidToolbarLib(root);
+	}
+
+	/**
+	 * Renames the circuits and labels found invalid while streaming; circuit
+	 * references may come before the circuit itself, so this waits for the
+	 * end of the document.
+	 */
+	private void applyValidLabels() {
+		if (circuitNames.isEmpty() && circuitLabels.isEmpty()
+				&& compLabels.isEmpty())
+			return;
+		for (CircuitRecord circ : circuits) {
+			String name = circuitNames.get(circ.name);
+			if (name != null) {
+				circ.name = name;
+				if (circ.attrs.containsKey("circuit"))
+					circ.attrs.put("circuit", name);
+			}
+			String label = circ.attrs.get("label");
+			if (label != null && circuitLabels.containsKey(label))
+				circ.attrs.put("label", circuitLabels.get(label));
+			for (CompRecord c : circ.comps) {
+				if (c.lib == null) {
+					if (circuitNames.containsKey(c.name))
+						c.name = circuitNames.get(c.name);
+				} else {
+					label = c.attrs.get("label");
+					if (label != null && compLabels.containsKey(label))
+						c.attrs.put("label", compLabels.get(label));
+				}
+			}
+		}
+	}
+}
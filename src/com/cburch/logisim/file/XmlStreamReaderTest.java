@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.Wire;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+
+public class XmlStreamReaderTest {
+
+	private static final String PROJECT = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"
+			+ "<project source=\"2.14.3\" version=\"1.0\">\n"
+			+ "  <lib desc=\"#Wiring\" name=\"0\"/>\n"
+			+ "  <lib desc=\"#Gates\" name=\"1\"/>\n"
+			+ "  <lib desc=\"#Memory\" name=\"4\"/>\n"
+			+ "  <main name=\"top\"/>\n"
+			+ "  <options>\n"
+			+ "    <a name=\"gateUndefined\" val=\"ignore\"/>\n"
+			+ "  </options>\n"
+			+ "  <toolbar>\n"
+			+ "    <tool lib=\"0\" name=\"Pin\"/>\n"
+			+ "    <sep/>\n"
+			+ "    <tool lib=\"1\" name=\"AND Gate\"/>\n"
+			+ "  </toolbar>\n"
+			+ "  <circuit name=\"sub\">\n"
+			+ "    <a name=\"circuit\" val=\"sub\"/>\n"
+			+ "    <a name=\"circuitnamedbox\" val=\"true\"/>\n"
+			+ "    <comp lib=\"0\" loc=\"(100,100)\" name=\"Pin\">\n"
+			+ "      <a name=\"label\" val=\"in0\"/>\n"
+			+ "    </comp>\n"
+			+ "    <comp lib=\"0\" loc=\"(300,100)\" name=\"Pin\">\n"
+			+ "      <a name=\"facing\" val=\"west\"/>\n"
+			+ "      <a name=\"output\" val=\"true\"/>\n"
+			+ "      <a name=\"width\" val=\"8\"/>\n"
+			+ "      <a name=\"label\" val=\"out0\"/>\n"
+			+ "    </comp>\n"
+			+ "    <comp lib=\"4\" loc=\"(200,200)\" name=\"ROM\">\n"
+			+ "      <a name=\"addrWidth\" val=\"4\"/>\n"
+			+ "      <a name=\"contents\">addr/data: 4 8\n1 2 3 4 5*ff\n</a>\n"
+			+ "    </comp>\n"
+			+ "    <comp lib=\"1\" loc=\"(500,500)\" name=\"No Such Gate\"/>\n"
+			+ "    <comp lib=\"1\" loc=\"bogus\" name=\"AND Gate\"/>\n"
+			+ "    <wire from=\"(100,100)\" to=\"(300,100)\"/>\n"
+			+ "  </circuit>\n"
+			+ "  <circuit name=\"top\">\n"
+			+ "    <a name=\"circuit\" val=\"top\"/>\n"
+			+ "    <comp loc=\"(400,400)\" name=\"sub\"/>\n"
+			+ "    <comp lib=\"1\" loc=\"(600,600)\" name=\"OR Gate\">\n"
+			+ "      <a name=\"inputs\" val=\"3\"/>\n"
+			+ "      <a name=\"label\" val=\"gate0\"/>\n"
+			+ "    </comp>\n"
+			+ "    <comp lib=\"1\" loc=\"(600,700)\" name=\"NOT Gate\"/>\n"
+			+ "    <wire from=\"(600,600)\" to=\"(650,600)\"/>\n"
+			+ "    <wire from=\"(650,600)\" to=\"(650,700)\"/>\n"
+			+ "  </circuit>\n"
+			+ "</project>\n";
+
+	private static class RecordingLoader extends Loader {
+		private StringBuilder errors = new StringBuilder();
+
+		RecordingLoader() {
+			super(null);
+		}
+
+		@Override
+		public void showError(String description) {
+			errors.append(description).append('\n');
+		}
+	}
+
+	/**
+	 * Describes a loaded file so that two loads can be compared: the circuits
+	 * in order, their static attributes and their components and wires.
+	 */
+	private static String describe(LogisimFile file) {
+		StringBuilder ret = new StringBuilder();
+		ret.append("main=").append(file.getMainCircuit().getName())
+				.append('\n');
+		ret.append("toolbar=")
+				.append(file.getOptions().getToolbarData().getContents().size())
+				.append('\n');
+		for (Circuit circ : file.getCircuits()) {
+			ret.append("circuit ").append(circ.getName()).append(' ');
+			ret.append(describe(circ.getStaticAttributes())).append('\n');
+			List<String> items = new ArrayList<String>();
+			for (Component comp : circ.getNonWires()) {
+				items.add(comp.getFactory().getName() + "@"
+						+ comp.getLocation()
+						+ describe(comp.getAttributeSet()));
+			}
+			for (Wire w : circ.getWires()) {
+				items.add("wire " + w.getEnd0() + w.getEnd1());
+			}
+			Collections.sort(items);
+			for (String item : items) {
+				ret.append("  ").append(item).append('\n');
+			}
+		}
+		return ret.toString();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static String describe(AttributeSet attrs) {
+		StringBuilder ret = new StringBuilder();
+		for (Attribute<?> attr : attrs.getAttributes()) {
+			Object val = attrs.getValue(attr);
+			ret.append(' ').append(attr.getName()).append('=');
+			ret.append(val == null ? "null"
+					: ((Attribute<Object>) attr).toStandardString(val));
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Loads the document either through the streaming reader or, when the
+	 * stream cannot be rewound, through the DOM reader.
+	 */
+	private static String load(String xml, boolean stream) throws Exception {
+		byte[] bytes = xml.getBytes("UTF-8");
+		InputStream in;
+		if (stream) {
+			in = new BufferedInputStream(new ByteArrayInputStream(bytes));
+		} else {
+			in = new FilterInputStream(new ByteArrayInputStream(bytes)) {
+				@Override
+				public boolean markSupported() {
+					return false;
+				}
+			};
+		}
+		RecordingLoader loader = new RecordingLoader();
+		LogisimFile file = new XmlReader(loader, null).readLibrary(in, null);
+		return describe(file) + loader.errors;
+	}
+
+	@Test
+	public final void testStreamedMatchesDom() throws Exception {
+		String dom = load(PROJECT, false);
+		String streamed = load(PROJECT, true);
+		assertEquals(dom, streamed);
+		assertTrue(streamed.contains("ROM@(200,200)"));
+		assertTrue(streamed.contains("OR Gate@(600,600)"));
+		assertTrue(streamed.contains("sub@(400,400)"));
+		assertTrue(streamed.contains("No Such Gate"));
+		assertTrue(streamed.contains("(bogus)"));
+	}
+
+	@Test
+	public final void testStreamedMatchesDomOnLargeCircuit() throws Exception {
+		// enough components to be built in several chunks
+		StringBuilder xml = new StringBuilder();
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+		xml.append("<project source=\"2.14.3\" version=\"1.0\">\n");
+		xml.append("  <lib desc=\"#Wiring\" name=\"0\"/>\n");
+		xml.append("  <lib desc=\"#Gates\" name=\"1\"/>\n");
+		xml.append("  <main name=\"chain\"/>\n");
+		xml.append("  <circuit name=\"chain\">\n");
+		for (int i = 0; i < 600; i++) {
+			int x = 100 + 60 * (i % 40);
+			int y = 100 + 60 * (i / 40);
+			xml.append("    <comp lib=\"1\" loc=\"(" + x + "," + y
+					+ ")\" name=\"" + (i % 2 == 0 ? "AND Gate" : "NOT Gate")
+					+ "\">\n");
+			xml.append("      <a name=\"label\" val=\"g" + i + "\"/>\n");
+			xml.append("    </comp>\n");
+			xml.append("    <wire from=\"(" + x + "," + y + ")\" to=\"("
+					+ (x + 20) + "," + y + ")\"/>\n");
+		}
+		xml.append("  </circuit>\n");
+		xml.append("</project>\n");
+
+		String dom = load(xml.toString(), false);
+		String streamed = load(xml.toString(), true);
+		assertEquals(dom, streamed);
+		assertTrue(streamed.contains("label=g599"));
+	}
+}
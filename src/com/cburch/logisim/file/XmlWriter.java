@@ -155,10 +155,11 @@ class XmlWriter {
 						value = (outFP.relativize(attrValP)).toString();
 						a.setAttribute("val", value);
 					} else {
+						value = relativizeImageReferences(value);
 						if (value.indexOf("\n") >= 0) {
 							a.appendChild(doc.createTextNode(value));
 						} else {
-							a.setAttribute("val", attr.toStandardString(val));
+							a.setAttribute("val", value);
 						}
 					}
 					elt.appendChild(a);
@@ -167,6 +168,33 @@ class XmlWriter {
 		}
 	}
 
+	/**
+	 * Makes the paths of the memory images referred to in an attribute value
+	 * relative to the directory of the file being written.
+	 */
+	String relativizeImageReferences(String value) {
+		if (outFilepath == null
+				|| value.indexOf(Loader.IMAGE_REFERENCE_PREFIX) < 0)
+			return value;
+		String[] lines = value.split("\n", -1);
+		for (int i = 0; i < lines.length; i++) {
+			if (!lines[i].startsWith(Loader.IMAGE_REFERENCE_PREFIX))
+				continue;
+			Path path = Paths.get(lines[i].substring(
+					Loader.IMAGE_REFERENCE_PREFIX.length()).trim());
+			if (!path.isAbsolute())
+				continue;
+			try {
+				path = Paths.get(outFilepath).relativize(path);
+			} catch (IllegalArgumentException e) {
+				// on another drive; keep the absolute path
+				continue;
+			}
+			lines[i] = Loader.IMAGE_REFERENCE_PREFIX + path;
+		}
+		return String.join("\n", lines);
+	}
+
 	Library findLibrary(ComponentFactory source) {
 		if (file.contains(source)) {
 			return file;
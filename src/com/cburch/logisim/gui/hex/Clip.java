@@ -46,9 +46,9 @@ import com.cburch.hex.HexModel;
 
 class Clip implements ClipboardOwner {
 	private static class Data implements Transferable {
-		private int[] data;
+		private long[] data;
 
-		Data(int[] data) {
+		Data(long[] data) {
 			this.data = data;
 		}
 
@@ -59,10 +59,10 @@ class Clip implements ClipboardOwner {
 			} else if (flavor == DataFlavor.stringFlavor) {
 				int bits = 1;
 				for (int i = 0; i < data.length; i++) {
-					int k = data[i] >> bits;
-					while (k != 0 && bits < 32) {
+					long k = data[i] >>> bits;
+					while (k != 0 && bits < 64) {
 						bits++;
-						k >>= 1;
+						k >>>= 1;
 					}
 				}
 
@@ -72,7 +72,7 @@ class Clip implements ClipboardOwner {
 					if (i > 0) {
 						buf.append(i % 8 == 0 ? '\n' : ' ');
 					}
-					String s = Integer.toHexString(data[i]);
+					String s = Long.toHexString(data[i]);
 					while (s.length() < chars)
 						s = "0" + s;
 					buf.append(s);
@@ -92,7 +92,7 @@ class Clip implements ClipboardOwner {
 		}
 	}
 
-	private static final DataFlavor binaryFlavor = new DataFlavor(int[].class,
+	private static final DataFlavor binaryFlavor = new DataFlavor(long[].class,
 			"Binary data");
 
 	private HexEditor editor;
@@ -120,7 +120,7 @@ class Clip implements ClipboardOwner {
 		}
 		p1++;
 
-		int[] data = new int[(int) (p1 - p0)];
+		long[] data = new long[(int) (p1 - p0)];
 		HexModel model = editor.getModel();
 		for (long i = p0; i < p1; i++) {
 			data[(int) (i - p0)] = model.get(i);
@@ -136,10 +136,10 @@ class Clip implements ClipboardOwner {
 	public void paste() {
 		Clipboard clip = editor.getToolkit().getSystemClipboard();
 		Transferable xfer = clip.getContents(this);
-		int[] data;
+		long[] data;
 		if (xfer.isDataFlavorSupported(binaryFlavor)) {
 			try {
-				data = (int[]) xfer.getTransferData(binaryFlavor);
+				data = (long[]) xfer.getTransferData(binaryFlavor);
 			} catch (UnsupportedFlavorException e) {
 				return;
 			} catch (IOException e) {
@@ -45,14 +45,14 @@ import com.cburch.hex.HexModel;
 public class HexFile {
 	private static class HexReader {
 		private BufferedReader in;
-		private int[] data;
+		private long[] data;
 		private StringTokenizer curLine;
 		private long leftCount;
 		private long leftValue;
 
 		public HexReader(BufferedReader in) throws IOException {
 			this.in = in;
-			data = new int[4096];
+			data = new long[4096];
 			curLine = findNonemptyLine();
 		}
 
@@ -83,16 +83,16 @@ public class HexFile {
 			}
 		}
 
-		public int[] next() throws IOException {
+		public long[] next() throws IOException {
 			int pos = 0;
 			if (leftCount > 0) {
 				int n = (int) Math.min(data.length - pos, leftCount);
 				if (n == 1) {
-					data[pos] = (int) leftValue;
+					data[pos] = leftValue;
 					pos++;
 					leftCount--;
 				} else {
-					Arrays.fill(data, pos, pos + n, (int) leftValue);
+					Arrays.fill(data, pos, pos + n, leftValue);
 					pos += n;
 					leftCount -= n;
 				}
@@ -105,10 +105,10 @@ public class HexFile {
 					int star = tok.indexOf("*");
 					if (star < 0) {
 						leftCount = 1;
-						leftValue = Long.parseLong(tok, 16);
+						leftValue = Long.parseUnsignedLong(tok, 16);
 					} else {
 						leftCount = Long.parseLong(tok.substring(0, star));
-						leftValue = Long.parseLong(tok.substring(star + 1), 16);
+						leftValue = Long.parseUnsignedLong(tok.substring(star + 1), 16);
 					}
 				} catch (NumberFormatException e) {
 					throw new IOException(Strings.get("hexNumberFormatError"));
@@ -116,11 +116,11 @@ public class HexFile {
 
 				int n = (int) Math.min(data.length - pos, leftCount);
 				if (n == 1) {
-					data[pos] = (int) leftValue;
+					data[pos] = leftValue;
 					pos++;
 					leftCount--;
 				} else {
-					Arrays.fill(data, pos, pos + n, (int) leftValue);
+					Arrays.fill(data, pos, pos + n, leftValue);
 					pos += n;
 					leftCount -= n;
 				}
@@ -131,7 +131,7 @@ public class HexFile {
 			if (pos >= data.length) {
 				return data;
 			} else {
-				int[] ret = new int[pos];
+				long[] ret = new long[pos];
 				System.arraycopy(data, 0, ret, 0, pos);
 				return ret;
 			}
@@ -156,7 +156,7 @@ public class HexFile {
 		}
 		try {
 			String header = in.readLine();
-			if (!header.equals(RAW_IMAGE_HEADER)) {
+			if (header == null || !header.equals(RAW_IMAGE_HEADER)) {
 				throw new IOException(Strings.get("hexHeaderFormatError"));
 			}
 			open(dst, in);
@@ -181,7 +181,7 @@ public class HexFile {
 		dst.fill(dst.getFirstOffset(), dst.getLastOffset() - dst.getFirstOffset() + 1, 0);
 		long offs = dst.getFirstOffset();
 		while (reader.hasNext()) {
-			int[] values = reader.next();
+			long[] values = reader.next();
 			if (offs + values.length - 1 > dst.getLastOffset()) {
 				throw new IOException(Strings.get("hexFileSizeError"));
 			}
@@ -190,15 +190,15 @@ public class HexFile {
 		}
 	}
 
-	public static int[] parse(Reader in) throws IOException {
+	public static long[] parse(Reader in) throws IOException {
 		HexReader reader = new HexReader(new BufferedReader(in));
 		int cur = 0;
-		int[] data = new int[4096];
+		long[] data = new long[4096];
 		while (reader.hasNext()) {
-			int[] values = reader.next();
+			long[] values = reader.next();
 			if (cur + values.length > data.length) {
-				int[] oldData = data;
-				data = new int[Math.max(cur + values.length,
+				long[] oldData = data;
+				data = new long[Math.max(cur + values.length,
 						3 * data.length / 2)];
 				System.arraycopy(oldData, 0, data, 0, cur);
 			}
@@ -206,8 +206,8 @@ public class HexFile {
 			cur += values.length;
 		}
 		if (cur != data.length) {
-			int[] oldData = data;
-			data = new int[cur];
+			long[] oldData = data;
+			data = new long[cur];
 			System.arraycopy(oldData, 0, data, 0, cur);
 		}
 		return data;
@@ -244,7 +244,7 @@ public class HexFile {
 		int tokens = 0;
 		long cur = 0;
 		while (cur <= last) {
-			int val = src.get(cur);
+			long val = src.get(cur);
 			long start = cur;
 			cur++;
 			while (cur <= last && src.get(cur) == val)
@@ -259,7 +259,7 @@ public class HexFile {
 					out.write(tokens % 8 == 0 ? '\n' : ' ');
 				if (cur != start + 1)
 					out.write((cur - start) + "*");
-				out.write(Integer.toHexString(val));
+				out.write(Long.toHexString(val));
 			} catch (IOException e) {
 				throw new IOException(Strings.get("hexFileWriteError"));
 			}
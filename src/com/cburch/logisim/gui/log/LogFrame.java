@@ -36,11 +36,15 @@ import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
 import javax.swing.JButton;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTabbedPane;
 
@@ -55,6 +59,7 @@ import com.cburch.logisim.gui.menu.LogisimMenuBar;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.proj.ProjectEvent;
 import com.cburch.logisim.proj.ProjectListener;
+import com.cburch.logisim.util.JFileChoosers;
 import com.cburch.logisim.util.LocaleListener;
 import com.cburch.logisim.util.LocaleManager;
 import com.cburch.logisim.util.StringUtil;
@@ -70,6 +75,12 @@ public class LogFrame extends LFrame {
 				WindowEvent e = new WindowEvent(LogFrame.this,
 						WindowEvent.WINDOW_CLOSING);
 				LogFrame.this.processWindowEvent(e);
+			} else if (src == vcdButton) {
+				if (vcdRecorder != null) {
+					stopVcd();
+				} else {
+					startVcd();
+				}
 			} else if (src == chronogramButton) {
 				project.getChronoFrame(true);
 				WindowEvent e = new WindowEvent(LogFrame.this,
@@ -93,6 +104,8 @@ public class LogFrame extends LFrame {
 				panels[i].localeChanged();
 			}
 			close.setText(Strings.get("closeButton"));
+			vcdButton.setText(Strings.get(vcdRecorder == null ? "vcdStartButton"
+					: "vcdStopButton"));
 			windowManager.localeChanged();
 		}
 
@@ -170,6 +183,8 @@ public class LogFrame extends LFrame {
 	private JButton close = new JButton();
 
 	private JButton chronogramButton;
+	private JButton vcdButton = new JButton();
+	private VcdRecorder vcdRecorder = null;
 
 	public LogFrame(Project project) {
 		this.project = project;
@@ -196,6 +211,8 @@ public class LogFrame extends LFrame {
 		chronogramButton = new JButton(Strings.get("startChronogram"));
 		chronogramButton.addActionListener(myListener);
 		buttonPanel.add(chronogramButton);
+		vcdButton.addActionListener(myListener);
+		buttonPanel.add(vcdButton);
 		buttonPanel.add(close);
 		close.addActionListener(myListener);
 
@@ -236,6 +253,7 @@ public class LogFrame extends LFrame {
 		LogisimMenuBar menubar = (LogisimMenuBar) getJMenuBar();
 		menubar.setCircuitState(value, state);
 
+		stopVcd();
 		if (curSimulator != null)
 			curSimulator.removeSimulatorListener(myListener);
 		if (curModel != null)
@@ -265,6 +283,56 @@ public class LogFrame extends LFrame {
 		}
 	}
 
+	private void startVcd() {
+		if (curSimulator == null || curModel == null)
+			return;
+		JFileChooser chooser = JFileChoosers.create();
+		if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+			return;
+		File file = chooser.getSelectedFile();
+		try {
+			vcdRecorder = new VcdRecorder(this, curModel, file);
+		} catch (IOException e) {
+			JOptionPane.showMessageDialog(this, StringUtil.format(
+					Strings.get("vcdErrorMessage"), e.getMessage()),
+					Strings.get("vcdErrorTitle"), JOptionPane.ERROR_MESSAGE);
+			return;
+		}
+		curSimulator.addSimulatorListener(vcdRecorder);
+		vcdButton.setText(Strings.get("vcdStopButton"));
+	}
+
+	// called on the event thread when the recorder could not write a sample
+	void vcdFailed(VcdRecorder recorder, IOException e) {
+		if (recorder != vcdRecorder)
+			return;
+		stopVcd();
+		JOptionPane.showMessageDialog(this, StringUtil.format(
+				Strings.get("vcdWriteErrorMessage"), e.getMessage()),
+				Strings.get("vcdErrorTitle"), JOptionPane.ERROR_MESSAGE);
+	}
+
+	private void stopVcd() {
+		if (vcdRecorder == null)
+			return;
+		if (curSimulator != null)
+			curSimulator.removeSimulatorListener(vcdRecorder);
+		vcdRecorder.close();
+		vcdRecorder = null;
+		vcdButton.setText(Strings.get("vcdStartButton"));
+	}
+
+	@Override
+	public void dispose() {
+		stopVcd();
+		if (curModel != null)
+			curModel.setSelected(this, false);
+		for (Model model : modelMap.values())
+			model.close();
+		modelMap.clear();
+		super.dispose();
+	}
+
 	@Override
 	public void setVisible(boolean value) {
 		if (value) {
@@ -49,6 +49,7 @@ public class Model {
 	private boolean fileHeader = true;
 	private boolean selected = false;
 	private LogThread logger = null;
+	private Value[] values = new Value[0];
 
 	public Model(CircuitState circuitState) {
 		listeners = new EventSourceWeakSupport<ModelListener>();
@@ -76,6 +77,7 @@ public class Model {
 		for (Iterator<SelectionItem> it = log.keySet().iterator(); it.hasNext();) {
 			SelectionItem i = it.next();
 			if (selection.indexOf(i) < 0) {
+				log.get(i).close();
 				it.remove();
 			}
 		}
@@ -85,6 +87,15 @@ public class Model {
 		}
 	}
 
+	/**
+	 * Releases the value logs of every item, along with their backing files.
+	 */
+	public void close() {
+		for (ValueLog valueLog : log.values())
+			valueLog.close();
+		log.clear();
+	}
+
 	public CircuitState getCircuitState() {
 		return selection.getCircuitState();
 	}
@@ -120,7 +131,10 @@ public class Model {
 
 	public void propagationCompleted() {
 		CircuitState circuitState = getCircuitState();
-		Value[] vals = new Value[selection.size()];
+		// listeners consume the values synchronously, so the array is reused
+		if (values.length != selection.size())
+			values = new Value[selection.size()];
+		Value[] vals = values;
 		boolean changed = false;
 		for (int i = selection.size() - 1; i >= 0; i--) {
 			SelectionItem item = selection.get(i);
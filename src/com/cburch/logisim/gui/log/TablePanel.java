@@ -180,7 +180,8 @@ class TablePanel extends LogPanel {
 		}
 
 		tableWidth = (cellWidth + COLUMN_SEP) * columns - COLUMN_SEP;
-		tableHeight = cellHeight * (1 + rowCount) + HEADER_SEP;
+		tableHeight = (int) Math.min(Integer.MAX_VALUE, (long) cellHeight
+				* (1 + rowCount) + HEADER_SEP);
 		setPreferredSize(new Dimension(tableWidth, tableHeight));
 		revalidate();
 		repaint();
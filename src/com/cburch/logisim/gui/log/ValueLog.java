@@ -30,46 +30,172 @@
 
 package com.cburch.logisim.gui.log;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Value;
 
+/**
+ * Unbounded history of the values taken by one logged signal. Each value is
+ * stored as a fixed-size record of longs; the most recent records are kept in
+ * a small heap tail, older ones are flushed into segments memory-mapped from
+ * a temporary file, so that the history is limited by disk rather than heap.
+ */
 class ValueLog {
-	private static final int LOG_SIZE = 400;
+	// width, error, unknown, value
+	private static final int RECORD_LONGS = 4;
+
+	// records kept on the heap before being flushed to a segment
+	private static final int TAIL_SIZE = 1024;
+
+	// records per mapped segment; must be a multiple of TAIL_SIZE
+	private static final int SEGMENT_SIZE = 64 * TAIL_SIZE;
 
-	private Value[] log;
-	private short curSize;
-	private short firstIndex;
+	private static final long SEGMENT_BYTES = 8L * RECORD_LONGS * SEGMENT_SIZE;
+
+	private static Value decode(long width, long error, long unknown,
+			long value) {
+		if (width < 0)
+			return null;
+		if (width == 0)
+			return Value.NIL;
+		if (error == 0 && unknown == 0)
+			return Value.createKnown(BitWidth.create((int) width), value);
+		Value[] bits = new Value[(int) width];
+		for (int i = 0; i < width; i++) {
+			long mask = 1L << i;
+			if ((error & mask) != 0)
+				bits[i] = Value.ERROR;
+			else if ((unknown & mask) != 0)
+				bits[i] = Value.UNKNOWN;
+			else if ((value & mask) != 0)
+				bits[i] = Value.TRUE;
+			else
+				bits[i] = Value.FALSE;
+		}
+		return Value.create(bits);
+	}
+
+	private long[] tail = new long[TAIL_SIZE * RECORD_LONGS];
+	private int tailSize = 0;
+	private ArrayList<LongBuffer> segments = new ArrayList<LongBuffer>();
+	private int flushed = 0;
+	private Value last = null;
+
+	private File file = null;
+	private RandomAccessFile raf = null;
+	private boolean diskFailed = false;
 
 	public ValueLog() {
-		log = new Value[LOG_SIZE];
-		curSize = 0;
-		firstIndex = 0;
 	}
 
-	public void append(Value val) {
-		if (curSize < LOG_SIZE) {
-			log[curSize] = val;
-			curSize++;
+	public synchronized void append(Value val) {
+		if (tailSize == TAIL_SIZE)
+			flushTail();
+		int pos = tailSize * RECORD_LONGS;
+		if (val == null) {
+			tail[pos] = -1;
+			tail[pos + 1] = 0;
+			tail[pos + 2] = 0;
+			tail[pos + 3] = 0;
+		} else if (val.isFullyDefined() || val.getWidth() == 0) {
+			tail[pos] = val.getWidth();
+			tail[pos + 1] = 0;
+			tail[pos + 2] = 0;
+			tail[pos + 3] = val.getWidth() == 0 ? 0 : val.toLongValue();
 		} else {
-			log[firstIndex] = val;
-			firstIndex++;
-			if (firstIndex >= LOG_SIZE)
-				firstIndex = 0;
+			long error = 0;
+			long unknown = 0;
+			long value = 0;
+			for (int i = val.getWidth() - 1; i >= 0; i--) {
+				Value bit = val.get(i);
+				if (bit == Value.ERROR)
+					error |= 1L << i;
+				else if (bit == Value.UNKNOWN)
+					unknown |= 1L << i;
+				else if (bit == Value.TRUE)
+					value |= 1L << i;
+			}
+			tail[pos] = val.getWidth();
+			tail[pos + 1] = error;
+			tail[pos + 2] = unknown;
+			tail[pos + 3] = value;
+		}
+		tailSize++;
+		last = val;
+	}
+
+	/**
+	 * Releases the backing file. The log must not be used afterwards.
+	 */
+	public synchronized void close() {
+		segments.clear();
+		if (raf != null) {
+			try {
+				raf.close();
+			} catch (IOException e) {
+			}
+			raf = null;
+		}
+		if (file != null) {
+			file.delete();
+			file = null;
 		}
 	}
 
-	public Value get(int index) {
-		int i = firstIndex + index;
-		if (i >= LOG_SIZE)
-			i -= LOG_SIZE;
-		return log[i];
+	private void flushTail() {
+		int index = flushed / SEGMENT_SIZE;
+		if (index == segments.size())
+			segments.add(newSegment(index));
+		LongBuffer seg = segments.get(index).duplicate();
+		seg.position((flushed % SEGMENT_SIZE) * RECORD_LONGS);
+		seg.put(tail, 0, TAIL_SIZE * RECORD_LONGS);
+		flushed += TAIL_SIZE;
+		tailSize = 0;
 	}
 
-	public Value getLast() {
-		return curSize < LOG_SIZE ? (curSize == 0 ? null : log[curSize - 1])
-				: (firstIndex == 0 ? log[curSize - 1] : log[firstIndex - 1]);
+	public synchronized Value get(int index) {
+		if (index >= flushed) {
+			int pos = (index - flushed) * RECORD_LONGS;
+			return decode(tail[pos], tail[pos + 1], tail[pos + 2],
+					tail[pos + 3]);
+		}
+		LongBuffer seg = segments.get(index / SEGMENT_SIZE);
+		int pos = (index % SEGMENT_SIZE) * RECORD_LONGS;
+		return decode(seg.get(pos), seg.get(pos + 1), seg.get(pos + 2),
+				seg.get(pos + 3));
+	}
+
+	public synchronized Value getLast() {
+		return last;
+	}
+
+	private LongBuffer newSegment(int index) {
+		if (!diskFailed) {
+			try {
+				if (raf == null) {
+					file = File.createTempFile("logisim-log", ".dat");
+					file.deleteOnExit();
+					raf = new RandomAccessFile(file, "rw");
+				}
+				return raf.getChannel()
+						.map(FileChannel.MapMode.READ_WRITE,
+								index * SEGMENT_BYTES, SEGMENT_BYTES)
+						.asLongBuffer();
+			} catch (IOException e) {
+				// keep going on the heap rather than losing history
+				diskFailed = true;
+			}
+		}
+		return LongBuffer.allocate(SEGMENT_SIZE * RECORD_LONGS);
 	}
 
-	public int size() {
-		return curSize;
+	public synchronized int size() {
+		return flushed + tailSize;
 	}
 }
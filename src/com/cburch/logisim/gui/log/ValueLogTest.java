@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.gui.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+
+public class ValueLogTest {
+
+	private static final Value[] BITS = { Value.FALSE, Value.TRUE,
+			Value.UNKNOWN, Value.ERROR };
+
+	@Test
+	public void testRoundTripAcrossSegments() {
+		Random rand = new Random(3);
+		ArrayList<Value> expected = new ArrayList<Value>();
+		ValueLog log = new ValueLog();
+		try {
+			// enough records to flush several tails to a segment
+			for (int k = 0; k < 5000; k++) {
+				int width = 1 + rand.nextInt(64);
+				Value val;
+				if (rand.nextInt(3) == 0) {
+					Value[] bits = new Value[width];
+					for (int i = 0; i < width; i++)
+						bits[i] = BITS[rand.nextInt(BITS.length)];
+					val = Value.create(bits);
+				} else {
+					val = Value.createKnown(BitWidth.create(width),
+							rand.nextLong());
+				}
+				expected.add(val);
+				log.append(val);
+			}
+			log.append(null);
+			log.append(Value.NIL);
+
+			assertEquals(expected.size() + 2, log.size());
+			for (int k = 0; k < expected.size(); k++)
+				assertEquals("record " + k, expected.get(k), log.get(k));
+			assertNull(log.get(expected.size()));
+			assertEquals(Value.NIL, log.get(expected.size() + 1));
+		} finally {
+			log.close();
+		}
+	}
+}
@@ -409,7 +409,8 @@ public class ValueTable extends JPanel {
 			}
 
 			tableWidth = cellsWidth + COLUMN_SEP * (columns + 1);
-			tableHeight = cellHeight * model.getRowCount();
+			tableHeight = (int) Math.min(Integer.MAX_VALUE, (long) cellHeight
+					* model.getRowCount());
 		}
 
 		if (cellHeight != oldCellHeight || tableWidth != oldTableWidth
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.gui.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import javax.swing.SwingUtilities;
+
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.SimulatorEvent;
+import com.cburch.logisim.circuit.SimulatorListener;
+import com.cburch.logisim.data.Value;
+
+/**
+ * Records the selected signals into a VCD file as the simulator runs, using
+ * the number of completed ticks as the time.
+ */
+class VcdRecorder implements SimulatorListener {
+	private LogFrame owner;
+	private CircuitState circuitState;
+	private SelectionItem[] items;
+	private Value[] values;
+	private VcdWriter writer;
+	private long ticks = 0;
+
+	VcdRecorder(LogFrame owner, Model model, File file) throws IOException {
+		this.owner = owner;
+		Selection sel = model.getSelection();
+		circuitState = model.getCircuitState();
+		items = new SelectionItem[sel.size()];
+		values = new Value[items.length];
+		String[] names = new String[items.length];
+		int[] widths = new int[items.length];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = sel.get(i);
+			names[i] = items[i].toString();
+			values[i] = items[i].fetchValue(circuitState);
+			widths[i] = values[i] == null ? 1 : values[i].getWidth();
+		}
+		writer = new VcdWriter(FileChannel.open(file.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING), circuitState
+				.getCircuit().getName(), names, widths);
+		writer.sample(ticks, values);
+	}
+
+	public synchronized void close() {
+		if (writer != null) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+			}
+			writer = null;
+		}
+	}
+
+	public synchronized void propagationCompleted(SimulatorEvent e) {
+		if (writer == null)
+			return;
+		for (int i = 0; i < items.length; i++) {
+			values[i] = items[i].fetchValue(circuitState);
+		}
+		try {
+			writer.sample(ticks, values);
+		} catch (final IOException ex) {
+			close();
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					owner.vcdFailed(VcdRecorder.this, ex);
+				}
+			});
+		}
+	}
+
+	public void simulatorStateChanged(SimulatorEvent e) {
+	}
+
+	public synchronized void tickCompleted(SimulatorEvent e) {
+		ticks++;
+	}
+}
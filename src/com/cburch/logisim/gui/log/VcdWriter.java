@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.gui.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Date;
+
+import com.cburch.logisim.Main;
+import com.cburch.logisim.data.Value;
+
+/**
+ * Writes signal values as a Value Change Dump, the format read by standard
+ * waveform viewers. Only the signals that changed since the previous sample
+ * are written, each time stamped with the sample's time.
+ */
+public class VcdWriter {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static byte[] createIdentifier(int index) {
+		// printable characters from '!' to '~' used as base 94 digits
+		StringBuilder ret = new StringBuilder();
+		do {
+			ret.append((char) ('!' + index % 94));
+			index = index / 94 - 1;
+		} while (index >= 0);
+		return ascii(ret.toString());
+	}
+
+	private static byte[] ascii(String s) {
+		byte[] ret = new byte[s.length()];
+		for (int i = 0; i < ret.length; i++) {
+			char c = s.charAt(i);
+			ret[i] = (byte) (c < 128 ? c : '?');
+		}
+		return ret;
+	}
+
+	private static byte bitChar(Value bit) {
+		if (bit == Value.TRUE)
+			return '1';
+		else if (bit == Value.FALSE)
+			return '0';
+		else if (bit == Value.ERROR)
+			return 'x';
+		else
+			return 'z'; // floating
+	}
+
+	private WritableByteChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private byte[][] ids;
+	private Value[] last;
+	private long lastTime = -1;
+
+	public VcdWriter(WritableByteChannel channel, String scope,
+			String[] names, int[] widths) throws IOException {
+		this.channel = channel;
+		this.ids = new byte[names.length][];
+		this.last = new Value[names.length];
+
+		put("$date\n\t" + new Date() + "\n$end\n");
+		put("$version\n\tLogisim-evolution " + Main.VERSION_NAME + "\n$end\n");
+		put("$timescale 1ns $end\n");
+		put("$scope module " + reference(scope) + " $end\n");
+		for (int i = 0; i < names.length; i++) {
+			ids[i] = createIdentifier(i);
+			put("$var wire " + Math.max(widths[i], 1) + " ");
+			put(ids[i]);
+			put(" " + reference(names[i]) + " $end\n");
+		}
+		put("$upscope $end\n$enddefinitions $end\n");
+	}
+
+	public void close() throws IOException {
+		flush();
+		channel.close();
+	}
+
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			flush();
+			if (buffer.capacity() < bytes)
+				buffer = ByteBuffer.allocate(bytes);
+		}
+	}
+
+	public void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private void put(byte[] bytes) throws IOException {
+		ensure(bytes.length);
+		buffer.put(bytes);
+	}
+
+	private void put(String s) throws IOException {
+		put(ascii(s));
+	}
+
+	private void putValue(Value value, byte[] id) throws IOException {
+		int width = value.getWidth();
+		ensure(width + id.length + 3);
+		if (width <= 1) {
+			buffer.put(width == 0 ? (byte) 'z' : bitChar(value));
+		} else if (value.isFullyDefined()) {
+			// leading zeros may be left out
+			long bits = value.toLongValue();
+			buffer.put((byte) 'b');
+			int i = 63 - Long.numberOfLeadingZeros(bits);
+			if (i < 0)
+				buffer.put((byte) '0');
+			for (; i >= 0; i--) {
+				buffer.put((byte) (((bits >> i) & 1) != 0 ? '1' : '0'));
+			}
+			buffer.put((byte) ' ');
+		} else {
+			buffer.put((byte) 'b');
+			for (int i = width - 1; i >= 0; i--) {
+				buffer.put(bitChar(value.get(i)));
+			}
+			buffer.put((byte) ' ');
+		}
+		buffer.put(id);
+		buffer.put((byte) '\n');
+	}
+
+	private String reference(String name) {
+		StringBuilder ret = new StringBuilder();
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			ret.append(Character.isWhitespace(c) ? '_' : c);
+		}
+		return ret.length() == 0 ? "_" : ret.toString();
+	}
+
+	/**
+	 * Records the values at the given time, which must not decrease between
+	 * calls. A null value leaves the signal unchanged.
+	 */
+	public void sample(long time, Value[] values) throws IOException {
+		boolean first = lastTime < 0;
+		boolean stamped = false;
+		for (int i = 0; i < values.length && i < last.length; i++) {
+			Value value = values[i];
+			if (value == null || value.equals(last[i]))
+				continue;
+			if (!stamped) {
+				if (time != lastTime || first)
+					put("#" + time + "\n");
+				if (first)
+					put("$dumpvars\n");
+				stamped = true;
+			}
+			putValue(value, ids[i]);
+			last[i] = value;
+		}
+		if (first && stamped)
+			put("$end\n");
+		if (stamped)
+			lastTime = time;
+	}
+}
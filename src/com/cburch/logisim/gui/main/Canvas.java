@@ -63,6 +63,7 @@ import com.cburch.logisim.circuit.CircuitEvent;
 import com.cburch.logisim.circuit.CircuitListener;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.circuit.Simulator;
 import com.cburch.logisim.circuit.SimulatorEvent;
 import com.cburch.logisim.circuit.SimulatorListener;
 import com.cburch.logisim.circuit.SubcircuitFactory;
@@ -440,8 +441,6 @@ public class Canvas extends JPanel implements LocaleListener,
 			}
 		}
 
-		long lastPaint = 0;
-
 		@Override
 		public void propagationCompleted(SimulatorEvent e) {
 			/*
@@ -454,10 +453,7 @@ public class Canvas extends JPanel implements LocaleListener,
 			 * Math.random()); // repaintDuration is for jittering the repaints
 			 * to // reduce aliasing effects repaint(); }
 			 */
-			if(System.currentTimeMillis() > lastPaint + 50) {
-				lastPaint = System.currentTimeMillis();
-				paintThread.requestRepaint();
-			}
+			paintThread.requestValuesRepaint();
 		}
 
 		@Override
@@ -595,6 +591,12 @@ public class Canvas extends JPanel implements LocaleListener,
 
 		}
 
+		void repaintTickRate() {
+			FontMetrics fm = getFontMetrics(TICK_RATE_FONT);
+			int w = fm.stringWidth("000.0 MHz") + 10;
+			repaint(getWidth() - w, 0, w, fm.getHeight() + 10);
+		}
+
 		private void paintString(Graphics g, String msg) {
 			Font old = g.getFont();
 			g.setFont(old.deriveFont(Font.BOLD).deriveFont(18.0f));
@@ -700,6 +702,8 @@ public class Canvas extends JPanel implements LocaleListener,
 	private static final Color DEFAULT_ERROR_COLOR = new Color(192, 0, 0);
 	private static final Color TICK_RATE_COLOR = new Color(0, 0, 92, 92);
 	private static final Font TICK_RATE_FONT = new Font("serif", Font.BOLD, 12);
+	// wire and connection dot extent beyond the changed components' bounds
+	private static final int CHANGE_MARGIN = 7;
 	// public static BufferedImage image;
 	private Project proj;
 	private Tool drag_tool;
@@ -723,6 +727,8 @@ public class Canvas extends JPanel implements LocaleListener,
 
 	private Object repaintLock = new Object(); // for waitForRepaintDone
 
+	private CircuitState trackedState = null; // for repaintChangedValues
+
 	public Canvas(Project proj) {
 		this.proj = proj;
 		this.selection = new Selection(proj, this);
@@ -1092,6 +1098,40 @@ public class Canvas extends JPanel implements LocaleListener,
 		}
 	}
 
+	/**
+	 * Repaints the area whose values changed since the previous call, or the
+	 * whole canvas when that area is unknown. Called from the paint thread;
+	 * with paint false, the changes are only forgotten.
+	 */
+	void repaintChangedValues(boolean paint) {
+		CircuitState state = getCircuitState();
+		if (state != trackedState) {
+			if (trackedState != null)
+				trackedState.setTrackingChanges(false);
+			trackedState = state;
+			if (state != null)
+				state.setTrackingChanges(true);
+		}
+		Bounds bds = state == null ? null : state.getChangedBounds();
+		if (!paint)
+			return;
+		Simulator sim = proj.getSimulator();
+		if (bds == null || sim == null || !sim.isRunning()
+				|| sim.isOscillating()) {
+			// oscillation and step points are drawn over the whole circuit
+			repaint();
+			return;
+		}
+		if (bds != Bounds.EMPTY_BOUNDS) {
+			bds = bds.expand(CHANGE_MARGIN);
+			repaint(new Rectangle(bds.getX(), bds.getY(), bds.getWidth(),
+					bds.getHeight()));
+		}
+		if (sim.isTicking() && AppPreferences.SHOW_TICK_RATE.getBoolean()) {
+			viewport.repaintTickRate();
+		}
+	}
+
 	private void repairMouseEvent(MouseEvent e) {
 		double zoom = getZoomFactor();
 		if (zoom != 1.0) {
@@ -41,6 +41,8 @@ class CanvasPaintThread extends UniquelyNamedThread {
 	private boolean repaintRequested;
 	private long nextRepaint;
 	private boolean alive;
+	private boolean repaintAll;
+	private boolean repaintValues;
 	private Rectangle repaintRectangle;
 
 	public CanvasPaintThread(Canvas canvas) {
@@ -52,27 +54,42 @@ class CanvasPaintThread extends UniquelyNamedThread {
 		nextRepaint = System.currentTimeMillis();
 	}
 
-	public void requentRepaint(Rectangle rect) {
+	public void requestRepaint(Rectangle rect) {
 		synchronized (lock) {
-			if (repaintRequested) {
-				if (repaintRectangle != null) {
+			if (!repaintAll) {
+				if (repaintRectangle == null) {
+					repaintRectangle = new Rectangle(rect);
+				} else {
 					repaintRectangle.add(rect);
 				}
-			} else {
-				repaintRequested = true;
-				repaintRectangle = rect;
-				lock.notifyAll();
 			}
+			request();
 		}
 	}
 
 	public void requestRepaint() {
 		synchronized (lock) {
-			if (!repaintRequested) {
-				repaintRequested = true;
-				repaintRectangle = null;
-				lock.notifyAll();
-			}
+			repaintAll = true;
+			repaintRectangle = null;
+			request();
+		}
+	}
+
+	/**
+	 * Requests a repaint of what the simulation changed, as reported by
+	 * {@link Canvas#repaintChangedValues(boolean)}.
+	 */
+	public void requestValuesRepaint() {
+		synchronized (lock) {
+			repaintValues = true;
+			request();
+		}
+	}
+
+	private void request() {
+		if (!repaintRequested) {
+			repaintRequested = true;
+			lock.notifyAll();
 		}
 	}
 
@@ -87,6 +104,9 @@ class CanvasPaintThread extends UniquelyNamedThread {
 	public void run() {
 		while (alive) {
 			long now = System.currentTimeMillis();
+			boolean all;
+			boolean values;
+			Rectangle rect;
 			synchronized (lock) {
 				long wait = nextRepaint - now;
 				while (alive && !(repaintRequested && wait <= 0)) {
@@ -105,8 +125,22 @@ class CanvasPaintThread extends UniquelyNamedThread {
 					break;
 				repaintRequested = false;
 				nextRepaint = now + REPAINT_TIMESPAN;
+				all = repaintAll;
+				values = repaintValues;
+				rect = repaintRectangle;
+				repaintAll = false;
+				repaintValues = false;
+				repaintRectangle = null;
+			}
+			if (values) {
+				// collect the changes even if all will be repainted anyway
+				canvas.repaintChangedValues(!all);
+			}
+			if (all) {
+				canvas.repaint();
+			} else if (rect != null) {
+				canvas.repaint(rect);
 			}
-			canvas.repaint();
 		}
 	}
 }
@@ -46,6 +46,8 @@ import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
 
 import com.bfh.logisim.designrulecheck.CorrectLabel;
 import com.cburch.logisim.analyze.gui.Analyzer;
@@ -69,6 +71,42 @@ import com.cburch.logisim.util.StringUtil;
 import com.cburch.logisim.util.SyntaxChecker;
 
 public class ProjectCircuitActions {
+	private static class TableThread extends Thread {
+		private Project proj;
+		private Circuit circuit;
+		private Analyzer analyzer;
+		private Map<Instance, String> pinNames;
+		private ProgressMonitor monitor;
+
+		TableThread(Project proj, Circuit circuit, Analyzer analyzer,
+				Map<Instance, String> pinNames, ProgressMonitor monitor) {
+			super("TableThread");
+			this.proj = proj;
+			this.circuit = circuit;
+			this.analyzer = analyzer;
+			this.pinNames = pinNames;
+			this.monitor = monitor;
+		}
+
+		@Override
+		public void run() {
+			boolean computed = false;
+			try {
+				computed = Analyze.computeTable(analyzer.getModel(), proj,
+						circuit, pinNames, monitor);
+			} finally {
+				final boolean done = computed;
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						monitor.close();
+						if (done)
+							analyzer.setSelectedTab(Analyzer.TABLE_TAB);
+					}
+				});
+			}
+		}
+	}
+
 	private static void analyzeError(Project proj, String message) {
 		JOptionPane.showMessageDialog(proj.getFrame(), message,
 				Strings.get("analyzeErrorTitle"), JOptionPane.ERROR_MESSAGE);
@@ -103,9 +141,15 @@ public class ProjectCircuitActions {
 					JOptionPane.INFORMATION_MESSAGE);
 		}
 
-		// As a backup measure, we compute a truth table.
-		Analyze.computeTable(analyzer.getModel(), proj, circuit, pinNames);
-		analyzer.setSelectedTab(Analyzer.TABLE_TAB);
+		// As a backup measure, we compute a truth table. This is done in
+		// a thread so that Swing will update the monitor.
+		ProgressMonitor monitor = new ProgressMonitor(proj.getFrame(),
+				Strings.get("analyzeTableProgress"), null, 0,
+				1 << inputNames.size());
+		monitor.setMillisToDecideToPopup(100);
+		monitor.setMillisToPopup(200);
+		monitor.setProgress(0);
+		new TableThread(proj, circuit, analyzer, pinNames, monitor).start();
 	}
 
 	public static void doAddCircuit(Project proj) {
@@ -85,11 +85,33 @@ class SimulateOptions extends OptionsPanel {
 							OptionsActions.setAttribute(attrs,
 									Options.ATTR_TICK_MAIN, opt.getValue()));
 				}
+			} else if (source == simEngine) {
+				ComboOption opt = (ComboOption) simEngine.getSelectedItem();
+				if (opt != null) {
+					AttributeSet attrs = getOptions().getAttributeSet();
+					getProject().doAction(
+							OptionsActions.setAttribute(attrs,
+									Options.ATTR_SIM_ENGINE, opt.getValue()));
+				}
+			} else if (source == simCompiled) {
+				AttributeSet attrs = getOptions().getAttributeSet();
+				getProject().doAction(
+						OptionsActions.setAttribute(attrs,
+								Options.ATTR_SIM_COMPILED,
+								Boolean.valueOf(simCompiled.isSelected())));
+			} else if (source == simParallel) {
+				AttributeSet attrs = getOptions().getAttributeSet();
+				getProject().doAction(
+						OptionsActions.setAttribute(attrs,
+								Options.ATTR_SIM_PARALLEL,
+								Boolean.valueOf(simParallel.isSelected())));
 			} else if (source == MemUnknown) {
 				AppPreferences.Memory_Startup_Unknown.set(MemUnknown.isSelected());
 				Simulator sim = getProject().getSimulator();
 				if (sim != null)
 					sim.requestReset();
+			} else if (source == MemDeferred) {
+				AppPreferences.Memory_Deferred_View.set(MemDeferred.isSelected());
 			}
 		}
 
@@ -103,6 +125,12 @@ class SimulateOptions extends OptionsPanel {
 				loadSimLimit((Integer) val);
 			} else if (attr == Options.sim_rand_attr) {
 				loadSimRandomness((Integer) val);
+			} else if (attr == Options.ATTR_SIM_ENGINE) {
+				loadSimEngine(val);
+			} else if (attr == Options.ATTR_SIM_COMPILED) {
+				loadSimCompiled((Boolean) val);
+			} else if (attr == Options.ATTR_SIM_PARALLEL) {
+				loadSimParallel((Boolean) val);
 			}
 		}
 
@@ -122,6 +150,18 @@ class SimulateOptions extends OptionsPanel {
 			}
 		}
 
+		private void loadSimCompiled(Boolean val) {
+			simCompiled.setSelected(val.booleanValue());
+		}
+
+		private void loadSimEngine(Object val) {
+			ComboOption.setSelected(simEngine, val);
+		}
+
+		private void loadSimParallel(Boolean val) {
+			simParallel.setSelected(val.booleanValue());
+		}
+
 		private void loadSimRandomness(Integer val) {
 			simRandomness.setSelected(val.intValue() > 0);
 		}
@@ -143,7 +183,10 @@ class SimulateOptions extends OptionsPanel {
 			Integer.valueOf(10000), Integer.valueOf(20000),
 			Integer.valueOf(50000), });
 	private JCheckBox simRandomness = new JCheckBox();
+	private JCheckBox simCompiled = new JCheckBox();
+	private JCheckBox simParallel = new JCheckBox();
 	private JCheckBox MemUnknown = new JCheckBox();
+	private JCheckBox MemDeferred = new JCheckBox();
 	private JLabel gateUndefinedLabel = new JLabel();
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	private JComboBox gateUndefined = new JComboBox(new Object[] {
@@ -154,6 +197,11 @@ class SimulateOptions extends OptionsPanel {
 	private JComboBox tickMainStep = new JComboBox(new Object[] {
 			new ComboOption(Options.TICK_MAIN_HALF_PERIOD),
 			new ComboOption(Options.TICK_MAIN_PERIOD) });
+	private JLabel simEngineLabel = new JLabel();
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private JComboBox simEngine = new JComboBox(new Object[] {
+			new ComboOption(Options.SIM_ENGINE_CLASSIC),
+			new ComboOption(Options.SIM_ENGINE_WHEEL) });
 
 	public SimulateOptions(OptionsFrame window) {
 		super(window);
@@ -170,21 +218,34 @@ class SimulateOptions extends OptionsPanel {
 		gateUndefined.addActionListener(myListener);
 
 		simRandomness.addActionListener(myListener);
+		simCompiled.addActionListener(myListener);
+		simParallel.addActionListener(myListener);
 		
 		MemUnknown.addActionListener(myListener);
 		MemUnknown.setSelected(AppPreferences.Memory_Startup_Unknown.get());
+		MemDeferred.addActionListener(myListener);
+		MemDeferred.setSelected(AppPreferences.Memory_Deferred_View.get());
 
 		JPanel tickMainPanel = new JPanel();
 		tickMainPanel.add(tickMainLabel);
 		tickMainPanel.add(tickMainStep);
 		tickMainStep.addActionListener(myListener);
 
+		JPanel simEnginePanel = new JPanel();
+		simEnginePanel.add(simEngineLabel);
+		simEnginePanel.add(simEngine);
+		simEngine.addActionListener(myListener);
+
 		setLayout(new TableLayout(1));
 		add(MemUnknown);
+		add(MemDeferred);
 		add(simLimitPanel);
 		add(gateUndefinedPanel);
 		add(simRandomness);
 		add(tickMainPanel);
+		add(simEnginePanel);
+		add(simCompiled);
+		add(simParallel);
 
 		window.getOptions().getAttributeSet().addAttributeListener(myListener);
 		AttributeSet attrs = getOptions().getAttributeSet();
@@ -193,6 +254,9 @@ class SimulateOptions extends OptionsPanel {
 				.getValue(Options.ATTR_GATE_UNDEFINED));
 		myListener.loadSimRandomness(attrs.getValue(Options.sim_rand_attr));
 		myListener.loadTickMain(attrs.getValue(Options.ATTR_TICK_MAIN));
+		myListener.loadSimEngine(attrs.getValue(Options.ATTR_SIM_ENGINE));
+		myListener.loadSimCompiled(attrs.getValue(Options.ATTR_SIM_COMPILED));
+		myListener.loadSimParallel(attrs.getValue(Options.ATTR_SIM_PARALLEL));
 	}
 
 	@Override
@@ -211,6 +275,10 @@ class SimulateOptions extends OptionsPanel {
 		gateUndefinedLabel.setText(Strings.get("gateUndefined"));
 		simRandomness.setText(Strings.get("simulateRandomness"));
 		tickMainLabel.setText(Strings.get("mainTick"));
+		simEngineLabel.setText(Strings.get("simulateEngine"));
+		simCompiled.setText(Strings.get("simulateCompiled"));
+		simParallel.setText(Strings.get("simulateParallel"));
 		MemUnknown.setText(Strings.get("MemoriesStartupUnknown"));
+		MemDeferred.setText(Strings.get("MemoriesDeferredView"));
 	}
 }
@@ -167,6 +167,12 @@ public class Startup implements AWTEventListener {
 							ret.ttyFormat |= TtyInterface.FORMAT_HALT;
 						} else if (fmt.equals("stats")) {
 							ret.ttyFormat |= TtyInterface.FORMAT_STATISTICS;
+						} else if (fmt.equals("csv")) {
+							ret.ttyFormat |= TtyInterface.FORMAT_CSV;
+						} else if (fmt.equals("binary")) {
+							ret.ttyFormat |= TtyInterface.FORMAT_BINARY;
+						} else if (fmt.equals("vcd")) {
+							ret.ttyFormat |= TtyInterface.FORMAT_VCD;
 						} else {
 							logger.error("{}", Strings.get("ttyFormatError"));
 						}
@@ -175,6 +181,32 @@ public class Startup implements AWTEventListener {
 					logger.error("{}", Strings.get("ttyFormatError"));
 					return null;
 				}
+			} else if (arg.equals("-ticks") || arg.equals("-report")) {
+				long count = -1;
+				if (i + 1 < args.length) {
+					i++;
+					try {
+						count = Long.parseLong(args[i]);
+					} catch (NumberFormatException e) {
+					}
+				}
+				if (count <= 0) {
+					logger.error("{}", Strings.get("ttyCountError", arg));
+					return null;
+				}
+				if (arg.equals("-ticks"))
+					ret.ttyTicks = count;
+				else
+					ret.ttyReport = count;
+			} else if (arg.equals("-stop")) {
+				int eq = i + 1 < args.length ? args[i + 1].indexOf('=') : -1;
+				if (eq <= 0 || eq == args[i + 1].length() - 1) {
+					logger.error("{}", Strings.get("ttyStopError"));
+					return null;
+				}
+				i++;
+				ret.ttyStopPin = args[i].substring(0, eq);
+				ret.ttyStopValue = args[i].substring(eq + 1);
 			} else if (arg.equals("-sub")) {
 				if (i + 2 < args.length) {
 					File a = new File(args[i + 1]);
@@ -388,6 +420,11 @@ public class Startup implements AWTEventListener {
 			logger.error("{}", Strings.get("loadNeedsTtyError"));
 			return null;
 		}
+		if ((ret.ttyTicks > 0 || ret.ttyReport > 0 || ret.ttyStopPin != null)
+				&& !ret.isTty) {
+			logger.error("{}", Strings.get("runNeedsTtyError"));
+			return null;
+		}
 
 		return ret;
 	}
@@ -410,6 +447,9 @@ public class Startup implements AWTEventListener {
 		System.err.println("   " + Strings.get("argSubOption")); // OK
 		System.err.println("   " + Strings.get("argTemplateOption")); // OK
 		System.err.println("   " + Strings.get("argTtyOption")); // OK
+		System.err.println("   " + Strings.get("argTicksOption")); // OK
+		System.err.println("   " + Strings.get("argStopOption")); // OK
+		System.err.println("   " + Strings.get("argReportOption")); // OK
 		System.err.println("   " + Strings.get("argQuestaOption")); // OK
 		System.err.println("   " + Strings.get("argVersionOption")); // OK
 		System.err.println("   " + Strings.get("argTestCircGen")); // OK
@@ -475,6 +515,10 @@ public class Startup implements AWTEventListener {
 	private File loadFile;
 	private HashMap<File, File> substitutions = new HashMap<File, File>();
 	private int ttyFormat = 0;
+	private long ttyTicks = 0;
+	private long ttyReport = 0;
+	private String ttyStopPin = null;
+	private String ttyStopValue = null;
 	// from other sources
 	private boolean initialized = false;
 	private SplashScreen monitor = null;
@@ -753,6 +797,22 @@ public class Startup implements AWTEventListener {
 		return ttyFormat;
 	}
 
+	long getTtyReport() {
+		return ttyReport;
+	}
+
+	String getTtyStopPin() {
+		return ttyStopPin;
+	}
+
+	String getTtyStopValue() {
+		return ttyStopValue;
+	}
+
+	long getTtyTicks() {
+		return ttyTicks;
+	}
+
 	private void loadTemplate(Loader loader, File templFile, boolean templEmpty) {
 		if (showSplash) {
 			monitor.setProgress(SplashScreen.TEMPLATE_OPEN);
@@ -30,9 +30,15 @@
 
 package com.cburch.logisim.gui.start;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Map;
@@ -50,6 +56,7 @@ import com.cburch.logisim.file.FileStatistics;
 import com.cburch.logisim.file.LoadFailedException;
 import com.cburch.logisim.file.Loader;
 import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.gui.log.VcdWriter;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.proj.Project;
@@ -105,6 +112,143 @@ public class TtyInterface {
 		}
 	}
 
+	// Writes the values of the output pins, one row each time they change.
+	private static abstract class RowWriter {
+		void close() throws IOException {
+		}
+
+		abstract void writeHeader(String[] names, Value[] values)
+				throws IOException;
+
+		abstract void writeRow(long tick, Value[] values) throws IOException;
+	}
+
+	private static class TableWriter extends RowWriter {
+		private StringBuilder line = new StringBuilder();
+
+		@Override
+		void writeHeader(String[] names, Value[] values) {
+		}
+
+		@Override
+		void writeRow(long tick, Value[] values) {
+			line.setLength(0);
+			for (int i = 0; i < values.length; i++) {
+				if (i != 0)
+					line.append('\t');
+				line.append(values[i]);
+			}
+			System.out.println(line); // OK
+		}
+	}
+
+	private static class CsvWriter extends RowWriter {
+		private Writer out = new BufferedWriter(new OutputStreamWriter(
+				System.out), BUFFER_SIZE);
+
+		@Override
+		void close() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		void writeHeader(String[] names, Value[] values) throws IOException {
+			out.write("tick");
+			for (String name : names) {
+				out.write(',');
+				if (name.indexOf(',') >= 0 || name.indexOf('"') >= 0) {
+					out.write('"' + name.replace("\"", "\"\"") + '"');
+				} else {
+					out.write(name);
+				}
+			}
+			out.write('\n');
+		}
+
+		@Override
+		void writeRow(long tick, Value[] values) throws IOException {
+			out.write(Long.toString(tick));
+			for (Value value : values) {
+				out.write(',');
+				out.write(value.toBinaryString());
+			}
+			out.write('\n');
+		}
+	}
+
+	// A header with the pin names and widths, then for every row the tick
+	// followed by each value: a zero byte and the value as an int, or a one
+	// byte and the value's binary string when some bits are not 0 or 1.
+	private static class BinaryWriter extends RowWriter {
+		private static final int MAGIC = 0x4C545243; // "LTRC"
+
+		private DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(System.out, BUFFER_SIZE));
+
+		@Override
+		void close() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		void writeHeader(String[] names, Value[] values) throws IOException {
+			out.writeInt(MAGIC);
+			out.writeInt(names.length);
+			for (int i = 0; i < names.length; i++) {
+				out.writeUTF(names[i]);
+				out.writeByte(values[i].getWidth());
+			}
+		}
+
+		@Override
+		void writeRow(long tick, Value[] values) throws IOException {
+			out.writeLong(tick);
+			for (Value value : values) {
+				if (value.isFullyDefined()) {
+					// the header's width tells a reader which size to expect
+					out.writeByte(0);
+					if (value.getWidth() > 32) {
+						out.writeLong(value.toLongValue());
+					} else {
+						out.writeInt(value.toIntValue());
+					}
+				} else {
+					out.writeByte(1);
+					out.writeUTF(value.toBinaryString());
+				}
+			}
+		}
+	}
+
+	private static class VcdRowWriter extends RowWriter {
+		private String scope;
+		private VcdWriter vcd;
+
+		VcdRowWriter(String scope) {
+			this.scope = scope;
+		}
+
+		@Override
+		void close() throws IOException {
+			vcd.flush();
+		}
+
+		@Override
+		void writeHeader(String[] names, Value[] values) throws IOException {
+			int[] widths = new int[values.length];
+			for (int i = 0; i < values.length; i++) {
+				widths[i] = values[i].getWidth();
+			}
+			vcd = new VcdWriter(Channels.newChannel(System.out), scope,
+					names, widths);
+		}
+
+		@Override
+		void writeRow(long tick, Value[] values) throws IOException {
+			vcd.sample(tick, values);
+		}
+	}
+
 	private static int countDigits(int num) {
 		int digits = 1;
 		int lessThan = 10;
@@ -116,7 +260,7 @@ public class TtyInterface {
 	}
 
 	private static void displaySpeed(long tickCount, long elapse) {
-		double hertz = (double) tickCount / elapse * 1000.0;
+		double hertz = (double) tickCount / Math.max(elapse, 1) * 1000.0;
 		double precision;
 		if (hertz >= 100)
 			precision = 1.0;
@@ -130,9 +274,8 @@ public class TtyInterface {
 			precision = 0.0000001;
 		hertz = (int) (hertz / precision) * precision;
 		String hertzStr = hertz == (int) hertz ? "" + (int) hertz : "" + hertz;
-		Object[] paramArray = { StringUtil.format(Strings.get("ttySpeedMsg")),
-				hertzStr, tickCount, elapse };
-		logger.info("{}", paramArray);
+		logger.info("{}", StringUtil.format(Strings.get("ttySpeedMsg"),
+				hertzStr, "" + tickCount, "" + elapse));
 	}
 
 	private static void displayStatistics(LogisimFile file) {
@@ -169,31 +312,6 @@ public class TtyInterface {
 				Strings.get("statsTotalWith"));
 	}
 
-	private static void displayTableRow(ArrayList<Value> prevOutputs,
-			ArrayList<Value> curOutputs) {
-		boolean shouldPrint = false;
-		if (prevOutputs == null) {
-			shouldPrint = true;
-		} else {
-			for (int i = 0; i < curOutputs.size(); i++) {
-				Value a = prevOutputs.get(i);
-				Value b = curOutputs.get(i);
-				if (!a.equals(b)) {
-					shouldPrint = true;
-					break;
-				}
-			}
-		}
-		if (shouldPrint) {
-			for (int i = 0; i < curOutputs.size(); i++) {
-				if (i != 0)
-					System.out.print("\t"); // OK
-				System.out.print(curOutputs.get(i)); // OK
-			}
-			System.out.println(); // OK
-		}
-	}
-
 	private static void ensureLineTerminated() {
 		if (!lastIsNewline) {
 			lastIsNewline = true;
@@ -271,17 +389,40 @@ public class TtyInterface {
 		Circuit circuit = file.getMainCircuit();
 		Map<Instance, String> pinNames = Analyze.getPinLabels(circuit);
 		ArrayList<Instance> outputPins = new ArrayList<Instance>();
+		ArrayList<String> outputNames = new ArrayList<String>();
 		Instance haltPin = null;
+		Instance stopPin = null;
 		for (Map.Entry<Instance, String> entry : pinNames.entrySet()) {
 			Instance pin = entry.getKey();
 			String pinName = entry.getValue();
 			if (!Pin.FACTORY.isInputPin(pin)) {
-				outputPins.add(pin);
 				if (pinName.equals("halt")) {
 					haltPin = pin;
+				} else {
+					outputPins.add(pin);
+					outputNames.add(pinName);
+				}
+				if (pinName.equals(args.getTtyStopPin())) {
+					stopPin = pin;
 				}
 			}
 		}
+		Value stopValue = null;
+		if (args.getTtyStopPin() != null) {
+			if (stopPin == null) {
+				logger.error("{}", Strings.get("ttyStopPinError",
+						args.getTtyStopPin()));
+				System.exit(-1);
+			}
+			try {
+				stopValue = Value.fromLogString(Pin.FACTORY.getWidth(stopPin),
+						args.getTtyStopValue());
+			} catch (Exception e) {
+				logger.error("{}", Strings.get("ttyStopValueError",
+						e.getMessage()));
+				System.exit(-1);
+			}
+		}
 
 		CircuitState circState = new CircuitState(proj, circuit);
 		// we have to do our initial propagation before the simulation starts -
@@ -300,12 +441,16 @@ public class TtyInterface {
 			}
 		}
 		int ttyFormat = args.getTtyFormat();
-		int simCode = runSimulation(circState, outputPins, haltPin, ttyFormat);
+		int simCode = runSimulation(circState, outputPins, outputNames,
+				haltPin, stopPin, stopValue, args.getTtyTicks(),
+				args.getTtyReport(), ttyFormat);
 		System.exit(simCode);
 	}
 
 	private static int runSimulation(CircuitState circState,
-			ArrayList<Instance> outputPins, Instance haltPin, int format) {
+			ArrayList<Instance> outputPins, ArrayList<String> outputNames,
+			Instance haltPin, Instance stopPin, Value stopValue,
+			long maxTicks, long reportTicks, int format) {
 		boolean showTable = (format & FORMAT_TABLE) != 0;
 		boolean showSpeed = (format & FORMAT_SPEED) != 0;
 		boolean showTty = (format & FORMAT_TTY) != 0;
@@ -328,57 +473,109 @@ public class TtyInterface {
 			}
 		}
 
+		RowWriter writer = null;
+		if ((format & FORMAT_VCD) != 0) {
+			writer = new VcdRowWriter(circState.getCircuit().getName());
+		} else if ((format & FORMAT_BINARY) != 0) {
+			writer = new BinaryWriter();
+		} else if ((format & FORMAT_CSV) != 0) {
+			writer = new CsvWriter();
+		} else if (showTable) {
+			writer = new TableWriter();
+		}
+
+		// the pin states are looked up once, and the rows are written from
+		// two buffers that are swapped whenever the outputs change
+		int outputCount = outputPins.size();
+		InstanceState[] outputStates = new InstanceState[outputCount];
+		Value[] curOutputs = new Value[outputCount];
+		Value[] prevOutputs = new Value[outputCount];
+		for (int i = 0; i < outputCount; i++) {
+			outputStates[i] = circState.getInstanceState(outputPins.get(i));
+			curOutputs[i] = Pin.FACTORY.getValue(outputStates[i]);
+		}
+		InstanceState haltState = haltPin == null ? null : circState
+				.getInstanceState(haltPin);
+		InstanceState stopState = stopPin == null ? null : circState
+				.getInstanceState(stopPin);
+
 		int retCode;
+		String haltReason;
 		long tickCount = 0;
 		long start = System.currentTimeMillis();
-		boolean halted = false;
-		ArrayList<Value> prevOutputs = null;
+		long lastReport = start;
 		Propagator prop = circState.getPropagator();
-		while (true) {
-			ArrayList<Value> curOutputs = new ArrayList<Value>();
-			for (Instance pin : outputPins) {
-				InstanceState pinState = circState.getInstanceState(pin);
-				Value val = Pin.FACTORY.getValue(pinState);
-				if (pin == haltPin) {
-					halted |= val.equals(Value.TRUE);
-				} else if (showTable) {
-					curOutputs.add(val);
-				}
-			}
-			if (showTable) {
-				displayTableRow(prevOutputs, curOutputs);
+		try {
+			if (writer != null) {
+				writer.writeHeader(outputNames.toArray(new String[outputCount]),
+						curOutputs);
 			}
+			while (true) {
+				if (writer != null) {
+					boolean changed = false;
+					for (int i = 0; i < outputCount; i++) {
+						Value val = Pin.FACTORY.getValue(outputStates[i]);
+						curOutputs[i] = val;
+						changed |= !val.equals(prevOutputs[i]);
+					}
+					if (changed) {
+						writer.writeRow(tickCount, curOutputs);
+						Value[] swap = prevOutputs;
+						prevOutputs = curOutputs;
+						curOutputs = swap;
+					}
+				}
 
-			if (halted) {
-				retCode = 0; // normal exit
-				break;
-			}
-			if (prop.isOscillating()) {
-				retCode = 1; // abnormal exit
-				break;
-			}
-			if (keyboardStates != null) {
-				char[] buffer = stdinThread.getBuffer();
-				if (buffer != null) {
-					for (InstanceState keyState : keyboardStates) {
-						Keyboard.addToBuffer(keyState, buffer);
+				if (haltState != null
+						&& Pin.FACTORY.getValue(haltState).equals(Value.TRUE)) {
+					retCode = 0; // normal exit
+					haltReason = "ttyHaltReasonPin";
+					break;
+				}
+				if (stopState != null
+						&& Pin.FACTORY.getValue(stopState).equals(stopValue)) {
+					retCode = 0;
+					haltReason = "ttyHaltReasonStop";
+					break;
+				}
+				if (prop.isOscillating()) {
+					retCode = 1; // abnormal exit
+					haltReason = "ttyHaltReasonOscillation";
+					break;
+				}
+				if (maxTicks > 0 && tickCount >= maxTicks) {
+					retCode = 0;
+					haltReason = "ttyHaltReasonTicks";
+					break;
+				}
+				if (keyboardStates != null) {
+					char[] buffer = stdinThread.getBuffer();
+					if (buffer != null) {
+						for (InstanceState keyState : keyboardStates) {
+							Keyboard.addToBuffer(keyState, buffer);
+						}
 					}
 				}
+				tickCount++;
+				prop.tick();
+				prop.propagate();
+				if (reportTicks > 0 && tickCount % reportTicks == 0) {
+					long now = System.currentTimeMillis();
+					displaySpeed(reportTicks, now - lastReport);
+					lastReport = now;
+				}
 			}
-			prevOutputs = curOutputs;
-			tickCount++;
-			prop.tick();
-			prop.propagate();
+			if (writer != null)
+				writer.close();
+		} catch (IOException e) {
+			logger.error("{}", Strings.get("ttyWriteError", e.toString()));
+			return -1;
 		}
 		long elapse = System.currentTimeMillis() - start;
 		if (showTty)
 			ensureLineTerminated();
 		if (showHalt || retCode != 0) {
-			if (retCode == 0) {
-				logger.error("{}", Strings.get("ttyHaltReasonPin"));
-			} else if (retCode == 1) {
-				logger.error("{}", Strings.get("ttyHaltReasonOscillation"));
-			}
+			logger.error("{}", Strings.get(haltReason));
 		}
 		if (showSpeed) {
 			displaySpeed(tickCount, elapse);
@@ -403,5 +600,13 @@ public class TtyInterface {
 
 	public static final int FORMAT_STATISTICS = 16;
 
+	public static final int FORMAT_CSV = 32;
+
+	public static final int FORMAT_BINARY = 64;
+
+	public static final int FORMAT_VCD = 128;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
 	private static boolean lastIsNewline = true;
 }
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+package com.cburch.logisim.gui.test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.data.TestException;
+import com.cburch.logisim.data.TestVector;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.util.UniquelyNamedThread;
+
+/**
+ * Runs the rows of a test vector on several threads, each with its own clone
+ * of the circuit state. Results are handed back in row order through
+ * {@link #getResult(int)}.
+ */
+class TestBatch {
+	private class Worker extends UniquelyNamedThread {
+		private CircuitState state;
+
+		Worker(CircuitState state) {
+			super("TestBatch");
+			this.state = state;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while (!canceled) {
+				while (paused && !canceled) {
+					try {
+						Thread.sleep(100);
+					} catch (InterruptedException e) {
+					}
+				}
+				int first = nextRow.getAndAdd(BLOCK_SIZE);
+				if (first >= rowCount)
+					return;
+				int last = Math.min(rowCount, first + BLOCK_SIZE);
+				for (int i = first; i < last && !canceled; i++) {
+					TestException result = null;
+					try {
+						circuit.doTestVector(state, pin, vector.data.get(i));
+					} catch (TestException e) {
+						result = e;
+					} catch (Throwable e) {
+						// reported as the row's failure, so that the reader
+						// waiting for it is not left hanging
+						result = new TestException(e.toString());
+					} finally {
+						synchronized (TestBatch.this) {
+							results[i] = result;
+							done[i] = true;
+							TestBatch.this.notifyAll();
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static final int BLOCK_SIZE = 16;
+
+	private Circuit circuit;
+	private Instance[] pin;
+	private TestVector vector;
+	private int rowCount;
+	private AtomicInteger nextRow = new AtomicInteger(0);
+	private TestException[] results;
+	private boolean[] done;
+	private Worker[] workers;
+	private volatile boolean canceled = false, paused = false;
+
+	TestBatch(CircuitState prototype, Instance[] pin, TestVector vector) {
+		this.circuit = prototype.getCircuit();
+		this.pin = pin;
+		this.vector = vector;
+		this.rowCount = vector.data.size();
+		this.results = new TestException[rowCount];
+		this.done = new boolean[rowCount];
+
+		int count = Math.min(Runtime.getRuntime().availableProcessors(),
+				(rowCount + BLOCK_SIZE - 1) / BLOCK_SIZE);
+		workers = new Worker[Math.max(count, 1)];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Worker(prototype.cloneState());
+		}
+	}
+
+	void cancel() {
+		canceled = true;
+		synchronized (this) {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Waits for the given row to be tested and returns its failure, or null
+	 * if it passed.
+	 */
+	synchronized TestException getResult(int row) throws InterruptedException {
+		while (!done[row]) {
+			if (canceled)
+				throw new InterruptedException();
+			wait();
+		}
+		return results[row];
+	}
+
+	int getRowCount() {
+		return rowCount;
+	}
+
+	void setPaused(boolean paused) {
+		this.paused = paused;
+	}
+
+	void start() {
+		for (Worker worker : workers) {
+			worker.start();
+		}
+	}
+}
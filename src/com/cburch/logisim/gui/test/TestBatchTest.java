@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.gui.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Wire;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.FailException;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.TestException;
+import com.cburch.logisim.data.TestVector;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+
+public class TestBatchTest {
+
+	private static final int ROWS = 100;
+
+	private File vectorFile;
+	private CircuitState prototype;
+	private Instance in;
+	private Instance out;
+
+	@Before
+	public void setUp() throws IOException {
+		// rows alternate between passing and failing
+		vectorFile = File.createTempFile("logisim-vector", ".txt");
+		FileWriter w = new FileWriter(vectorFile);
+		try {
+			w.write("A Y\n");
+			for (int i = 0; i < ROWS; i++)
+				w.write((i % 2) + " " + (i % 4 == 3 ? 0 : i % 2) + "\n");
+		} finally {
+			w.close();
+		}
+
+		LogisimFile file = LogisimFile.createNew(new Loader(null), null);
+		Project proj = new Project(file);
+		Circuit circuit = file.getMainCircuit();
+		Component a = pin(Location.create(100, 100), false, "A");
+		Component y = pin(Location.create(200, 100), true, "Y");
+		CircuitMutation m = new CircuitMutation(circuit);
+		m.add(a);
+		m.add(y);
+		m.add(Wire.create(Location.create(100, 100), Location.create(200,
+				100)));
+		m.execute();
+		prototype = new CircuitState(proj, circuit);
+		proj.setCircuitState(prototype);
+		in = Instance.getInstanceFor(a);
+		out = Instance.getInstanceFor(y);
+	}
+
+	@After
+	public void tearDown() {
+		vectorFile.delete();
+	}
+
+	private static Component pin(Location loc, boolean output, String label) {
+		AttributeSet attrs = Pin.FACTORY.createAttributeSet();
+		attrs.setValue(Pin.ATTR_TYPE, Boolean.valueOf(output));
+		attrs.setValue(StdAttr.LABEL, label);
+		return Pin.FACTORY.createComponent(loc, attrs);
+	}
+
+	@Test(timeout = 20000)
+	public void testResultsInRowOrder() throws Exception {
+		TestVector vector = new TestVector(vectorFile);
+		TestBatch batch = new TestBatch(prototype, new Instance[] { in, out },
+				vector);
+		batch.start();
+		assertEquals(ROWS, batch.getRowCount());
+		for (int i = 0; i < ROWS; i++) {
+			TestException result = batch.getResult(i);
+			if (i % 4 == 3)
+				assertTrue("row " + i, result instanceof FailException);
+			else
+				assertNull("row " + i, result);
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void testUnexpectedErrorIsReportedForTheRow() throws Exception {
+		TestVector vector = new TestVector(vectorFile);
+		// the missing pin makes every row throw a NullPointerException
+		TestBatch batch = new TestBatch(prototype, new Instance[] { in, null },
+				vector);
+		batch.start();
+		for (int i = 0; i < ROWS; i++) {
+			TestException result = batch.getResult(i);
+			assertNotNull("row " + i, result);
+			assertTrue(result.getMessage(), result.getMessage().contains(
+					"NullPointerException"));
+		}
+	}
+}
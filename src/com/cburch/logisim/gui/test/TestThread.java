@@ -79,26 +79,32 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
 		System.out.println(StringUtil.format(Strings.get("testRunning"),
 				Integer.toString(vec.data.size())));
 
+		TestBatch batch = tester.createBatch();
+		batch.start();
 		int numPass = 0, numFail = 0;
 		for (int i = 0; i < vec.data.size(); i++) {
+			TestException e;
 			try {
-				System.out.print((i + 1) + " \r");
-				tester.test(i);
+				e = batch.getResult(i);
+			} catch (InterruptedException ex) {
+				break;
+			}
+			System.out.print((i + 1) + " \r");
+			if (e == null) {
 				numPass++;
-			} catch (FailException e) {
+			} else if (e instanceof FailException) {
 				System.out.println();
 				System.err.println(StringUtil.format(Strings.get("testFailed"),
 						Integer.toString(i + 1)));
-				for (; e != null; e = e.getMore())
-					System.out.println("  " + e.getMessage());
+				for (FailException f = (FailException) e; f != null; f = f
+						.getMore())
+					System.out.println("  " + f.getMessage());
 				numFail++;
-				continue;
-			} catch (TestException e) {
+			} else {
 				System.out.println();
 				System.err.println(StringUtil.format(Strings.get("testFailed"),
 						Integer.toString(i + 1) + " " + e.getMessage()));
 				numFail++;
-				continue;
 			}
 		}
 		System.out.println();
@@ -107,13 +113,15 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
 		return 0;
 	}
 	private Instance[] pin;
+	private CircuitState prototype;
+	private volatile TestBatch batch;
 	private Project project;
 	private Circuit circuit;
 
 	private TestVector vector;
 	private Model model;
 
-	private boolean canceled = false, paused = false;
+	private volatile boolean canceled = false, paused = false;
 
 	public TestThread(Model model) throws TestException {
 		super("TestThread-Model");
@@ -141,6 +149,9 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
 
 	public void cancel() {
 		canceled = true;
+		TestBatch b = batch;
+		if (b != null)
+			b.cancel();
 	}
 
 	public void circuitChanged(CircuitEvent event) {
@@ -151,10 +162,16 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
 			model.clearResults();
 	}
 
+	private TestBatch createBatch() {
+		// each worker gets its own clone, so the project's state is left alone
+		return new TestBatch(prototype, pin, vector);
+	}
+
 	void matchPins() throws TestException {
 		int n = vector.columnName.length;
 		pin = new Instance[n];
 		CircuitState state = new CircuitState(this.project, this.circuit);
+		prototype = state;
 
 		for (int i = 0; i < n; i++) {
 			String columnName = vector.columnName[i];
@@ -182,6 +199,9 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
 	}
 
 	public void run() {
+		batch = createBatch();
+		batch.setPaused(paused);
+		batch.start();
 		try {
 			for (int i = 0; i < vector.data.size() && !canceled; i++) {
 				while (paused) {
@@ -192,25 +212,26 @@ public class TestThread extends UniquelyNamedThread implements CircuitListener {
 					} catch (InterruptedException e) {
 					}
 				}
+				TestException result;
 				try {
-					test(i);
-					canceled = canceled || !model.setResult(vector, i, null);
-				} catch (TestException e) {
-					canceled = canceled || !model.setResult(vector, i, e);
+					result = batch.getResult(i);
+				} catch (InterruptedException e) {
+					break;
 				}
+				canceled = canceled || !model.setResult(vector, i, result);
 				Thread.yield();
 			}
 		} finally {
+			batch.cancel();
 			model.stop();
 		}
 	}
 
 	public void setPaused(boolean paused) {
 		this.paused = paused;
-	}
-
-	private void test(int idx) throws TestException {
-		circuit.doTestVector(project, pin, vector.data.get(idx));
+		TestBatch b = batch;
+		if (b != null)
+			b.setPaused(paused);
 	}
 
 }
@@ -46,6 +46,7 @@ import com.cburch.logisim.comp.AbstractComponentFactory;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.ComponentDrawContext;
 import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeLayout;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.AttributeSets;
 import com.cburch.logisim.data.Bounds;
@@ -76,6 +77,7 @@ public abstract class InstanceFactory extends AbstractComponentFactory {
 	private String iconName;
 	private Icon icon;
 	private Attribute<?>[] attrs;
+	private AttributeLayout attrLayout;
 	private Object[] defaults;
 	private AttributeSet defaultSet;
 	private Bounds bounds;
@@ -118,9 +120,9 @@ public abstract class InstanceFactory extends AbstractComponentFactory {
 
 	@Override
 	public AttributeSet createAttributeSet() {
-		Attribute<?>[] as = attrs;
-		AttributeSet ret = as == null ? AttributeSets.EMPTY : AttributeSets
-				.fixedSet(as, defaults);
+		AttributeLayout layout = attrLayout;
+		AttributeSet ret = layout == null ? AttributeSets.EMPTY : AttributeSets
+				.fixedSet(layout, defaults);
 		return ret;
 	}
 
@@ -314,6 +316,7 @@ public abstract class InstanceFactory extends AbstractComponentFactory {
 
 	public void setAttributes(Attribute<?>[] attrs, Object[] defaults) {
 		this.attrs = attrs;
+		this.attrLayout = attrs == null ? null : new AttributeLayout(attrs);
 		this.defaults = defaults;
 	}
 
@@ -30,6 +30,9 @@
 
 package com.cburch.logisim.instance;
 
+import java.util.IdentityHashMap;
+import java.util.List;
+
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.comp.Component;
@@ -41,8 +44,21 @@ import com.cburch.logisim.data.Value;
 import com.cburch.logisim.proj.Project;
 
 public class InstanceStateImpl implements InstanceState {
+	private static class PortIndex {
+		private final List<Port> ports;
+		private final IdentityHashMap<Port, Integer> index;
+
+		private PortIndex(List<Port> ports) {
+			this.ports = ports;
+			this.index = new IdentityHashMap<Port, Integer>(ports.size());
+			for (int i = 0; i < ports.size(); i++)
+				index.put(ports.get(i), Integer.valueOf(i));
+		}
+	}
+
 	private CircuitState circuitState;
 	private Component component;
+	private PortIndex portIndex = null;
 
 	public InstanceStateImpl(CircuitState circuitState, Component component) {
 		this.circuitState = circuitState;
@@ -94,7 +110,16 @@ public class InstanceStateImpl implements InstanceState {
 	}
 
 	public int getPortIndex(Port port) {
-		return this.getInstance().getPorts().indexOf(port);
+		if (!(component instanceof InstanceComponent))
+			return this.getInstance().getPorts().indexOf(port);
+		List<Port> ports = ((InstanceComponent) component).getPorts();
+		PortIndex idx = portIndex;
+		if (idx == null || idx.ports != ports) {
+			idx = new PortIndex(ports);
+			portIndex = idx;
+		}
+		Integer ret = idx.index.get(port);
+		return ret == null ? -1 : ret.intValue();
 	}
 
 	public Value getPortValue(int portIndex) {
@@ -123,6 +148,7 @@ public class InstanceStateImpl implements InstanceState {
 	public void repurpose(CircuitState circuitState, Component component) {
 		this.circuitState = circuitState;
 		this.component = component;
+		this.portIndex = null;
 	}
 
 	public void setData(InstanceData value) {
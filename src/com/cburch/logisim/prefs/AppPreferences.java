@@ -553,6 +553,8 @@ public class AppPreferences {
 	}
 	public static final PrefMonitor<Boolean> Memory_Startup_Unknown = create(new PrefMonitorBoolean(
 			"MemStartUnknown", false));
+	public static final PrefMonitor<Boolean> Memory_Deferred_View = create(new PrefMonitorBoolean(
+			"MemDeferredView", true));
 
 	// Experimental preferences
 	public static final String ACCEL_DEFAULT = "default";
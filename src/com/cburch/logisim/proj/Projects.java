@@ -42,6 +42,7 @@ import java.util.List;
 import java.util.WeakHashMap;
 
 import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.gui.log.LogFrame;
 import com.cburch.logisim.gui.main.Frame;
 import com.cburch.logisim.util.MacCompatibility;
 import com.cburch.logisim.util.PropertyChangeWeakSupport;
@@ -62,6 +63,10 @@ public class Projects {
 
 			if (frame == proj.getFrame()) {
 				projectRemoved(proj, frame, this);
+				// releases the value logs kept for the project
+				LogFrame logFrame = proj.getLogFrame(false);
+				if (logFrame != null)
+					logFrame.dispose();
 			}
 			if (openProjects.isEmpty()
 					&& !MacCompatibility.isSwingUsingScreenMenuBar()) {
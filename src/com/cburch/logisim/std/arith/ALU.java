@@ -46,10 +46,9 @@ public class ALU extends InstanceFactory {
 		    long left = a.toLongValue();
 		    long right = b.toLongValue();
 
-		    if(signed) {
-				int extension = (1 << (64 - w)) - 1;
-				extension = extension << w;
-				int signBit = 1 << (w - 1);
+		    if(signed && w < 64) {
+				long extension = -1L << w;
+				long signBit = 1L << (w - 1);
 				if ((left & signBit) != 0) {
 					left = left | extension;
 				}
@@ -60,7 +59,7 @@ public class ALU extends InstanceFactory {
 
 			try {
 			    long result = operation.run(left, right, w, signed);
-				return Value.createKnown(width, (int)result);
+				return Value.createKnown(width, result);
 			} catch(ArithmeticException e) {
 				return Value.createError(width);
 			}
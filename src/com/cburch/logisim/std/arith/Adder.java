@@ -55,19 +55,19 @@ public class Adder extends InstanceFactory {
 		if (c_in == Value.UNKNOWN || c_in == Value.NIL)
 			c_in = Value.FALSE;
 		if (a.isFullyDefined() && b.isFullyDefined() && c_in.isFullyDefined()) {
-			if (w >= 32) {
-				long mask = (1L << w) - 1;
-				long ax = (long) a.toIntValue() & mask;
-				long bx = (long) b.toIntValue() & mask;
-				long cx = (long) c_in.toIntValue() & mask;
-				long sum = ax + bx + cx;
-				return new Value[] { Value.createKnown(width, (int) sum),
-						((sum >> w) & 1) == 0 ? Value.FALSE : Value.TRUE };
+			long ax = a.toLongValue();
+			long bx = b.toLongValue();
+			long sum = ax + bx + c_in.toLongValue();
+			long carry;
+			if (w >= 64) {
+				// the carry out of bit 63 is lost, so recover it from the
+				// top bits of the operands and of the sum
+				carry = ((ax & bx) | ((ax | bx) & ~sum)) >>> 63;
 			} else {
-				int sum = a.toIntValue() + b.toIntValue() + c_in.toIntValue();
-				return new Value[] { Value.createKnown(width, sum),
-						((sum >> w) & 1) == 0 ? Value.FALSE : Value.TRUE };
+				carry = (sum >>> w) & 1;
 			}
+			return new Value[] { Value.createKnown(width, sum),
+					carry == 0 ? Value.FALSE : Value.TRUE };
 		} else {
 			Value[] bits = new Value[w];
 			Value carry = c_in;
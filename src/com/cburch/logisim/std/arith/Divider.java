@@ -32,6 +32,7 @@ package com.cburch.logisim.std.arith;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.math.BigInteger;
 
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.BitWidth;
@@ -53,6 +54,8 @@ public class Divider extends InstanceFactory {
 		if (upper == Value.NIL || upper.isUnknown())
 			upper = Value.createKnown(width, 0);
 		if (a.isFullyDefined() && b.isFullyDefined() && upper.isFullyDefined()) {
+			if (w > 32)
+				return computeWide(width, a, b, upper);
 			long num = ((long) upper.toIntValue() << w)
 					| ((long) a.toIntValue() & 0xFFFFFFFFL);
 			long den = (long) b.toIntValue() & 0xFFFFFFFFL;
@@ -69,8 +72,8 @@ public class Divider extends InstanceFactory {
 					result++;
 				}
 			}
-			return new Value[] { Value.createKnown(width, (int) result),
-					Value.createKnown(width, (int) rem) };
+			return new Value[] { Value.createKnown(width, result),
+					Value.createKnown(width, rem) };
 		} else if (a.isErrorValue() || b.isErrorValue() || upper.isErrorValue()) {
 			return new Value[] { Value.createError(width),
 					Value.createError(width) };
@@ -80,6 +83,31 @@ public class Divider extends InstanceFactory {
 		}
 	}
 
+	private static Value[] computeWide(BitWidth width, Value a, Value b,
+			Value upper) {
+		int w = width.getWidth();
+		long den = b.toLongValue();
+		if (den == 0)
+			den = 1;
+		long lo = a.toLongValue();
+		long hi = upper.toLongValue();
+		if (hi == 0) {
+			return new Value[] {
+					Value.createKnown(width, Long.divideUnsigned(lo, den)),
+					Value.createKnown(width, Long.remainderUnsigned(lo, den)) };
+		}
+		// the dividend spans two words, so fall back to arbitrary precision
+		BigInteger num = unsigned(hi).shiftLeft(w).or(unsigned(lo));
+		BigInteger[] qr = num.divideAndRemainder(unsigned(den));
+		return new Value[] { Value.createKnown(width, qr[0].longValue()),
+				Value.createKnown(width, qr[1].longValue()) };
+	}
+
+	private static BigInteger unsigned(long x) {
+		BigInteger ret = BigInteger.valueOf(x & Long.MAX_VALUE);
+		return x < 0 ? ret.setBit(63) : ret;
+	}
+
 	static final int PER_DELAY = 1;
 	private static final int IN0 = 0;
 	private static final int IN1 = 1;
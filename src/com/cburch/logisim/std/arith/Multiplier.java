@@ -55,38 +55,44 @@ public class Multiplier extends InstanceFactory {
 		if (c_in == Value.NIL || c_in.isUnknown())
 			c_in = Value.createKnown(width, 0);
 		if (a.isFullyDefined() && b.isFullyDefined() && c_in.isFullyDefined()) {
-			long sum;
-			if (w >= 32) {
-				sum = (a.toIntValue() & 0xffffffffL) * (b.toIntValue() & 0xffffffffL)
-					+ (c_in.toIntValue() & 0xffffffffL);
-			} else {
-				sum = (long) a.toIntValue() * (long) b.toIntValue()
-					+ (long) c_in.toIntValue();
+			long ax = a.toLongValue();
+			long bx = b.toLongValue();
+			long cx = c_in.toLongValue();
+			if (w <= 32) {
+				long sum = ax * bx + cx;
+				return new Value[] { Value.createKnown(width, sum),
+						Value.createKnown(width, sum >>> w) };
 			}
-			return new Value[] { Value.createKnown(width, (int) sum),
-					Value.createKnown(width, (int) (sum >> w)) };
+			long lo = ax * bx;
+			long hi = multiplyHigh(ax, bx);
+			long sum = lo + cx;
+			if (Long.compareUnsigned(sum, lo) < 0)
+				hi++;
+			long upper = w == 64 ? hi : (hi << (64 - w)) | (sum >>> w);
+			return new Value[] { Value.createKnown(width, sum),
+					Value.createKnown(width, upper) };
 		} else {
 			Value[] avals = a.getAll();
 			int aOk = findUnknown(avals);
 			int aErr = findError(avals);
-			int ax = getKnown(avals);
+			long ax = getKnown(avals);
 			Value[] bvals = b.getAll();
 			int bOk = findUnknown(bvals);
 			int bErr = findError(bvals);
-			int bx = getKnown(bvals);
+			long bx = getKnown(bvals);
 			Value[] cvals = c_in.getAll();
 			int cOk = findUnknown(cvals);
 			int cErr = findError(cvals);
-			int cx = getKnown(cvals);
+			long cx = getKnown(cvals);
 
 			int known = Math.min(Math.min(aOk, bOk), cOk);
 			int error = Math.min(Math.min(aErr, bErr), cErr);
-			int ret = ax * bx + cx;
+			long ret = ax * bx + cx;
 
 			Value[] bits = new Value[w];
 			for (int i = 0; i < w; i++) {
 				if (i < known) {
-					bits[i] = ((ret & (1 << i)) != 0 ? Value.TRUE : Value.FALSE);
+					bits[i] = ((ret & (1L << i)) != 0 ? Value.TRUE : Value.FALSE);
 				} else if (i < error) {
 					bits[i] = Value.UNKNOWN;
 				} else {
@@ -116,10 +122,10 @@ public class Multiplier extends InstanceFactory {
 		return vals.length;
 	}
 
-	private static int getKnown(Value[] vals) {
-		int ret = 0;
+	private static long getKnown(Value[] vals) {
+		long ret = 0;
 		for (int i = 0; i < vals.length; i++) {
-			int val = vals[i].toIntValue();
+			long val = vals[i].toLongValue();
 			if (val < 0)
 				return ret;
 			ret |= val << i;
@@ -127,6 +133,19 @@ public class Multiplier extends InstanceFactory {
 		return ret;
 	}
 
+	/** Upper 64 bits of the unsigned 128-bit product of x and y. */
+	private static long multiplyHigh(long x, long y) {
+		long x0 = x & 0xFFFFFFFFL;
+		long x1 = x >>> 32;
+		long y0 = y & 0xFFFFFFFFL;
+		long y1 = y >>> 32;
+		long p01 = x0 * y1;
+		long p10 = x1 * y0;
+		long mid = ((x0 * y0) >>> 32) + (p01 & 0xFFFFFFFFL)
+				+ (p10 & 0xFFFFFFFFL);
+		return x1 * y1 + (p01 >>> 32) + (p10 >>> 32) + (mid >>> 32);
+	}
+
 	static final int PER_DELAY = 1;
 	public static final int IN0 = 0;
 
@@ -33,11 +33,28 @@ package com.cburch.logisim.std.gates;
 import java.util.Arrays;
 import java.util.List;
 
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.tools.AddTool;
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.tools.Tool;
 
 public class Gates extends Library {
+	/**
+	 * Returns whether a component of this library always drives its output,
+	 * so that it behaves as a plain combinational function.
+	 */
+	public static boolean isCombinational(Component comp) {
+		ComponentFactory factory = comp.getFactory();
+		if (factory != NotGate.FACTORY && factory != Buffer.FACTORY
+				&& !(factory instanceof AbstractGate))
+			return false;
+		AttributeSet attrs = comp.getAttributeSet();
+		return !attrs.containsAttribute(GateAttributes.ATTR_OUTPUT)
+				|| attrs.getValue(GateAttributes.ATTR_OUTPUT) == GateAttributes.OUTPUT_01;
+	}
+
 	private List<Tool> tools = null;
 
 	public Gates() {
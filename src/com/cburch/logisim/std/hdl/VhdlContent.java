@@ -91,6 +91,7 @@ public class VhdlContent extends HdlContent {
 	protected String name;
 	protected String libraries;
 	protected String architecture;
+	private VhdlDesign design;
 
 	protected VhdlContent() {
 		this.parseContent(TEMPLATE);
@@ -117,6 +118,16 @@ public class VhdlContent extends HdlContent {
 				.equals(value.replaceAll("\\r\\n|\\r|\\n", " "));
 	}
 
+	/**
+	 * Architecture elaborated for the built-in interpreter, or a design telling
+	 * why it is not supported
+	 */
+	synchronized VhdlDesign getDesign() {
+		if (design == null)
+			design = VhdlDesign.elaborate(getContent());
+		return design;
+	}
+
 	public String getArchitecture() {
 		if (architecture == null)
 			return "";
@@ -200,6 +211,7 @@ public class VhdlContent extends HdlContent {
 		name = parser.getName();
 		libraries = parser.getLibraries();
 		architecture = parser.getArchitecture();
+		design = null;
 
 		List<VhdlParser.PortDescription> inputsDesc = parser.getInputs();
 		List<VhdlParser.PortDescription> outputsDesc = parser.getOutputs();
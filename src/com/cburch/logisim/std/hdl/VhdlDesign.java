@@ -0,0 +1,907 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.hdl;
+
+import java.util.Set;
+
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.std.hdl.VhdlParser.IllegalVhdlContentException;
+
+/**
+ * Netlist of an elaborated VHDL architecture, run by VhdlInterpreter. Every
+ * object (signal, variable, constant) holds a Value: std_logic is one bit,
+ * vectors keep their rightmost element in bit 0, and integers, booleans and
+ * enumerations are stored as 64-bit or single-bit numbers.
+ */
+class VhdlDesign {
+
+	static class Type {
+
+		static final int LOGIC = 0;
+		static final int VECTOR = 1;
+		static final int INTEGER = 2;
+		static final int BOOLEAN = 3;
+		static final int ENUM = 4;
+
+		static final int NONE = 0;
+		static final int UNSIGNED = 1;
+		static final int SIGNED = 2;
+
+		static final Type LOGIC_TYPE = new Type(LOGIC, NONE, 0, 0, true, null);
+		static final Type BOOLEAN_TYPE = new Type(BOOLEAN, NONE, 0, 1, false,
+				null);
+		static final Type INTEGER_TYPE = new Type(INTEGER, SIGNED,
+				Integer.MIN_VALUE, Integer.MAX_VALUE, false, null);
+
+		static Type vector(int numeric, long left, long right, boolean downto) {
+			return new Type(VECTOR, numeric, left, right, downto, null);
+		}
+
+		final int kind;
+		final int numeric;
+		final long left;
+		final long right;
+		final boolean downto;
+		final String[] literals;
+
+		Type(int kind, int numeric, long left, long right, boolean downto,
+				String[] literals) {
+			this.kind = kind;
+			this.numeric = numeric;
+			this.left = left;
+			this.right = right;
+			this.downto = downto;
+			this.literals = literals;
+		}
+
+		/** Bit of the stored value holding the element at index, or -1 */
+		int bit(long index) {
+			long ret = downto ? index - right : right - index;
+			return ret < 0 || ret >= width() ? -1 : (int) ret;
+		}
+
+		long high() {
+			return downto ? left : right;
+		}
+
+		Value initial() {
+			switch (kind) {
+			case LOGIC:
+				return Value.UNKNOWN;
+			case VECTOR:
+				return Value.createUnknown(BitWidth.create(width()));
+			case BOOLEAN:
+				return Value.FALSE;
+			default:
+				return integer(left);
+			}
+		}
+
+		boolean isNumeric() {
+			return kind == INTEGER || kind == VECTOR;
+		}
+
+		long low() {
+			return downto ? right : left;
+		}
+
+		int width() {
+			switch (kind) {
+			case LOGIC:
+			case BOOLEAN:
+				return 1;
+			case VECTOR:
+				return (int) (high() - low() + 1);
+			default:
+				return INT_BITS.getWidth();
+			}
+		}
+	}
+
+	abstract static class Expr {
+
+		final Type type;
+
+		Expr(Type type) {
+			this.type = type;
+		}
+
+		abstract Value eval(VhdlInterpreter s);
+
+		boolean isStatic() {
+			return false;
+		}
+
+		void reads(Set<Integer> signals) {
+		}
+	}
+
+	static class Const extends Expr {
+
+		final Value value;
+
+		Const(Type type, Value value) {
+			super(type);
+			this.value = value;
+		}
+
+		@Override
+		Value eval(VhdlInterpreter s) {
+			return value;
+		}
+
+		@Override
+		boolean isStatic() {
+			return true;
+		}
+	}
+
+	static class SignalRef extends Expr {
+
+		final int signal;
+
+		SignalRef(Type type, int signal) {
+			super(type);
+			this.signal = signal;
+		}
+
+		@Override
+		Value eval(VhdlInterpreter s) {
+			return s.signals[signal];
+		}
+
+		@Override
+		void reads(Set<Integer> signals) {
+			signals.add(signal);
+		}
+	}
+
+	static class VariableRef extends Expr {
+
+		final int variable;
+
+		VariableRef(Type type, int variable) {
+			super(type);
+			this.variable = variable;
+		}
+
+		@Override
+		Value eval(VhdlInterpreter s) {
+			return s.variables[variable];
+		}
+	}
+
+	static class Index extends Expr {
+
+		final Expr base;
+		final Expr index;
+
+		Index(Expr base, Expr index) {
+			super(Type.LOGIC_TYPE);
+			this.base = base;
+			this.index = index;
+		}
+
+		@Override
+		Value eval(VhdlInterpreter s) {
+			int bit = bitOf(base.type, index.eval(s));
+			return bit < 0 ? Value.ERROR : base.eval(s).get(bit);
+		}
+
+		@Override
+		boolean isStatic() {
+			return base.isStatic() && index.isStatic();
+		}
+
+		@Override
+		void reads(Set<Integer> signals) {
+			base.reads(signals);
+			index.reads(signals);
+		}
+	}
+
+	static class Slice extends Expr {
+
+		final Expr base;
+		final int lo;
+
+		Slice(Type type, Expr base, int lo) {
+			super(type);
+			this.base = base;
+			this.lo = lo;
+		}
+
+		@Override
+		Value eval(VhdlInterpreter s) {
+			return extract(base.eval(s), lo, type.width());
+		}
+
+		@Override
+		boolean isStatic() {
+			return base.isStatic();
+		}
+
+		@Override
+		void reads(Set<Integer> signals) {
+			base.reads(signals);
+		}
+	}
+
+	static class Aggregate extends Expr {
+
+		final Expr others;
+		final int[] bits;
+		final Expr[] elements;
+
+		Aggregate(Type type, Expr others, int[] bits, Expr[] elements) {
+			super(type);
+			this.others = others;
+			this.bits = bits;
+			this.elements = elements;
+		}
+
+		@Override
+		Value eval(VhdlInterpreter s) {
+			Value[] ret = new Value[type.width()];
+			if (others != null) {
+				Value v = others.eval(s);
+				for (int i = 0; i < ret.length; i++)
+					ret[i] = v;
+			}
+			for (int i = 0; i < bits.length; i++)
+				ret[bits[i]] = elements[i].eval(s);
+			return Value.create(ret);
+		}
+
+		@Override
+		boolean isStatic() {
+			if (others != null && !others.isStatic())
+				return false;
+			for (Expr e : elements)
+				if (!e.isStatic())
+					return false;
+			return true;
+		}
+
+		@Override
+		void reads(Set<Integer> signals) {
+			if (others != null)
+				others.reads(signals);
+			for (Expr e : elements)
+				e.reads(signals);
+		}
+	}
+
+	static class Unary extends Expr {
+
+		static final int NOT = 0;
+		static final int NEGATE = 1;
+		static final int ABS = 2;
+
+		final int op;
+		final Expr a;
+
+		Unary(Type type, int op, Expr a) {
+			super(type);
+			this.op = op;
+			this.a = a;
+		}
+
+		@Override
+		Value eval(VhdlInterpreter s) {
+			Value x = a.eval(s);
+			if (op == NOT)
+				return x.not();
+			if (!x.isFullyDefined())
+				return undefined(type);
+			long v = toLong(x, a.type);
+			return fromLong(type, op == NEGATE || v < 0 ? -v : v);
+		}
+
+		@Override
+		boolean isStatic() {
+			return a.isStatic();
+		}
+
+		@Override
+		void reads(Set<Integer> signals) {
+			a.reads(signals);
+		}
+	}
+
+	static class Binary extends Expr {
+
+		static final int AND = 0;
+		static final int OR = 1;
+		static final int XOR = 2;
+		static final int NAND = 3;
+		static final int NOR = 4;
+		static final int XNOR = 5;
+		static final int EQ = 6;
+		static final int NE = 7;
+		static final int LT = 8;
+		static final int LE = 9;
+		static final int GT = 10;
+		static final int GE = 11;
+		static final int ADD = 12;
+		static final int SUB = 13;
+		static final int MUL = 14;
+		static final int DIV = 15;
+		static final int MOD = 16;
+		static final int REM = 17;
+		static final int POW = 18;
+		static final int CONCAT = 19;
+
+		final int op;
+		final Expr a;
+		final Expr b;
+
+		Binary(Type type, int op, Expr a, Expr b) {
+			super(type);
+			this.op = op;
+			this.a = a;
+			this.b = b;
+		}
+
+		private Value arithmetic(Value x, Value y) {
+			if (!x.isFullyDefined() || !y.isFullyDefined())
+				return undefined(type);
+			long p = toLong(x, a.type);
+			long q = toLong(y, b.type);
+			long r;
+			switch (op) {
+			case ADD:
+				r = p + q;
+				break;
+			case SUB:
+				r = p - q;
+				break;
+			case MUL:
+				r = p * q;
+				break;
+			case POW:
+				r = 1;
+				for (long k = 0; k < q && k < 64; k++)
+					r *= p;
+				break;
+			default:
+				if (q == 0)
+					return undefined(type);
+				r = op == DIV ? p / q : p % q;
+				if (op == MOD && r != 0 && (r < 0) != (q < 0))
+					r += q;
+			}
+			return fromLong(type, r);
+		}
+
+		private int compare(Value x, Value y) {
+			long p = toLong(x, a.type);
+			long q = toLong(y, b.type);
+			if (a.type.kind == Type.VECTOR && a.type.numeric != Type.SIGNED
+					&& b.type.kind == Type.VECTOR
+					&& b.type.numeric != Type.SIGNED)
+				return Long.compareUnsigned(p, q);
+			return Long.compare(p, q);
+		}
+
+		private boolean equal(Value x, Value y) {
+			if (a.type.isNumeric() && b.type.isNumeric()
+					&& (a.type.kind != b.type.kind
+							|| a.type.numeric != Type.NONE || x.getWidth() != y
+							.getWidth())) {
+				return x.isFullyDefined() && y.isFullyDefined()
+						&& compare(x, y) == 0;
+			}
+			return x.equals(y);
+		}
+
+		@Override
+		Value eval(VhdlInterpreter s) {
+			Value x = a.eval(s);
+			Value y = b.eval(s);
+			switch (op) {
+			case AND:
+				return x.and(y);
+			case OR:
+				return x.or(y);
+			case XOR:
+				return x.xor(y);
+			case NAND:
+				return x.and(y).not();
+			case NOR:
+				return x.or(y).not();
+			case XNOR:
+				return x.xor(y).not();
+			case EQ:
+				return bool(equal(x, y));
+			case NE:
+				return bool(!equal(x, y));
+			case LT:
+			case LE:
+			case GT:
+			case GE:
+				if (!x.isFullyDefined() || !y.isFullyDefined())
+					return Value.FALSE;
+				int c = compare(x, y);
+				return bool(op == LT ? c < 0 : op == LE ? c <= 0
+						: op == GT ? c > 0 : c >= 0);
+			case CONCAT:
+				return concat(x, y);
+			default:
+				return arithmetic(x, y);
+			}
+		}
+
+		@Override
+		boolean isStatic() {
+			return a.isStatic() && b.isStatic();
+		}
+
+		@Override
+		void reads(Set<Integer> signals) {
+			a.reads(signals);
+			b.reads(signals);
+		}
+	}
+
+	/** Conversion functions of numeric_std and std_logic_arith */
+	static class Convert extends Expr {
+
+		static final int TO_INTEGER = 0;
+		static final int TO_VECTOR = 1;
+		static final int RESIZE = 2;
+		static final int SHIFT_LEFT = 3;
+		static final int SHIFT_RIGHT = 4;
+		static final int ROTATE_LEFT = 5;
+		static final int ROTATE_RIGHT = 6;
+
+		final int op;
+		final Expr a;
+		final Expr amount;
+
+		Convert(Type type, int op, Expr a, Expr amount) {
+			super(type);
+			this.op = op;
+			this.a = a;
+			this.amount = amount;
+		}
+
+		@Override
+		Value eval(VhdlInterpreter s) {
+			Value x = a.eval(s);
+			switch (op) {
+			case TO_INTEGER:
+				return x.isFullyDefined() ? integer(toLong(x, a.type))
+						: undefined(type);
+			case TO_VECTOR:
+				return x.isFullyDefined() ? fromLong(type, toLong(x, a.type))
+						: undefined(type);
+			case RESIZE:
+				if (x.getWidth() >= type.width())
+					return extract(x, 0, type.width());
+				return x.extendWidth(type.width(),
+						a.type.numeric == Type.SIGNED ? x.get(x.getWidth() - 1)
+								: Value.FALSE);
+			default:
+				Value n = amount.eval(s);
+				if (!n.isFullyDefined())
+					return undefined(type);
+				return shift(x, (int) Math.min(toLong(n, amount.type), 64));
+			}
+		}
+
+		@Override
+		boolean isStatic() {
+			return a.isStatic() && (amount == null || amount.isStatic());
+		}
+
+		@Override
+		void reads(Set<Integer> signals) {
+			a.reads(signals);
+			if (amount != null)
+				amount.reads(signals);
+		}
+
+		private Value shift(Value x, int n) {
+			int w = x.getWidth();
+			Value[] bits = x.getAll();
+			Value[] ret = new Value[w];
+			Value fill = op == SHIFT_RIGHT && type.numeric == Type.SIGNED ? bits[w - 1]
+					: Value.FALSE;
+			for (int i = 0; i < w; i++) {
+				int from;
+				switch (op) {
+				case SHIFT_LEFT:
+					from = i - n;
+					break;
+				case SHIFT_RIGHT:
+					from = i + n;
+					break;
+				case ROTATE_LEFT:
+					from = Math.floorMod(i - n, w);
+					break;
+				default:
+					from = Math.floorMod(i + n, w);
+				}
+				ret[i] = from >= 0 && from < w ? bits[from] : fill;
+			}
+			return Value.create(ret);
+		}
+	}
+
+	/** rising_edge, falling_edge and the 'event attribute */
+	static class Event extends Expr {
+
+		final int signal;
+		final Value to;
+
+		Event(int signal, Value to) {
+			super(Type.BOOLEAN_TYPE);
+			this.signal = signal;
+			this.to = to;
+		}
+
+		@Override
+		Value eval(VhdlInterpreter s) {
+			if (!s.events[signal])
+				return Value.FALSE;
+			if (to == null)
+				return Value.TRUE;
+			return bool(s.signals[signal] == to && s.last[signal] == to.not());
+		}
+
+		@Override
+		void reads(Set<Integer> signals) {
+			signals.add(signal);
+		}
+	}
+
+	abstract static class Stmt {
+
+		abstract void exec(VhdlInterpreter s);
+
+		abstract void reads(Set<Integer> signals);
+	}
+
+	static class Assign extends Stmt {
+
+		final boolean signal;
+		final int target;
+		final Type targetType;
+		final Expr index;
+		final int lo;
+		final Expr value;
+
+		/**
+		 * Assigns the whole target, or its element at index, or its slice
+		 * starting at bit lo when lo is not negative
+		 */
+		Assign(boolean signal, int target, Type targetType, Expr index, int lo,
+				Expr value) {
+			this.signal = signal;
+			this.target = target;
+			this.targetType = targetType;
+			this.index = index;
+			this.lo = lo;
+			this.value = value;
+		}
+
+		@Override
+		void exec(VhdlInterpreter s) {
+			Value v = value.eval(s);
+			if (index != null) {
+				int bit = bitOf(targetType, index.eval(s));
+				if (bit < 0)
+					return;
+				v = s.target(signal, target).set(bit, v);
+			} else if (lo >= 0) {
+				v = insert(s.target(signal, target), lo, v);
+			}
+			s.assign(signal, target, v);
+		}
+
+		@Override
+		void reads(Set<Integer> signals) {
+			value.reads(signals);
+			if (index != null)
+				index.reads(signals);
+		}
+	}
+
+	static class If extends Stmt {
+
+		final Expr[] conditions;
+		final Stmt[][] branches;
+		final Stmt[] otherwise;
+
+		If(Expr[] conditions, Stmt[][] branches, Stmt[] otherwise) {
+			this.conditions = conditions;
+			this.branches = branches;
+			this.otherwise = otherwise;
+		}
+
+		@Override
+		void exec(VhdlInterpreter s) {
+			for (int i = 0; i < conditions.length; i++) {
+				if (conditions[i].eval(s) == Value.TRUE) {
+					run(branches[i], s);
+					return;
+				}
+			}
+			run(otherwise, s);
+		}
+
+		@Override
+		void reads(Set<Integer> signals) {
+			for (Expr c : conditions)
+				c.reads(signals);
+			for (Stmt[] b : branches)
+				VhdlDesign.reads(b, signals);
+			VhdlDesign.reads(otherwise, signals);
+		}
+	}
+
+	static class Case extends Stmt {
+
+		final Expr selector;
+		/** Choices of each alternative, as low and high bounds */
+		final Value[][] lows;
+		final Value[][] highs;
+		final Stmt[][] branches;
+		final Stmt[] otherwise;
+
+		Case(Expr selector, Value[][] lows, Value[][] highs,
+				Stmt[][] branches, Stmt[] otherwise) {
+			this.selector = selector;
+			this.lows = lows;
+			this.highs = highs;
+			this.branches = branches;
+			this.otherwise = otherwise;
+		}
+
+		@Override
+		void exec(VhdlInterpreter s) {
+			Value v = selector.eval(s);
+			for (int i = 0; i < branches.length; i++) {
+				for (int k = 0; k < lows[i].length; k++) {
+					if (highs[i][k] == null ? v.equals(lows[i][k]) : v
+							.isFullyDefined()
+							&& v.toLongValue() >= lows[i][k].toLongValue()
+							&& v.toLongValue() <= highs[i][k].toLongValue()) {
+						run(branches[i], s);
+						return;
+					}
+				}
+			}
+			run(otherwise, s);
+		}
+
+		@Override
+		void reads(Set<Integer> signals) {
+			selector.reads(signals);
+			for (Stmt[] b : branches)
+				VhdlDesign.reads(b, signals);
+			VhdlDesign.reads(otherwise, signals);
+		}
+	}
+
+	static class Loop extends Stmt {
+
+		final int variable;
+		final Expr from;
+		final Expr to;
+		final boolean downto;
+		final Expr condition;
+		final Stmt[] body;
+
+		/** A for loop over variable, or a while loop when variable is -1 */
+		Loop(int variable, Expr from, Expr to, boolean downto,
+				Expr condition, Stmt[] body) {
+			this.variable = variable;
+			this.from = from;
+			this.to = to;
+			this.downto = downto;
+			this.condition = condition;
+			this.body = body;
+		}
+
+		@Override
+		void exec(VhdlInterpreter s) {
+			if (variable < 0) {
+				for (int n = 0; condition.eval(s) == Value.TRUE; n++) {
+					if (n >= MAX_ITERATIONS)
+						throw new IllegalStateException("endless while loop");
+					run(body, s);
+				}
+				return;
+			}
+			Value a = from.eval(s);
+			Value b = to.eval(s);
+			if (!a.isFullyDefined() || !b.isFullyDefined())
+				return;
+			long step = downto ? -1 : 1;
+			for (long i = a.toLongValue(); downto ? i >= b.toLongValue() : i <= b
+					.toLongValue(); i += step) {
+				s.variables[variable] = integer(i);
+				run(body, s);
+			}
+		}
+
+		@Override
+		void reads(Set<Integer> signals) {
+			if (condition != null)
+				condition.reads(signals);
+			else {
+				from.reads(signals);
+				to.reads(signals);
+			}
+			VhdlDesign.reads(body, signals);
+		}
+	}
+
+	static class Signal {
+
+		final String name;
+		final Type type;
+		final Value initial;
+
+		Signal(String name, Type type, Value initial) {
+			this.name = name;
+			this.type = type;
+			this.initial = initial;
+		}
+	}
+
+	static class Process {
+
+		final Stmt[] body;
+		final int[] sensitivity;
+
+		Process(Stmt[] body, int[] sensitivity) {
+			this.body = body;
+			this.sensitivity = sensitivity;
+		}
+	}
+
+	static final BitWidth INT_BITS = BitWidth.create(64);
+	static final int MAX_ITERATIONS = 1 << 16;
+
+	static Value bool(boolean b) {
+		return b ? Value.TRUE : Value.FALSE;
+	}
+
+	static int bitOf(Type type, Value index) {
+		return index.isFullyDefined() ? type.bit(index.toLongValue()) : -1;
+	}
+
+	static Value concat(Value hi, Value lo) {
+		Value[] ret = new Value[hi.getWidth() + lo.getWidth()];
+		for (int i = 0; i < lo.getWidth(); i++)
+			ret[i] = lo.get(i);
+		for (int i = 0; i < hi.getWidth(); i++)
+			ret[lo.getWidth() + i] = hi.get(i);
+		return Value.create(ret);
+	}
+
+	static VhdlDesign elaborate(String content) {
+		try {
+			return new VhdlElaborator(VhdlLexer.tokenize(content)).elaborate();
+		} catch (IllegalVhdlContentException e) {
+			return new VhdlDesign(e.getMessage());
+		}
+	}
+
+	static Value extract(Value v, int lo, int width) {
+		if (lo == 0 && width == v.getWidth())
+			return v;
+		Value[] ret = new Value[width];
+		for (int i = 0; i < width; i++)
+			ret[i] = v.get(lo + i);
+		return Value.create(ret);
+	}
+
+	static Value fromLong(Type type, long v) {
+		if (type.kind == Type.INTEGER)
+			return integer(v);
+		return Value.createKnown(BitWidth.create(type.width()), v);
+	}
+
+	static Value insert(Value base, int lo, Value part) {
+		Value[] ret = base.getAll();
+		for (int i = 0; i < part.getWidth(); i++)
+			ret[lo + i] = part.get(i);
+		return Value.create(ret);
+	}
+
+	static Value integer(long v) {
+		return Value.createKnown(INT_BITS, v);
+	}
+
+	static void reads(Stmt[] body, Set<Integer> signals) {
+		for (Stmt s : body)
+			s.reads(signals);
+	}
+
+	static void run(Stmt[] body, VhdlInterpreter s) {
+		for (Stmt stmt : body)
+			stmt.exec(s);
+	}
+
+	static long toLong(Value v, Type type) {
+		long ret = v.toLongValue();
+		int w = v.getWidth();
+		if (type.kind == Type.VECTOR && type.numeric == Type.SIGNED && w < 64)
+			ret = (ret << (64 - w)) >> (64 - w);
+		return ret;
+	}
+
+	static Value undefined(Type type) {
+		if (type.kind == Type.INTEGER)
+			return Value.createUnknown(INT_BITS);
+		return Value.createError(BitWidth.create(type.width()));
+	}
+
+	final String unsupported;
+	final Signal[] signals;
+	final Value[] variables;
+	final Process[] processes;
+	/** Processes woken by an event on each signal */
+	final int[][] sensitive;
+	/** Signals of the input ports, then of the output ports */
+	final int[] inputs;
+	final int[] outputs;
+
+	VhdlDesign(Signal[] signals, Value[] variables, Process[] processes,
+			int[][] sensitive, int[] inputs, int[] outputs) {
+		this.unsupported = null;
+		this.signals = signals;
+		this.variables = variables;
+		this.processes = processes;
+		this.sensitive = sensitive;
+		this.inputs = inputs;
+		this.outputs = outputs;
+	}
+
+	VhdlDesign(String unsupported) {
+		this.unsupported = unsupported;
+		this.signals = new Signal[0];
+		this.variables = new Value[0];
+		this.processes = new Process[0];
+		this.sensitive = new int[0][];
+		this.inputs = new int[0];
+		this.outputs = new int[0];
+	}
+
+	boolean isSupported() {
+		return unsupported == null;
+	}
+}
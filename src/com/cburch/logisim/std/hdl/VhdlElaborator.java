@@ -0,0 +1,1269 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.hdl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.std.hdl.VhdlDesign.Aggregate;
+import com.cburch.logisim.std.hdl.VhdlDesign.Assign;
+import com.cburch.logisim.std.hdl.VhdlDesign.Binary;
+import com.cburch.logisim.std.hdl.VhdlDesign.Case;
+import com.cburch.logisim.std.hdl.VhdlDesign.Const;
+import com.cburch.logisim.std.hdl.VhdlDesign.Convert;
+import com.cburch.logisim.std.hdl.VhdlDesign.Event;
+import com.cburch.logisim.std.hdl.VhdlDesign.Expr;
+import com.cburch.logisim.std.hdl.VhdlDesign.If;
+import com.cburch.logisim.std.hdl.VhdlDesign.Index;
+import com.cburch.logisim.std.hdl.VhdlDesign.Loop;
+import com.cburch.logisim.std.hdl.VhdlDesign.Signal;
+import com.cburch.logisim.std.hdl.VhdlDesign.SignalRef;
+import com.cburch.logisim.std.hdl.VhdlDesign.Slice;
+import com.cburch.logisim.std.hdl.VhdlDesign.Stmt;
+import com.cburch.logisim.std.hdl.VhdlDesign.Type;
+import com.cburch.logisim.std.hdl.VhdlDesign.Unary;
+import com.cburch.logisim.std.hdl.VhdlDesign.VariableRef;
+import com.cburch.logisim.std.hdl.VhdlLexer.Token;
+import com.cburch.logisim.std.hdl.VhdlParser.IllegalVhdlContentException;
+
+/**
+ * Recursive descent parser building a VhdlDesign out of an entity and its
+ * architecture. Only the synthesizable subset is accepted: std_logic, vectors
+ * of up to 64 bits, integers, booleans and enumerations, concurrent, selected
+ * and conditional assignments, and processes with a sensitivity list. Anything
+ * else (arrays, component instances, wait statements...) raises an
+ * IllegalVhdlContentException naming the construct.
+ */
+class VhdlElaborator {
+
+	private static class Symbol {
+
+		static final int SIGNAL = 0;
+		static final int VARIABLE = 1;
+		static final int CONSTANT = 2;
+		static final int TYPE = 3;
+
+		final int kind;
+		final Type type;
+		final int index;
+		final Value value;
+		final boolean readOnly;
+
+		Symbol(int kind, Type type, int index, Value value, boolean readOnly) {
+			this.kind = kind;
+			this.type = type;
+			this.index = index;
+			this.value = value;
+			this.readOnly = readOnly;
+		}
+	}
+
+	/** Aggregate whose type is known only once it is assigned or compared */
+	private static class PendingAggregate extends Expr {
+
+		final Expr others;
+		final List<Expr> choices;
+		final List<Expr> elements;
+
+		PendingAggregate(Expr others, List<Expr> choices, List<Expr> elements) {
+			super(null);
+			this.others = others;
+			this.choices = choices;
+			this.elements = elements;
+		}
+
+		@Override
+		Value eval(VhdlInterpreter s) {
+			throw new IllegalStateException("untyped aggregate");
+		}
+	}
+
+	private static class Range {
+
+		final Expr left;
+		final Expr right;
+		final boolean downto;
+
+		Range(Expr left, Expr right, boolean downto) {
+			this.left = left;
+			this.right = right;
+			this.downto = downto;
+		}
+	}
+
+	private static class Target {
+
+		final Symbol symbol;
+		final Type type;
+		final Expr index;
+		final int lo;
+
+		Target(Symbol symbol, Type type, Expr index, int lo) {
+			this.symbol = symbol;
+			this.type = type;
+			this.index = index;
+			this.lo = lo;
+		}
+
+		Assign assign(Expr value) {
+			return new Assign(symbol.kind == Symbol.SIGNAL, symbol.index,
+					symbol.type, index, lo, value);
+		}
+	}
+
+	private static final String[] LOGICAL = { "and", "or", "xor", "nand",
+			"nor", "xnor" };
+	private static final String[] RELATIONAL = { "=", "/=", "<", "<=", ">",
+			">=" };
+	private static final Set<String> BUILTINS = new HashSet<String>(
+			Arrays.asList("rising_edge", "falling_edge", "to_integer",
+					"conv_integer", "to_unsigned", "to_signed",
+					"conv_std_logic_vector", "conv_unsigned", "conv_signed",
+					"resize", "shift_left", "shift_right", "rotate_left",
+					"rotate_right", "unsigned", "signed", "std_logic_vector",
+					"std_ulogic_vector"));
+	private static final String[] SHIFTS = { "sll", "srl", "rol", "ror" };
+
+	private static Value logic(char c) {
+		switch (c) {
+		case '0':
+		case 'L':
+			return Value.FALSE;
+		case '1':
+		case 'H':
+			return Value.TRUE;
+		case 'X':
+		case 'W':
+			return Value.ERROR;
+		default:
+			return Value.UNKNOWN;
+		}
+	}
+
+	private static int indexOf(String[] ops, Token t) {
+		for (int i = 0; i < ops.length; i++)
+			if (t.is(ops[i]))
+				return i;
+		return -1;
+	}
+
+	private final List<Token> tokens;
+	private int pos;
+	private final Map<String, Symbol> scope = new HashMap<String, Symbol>();
+	private Map<String, Symbol> locals;
+	private final List<Signal> signals = new ArrayList<Signal>();
+	private final List<Value> variables = new ArrayList<Value>();
+	private final List<VhdlDesign.Process> processes = new ArrayList<VhdlDesign.Process>();
+	private final List<Integer> inputs = new ArrayList<Integer>();
+	private final List<Integer> outputs = new ArrayList<Integer>();
+
+	VhdlElaborator(List<Token> tokens) {
+		this.tokens = tokens;
+	}
+
+	private boolean accept(String text) {
+		if (peek().is(text)) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	private Expr arithmetic(int op, Expr a, Expr b)
+			throws IllegalVhdlContentException {
+		Type ta = a.type;
+		Type tb = b.type;
+		if (ta == null || tb == null)
+			throw error("aggregate in arithmetic");
+		if (ta.kind == Type.INTEGER && tb.kind == Type.INTEGER)
+			return new Binary(Type.INTEGER_TYPE, op, a, b);
+		if (op == Binary.POW)
+			throw error("** is only supported on integers");
+		Type vector = ta.kind == Type.VECTOR ? ta : tb;
+		Type other = vector == ta ? tb : ta;
+		if (vector.kind != Type.VECTOR
+				|| (other.kind != Type.VECTOR && other.kind != Type.INTEGER && other.kind != Type.LOGIC))
+			throw error("arithmetic needs numeric operands");
+		int width;
+		if (other.kind != Type.VECTOR)
+			width = op == Binary.MUL ? 2 * vector.width() : vector.width();
+		else if (op == Binary.MUL)
+			width = ta.width() + tb.width();
+		else if (op == Binary.DIV)
+			width = ta.width();
+		else if (op == Binary.MOD || op == Binary.REM)
+			width = tb.width();
+		else
+			width = Math.max(ta.width(), tb.width());
+		return new Binary(vectorType(vector.numeric, width), op, a, b);
+	}
+
+	private Expr builtin(String name) throws IllegalVhdlContentException {
+		if (name.equals("rising_edge") || name.equals("falling_edge")) {
+			Symbol s = lookup(ident());
+			if (s.kind != Symbol.SIGNAL || s.type.kind != Type.LOGIC)
+				throw error(name + " needs a std_logic signal");
+			expect(")");
+			return new Event(s.index, name.equals("rising_edge") ? Value.TRUE
+					: Value.FALSE);
+		}
+		Expr a = expression();
+		if (a.type == null)
+			throw error("aggregate passed to " + name);
+		Expr amount = accept(",") ? expression() : null;
+		expect(")");
+		switch (name) {
+		case "to_integer":
+		case "conv_integer":
+			if (a.type.kind != Type.VECTOR && a.type.kind != Type.LOGIC)
+				throw error(name + " needs a vector");
+			return new Convert(Type.INTEGER_TYPE, Convert.TO_INTEGER, a, null);
+		case "to_unsigned":
+		case "to_signed":
+		case "conv_std_logic_vector":
+		case "conv_unsigned":
+		case "conv_signed":
+			int numeric = name.endsWith("unsigned") ? Type.UNSIGNED : name
+					.endsWith("signed") ? Type.SIGNED : Type.NONE;
+			return new Convert(vectorType(numeric, (int) staticLong(amount)),
+					Convert.TO_VECTOR, a, null);
+		case "resize":
+			needVector(a, name);
+			return new Convert(vectorType(a.type.numeric,
+					(int) staticLong(amount)), Convert.RESIZE, a, null);
+		case "shift_left":
+		case "shift_right":
+		case "rotate_left":
+		case "rotate_right":
+			needVector(a, name);
+			if (amount == null || amount.type.kind != Type.INTEGER)
+				throw error(name + " needs a shift amount");
+			int op = name.equals("shift_left") ? Convert.SHIFT_LEFT : name
+					.equals("shift_right") ? Convert.SHIFT_RIGHT : name
+					.equals("rotate_left") ? Convert.ROTATE_LEFT
+					: Convert.ROTATE_RIGHT;
+			return new Convert(a.type, op, a, amount);
+		default:
+			needVector(a, name);
+			int kind = name.equals("unsigned") ? Type.UNSIGNED : name
+					.equals("signed") ? Type.SIGNED : Type.NONE;
+			Type t = Type.vector(kind, a.type.left, a.type.right,
+					a.type.downto);
+			return new Convert(t, Convert.RESIZE, a, null);
+		}
+	}
+
+	private boolean choices(Type type, List<Value> lows, List<Value> highs)
+			throws IllegalVhdlContentException {
+		boolean others = false;
+		do {
+			if (accept("others")) {
+				others = true;
+				continue;
+			}
+			Expr a = simple();
+			if (peek().is("to") || peek().is("downto")) {
+				boolean downto = next().is("downto");
+				Expr b = simple();
+				if (type.kind != Type.INTEGER)
+					throw error("choice ranges need an integer selector");
+				lows.add(staticValue(downto ? b : a));
+				highs.add(staticValue(downto ? a : b));
+			} else {
+				lows.add(staticValue(coerce(a, type)));
+				highs.add(null);
+			}
+		} while (accept("|"));
+		return others;
+	}
+
+	private Expr coerce(Expr e, Type t) throws IllegalVhdlContentException {
+		if (t == null)
+			throw error("aggregate without a type");
+		if (e instanceof PendingAggregate) {
+			PendingAggregate p = (PendingAggregate) e;
+			if (t.kind != Type.VECTOR)
+				throw error("aggregates are only supported for vectors");
+			int width = t.width();
+			Expr others = p.others == null ? null : coerce(p.others,
+					Type.LOGIC_TYPE);
+			int[] bits = new int[p.elements.size()];
+			Expr[] elements = new Expr[bits.length];
+			for (int i = 0; i < bits.length; i++) {
+				Expr choice = p.choices.get(i);
+				bits[i] = choice == null ? width - 1 - i : t
+						.bit(staticLong(choice));
+				if (bits[i] < 0)
+					throw error("aggregate index out of range");
+				elements[i] = coerce(p.elements.get(i), Type.LOGIC_TYPE);
+			}
+			if (others == null && bits.length != width)
+				throw error("aggregate does not cover the vector");
+			return new Aggregate(t, others, bits, elements);
+		}
+		Type et = e.type;
+		if (t.kind == Type.VECTOR && et.kind == Type.VECTOR) {
+			if (et.width() != t.width())
+				throw error("width mismatch: " + et.width() + " bits where "
+						+ t.width() + " are expected");
+			return e;
+		}
+		if (t.kind == et.kind && t.literals == et.literals)
+			return e;
+		throw error("type mismatch");
+	}
+
+	private Expr comparison(int op, Expr a, Expr b)
+			throws IllegalVhdlContentException {
+		if (a.type == null && b.type == null)
+			throw error("aggregate without a type");
+		if (a.type == null)
+			a = coerce(a, b.type);
+		else if (b.type == null)
+			b = coerce(b, a.type);
+		if (!(a.type.isNumeric() && b.type.isNumeric())) {
+			if (op > Binary.NE)
+				throw error("ordering needs numeric operands");
+			coerce(b, a.type);
+		}
+		return new Binary(Type.BOOLEAN_TYPE, op, a, b);
+	}
+
+	private void concurrent() throws IllegalVhdlContentException {
+		boolean labelled = false;
+		if (peek().kind == VhdlLexer.IDENT && peek(1).is(":")) {
+			pos += 2;
+			labelled = true;
+		}
+		if (accept("process")) {
+			process();
+			return;
+		}
+		if (accept("assert")) {
+			skipTo(";");
+			return;
+		}
+		if (accept("with")) {
+			selected();
+			return;
+		}
+		Token t = peek();
+		if (t.is("block") || t.is("for") || t.is("if") || t.is("entity")
+				|| t.is("component") || t.is("postponed")
+				|| (labelled && peek(1).kind == VhdlLexer.IDENT))
+			throw error("component instances and " + t.text
+					+ " statements are not supported");
+
+		Target target = target();
+		if (target.symbol.kind != Symbol.SIGNAL)
+			throw error("concurrent assignment to a variable");
+		expect("<=");
+		List<Expr> conditions = new ArrayList<Expr>();
+		List<Stmt[]> branches = new ArrayList<Stmt[]>();
+		Stmt[] otherwise;
+		while (true) {
+			Expr value = waveform(target.type);
+			Stmt[] body = value == null ? new Stmt[0]
+					: new Stmt[] { target.assign(value) };
+			if (accept("when")) {
+				conditions.add(condition());
+				branches.add(body);
+				if (accept("else"))
+					continue;
+				otherwise = new Stmt[0];
+			} else {
+				otherwise = body;
+			}
+			break;
+		}
+		expect(";");
+		Stmt stmt = conditions.isEmpty() ? null : new If(
+				conditions.toArray(new Expr[0]),
+				branches.toArray(new Stmt[0][]), otherwise);
+		addProcess(stmt == null ? otherwise : new Stmt[] { stmt }, null);
+	}
+
+	private void addProcess(Stmt[] body, List<Integer> sensitivity) {
+		if (sensitivity == null) {
+			TreeSet<Integer> reads = new TreeSet<Integer>();
+			VhdlDesign.reads(body, reads);
+			sensitivity = new ArrayList<Integer>(reads);
+		}
+		int[] sens = new int[sensitivity.size()];
+		for (int i = 0; i < sens.length; i++)
+			sens[i] = sensitivity.get(i);
+		processes.add(new VhdlDesign.Process(body, sens));
+	}
+
+	private Expr condition() throws IllegalVhdlContentException {
+		Expr e = expression();
+		if (e.type != null && e.type.kind == Type.LOGIC)
+			return new Binary(Type.BOOLEAN_TYPE, Binary.EQ, e, new Const(
+					Type.LOGIC_TYPE, Value.TRUE));
+		if (e.type == null || e.type.kind != Type.BOOLEAN)
+			throw error("condition is not a boolean");
+		return e;
+	}
+
+	private void declaration(boolean inProcess)
+			throws IllegalVhdlContentException {
+		if (accept("signal")) {
+			if (inProcess)
+				throw error("signal declared in a process");
+			List<String> names = identList();
+			expect(":");
+			Type t = objectType();
+			Value init = accept(":=") ? staticValue(coerce(expression(), t))
+					: t.initial();
+			expect(";");
+			for (String name : names)
+				define(name, newSignal(name, t, init, false));
+		} else if (accept("variable")) {
+			if (!inProcess)
+				throw error("shared variables are not supported");
+			List<String> names = identList();
+			expect(":");
+			Type t = objectType();
+			Value init = accept(":=") ? staticValue(coerce(expression(), t))
+					: t.initial();
+			expect(";");
+			for (String name : names) {
+				define(name, new Symbol(Symbol.VARIABLE, t, variables.size(),
+						null, false));
+				variables.add(init);
+			}
+		} else if (accept("constant")) {
+			List<String> names = identList();
+			expect(":");
+			Type t = subtype();
+			expect(":=");
+			Expr e = expression();
+			if (t.kind == Type.VECTOR && t.width() == 0 && e.type != null
+					&& e.type.kind == Type.VECTOR)
+				t = Type.vector(t.numeric, e.type.left, e.type.right,
+						e.type.downto);
+			Value v = staticValue(coerce(e, t));
+			expect(";");
+			for (String name : names)
+				define(name, new Symbol(Symbol.CONSTANT, t, -1, v, true));
+		} else if (accept("type")) {
+			String name = ident();
+			expect("is");
+			Type t;
+			if (accept("(")) {
+				List<String> literals = identList();
+				expect(")");
+				t = new Type(Type.ENUM, Type.NONE, 0, literals.size() - 1,
+						false, literals.toArray(new String[0]));
+				for (int i = 0; i < literals.size(); i++)
+					define(literals.get(i), new Symbol(Symbol.CONSTANT, t, -1,
+							VhdlDesign.integer(i), true));
+			} else if (accept("range")) {
+				Range r = range();
+				t = new Type(Type.INTEGER, Type.SIGNED, staticLong(r.left),
+						staticLong(r.right), r.downto, null);
+			} else {
+				throw error("only enumeration and integer types are supported");
+			}
+			expect(";");
+			define(name, new Symbol(Symbol.TYPE, t, -1, null, true));
+		} else if (accept("subtype")) {
+			String name = ident();
+			expect("is");
+			Type t = subtype();
+			expect(";");
+			define(name, new Symbol(Symbol.TYPE, t, -1, null, true));
+		} else if (accept("attribute")) {
+			skipTo(";");
+		} else {
+			throw error(peek() + " declarations are not supported");
+		}
+	}
+
+	private void define(String name, Symbol symbol)
+			throws IllegalVhdlContentException {
+		Map<String, Symbol> map = locals != null ? locals : scope;
+		if (map.containsKey(name))
+			throw error(name + " is declared twice");
+		map.put(name, symbol);
+	}
+
+	VhdlDesign elaborate() throws IllegalVhdlContentException {
+		boolean entity = false;
+		boolean architecture = false;
+		while (peek().kind != VhdlLexer.EOF) {
+			if (accept("library") || accept("use")) {
+				skipTo(";");
+			} else if (!entity && accept("entity")) {
+				entity();
+				entity = true;
+			} else if (entity && !architecture && accept("architecture")) {
+				architecture();
+				architecture = true;
+			} else {
+				throw error(peek() + " design units are not supported");
+			}
+		}
+		if (!architecture)
+			throw error("no architecture");
+
+		int[][] sensitive = new int[signals.size()][];
+		List<List<Integer>> lists = new ArrayList<List<Integer>>();
+		for (int i = 0; i < signals.size(); i++)
+			lists.add(new ArrayList<Integer>());
+		for (int p = 0; p < processes.size(); p++)
+			for (int s : processes.get(p).sensitivity)
+				lists.get(s).add(p);
+		for (int i = 0; i < sensitive.length; i++) {
+			sensitive[i] = new int[lists.get(i).size()];
+			for (int k = 0; k < sensitive[i].length; k++)
+				sensitive[i][k] = lists.get(i).get(k);
+		}
+		return new VhdlDesign(signals.toArray(new Signal[0]),
+				variables.toArray(new Value[0]),
+				processes.toArray(new VhdlDesign.Process[0]), sensitive,
+				toArray(inputs), toArray(outputs));
+	}
+
+	private void architecture() throws IllegalVhdlContentException {
+		String name = ident();
+		expect("of");
+		ident();
+		expect("is");
+		while (!accept("begin"))
+			declaration(false);
+		while (!accept("end"))
+			concurrent();
+		end("architecture", name);
+	}
+
+	private void end(String keyword, String name)
+			throws IllegalVhdlContentException {
+		accept(keyword);
+		accept(name);
+		expect(";");
+	}
+
+	private void entity() throws IllegalVhdlContentException {
+		String name = ident();
+		expect("is");
+		if (accept("generic")) {
+			expect("(");
+			do {
+				accept("constant");
+				List<String> names = identList();
+				expect(":");
+				Type t = subtype();
+				if (!accept(":="))
+					throw error("generics need a default value");
+				Value v = staticValue(coerce(expression(), t));
+				for (String n : names)
+					define(n, new Symbol(Symbol.CONSTANT, t, -1, v, true));
+			} while (accept(";"));
+			expect(")");
+			expect(";");
+		}
+		if (accept("port")) {
+			expect("(");
+			do {
+				accept("signal");
+				List<String> names = identList();
+				expect(":");
+				String mode = ident();
+				boolean input = mode.equals("in");
+				if (!input && !mode.equals("out") && !mode.equals("buffer"))
+					throw error(mode + " ports are not supported");
+				Type t = objectType();
+				Value init = accept(":=") ? staticValue(coerce(expression(),
+						t)) : t.initial();
+				for (String n : names) {
+					Symbol s = newSignal(n, t, init, input);
+					define(n, s);
+					(input ? inputs : outputs).add(s.index);
+				}
+			} while (accept(";"));
+			expect(")");
+			expect(";");
+		}
+		expect("end");
+		end("entity", name);
+	}
+
+	private IllegalVhdlContentException error(String message) {
+		return VhdlLexer.error(peek().line, message);
+	}
+
+	private void expect(String text) throws IllegalVhdlContentException {
+		if (!accept(text))
+			throw error("'" + text + "' expected instead of " + peek());
+	}
+
+	private Expr expression() throws IllegalVhdlContentException {
+		Expr e = relation();
+		int op;
+		while ((op = indexOf(LOGICAL, peek())) >= 0) {
+			next();
+			Expr b = relation();
+			if (e.type == null)
+				e = coerce(e, b.type);
+			b = coerce(b, e.type);
+			if (e.type.kind != Type.LOGIC && e.type.kind != Type.VECTOR
+					&& e.type.kind != Type.BOOLEAN)
+				throw error("logical operator on non logic operands");
+			e = new Binary(e.type, Binary.AND + op, e, b);
+		}
+		return e;
+	}
+
+	private Expr factor() throws IllegalVhdlContentException {
+		if (accept("not")) {
+			Expr a = primary();
+			if (a.type == null || (a.type.kind != Type.LOGIC
+					&& a.type.kind != Type.VECTOR && a.type.kind != Type.BOOLEAN))
+				throw error("not on a non logic operand");
+			return new Unary(a.type, Unary.NOT, a);
+		}
+		if (accept("abs")) {
+			Expr a = primary();
+			needSigned(a, "abs");
+			return new Unary(a.type, Unary.ABS, a);
+		}
+		Expr a = primary();
+		if (accept("**"))
+			return arithmetic(Binary.POW, a, primary());
+		return a;
+	}
+
+	private String ident() throws IllegalVhdlContentException {
+		Token t = next();
+		if (t.kind != VhdlLexer.IDENT)
+			throw VhdlLexer.error(t.line, "identifier expected instead of "
+					+ t);
+		return t.text;
+	}
+
+	private List<String> identList() throws IllegalVhdlContentException {
+		List<String> ret = new ArrayList<String>();
+		do {
+			ret.add(ident());
+		} while (accept(","));
+		return ret;
+	}
+
+	private Symbol lookup(String name) throws IllegalVhdlContentException {
+		Symbol ret = locals == null ? null : locals.get(name);
+		if (ret == null)
+			ret = scope.get(name);
+		if (ret == null)
+			throw error("unknown identifier " + name);
+		return ret;
+	}
+
+	private Expr name() throws IllegalVhdlContentException {
+		String name = ident();
+		Symbol s = locals != null && locals.containsKey(name) ? locals
+				.get(name) : scope.get(name);
+		Expr e;
+		if (s == null && BUILTINS.contains(name) && accept("("))
+			return builtin(name);
+		if (s == null)
+			throw error("unknown identifier " + name);
+		switch (s.kind) {
+		case Symbol.SIGNAL:
+			e = new SignalRef(s.type, s.index);
+			break;
+		case Symbol.VARIABLE:
+			e = new VariableRef(s.type, s.index);
+			break;
+		case Symbol.CONSTANT:
+			e = new Const(s.type, s.value);
+			break;
+		default:
+			accept("'");
+			expect("(");
+			e = coerce(expression(), s.type);
+			expect(")");
+			return e;
+		}
+		while (true) {
+			if (e.type.kind == Type.VECTOR && accept("(")) {
+				Expr a = simple();
+				if (peek().is("to") || peek().is("downto")) {
+					boolean downto = next().is("downto");
+					Expr b = simple();
+					Type t = sliceType(e.type, staticLong(a), staticLong(b),
+							downto);
+					e = new Slice(t, e, e.type.bit(t.low()));
+				} else {
+					if (a.type.kind != Type.INTEGER)
+						throw error("index is not an integer");
+					e = new Index(e, a);
+				}
+				expect(")");
+			} else if (accept("'")) {
+				String attr = ident();
+				Type t = e.type;
+				if (attr.equals("event")) {
+					if (!(e instanceof SignalRef))
+						throw error("'event needs a signal");
+					e = new Event(((SignalRef) e).signal, null);
+				} else if (attr.equals("length")) {
+					e = new Const(Type.INTEGER_TYPE, VhdlDesign.integer(t
+							.width()));
+				} else if (attr.equals("left") || attr.equals("right")
+						|| attr.equals("high") || attr.equals("low")) {
+					long v = attr.equals("left") ? t.left : attr
+							.equals("right") ? t.right : attr.equals("high") ? t
+							.high() : t.low();
+					e = new Const(Type.INTEGER_TYPE, VhdlDesign.integer(v));
+				} else {
+					throw error("attribute '" + attr + " is not supported");
+				}
+			} else {
+				return e;
+			}
+		}
+	}
+
+	private void needSigned(Expr a, String what)
+			throws IllegalVhdlContentException {
+		if (a.type == null
+				|| !(a.type.kind == Type.INTEGER || a.type.numeric == Type.SIGNED))
+			throw error(what + " needs a signed operand");
+	}
+
+	private void needVector(Expr a, String what)
+			throws IllegalVhdlContentException {
+		if (a.type.kind != Type.VECTOR)
+			throw error(what + " needs a vector");
+	}
+
+	private Symbol newSignal(String name, Type type, Value init,
+			boolean readOnly) {
+		signals.add(new Signal(name, type, init));
+		return new Symbol(Symbol.SIGNAL, type, signals.size() - 1, null,
+				readOnly);
+	}
+
+	private Token next() {
+		Token t = tokens.get(pos);
+		if (t.kind != VhdlLexer.EOF)
+			pos++;
+		return t;
+	}
+
+	/** Type of a signal, variable or port, which must be constrained */
+	private Type objectType() throws IllegalVhdlContentException {
+		Type t = subtype();
+		if (t.kind == Type.VECTOR && t.width() == 0)
+			throw error("unconstrained vector");
+		return t;
+	}
+
+	private Token peek() {
+		return tokens.get(pos);
+	}
+
+	private Token peek(int ahead) {
+		return tokens.get(Math.min(pos + ahead, tokens.size() - 1));
+	}
+
+	private Expr primary() throws IllegalVhdlContentException {
+		Token t = peek();
+		switch (t.kind) {
+		case VhdlLexer.INTEGER:
+			next();
+			return new Const(Type.INTEGER_TYPE, VhdlDesign.integer(t.value));
+		case VhdlLexer.CHAR:
+			next();
+			return new Const(Type.LOGIC_TYPE, logic(t.text.charAt(0)));
+		case VhdlLexer.STRING:
+			next();
+			int width = t.text.length();
+			if (width == 0 || width > 64)
+				throw error("vectors of " + width + " bits are not supported");
+			Value[] bits = new Value[width];
+			for (int i = 0; i < width; i++)
+				bits[width - 1 - i] = logic(t.text.charAt(i));
+			return new Const(vectorType(Type.NONE, width), Value.create(bits));
+		case VhdlLexer.IDENT:
+			if (t.is("true") || t.is("false")) {
+				next();
+				return new Const(Type.BOOLEAN_TYPE, VhdlDesign.bool(t
+						.is("true")));
+			}
+			return name();
+		default:
+			break;
+		}
+		expect("(");
+		Expr others = null;
+		List<Expr> choices = new ArrayList<Expr>();
+		List<Expr> elements = new ArrayList<Expr>();
+		do {
+			if (accept("others")) {
+				expect("=>");
+				others = expression();
+			} else {
+				Expr a = expression();
+				if (accept("=>")) {
+					choices.add(a);
+					elements.add(expression());
+				} else {
+					choices.add(null);
+					elements.add(a);
+				}
+			}
+		} while (accept(","));
+		expect(")");
+		if (others == null && elements.size() == 1 && choices.get(0) == null)
+			return elements.get(0);
+		return new PendingAggregate(others, choices, elements);
+	}
+
+	private void process() throws IllegalVhdlContentException {
+		List<Integer> sensitivity = new ArrayList<Integer>();
+		if (!accept("("))
+			throw error("processes without a sensitivity list are not supported");
+		if (accept("all")) {
+			sensitivity = null;
+		} else {
+			do {
+				Symbol s = lookup(ident());
+				if (s.kind != Symbol.SIGNAL)
+					throw error("sensitivity list entry is not a signal");
+				sensitivity.add(s.index);
+			} while (accept(","));
+		}
+		expect(")");
+		accept("is");
+		locals = new HashMap<String, Symbol>();
+		while (!accept("begin"))
+			declaration(true);
+		Stmt[] body = sequence();
+		expect("end");
+		expect("process");
+		skipLabel();
+		expect(";");
+		locals = null;
+		addProcess(body, sensitivity);
+	}
+
+	private Range range() throws IllegalVhdlContentException {
+		if (peek().kind == VhdlLexer.IDENT && peek(1).is("'")
+				&& (peek(2).is("range") || peek(2).is("reverse_range"))) {
+			Type t = lookup(ident()).type;
+			next();
+			boolean reverse = next().is("reverse_range");
+			Expr left = new Const(Type.INTEGER_TYPE, VhdlDesign.integer(t.left));
+			Expr right = new Const(Type.INTEGER_TYPE,
+					VhdlDesign.integer(t.right));
+			return reverse ? new Range(right, left, !t.downto) : new Range(
+					left, right, t.downto);
+		}
+		Expr left = simple();
+		boolean downto = accept("downto");
+		if (!downto)
+			expect("to");
+		return new Range(left, simple(), downto);
+	}
+
+	private Expr relation() throws IllegalVhdlContentException {
+		Expr a = shift();
+		int op = indexOf(RELATIONAL, peek());
+		if (op < 0)
+			return a;
+		next();
+		return comparison(Binary.EQ + op, a, shift());
+	}
+
+	private void selected() throws IllegalVhdlContentException {
+		Expr selector = expression();
+		expect("select");
+		Target target = target();
+		if (target.symbol.kind != Symbol.SIGNAL)
+			throw error("selected assignment to a variable");
+		expect("<=");
+		List<Value[]> lows = new ArrayList<Value[]>();
+		List<Value[]> highs = new ArrayList<Value[]>();
+		List<Stmt[]> branches = new ArrayList<Stmt[]>();
+		Stmt[] otherwise = new Stmt[0];
+		do {
+			Expr value = waveform(target.type);
+			Stmt[] body = value == null ? new Stmt[0]
+					: new Stmt[] { target.assign(value) };
+			expect("when");
+			List<Value> l = new ArrayList<Value>();
+			List<Value> h = new ArrayList<Value>();
+			if (choices(selector.type, l, h))
+				otherwise = body;
+			lows.add(l.toArray(new Value[0]));
+			highs.add(h.toArray(new Value[0]));
+			branches.add(body);
+		} while (accept(","));
+		expect(";");
+		addProcess(new Stmt[] { new Case(selector,
+				lows.toArray(new Value[0][]), highs.toArray(new Value[0][]),
+				branches.toArray(new Stmt[0][]), otherwise) }, null);
+	}
+
+	private Stmt[] sequence() throws IllegalVhdlContentException {
+		List<Stmt> ret = new ArrayList<Stmt>();
+		while (!(peek().is("end") || peek().is("elsif") || peek().is("else")
+				|| peek().is("when") || peek().kind == VhdlLexer.EOF)) {
+			Stmt s = sequential();
+			if (s != null)
+				ret.add(s);
+		}
+		return ret.toArray(new Stmt[0]);
+	}
+
+	private Stmt sequential() throws IllegalVhdlContentException {
+		if (peek().kind == VhdlLexer.IDENT && peek(1).is(":"))
+			pos += 2;
+		if (accept("if")) {
+			List<Expr> conditions = new ArrayList<Expr>();
+			List<Stmt[]> branches = new ArrayList<Stmt[]>();
+			do {
+				conditions.add(condition());
+				expect("then");
+				branches.add(sequence());
+			} while (accept("elsif"));
+			Stmt[] otherwise = accept("else") ? sequence() : new Stmt[0];
+			expect("end");
+			expect("if");
+			skipLabel();
+			expect(";");
+			return new If(conditions.toArray(new Expr[0]),
+					branches.toArray(new Stmt[0][]), otherwise);
+		}
+		if (accept("case")) {
+			Expr selector = expression();
+			if (selector.type == null)
+				throw error("aggregate as case selector");
+			expect("is");
+			List<Value[]> lows = new ArrayList<Value[]>();
+			List<Value[]> highs = new ArrayList<Value[]>();
+			List<Stmt[]> branches = new ArrayList<Stmt[]>();
+			Stmt[] otherwise = new Stmt[0];
+			while (accept("when")) {
+				List<Value> l = new ArrayList<Value>();
+				List<Value> h = new ArrayList<Value>();
+				boolean others = choices(selector.type, l, h);
+				expect("=>");
+				Stmt[] body = sequence();
+				if (others)
+					otherwise = body;
+				lows.add(l.toArray(new Value[0]));
+				highs.add(h.toArray(new Value[0]));
+				branches.add(body);
+			}
+			expect("end");
+			expect("case");
+			skipLabel();
+			expect(";");
+			return new Case(selector, lows.toArray(new Value[0][]),
+					highs.toArray(new Value[0][]),
+					branches.toArray(new Stmt[0][]), otherwise);
+		}
+		if (accept("for")) {
+			String name = ident();
+			expect("in");
+			Range r = range();
+			expect("loop");
+			int slot = variables.size();
+			variables.add(VhdlDesign.integer(0));
+			Symbol hidden = locals.put(name, new Symbol(Symbol.VARIABLE,
+					Type.INTEGER_TYPE, slot, null, true));
+			Stmt[] body = sequence();
+			if (hidden != null)
+				locals.put(name, hidden);
+			else
+				locals.remove(name);
+			endLoop();
+			return new Loop(slot, r.left, r.right, r.downto, null, body);
+		}
+		if (accept("while")) {
+			Expr c = condition();
+			expect("loop");
+			Stmt[] body = sequence();
+			endLoop();
+			return new Loop(-1, null, null, false, c, body);
+		}
+		if (accept("null")) {
+			expect(";");
+			return null;
+		}
+		if (accept("assert") || accept("report")) {
+			skipTo(";");
+			return null;
+		}
+		Token t = peek();
+		if (t.is("wait") || t.is("loop") || t.is("exit") || t.is("next")
+				|| t.is("return"))
+			throw error(t.text + " statements are not supported");
+
+		Target target = target();
+		if (accept(":=")) {
+			if (target.symbol.kind != Symbol.VARIABLE)
+				throw error(":= on a signal");
+			Expr value = coerce(expression(), target.type);
+			expect(";");
+			return target.assign(value);
+		}
+		expect("<=");
+		if (target.symbol.kind != Symbol.SIGNAL)
+			throw error("<= on a variable");
+		Expr value = waveform(target.type);
+		if (peek().is("when"))
+			throw error("conditional assignments in processes are not supported");
+		expect(";");
+		return value == null ? null : target.assign(value);
+	}
+
+	private void endLoop() throws IllegalVhdlContentException {
+		expect("end");
+		expect("loop");
+		skipLabel();
+		expect(";");
+	}
+
+	private Expr shift() throws IllegalVhdlContentException {
+		Expr a = simple();
+		int op = indexOf(SHIFTS, peek());
+		if (op < 0)
+			return a;
+		next();
+		Expr b = simple();
+		needVector(a, SHIFTS[op]);
+		if (b.type == null || b.type.kind != Type.INTEGER)
+			throw error(SHIFTS[op] + " needs an integer amount");
+		return new Convert(a.type, Convert.SHIFT_LEFT + op, a, b);
+	}
+
+	private Expr simple() throws IllegalVhdlContentException {
+		Expr e;
+		if (accept("-")) {
+			e = term();
+			needSigned(e, "negation");
+			e = new Unary(e.type, Unary.NEGATE, e);
+		} else {
+			accept("+");
+			e = term();
+		}
+		while (true) {
+			if (accept("+")) {
+				e = arithmetic(Binary.ADD, e, term());
+			} else if (accept("-")) {
+				e = arithmetic(Binary.SUB, e, term());
+			} else if (accept("&")) {
+				Expr b = term();
+				if (e.type == null || b.type == null
+						|| (e.type.kind != Type.LOGIC && e.type.kind != Type.VECTOR)
+						|| (b.type.kind != Type.LOGIC && b.type.kind != Type.VECTOR))
+					throw error("& needs std_logic or vector operands");
+				int numeric = e.type.kind == Type.VECTOR ? e.type.numeric
+						: b.type.numeric;
+				e = new Binary(vectorType(numeric, e.type.width()
+						+ b.type.width()), Binary.CONCAT, e, b);
+			} else {
+				return e;
+			}
+		}
+	}
+
+	private void skipLabel() {
+		if (peek().kind == VhdlLexer.IDENT)
+			next();
+	}
+
+	private void skipTo(String text) throws IllegalVhdlContentException {
+		while (!peek().is(text) && peek().kind != VhdlLexer.EOF)
+			next();
+		expect(text);
+	}
+
+	private Type sliceType(Type t, long left, long right, boolean downto)
+			throws IllegalVhdlContentException {
+		if (t.bit(left) < 0 || t.bit(right) < 0 || downto != t.downto
+				|| (left < right) == downto)
+			throw error("slice out of range");
+		return Type.vector(t.numeric, left, right, downto);
+	}
+
+	private long staticLong(Expr e) throws IllegalVhdlContentException {
+		if (e == null || e.type == null || e.type.kind != Type.INTEGER)
+			throw error("integer expected");
+		Value v = staticValue(e);
+		if (!v.isFullyDefined())
+			throw error("undefined integer");
+		return v.toLongValue();
+	}
+
+	private Value staticValue(Expr e) throws IllegalVhdlContentException {
+		if (!e.isStatic())
+			throw error("expression is not static");
+		return e.eval(null);
+	}
+
+	private Type subtype() throws IllegalVhdlContentException {
+		String name = ident();
+		switch (name) {
+		case "std_logic":
+		case "std_ulogic":
+		case "bit":
+			return Type.LOGIC_TYPE;
+		case "boolean":
+			return Type.BOOLEAN_TYPE;
+		case "integer":
+		case "natural":
+		case "positive":
+			long lo = name.equals("integer") ? Integer.MIN_VALUE : name
+					.equals("natural") ? 0 : 1;
+			return integerRange(lo, Integer.MAX_VALUE);
+		case "std_logic_vector":
+		case "std_ulogic_vector":
+		case "bit_vector":
+		case "unsigned":
+		case "signed":
+			int numeric = name.equals("unsigned") ? Type.UNSIGNED : name
+					.equals("signed") ? Type.SIGNED : Type.NONE;
+			if (!accept("("))
+				return Type.vector(numeric, -1, 0, true);
+			Range r = range();
+			expect(")");
+			long left = staticLong(r.left);
+			long right = staticLong(r.right);
+			long width = Math.abs(left - right) + 1;
+			if ((left < right) == r.downto || width > 64)
+				throw error("vectors of " + width + " bits are not supported");
+			return Type.vector(numeric, left, right, r.downto);
+		default:
+			Symbol s = lookup(name);
+			if (s.kind != Symbol.TYPE)
+				throw error(name + " is not a type");
+			if (s.type.kind == Type.INTEGER)
+				return integerRange(s.type.left, s.type.right);
+			return s.type;
+		}
+	}
+
+	private Type integerRange(long lo, long hi)
+			throws IllegalVhdlContentException {
+		if (!accept("range"))
+			return new Type(Type.INTEGER, Type.SIGNED, lo, hi, false, null);
+		Range r = range();
+		return new Type(Type.INTEGER, Type.SIGNED, staticLong(r.left),
+				staticLong(r.right), r.downto, null);
+	}
+
+	private Target target() throws IllegalVhdlContentException {
+		Symbol s = lookup(ident());
+		if ((s.kind != Symbol.SIGNAL && s.kind != Symbol.VARIABLE)
+				|| s.readOnly)
+			throw error("assignment target is read only");
+		if (s.type.kind != Type.VECTOR || !accept("("))
+			return new Target(s, s.type, null, -1);
+		Expr a = simple();
+		Target ret;
+		if (peek().is("to") || peek().is("downto")) {
+			boolean downto = next().is("downto");
+			Expr b = simple();
+			Type t = sliceType(s.type, staticLong(a), staticLong(b), downto);
+			ret = new Target(s, t, null, s.type.bit(t.low()));
+		} else {
+			if (a.type.kind != Type.INTEGER)
+				throw error("index is not an integer");
+			ret = new Target(s, Type.LOGIC_TYPE, a, -1);
+		}
+		expect(")");
+		return ret;
+	}
+
+	private Expr term() throws IllegalVhdlContentException {
+		Expr e = factor();
+		while (true) {
+			if (accept("*"))
+				e = arithmetic(Binary.MUL, e, factor());
+			else if (accept("/"))
+				e = arithmetic(Binary.DIV, e, factor());
+			else if (accept("mod"))
+				e = arithmetic(Binary.MOD, e, factor());
+			else if (accept("rem"))
+				e = arithmetic(Binary.REM, e, factor());
+			else
+				return e;
+		}
+	}
+
+	private static int[] toArray(List<Integer> list) {
+		int[] ret = new int[list.size()];
+		for (int i = 0; i < ret.length; i++)
+			ret[i] = list.get(i);
+		return ret;
+	}
+
+	private Type vectorType(int numeric, int width)
+			throws IllegalVhdlContentException {
+		if (width < 1 || width > 64)
+			throw error("vectors of " + width + " bits are not supported");
+		return Type.vector(numeric, width - 1, 0, true);
+	}
+
+	/** Value of an assignment; delays and later waveform elements are ignored */
+	private Expr waveform(Type type) throws IllegalVhdlContentException {
+		if (accept("unaffected"))
+			return null;
+		Expr e = coerce(expression(), type);
+		if (peek().is("after") || peek().is(",")) {
+			int depth = 0;
+			while (peek().kind != VhdlLexer.EOF) {
+				Token t = peek();
+				if (depth == 0
+						&& (t.is("when") || t.is("else") || t.is(";")))
+					break;
+				if (t.is("("))
+					depth++;
+				else if (t.is(")"))
+					depth--;
+				next();
+			}
+		}
+		return e;
+	}
+}
@@ -51,6 +51,7 @@ import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.gui.main.Frame;
 import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceData;
 import com.cburch.logisim.instance.InstanceFactory;
 import com.cburch.logisim.instance.InstancePainter;
 import com.cburch.logisim.instance.InstanceState;
@@ -237,13 +238,15 @@ public class VhdlEntity extends InstanceFactory {
 	@Override
 	/**
 	 * Propagate signals through the VHDL component.
-	 * Logisim doesn't have a VHDL simulation tool. So we need to use an external tool.
-	 * We send signals to Questasim/Modelsim through a socket and a tcl binder. Then,
-	 * a simulation step is done and the tcl server sends the output signals back to
-	 * Logisim. Then we can set the VHDL component output properly.
+	 * When an external Questasim/Modelsim server is connected, the signals are
+	 * sent through a socket and a tcl binder. Then, a simulation step is done
+	 * and the tcl server sends the output signals back to Logisim. The signals
+	 * of all the VHDL components propagated in a step travel together, see
+	 * VhdlSimulator.flush(). The connection is done in Simulation.java.
 	 *
-	 * This can be done only if Logisim could connect to the tcl server (socket). This is
-	 * done in Simulation.java.
+	 * Otherwise the architecture is run by the built-in interpreter, which
+	 * handles the synthesizable subset (see VhdlElaborator). Outputs of
+	 * architectures it does not support are left unknown.
 	 */
 	public void propagate(InstanceState state) {
 
@@ -252,60 +255,28 @@ public class VhdlEntity extends InstanceFactory {
 
 			VhdlSimulator vhdlSimulator = state.getProject().getVhdlSimulator();
 
-			for (Port p : state.getInstance().getPorts()) {
-				int index = state.getPortIndex(p);
-				Value val = state.getPortValue(index);
-
-				String vhdlEntityName = getHDLTopName(state.getAttributeSet());
-
-				String message = p.getType() + ":" + vhdlEntityName + "_"
-						+ p.getToolTip() + ":" + val.toBinaryString() + ":"
-						+ index;
-
-				vhdlSimulator.send(message);
-			}
-
-			vhdlSimulator.send("sync");
-
-			/* Get response from tcl server */
-			String server_response;
-			while ((server_response = vhdlSimulator.receive()) != null
-					&& server_response.length() > 0
-					&& !server_response.equals("sync")) {
-
-				String[] parameters = server_response.split("\\:");
-
-				String busValue = parameters[1];
+			/*
+			 * The ports are sent with those of the other VHDL components of
+			 * this step, and the outputs set when the simulator answers
+			 */
+			vhdlSimulator.queue(state, getHDLTopName(state.getAttributeSet()));
 
-				Value vector_values[] = new Value[busValue.length()];
-
-				int k = busValue.length() - 1;
-				for (char bit : busValue.toCharArray()) {
+			/* VhdlSimulation stopped/disabled */
+		} else {
 
-					try {
-						switch (Character.getNumericValue(bit)) {
-						case 0:
-							vector_values[k] = Value.FALSE;
-							break;
-						case 1:
-							vector_values[k] = Value.TRUE;
-							break;
-						default:
-							vector_values[k] = Value.UNKNOWN;
-							break;
-						}
-					} catch (NumberFormatException e) {
-						vector_values[k] = Value.UNKNOWN;
-					}
-					k--;
+			VhdlDesign design = state.getAttributeValue(CONTENT_ATTR)
+					.getDesign();
+			if (design.isSupported()) {
+				InstanceData data = state.getData();
+				if (!(data instanceof VhdlInterpreter)
+						|| ((VhdlInterpreter) data).design != design) {
+					data = new VhdlInterpreter(design);
+					state.setData(data);
 				}
-
-				state.setPort(Integer.parseInt(parameters[2]),
-						Value.create(vector_values), 1);
+				((VhdlInterpreter) data).propagate(state);
+				return;
 			}
-
-			/* VhdlSimulation stopped/disabled */
-		} else {
+			logger.debug("VHDL entity not interpreted: {}", design.unsupported);
 
 			for (Port p : state.getInstance().getPorts()) {
 				int index = state.getPortIndex(p);
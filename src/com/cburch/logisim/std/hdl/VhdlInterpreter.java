@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.hdl;
+
+import java.util.Arrays;
+
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.InstanceData;
+import com.cburch.logisim.instance.InstanceState;
+
+/**
+ * Simulation state of one VHDL entity run by the built-in interpreter. Each
+ * propagation copies the input ports into their signals and runs delta cycles
+ * until no process is woken any more, then drives the output ports.
+ */
+class VhdlInterpreter implements InstanceData, Cloneable {
+
+	static final int MAX_DELTAS = 1000;
+
+	final VhdlDesign design;
+	Value[] signals;
+	Value[] last;
+	boolean[] events;
+	Value[] variables;
+	private Value[] next;
+	private boolean[] pending;
+	private boolean[] woken;
+	private boolean initialized;
+	private boolean stable = true;
+
+	VhdlInterpreter(VhdlDesign design) {
+		int n = design.signals.length;
+		this.design = design;
+		this.signals = new Value[n];
+		this.next = new Value[n];
+		this.pending = new boolean[n];
+		this.events = new boolean[n];
+		this.woken = new boolean[design.processes.length];
+		this.variables = design.variables.clone();
+		for (int i = 0; i < n; i++)
+			signals[i] = design.signals[i].initial;
+		this.last = signals.clone();
+	}
+
+	void assign(boolean signal, int target, Value v) {
+		if (signal) {
+			next[target] = v;
+			pending[target] = true;
+		} else {
+			variables[target] = v;
+		}
+	}
+
+	@Override
+	public VhdlInterpreter clone() {
+		try {
+			VhdlInterpreter ret = (VhdlInterpreter) super.clone();
+			ret.signals = signals.clone();
+			ret.last = last.clone();
+			ret.events = events.clone();
+			ret.variables = variables.clone();
+			ret.next = next.clone();
+			ret.pending = pending.clone();
+			ret.woken = woken.clone();
+			return ret;
+		} catch (CloneNotSupportedException e) {
+			return null;
+		}
+	}
+
+	private void change(int signal, Value v) {
+		last[signal] = signals[signal];
+		signals[signal] = v;
+		events[signal] = true;
+		for (int p : design.sensitive[signal])
+			woken[p] = true;
+	}
+
+	void propagate(InstanceState state) {
+		int[] inputs = design.inputs;
+		for (int i = 0; i < inputs.length; i++) {
+			Value v = state.getPortValue(i);
+			if (!initialized)
+				signals[inputs[i]] = v;
+			else if (!v.equals(signals[inputs[i]]))
+				change(inputs[i], v);
+		}
+		if (!initialized) {
+			Arrays.fill(woken, true);
+			initialized = true;
+		}
+
+		try {
+			stable = run();
+		} catch (RuntimeException e) {
+			VhdlEntity.logger.debug("VHDL interpreter stopped: {}",
+					e.getMessage());
+			Arrays.fill(pending, false);
+			Arrays.fill(events, false);
+			Arrays.fill(woken, false);
+			stable = false;
+		}
+
+		int[] outputs = design.outputs;
+		for (int i = 0; i < outputs.length; i++) {
+			VhdlDesign.Signal sig = design.signals[outputs[i]];
+			state.setPort(inputs.length + i, stable ? signals[outputs[i]]
+					: VhdlDesign.undefined(sig.type), 1);
+		}
+	}
+
+	/**
+	 * Runs delta cycles, returns false if the design does not settle. A design
+	 * left oscillating stays so until an input changes.
+	 */
+	private boolean run() {
+		VhdlDesign.Process[] processes = design.processes;
+		for (int delta = 0; delta < MAX_DELTAS; delta++) {
+			boolean ran = false;
+			for (int p = 0; p < processes.length; p++) {
+				if (woken[p]) {
+					woken[p] = false;
+					ran = true;
+					VhdlDesign.run(processes[p].body, this);
+				}
+			}
+			Arrays.fill(events, false);
+			if (!ran)
+				return delta > 0 || stable;
+			for (int i = 0; i < pending.length; i++) {
+				if (pending[i]) {
+					pending[i] = false;
+					if (!next[i].equals(signals[i]))
+						change(i, next[i]);
+				}
+			}
+		}
+		Arrays.fill(woken, false);
+		return false;
+	}
+
+	Value target(boolean signal, int target) {
+		if (!signal)
+			return variables[target];
+		return pending[target] ? next[target] : signals[target];
+	}
+}
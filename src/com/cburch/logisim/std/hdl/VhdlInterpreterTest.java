@@ -0,0 +1,311 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.hdl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.Port;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+
+public class VhdlInterpreterTest {
+
+	private static final String HEADER = "library ieee;\n"
+			+ "use ieee.std_logic_1164.all;\n"
+			+ "use ieee.numeric_std.all;\n";
+
+	/** A VHDL component with an input pin on each of its input ports. */
+	private class Fixture {
+		final Component comp;
+		final Component[] pins;
+
+		Fixture(String vhdl) {
+			VhdlEntity factory = new VhdlEntity();
+			AttributeSet attrs = factory.createAttributeSet();
+			attrs.getValue(VhdlEntity.CONTENT_ATTR).setContent(vhdl);
+			attrs.setValue(StdAttr.LABEL, "u" + x);
+			comp = factory.createComponent(Location.create(x, 1000), attrs);
+			x += 400;
+			CircuitMutation m = new CircuitMutation(circuit);
+			m.add(comp);
+
+			Instance inst = Instance.getInstanceFor(comp);
+			Port[] inputs = inst.getAttributeValue(VhdlEntity.CONTENT_ATTR)
+					.getInputs();
+			pins = new Component[inputs.length];
+			for (int i = 0; i < inputs.length; i++) {
+				AttributeSet pinAttrs = Pin.FACTORY.createAttributeSet();
+				pinAttrs.setValue(StdAttr.WIDTH, inputs[i].getFixedBitWidth());
+				pins[i] = Pin.FACTORY.createComponent(inst.getPortLocation(i),
+						pinAttrs);
+				m.add(pins[i]);
+			}
+			m.execute();
+		}
+
+		Value[] step(long... in) {
+			for (int i = 0; i < pins.length; i++) {
+				InstanceState pin = state.getInstanceState(pins[i]);
+				BitWidth width = pins[i].getAttributeSet().getValue(
+						StdAttr.WIDTH);
+				Pin.FACTORY.setValue(pin, Value.createKnown(width, in[i]));
+				pin.fireInvalidated();
+			}
+			state.getPropagator().propagate();
+			Instance inst = Instance.getInstanceFor(comp);
+			int n = inst.getPorts().size();
+			Value[] ret = new Value[n - pins.length];
+			for (int i = pins.length; i < n; i++)
+				ret[i - pins.length] = state.getValue(inst.getPortLocation(i));
+			return ret;
+		}
+	}
+
+	private static void expect(String what, Value[] got, long... expected) {
+		for (int i = 0; i < expected.length; i++) {
+			assertTrue(what + " output " + i + " " + got[i],
+					got[i].isFullyDefined());
+			assertEquals(what + " output " + i, expected[i],
+					got[i].toLongValue());
+		}
+	}
+
+	private Circuit circuit;
+	private CircuitState state;
+	private int x = 1000;
+
+	@Before
+	public void setUp() {
+		LogisimFile file = LogisimFile.createNew(new Loader(null), null);
+		Project proj = new Project(file);
+		circuit = file.getMainCircuit();
+		state = new CircuitState(proj, circuit);
+		proj.setCircuitState(state);
+	}
+
+	@Test
+	public void testClockedCounter() {
+		Fixture f = new Fixture(HEADER
+				+ "entity counter is\n"
+				+ " port ( clk : in std_logic; rst : in std_logic;\n"
+				+ "  en : in std_logic;\n"
+				+ "  q : out std_logic_vector(3 downto 0);\n"
+				+ "  max_o : out std_logic );\n"
+				+ "end counter;\n"
+				+ "architecture rtl of counter is\n"
+				+ "  signal cnt : unsigned(3 downto 0);\n"
+				+ "begin\n"
+				+ "  process (clk, rst)\n"
+				+ "  begin\n"
+				+ "    if rst = '1' then\n"
+				+ "      cnt <= (others => '0');\n"
+				+ "    elsif rising_edge(clk) then\n"
+				+ "      if en = '1' then cnt <= cnt + 1; end if;\n"
+				+ "    end if;\n"
+				+ "  end process;\n"
+				+ "  q <= std_logic_vector(cnt);\n"
+				+ "  max_o <= '1' when cnt = 15 else '0';\n"
+				+ "end rtl;\n");
+		expect("reset", f.step(0, 1, 0), 0, 0);
+		f.step(0, 0, 1);
+		for (int i = 1; i <= 16; i++) {
+			f.step(1, 0, 1);
+			expect("count " + i, f.step(0, 0, 1), i & 15,
+					(i & 15) == 15 ? 1 : 0);
+		}
+		f.step(1, 0, 0);
+		expect("hold", f.step(0, 0, 0), 0, 0);
+	}
+
+	@Test
+	public void testSelectAndLoop() {
+		Fixture f = new Fixture(HEADER
+				+ "entity mux4 is\n"
+				+ " port ( sel : in std_logic_vector(1 downto 0);\n"
+				+ "  a, b, c, d : in std_logic_vector(7 downto 0);\n"
+				+ "  y : out std_logic_vector(7 downto 0); par : out std_logic );\n"
+				+ "end mux4;\n"
+				+ "architecture rtl of mux4 is\n"
+				+ "  signal t : std_logic_vector(7 downto 0);\n"
+				+ "begin\n"
+				+ "  with sel select t <=\n"
+				+ "    a when \"00\",\n"
+				+ "    b when \"01\",\n"
+				+ "    c when \"10\",\n"
+				+ "    d when others;\n"
+				+ "  y <= t;\n"
+				+ "  parity : process (all)\n"
+				+ "    variable p : std_logic;\n"
+				+ "  begin\n"
+				+ "    p := '0';\n"
+				+ "    for i in t'range loop\n"
+				+ "      p := p xor t(i);\n"
+				+ "    end loop;\n"
+				+ "    par <= p;\n"
+				+ "  end process;\n"
+				+ "end rtl;\n");
+		long[] in = { 0x11, 0x23, 0x47, 0xF0 };
+		for (int s = 0; s < 4; s++) {
+			expect("select " + s, f.step(s, in[0], in[1], in[2], in[3]),
+					in[s], Long.bitCount(in[s]) & 1);
+		}
+	}
+
+	@Test
+	public void testArithmeticAndGenerics() {
+		Fixture f = new Fixture(HEADER
+				+ "entity adder is\n"
+				+ " generic ( N : integer := 8 );\n"
+				+ " port ( a : in std_logic_vector(7 downto 0);\n"
+				+ "  b : in std_logic_vector(7 downto 0); ci : in std_logic;\n"
+				+ "  s : out std_logic_vector(7 downto 0); co : out std_logic;\n"
+				+ "  hi : out std_logic_vector(3 downto 0) );\n"
+				+ "end adder;\n"
+				+ "architecture rtl of adder is\n"
+				+ "  signal sum : unsigned(N downto 0);\n"
+				+ "  constant ZERO : unsigned(N - 1 downto 0) := (others => '0');\n"
+				+ "begin\n"
+				+ "  sum <= resize(unsigned(a), N + 1) + resize(unsigned(b), N + 1)\n"
+				+ "    + (ZERO & ci) after 2 ns;\n"
+				+ "  s <= std_logic_vector(sum(N - 1 downto 0));\n"
+				+ "  co <= sum(N);\n"
+				+ "  hi <= x\"F\" when to_integer(unsigned(a)) > 200 else\n"
+				+ "    std_logic_vector(shift_right(unsigned(a(7 downto 4)), 1));\n"
+				+ "end rtl;\n");
+		Random rand = new Random(1);
+		for (int i = 0; i < 20; i++) {
+			long a = rand.nextInt(256);
+			long b = rand.nextInt(256);
+			long ci = rand.nextInt(2);
+			long sum = a + b + ci;
+			expect(a + "+" + b + "+" + ci, f.step(a, b, ci), sum & 255,
+					sum >> 8, a > 200 ? 15 : (a >> 4) >> 1);
+		}
+	}
+
+	@Test
+	public void testStateMachine() {
+		Fixture f = new Fixture(HEADER
+				+ "entity detect is\n"
+				+ " port ( clk : in std_logic; din : in std_logic;\n"
+				+ "  found : out std_logic;\n"
+				+ "  state_o : out std_logic_vector(1 downto 0) );\n"
+				+ "end detect;\n"
+				+ "architecture fsm of detect is\n"
+				+ "  type state_t is (IDLE, ONE, TWO);\n"
+				+ "  signal state, next_state : state_t := IDLE;\n"
+				+ "begin\n"
+				+ "  process (clk) begin\n"
+				+ "    if clk'event and clk = '1' then state <= next_state; end if;\n"
+				+ "  end process;\n"
+				+ "  process (state, din) begin\n"
+				+ "    next_state <= state;\n"
+				+ "    case state is\n"
+				+ "      when IDLE => if din = '1' then next_state <= ONE; end if;\n"
+				+ "      when ONE => if din = '1' then next_state <= TWO;\n"
+				+ "        else next_state <= IDLE; end if;\n"
+				+ "      when TWO => if din = '0' then next_state <= IDLE; end if;\n"
+				+ "    end case;\n"
+				+ "  end process;\n"
+				+ "  found <= '1' when state = TWO else '0';\n"
+				+ "  with state select state_o <= \"00\" when IDLE,\n"
+				+ "    \"01\" when ONE, \"10\" when others;\n"
+				+ "end fsm;\n");
+		int run = 0;
+		for (int b : new int[] { 1, 1, 1, 0, 1, 0, 1, 1 }) {
+			f.step(0, b);
+			Value[] out = f.step(1, b);
+			run = b == 1 ? Math.min(run + 1, 2) : 0;
+			expect("din=" + b, out, run == 2 ? 1 : 0, run);
+		}
+	}
+
+	@Test
+	public void testUnsupportedFallsBackToUnknown() {
+		String instance = HEADER
+				+ "entity top is\n"
+				+ " port ( a : in std_logic; y : out std_logic );\n"
+				+ "end top;\n"
+				+ "architecture s of top is\n"
+				+ "  component inv port ( i : in std_logic; o : out std_logic );\n"
+				+ "  end component;\n"
+				+ "begin\n"
+				+ "  u0 : inv port map (i => a, o => y);\n"
+				+ "end s;\n";
+		assertFalse(VhdlDesign.elaborate(instance).isSupported());
+		String wait = HEADER
+				+ "entity w is port ( a : in std_logic; y : out std_logic ); end w;\n"
+				+ "architecture s of w is begin\n"
+				+ " process begin y <= a; wait on a; end process;\n"
+				+ "end s;\n";
+		assertFalse(VhdlDesign.elaborate(wait).isSupported());
+
+		Fixture f = new Fixture(instance);
+		assertEquals(Value.UNKNOWN, f.step(1)[0]);
+	}
+
+	@Test
+	public void testOscillationIsAnError() {
+		Fixture f = new Fixture(HEADER
+				+ "entity o is port ( a : in std_logic; y : out std_logic ); end o;\n"
+				+ "architecture s of o is signal t : std_logic := '0'; begin\n"
+				+ " t <= not t when a = '1' else '0';\n"
+				+ " y <= t;\n"
+				+ "end s;\n");
+		expect("stable", f.step(0), 0);
+		assertEquals(Value.ERROR, f.step(1)[0]);
+	}
+
+	@Test
+	public void testTemplateIsSupported() {
+		assertTrue(VhdlContent.create().getDesign().isSupported());
+	}
+}
@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.hdl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.cburch.logisim.std.hdl.VhdlParser.IllegalVhdlContentException;
+
+/**
+ * Splits VHDL source into the tokens read by VhdlElaborator. Identifiers and
+ * keywords are lower-cased, bit string literals are expanded to one character
+ * per bit.
+ */
+class VhdlLexer {
+
+	static class Token {
+
+		final int kind;
+		final String text;
+		final long value;
+		final int line;
+
+		Token(int kind, String text, long value, int line) {
+			this.kind = kind;
+			this.text = text;
+			this.value = value;
+			this.line = line;
+		}
+
+		boolean is(String text) {
+			return (kind == IDENT || kind == SYMBOL) && this.text.equals(text);
+		}
+
+		@Override
+		public String toString() {
+			return kind == EOF ? "end of file" : "'" + text + "'";
+		}
+	}
+
+	static final int EOF = 0;
+	static final int IDENT = 1;
+	static final int INTEGER = 2;
+	static final int CHAR = 3;
+	static final int STRING = 4;
+	static final int SYMBOL = 5;
+
+	private static final String[] SYMBOLS = { "**", ":=", "<=", ">=", "=>",
+			"/=", "(", ")", ",", ";", ":", "<", ">", "=", "+", "-", "*", "/",
+			"&", "|", ".", "'" };
+
+	static List<Token> tokenize(String src) throws IllegalVhdlContentException {
+		List<Token> ret = new ArrayList<Token>();
+		int line = 1;
+		int i = 0;
+		int n = src.length();
+
+		while (i < n) {
+			char c = src.charAt(i);
+			if (c == '\n') {
+				line++;
+				i++;
+			} else if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '-' && i + 1 < n && src.charAt(i + 1) == '-') {
+				while (i < n && src.charAt(i) != '\n')
+					i++;
+			} else if (Character.isLetter(c)) {
+				int start = i;
+				while (i < n
+						&& (Character.isLetterOrDigit(src.charAt(i)) || src
+								.charAt(i) == '_'))
+					i++;
+				String word = src.substring(start, i).toLowerCase();
+				if (i < n && src.charAt(i) == '"'
+						&& (word.equals("b") || word.equals("o") || word
+								.equals("x"))) {
+					int end = src.indexOf('"', i + 1);
+					if (end < 0)
+						throw error(line, "unterminated bit string");
+					ret.add(new Token(STRING, expandBits(word.charAt(0),
+							src.substring(i + 1, end), line), 0, line));
+					i = end + 1;
+				} else {
+					ret.add(new Token(IDENT, word, 0, line));
+				}
+			} else if (Character.isDigit(c)) {
+				int start = i;
+				while (i < n
+						&& (Character.isDigit(src.charAt(i)) || src.charAt(i) == '_'))
+					i++;
+				if (i < n && src.charAt(i) == '#') {
+					int end = src.indexOf('#', i + 1);
+					if (end < 0)
+						throw error(line, "bad based literal");
+					i = end + 1;
+				} else if (i + 1 < n
+						&& Character.toLowerCase(src.charAt(i)) == 'e'
+						&& Character.isDigit(src.charAt(i + 1))) {
+					i++;
+					while (i < n && Character.isDigit(src.charAt(i)))
+						i++;
+				}
+				if (i < n && src.charAt(i) == '.' && i + 1 < n
+						&& Character.isDigit(src.charAt(i + 1)))
+					throw error(line, "real literals are not supported");
+				String text = src.substring(start, i);
+				ret.add(new Token(INTEGER, text, parseInteger(text, line), line));
+			} else if (c == '\'' && i + 2 < n && src.charAt(i + 2) == '\'') {
+				ret.add(new Token(CHAR, String.valueOf(Character
+						.toUpperCase(src.charAt(i + 1))), 0, line));
+				i += 3;
+			} else if (c == '"') {
+				int end = src.indexOf('"', i + 1);
+				if (end < 0)
+					throw error(line, "unterminated string");
+				ret.add(new Token(STRING, src.substring(i + 1, end)
+						.toUpperCase(), 0, line));
+				i = end + 1;
+			} else {
+				String sym = null;
+				for (String s : SYMBOLS) {
+					if (src.startsWith(s, i)) {
+						sym = s;
+						break;
+					}
+				}
+				if (sym == null)
+					throw error(line, "unexpected character '" + c + "'");
+				ret.add(new Token(SYMBOL, sym, 0, line));
+				i += sym.length();
+			}
+		}
+		ret.add(new Token(EOF, "", 0, line));
+		return ret;
+	}
+
+	static IllegalVhdlContentException error(int line, String message) {
+		return new IllegalVhdlContentException("line " + line + ": " + message);
+	}
+
+	private static String expandBits(char base, String digits, int line)
+			throws IllegalVhdlContentException {
+		int bits = base == 'b' ? 1 : base == 'o' ? 3 : 4;
+		StringBuilder ret = new StringBuilder();
+		for (int i = 0; i < digits.length(); i++) {
+			char c = Character.toUpperCase(digits.charAt(i));
+			if (c == '_')
+				continue;
+			int v = Character.digit(c, 1 << bits);
+			for (int k = bits - 1; k >= 0; k--) {
+				if (v >= 0)
+					ret.append(((v >> k) & 1) == 0 ? '0' : '1');
+				else if ("UXZWLH-".indexOf(c) >= 0)
+					ret.append(c);
+				else
+					throw error(line, "bad digit in bit string");
+			}
+		}
+		return ret.toString();
+	}
+
+	private static long parseInteger(String text, int line)
+			throws IllegalVhdlContentException {
+		String t = text.replace("_", "").toLowerCase();
+		try {
+			int hash = t.indexOf('#');
+			if (hash >= 0) {
+				int end = t.indexOf('#', hash + 1);
+				if (end < 0)
+					throw error(line, "bad based literal");
+				return Long.parseLong(t.substring(hash + 1, end),
+						Integer.parseInt(t.substring(0, hash)));
+			}
+			int exp = t.indexOf('e');
+			if (exp >= 0) {
+				long ret = Long.parseLong(t.substring(0, exp));
+				for (int k = Integer.parseInt(t.substring(exp + 1)); k > 0; k--)
+					ret *= 10;
+				return ret;
+			}
+			return Long.parseLong(t);
+		} catch (NumberFormatException e) {
+			throw error(line, "bad number " + text);
+		}
+	}
+}
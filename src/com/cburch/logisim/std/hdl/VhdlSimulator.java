@@ -49,6 +49,7 @@ import com.cburch.logisim.circuit.CircuitEvent;
 import com.cburch.logisim.circuit.CircuitListener;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.util.SocketClient;
 
@@ -102,7 +103,9 @@ public class VhdlSimulator implements CircuitListener {
 	private VhdlSimulatorVhdlTop vhdlTop = new VhdlSimulatorVhdlTop(this);
 	private VhdlSimulatorTclComp tclRun = new VhdlSimulatorTclComp(this);
 	private VhdlSimulatorTclBinder tclBinder;
-	private SocketClient socketClient = new SocketClient();
+	private SocketClient socketClient = new SocketClient(true);
+	private VhdlSimulatorExchange exchange = new VhdlSimulatorExchange(
+			socketClient);
 
 	private Project project;
 
@@ -214,6 +217,13 @@ public class VhdlSimulator implements CircuitListener {
 		start();
 	}
 
+	/**
+	 * Ask the VHDL simulator to end, through the exchange
+	 */
+	void end() {
+		exchange.end();
+	}
+
 	/* At least one of the VHDL entity changed */
 	public void fireInvalidated() {
 
@@ -318,15 +328,26 @@ public class VhdlSimulator implements CircuitListener {
 	}
 
 	/**
-	 * Receive a message from the VHDL simulator
+	 * Exchange the ports queued by the VHDL components during the current
+	 * propagation step with the VHDL simulator. Called once the step has
+	 * propagated all its dirty components.
+	 */
+	public void flush() {
+		if (isRunning())
+			exchange.flush();
+	}
+
+	/**
+	 * Queue the ports of a VHDL component for the next exchange
 	 *
-	 * @return
+	 * @param state
+	 * @param entityName
 	 */
-	public String receive() {
+	void queue(InstanceState state, String entityName) {
 		if (!isRunning())
 			throw new UnsupportedOperationException();
 
-		return socketClient.receive();
+		exchange.queue(state, entityName);
 	}
 
 	public void removeVhdlSimStateListener(VhdlSimulatorListener l) {
@@ -334,8 +355,8 @@ public class VhdlSimulator implements CircuitListener {
 	}
 
 	public void reset() {
-		if (isEnabled())
-			socketClient.send("restart");
+		if (isRunning())
+			exchange.restart();
 	}
 
 	/**
@@ -360,18 +381,6 @@ public class VhdlSimulator implements CircuitListener {
 		}
 	}
 
-	/**
-	 * Send a message to the VHDL simulator
-	 *
-	 * @param message
-	 */
-	public void send(String message) {
-		if (!isRunning())
-			throw new UnsupportedOperationException();
-
-		socketClient.send(message);
-	}
-
 	public void setEnabled(Boolean enable) {
 		if (enable)
 			enable();
@@ -442,6 +451,7 @@ public class VhdlSimulator implements CircuitListener {
 
 	public void tclStartCallback() {
 		socketClient.start();
+		exchange.clear();
 		setState(State.RUNNING);
 	}
 
@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.hdl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.InstanceStateImpl;
+import com.cburch.logisim.instance.Port;
+import com.cburch.logisim.util.SocketClient;
+
+/**
+ * Collects the ports of the VHDL components propagated during one step of the
+ * simulation and exchanges them with the TCL binder in a single frame.
+ * <p/>
+ * A request starts with a command byte: {@link #END}, {@link #RESTART} or
+ * {@link #STEP}. A step is followed by records declaring a signal the first
+ * time it is used ({@link #DECLARE}: id, port type, name) and records for the
+ * inputs whose value changed since they were last sent, either packed one bit
+ * per bit when fully known ({@link #BITS}: id, width, bytes, most significant
+ * bit first) or as one character per bit ({@link #CHARS}: id, width,
+ * characters). The binder then runs the simulation and answers with a frame of
+ * {@link #CHARS} records for the outputs whose value changed. Ids and widths
+ * are unsigned 16-bit big-endian numbers, names are prefixed by their length.
+ */
+class VhdlSimulatorExchange {
+
+	static final byte END = 'E';
+	static final byte RESTART = 'R';
+	static final byte STEP = 'S';
+
+	static final byte DECLARE = 'N';
+	static final byte BITS = 'B';
+	static final byte CHARS = 'V';
+
+	private static class Signal {
+		private final int id;
+		private final int type;
+		private final String name;
+		private boolean declared = false;
+		private Value sent = null; // last value driven in the simulator
+		private Value received = null; // last value examined in it
+
+		private Signal(int id, int type, String name) {
+			this.id = id;
+			this.type = type;
+			this.name = name;
+		}
+	}
+
+	private static class Queued {
+		private final CircuitState circState;
+		private final Component comp;
+		private final Signal[] ports;
+
+		private Queued(CircuitState circState, Component comp, Signal[] ports) {
+			this.circState = circState;
+			this.comp = comp;
+			this.ports = ports;
+		}
+	}
+
+	private SocketClient socketClient;
+	private HashMap<String, Signal> signals = new HashMap<String, Signal>();
+	private ArrayList<Signal> signalsById = new ArrayList<Signal>();
+	private ArrayList<Queued> queued = new ArrayList<Queued>();
+	private ByteArrayOutputStream frame = new ByteArrayOutputStream();
+	private DataOutputStream out = new DataOutputStream(frame);
+
+	VhdlSimulatorExchange(SocketClient socketClient) {
+		this.socketClient = socketClient;
+	}
+
+	/**
+	 * Forgets what the binder knows, for a new connection.
+	 */
+	synchronized void clear() {
+		for (Signal s : signalsById) {
+			s.declared = false;
+			s.sent = null;
+			s.received = null;
+		}
+		queued.clear();
+	}
+
+	synchronized void end() {
+		queued.clear();
+		sendCommand(END);
+	}
+
+	/**
+	 * Sends the queued inputs, runs the simulation and drives the outputs of
+	 * the queued components with the values that come back.
+	 */
+	synchronized void flush() {
+		if (queued.isEmpty())
+			return;
+
+		socketClient.sendFrame(toByteArray(), frame.size());
+		byte[] reply = socketClient.receiveFrame();
+		if (reply == null) {
+			queued.clear();
+			return;
+		}
+
+		int pos = 0;
+		while (pos + 5 <= reply.length && reply[pos] == CHARS) {
+			int id = readShort(reply, pos + 1);
+			int width = readShort(reply, pos + 3);
+			pos += 5;
+			if (id < signalsById.size()) {
+				signalsById.get(id).received = parseValue(reply, pos, width);
+			}
+			pos += width;
+		}
+
+		for (Queued q : queued) {
+			InstanceState state = null;
+			for (int i = 0; i < q.ports.length; i++) {
+				Signal s = q.ports[i];
+				if (s.type != EndData.INPUT_ONLY && s.received != null) {
+					if (state == null)
+						state = q.circState.getInstanceState(q.comp);
+					state.setPort(i, s.received, 1);
+				}
+			}
+		}
+		queued.clear();
+	}
+
+	/**
+	 * Adds the ports of a VHDL component to the current step.
+	 */
+	synchronized void queue(InstanceState state, String entityName) {
+		if (queued.isEmpty())
+			startFrame(STEP);
+
+		List<Port> ports = state.getInstance().getPorts();
+		Signal[] portSignals = new Signal[ports.size()];
+		try {
+			for (int i = 0; i < portSignals.length; i++) {
+				Port p = ports.get(i);
+				Signal s = getSignal(entityName + "_" + p.getToolTip(),
+						p.getType());
+				portSignals[i] = s;
+				if (!s.declared) {
+					byte[] name = s.name.getBytes(StandardCharsets.UTF_8);
+					out.writeByte(DECLARE);
+					out.writeShort(s.id);
+					out.writeByte(s.type);
+					out.writeShort(name.length);
+					out.write(name);
+					s.declared = true;
+				}
+				if (s.type != EndData.OUTPUT_ONLY) {
+					Value val = state.getPortValue(i);
+					if (!val.equals(s.sent)) {
+						writeValue(s.id, val);
+						s.sent = val;
+					}
+				}
+			}
+		} catch (IOException e) {
+			// not thrown by a ByteArrayOutputStream
+			throw new IllegalStateException(e);
+		}
+
+		queued.add(new Queued(((InstanceStateImpl) state).getCircuitState(),
+				state.getInstance().getComponent(), portSignals));
+	}
+
+	/**
+	 * Restarts the simulation, after which every input has to be sent again.
+	 */
+	synchronized void restart() {
+		for (Signal s : signalsById) {
+			s.sent = null;
+			s.received = null;
+		}
+		queued.clear();
+		sendCommand(RESTART);
+	}
+
+	private Signal getSignal(String name, int type) {
+		Signal ret = signals.get(name);
+		if (ret == null) {
+			ret = new Signal(signalsById.size(), type, name);
+			signals.put(name, ret);
+			signalsById.add(ret);
+		}
+		return ret;
+	}
+
+	private static Value parseValue(byte[] data, int pos, int width) {
+		Value[] bits = new Value[width];
+		for (int i = 0; i < width; i++) {
+			switch (data[pos + i]) {
+			case '0':
+				bits[width - 1 - i] = Value.FALSE;
+				break;
+			case '1':
+				bits[width - 1 - i] = Value.TRUE;
+				break;
+			default:
+				bits[width - 1 - i] = Value.UNKNOWN;
+				break;
+			}
+		}
+		return Value.create(bits);
+	}
+
+	private static int readShort(byte[] data, int pos) {
+		return ((data[pos] & 0xff) << 8) | (data[pos + 1] & 0xff);
+	}
+
+	private void sendCommand(byte command) {
+		startFrame(command);
+		socketClient.sendFrame(toByteArray(), frame.size());
+	}
+
+	private void startFrame(byte command) {
+		frame.reset();
+		frame.write(command);
+	}
+
+	private byte[] toByteArray() {
+		return frame.toByteArray();
+	}
+
+	private void writeValue(int id, Value val) throws IOException {
+		int width = val.getWidth();
+		if (width == 0) {
+			return;
+		} else if (val.isFullyDefined()) {
+			long bits = val.toLongValue();
+			out.writeByte(BITS);
+			out.writeShort(id);
+			out.writeShort(width);
+			for (int k = 0; k < (width + 7) / 8; k++) {
+				int b = 0;
+				for (int j = 0; j < 8; j++) {
+					int bit = width - 1 - (8 * k + j);
+					if (bit >= 0 && ((bits >>> bit) & 1) != 0)
+						b |= 0x80 >> j;
+				}
+				out.writeByte(b);
+			}
+		} else {
+			out.writeByte(CHARS);
+			out.writeShort(id);
+			out.writeShort(width);
+			out.writeBytes(val.toBinaryString());
+		}
+	}
+}
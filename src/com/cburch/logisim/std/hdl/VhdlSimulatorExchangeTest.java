@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.hdl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.util.SocketClient;
+
+public class VhdlSimulatorExchangeTest {
+
+	/** Records the frames sent and answers with scripted replies. */
+	private static class FakeClient extends SocketClient {
+		final List<byte[]> sent = new ArrayList<byte[]>();
+		final List<byte[]> replies = new ArrayList<byte[]>();
+
+		FakeClient() {
+			super(true);
+		}
+
+		@Override
+		public byte[] receiveFrame() {
+			return replies.isEmpty() ? null : replies.remove(0);
+		}
+
+		@Override
+		public void sendFrame(byte[] data, int length) {
+			byte[] frame = new byte[length];
+			System.arraycopy(data, 0, frame, 0, length);
+			sent.add(frame);
+		}
+	}
+
+	private static final String ENTITY = "library ieee;\n"
+			+ "use ieee.std_logic_1164.all;\n"
+			+ "entity tst is\n"
+			+ " port ( a : in std_logic_vector(9 downto 0); b : in std_logic;\n"
+			+ "  q : out std_logic_vector(3 downto 0) );\n"
+			+ "end tst;\n" + "architecture x of tst is begin end x;\n";
+
+	private FakeClient client;
+	private VhdlSimulatorExchange exchange;
+	private CircuitState circState;
+	private Component entity;
+	private InstanceState pinA;
+
+	@Before
+	public void setUp() {
+		LogisimFile file = LogisimFile.createNew(new Loader(null), null);
+		Project proj = new Project(file);
+		Circuit circuit = file.getMainCircuit();
+		VhdlEntity factory = new VhdlEntity();
+		AttributeSet attrs = factory.createAttributeSet();
+		attrs.getValue(VhdlEntity.CONTENT_ATTR).setContent(ENTITY);
+		entity = factory.createComponent(Location.create(200, 200), attrs);
+		AttributeSet pinAttrs = Pin.FACTORY.createAttributeSet();
+		pinAttrs.setValue(StdAttr.WIDTH, BitWidth.create(10));
+		Component pin = Pin.FACTORY.createComponent(Instance
+				.getInstanceFor(entity).getPortLocation(0), pinAttrs);
+		CircuitMutation m = new CircuitMutation(circuit);
+		m.add(entity);
+		m.add(pin);
+		m.execute();
+
+		circState = new CircuitState(proj, circuit);
+		proj.setCircuitState(circState);
+		pinA = circState.getInstanceState(pin);
+		client = new FakeClient();
+		exchange = new VhdlSimulatorExchange(client);
+	}
+
+	private void drive(int a) {
+		Pin.FACTORY.setValue(pinA, Value.createKnown(BitWidth.create(10), a));
+		pinA.fireInvalidated();
+		circState.getPropagator().propagate();
+	}
+
+	private static byte[] frame(Object... items) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		for (Object item : items) {
+			if (item instanceof Character)
+				out.writeByte((Character) item);
+			else if (item instanceof Integer)
+				out.writeShort((Integer) item);
+			else if (item instanceof String)
+				out.writeBytes((String) item);
+			else
+				out.write((byte[]) item);
+		}
+		return bytes.toByteArray();
+	}
+
+	@Test
+	public void testFirstStepDeclaresAndPacks() throws IOException {
+		drive(0x2A5);
+		client.replies.add(frame('V', 2, 4, "10x1"));
+		exchange.queue(circState.getInstanceState(entity), "u0");
+		exchange.flush();
+
+		assertEquals(1, client.sent.size());
+		// 0x2A5 in 10 bits, most significant bit first: 1010100101
+		byte[] expected = frame('S',
+				'N', 0, new byte[] { 1 }, 4, "u0_a",
+				'B', 0, 10, new byte[] { (byte) 0xA9, (byte) 0x40 },
+				'N', 1, new byte[] { 1 }, 4, "u0_b",
+				'V', 1, 1, "x",
+				'N', 2, new byte[] { 2 }, 4, "u0_q");
+		assertArrayEquals(expected, client.sent.get(0));
+	}
+
+	@Test
+	public void testUnchangedInputsAreNotResent() throws IOException {
+		drive(1);
+		client.replies.add(new byte[0]);
+		exchange.queue(circState.getInstanceState(entity), "u0");
+		exchange.flush();
+
+		client.replies.add(new byte[0]);
+		exchange.queue(circState.getInstanceState(entity), "u0");
+		exchange.flush();
+		assertArrayEquals(new byte[] { 'S' }, client.sent.get(1));
+
+		drive(3);
+		client.replies.add(new byte[0]);
+		exchange.queue(circState.getInstanceState(entity), "u0");
+		exchange.flush();
+		assertArrayEquals(frame('S', 'B', 0, 10,
+				new byte[] { 0, (byte) 0xC0 }), client.sent.get(2));
+
+		// after a restart every input is sent again, without declarations
+		exchange.restart();
+		assertArrayEquals(new byte[] { 'R' }, client.sent.get(3));
+		client.replies.add(new byte[0]);
+		exchange.queue(circState.getInstanceState(entity), "u0");
+		exchange.flush();
+		assertArrayEquals(frame('S', 'B', 0, 10,
+				new byte[] { 0, (byte) 0xC0 }, 'V', 1, 1, "x"),
+				client.sent.get(4));
+
+		exchange.end();
+		assertArrayEquals(new byte[] { 'E' }, client.sent.get(5));
+	}
+}
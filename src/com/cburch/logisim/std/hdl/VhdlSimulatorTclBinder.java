@@ -187,7 +187,7 @@ class VhdlSimulatorTclBinder {
 			return;
 
 		/* We ask the binder to end itself */
-		vhdlSimulator.getSocketClient().send("end");
+		vhdlSimulator.end();
 
 		/* Wait for the process to end */
 		/*
@@ -65,7 +65,7 @@ public class BigRom extends InstanceFactory implements SourcedComponentFactory {
 		g.move(0, 40);
 		int valueLen = (ports.valueWidth + 3) / 4;
 		g.presetTextOnPlate(
-				String.format("%1$" + valueLen + "s", contents.getCurrent().toString(16)).replace(' ', '0'),
+				String.format("%1$" + valueLen + "s", contents.getCurrent(ports.valueWidth).toString(16)).replace(' ', '0'),
 				GraphicsRenderer.H_LEFT,
 				GraphicsRenderer.V_BOTTOM
 		);
@@ -153,7 +153,7 @@ public class BigRom extends InstanceFactory implements SourcedComponentFactory {
 
 		if(isFullyDefined) {
 			contents.address = ports.getInput(values);
-			values = ports.getOutput(contents.getCurrent(), ports.valuePortWidths.length);
+			values = ports.getOutput(contents.getCurrent(ports.valueWidth), ports.valuePortWidths.length);
 			for (int i = 0; i < ports.valuePortWidths.length; i++) {
 				int value = 0;
 				if(i < values.length) value = (int) (values[i] >> (32-ports.valuePortWidths[i]));
@@ -61,8 +61,12 @@ class BigRomContents {
 	BigInteger address = BigInteger.ZERO;
 	Map<BigInteger, BigInteger> data = new HashMap<>();
 	private File lastFile = null;
+	private File imageFile = null;
+	private MemImage image = null;
 
-	BigInteger getCurrent() {
+	BigInteger getCurrent(int valueWidth) {
+		if (imageFile != null)
+			return image == null ? BigInteger.ZERO : image.get(address, (valueWidth + 7) / 8);
 		BigInteger current = data.get(address);
 		if(current == null) current = BigInteger.ZERO;
 		return current;
@@ -91,6 +95,15 @@ class BigRomContents {
 		public BigRomContents parse(String value) {
 		    BigRomContents contents = new BigRomContents();
 		    if(value.equals("")) return contents;
+		    if(value.startsWith(MemImage.REFERENCE_PREFIX)) {
+				contents.imageFile = new File(value.substring(MemImage.REFERENCE_PREFIX.length()).trim());
+				try {
+					contents.image = MemImage.open(contents.imageFile, 8, Long.MAX_VALUE);
+				} catch (IOException e) {
+					// keep the reference so that saving does not lose it
+				}
+				return contents;
+			}
 		    String[] entries = value.split("\\|");
 			for (String entry : entries) {
 				String[] keyValue = entry.split(":");
@@ -104,6 +117,8 @@ class BigRomContents {
 
 		@Override
 		public String toStandardString(BigRomContents state) {
+			if (state.imageFile != null)
+				return MemImage.REFERENCE_PREFIX + state.imageFile.getPath();
 			StringBuilder text = null;
 			for (Map.Entry<BigInteger, BigInteger> entry : state.data.entrySet()) {
 				String key = entry.getKey().toString(16);
@@ -119,6 +134,12 @@ class BigRomContents {
 	}
 
 	public void open(File src) throws IOException {
+		if (MemImage.isImage(src)) {
+			image = MemImage.open(src, 8, Long.MAX_VALUE);
+			imageFile = src;
+			data.clear();
+			return;
+		}
 		BufferedReader in;
 		try {
 			in = new BufferedReader(new FileReader(src));
@@ -127,7 +148,8 @@ class BigRomContents {
 		}
 		try {
 			String header = in.readLine();
-			if (!(header.equals("v2.0 raw") || header.equals("v2.0 big"))) {
+			if (header == null
+					|| !(header.equals("v2.0 raw") || header.equals("v2.0 big"))) {
 				throw new IOException(Strings.get("hexHeaderFormatError"));
 			}
 			open(in);
@@ -151,6 +173,8 @@ class BigRomContents {
 	private BigInteger offset = BigInteger.ZERO;
 
 	private void open(BufferedReader in) throws IOException {
+		imageFile = null;
+		image = null;
 	    origin = BigInteger.ZERO;
 		offset = BigInteger.ZERO;
 
@@ -71,7 +71,7 @@ public class Counter extends InstanceFactory {
 
 	static final AttributeOption ON_GOAL_LOAD = new AttributeOption("load",
 			"load", Strings.getter("counterGoalLoad"));
-	static final Attribute<Integer> ATTR_MAX = Attributes.forHexInteger("max",
+	static final Attribute<Long> ATTR_MAX = Attributes.forHexLong("max",
 			Strings.getter("counterMaxAttr"));
 
 	static final Attribute<AttributeOption> ATTR_ON_GOAL = Attributes
@@ -163,14 +163,14 @@ public class Counter extends InstanceFactory {
 		painter.drawClockSymbol(xpos + 20, ypos + 80);
 		painter.drawClockSymbol(xpos + 20, ypos + 90);
 		/* Draw Label */
-		int max = painter.getAttributeValue(ATTR_MAX).intValue();
+		long max = painter.getAttributeValue(ATTR_MAX).longValue();
 		boolean IsCTRm = (max == painter.getAttributeValue(StdAttr.WIDTH)
-				.getMask());
+				.getLongMask());
 		Object onGoal = painter.getAttributeValue(ATTR_ON_GOAL);
 		IsCTRm |= onGoal == ON_GOAL_CONT;
 		String Label = (IsCTRm) ? "CTR"
 				+ Integer.toString(painter.getAttributeValue(StdAttr.WIDTH)
-						.getWidth()) : "CTR DIV0x" + Integer.toHexString(max);
+						.getWidth()) : "CTR DIV0x" + Long.toHexString(max);
 		GraphicsUtil.drawCenteredText(g, Label, xpos + (SymbolWidth(width) / 2)
 				+ 20, ypos + 5);
 		GraphicsUtil.switchToWidth(g, 2);
@@ -232,8 +232,8 @@ public class Counter extends InstanceFactory {
 				+ SymbolWidth(width), ypos + 60);
 		g.fillOval(xpos + 32 + SymbolWidth(width), ypos + 47, 6, 6);
 		String MaxVal = "3CT=0x"
-				+ Integer.toHexString(
-						painter.getAttributeValue(ATTR_MAX).intValue())
+				+ Long.toHexString(
+						painter.getAttributeValue(ATTR_MAX).longValue())
 						.toUpperCase();
 		GraphicsUtil.drawText(g, MaxVal, xpos + 17 + SymbolWidth(width),
 				ypos + 50, GraphicsUtil.H_RIGHT, GraphicsUtil.V_CENTER);
@@ -257,10 +257,10 @@ public class Counter extends InstanceFactory {
 			String Value = "";
 			if (val.isFullyDefined()) {
 				g.setColor(Color.DARK_GRAY);
-				Value = StringUtil.toHexString(width, val.toIntValue()).toUpperCase(); 
+				Value = StringUtil.toHexString(width, val.toLongValue()).toUpperCase(); 
 			} else {
 				g.setColor(Color.YELLOW);
-				for (int i = 0 ; i < StringUtil.toHexString(width, val.toIntValue()).length() ; i++)
+				for (int i = 0 ; i < StringUtil.toHexString(width, val.toLongValue()).length() ; i++)
 					Value = (val.isUnknown()) ? Value.concat("?") : Value.concat("!"); 
 			}
 			GraphicsUtil.drawText(g, Value, xpos + xcenter - len * 4 + 1,
@@ -340,7 +340,7 @@ public class Counter extends InstanceFactory {
 			String value = "";
 			if (val.isFullyDefined()) {
 				g.setColor(Color.LIGHT_GRAY);
-				value = ((1 << BitNr) & val.toIntValue()) != 0 ? "1" : "0";
+				value = ((1L << BitNr) & val.toLongValue()) != 0 ? "1" : "0";
 			} else if (val.isUnknown()) {
 				g.setColor(Color.BLUE);
 				value = "?";
@@ -412,7 +412,7 @@ public class Counter extends InstanceFactory {
 
 		BitWidth dataWidth = state.getAttributeValue(StdAttr.WIDTH);
 		Object triggerType = state.getAttributeValue(StdAttr.EDGE_TRIGGER);
-		int max = state.getAttributeValue(ATTR_MAX).intValue();
+		long max = state.getAttributeValue(ATTR_MAX).longValue();
 		Value clock = state.getPortValue(CK);
 		boolean triggered = data.updateClock(clock, triggerType);
 
@@ -432,13 +432,14 @@ public class Counter extends InstanceFactory {
 			} else if (ld) {
 				Value in = state.getPortValue(IN);
 				newVal = in;
-				if (newVal.toIntValue() > max)
-					newVal = Value.createKnown(dataWidth, newVal.toIntValue()&max);
+				if (newVal.isFullyDefined()
+						&& Long.compareUnsigned(newVal.toLongValue(), max) > 0)
+					newVal = Value.createKnown(dataWidth, newVal.toLongValue()&max);
 			} else if (!oldVal.isFullyDefined()) {
 				newVal = oldVal;
 			} else if (en) {
-				int goal = (UpCount) ? max : 0;
-				if (oldVal.toIntValue() == goal) {
+				long goal = (UpCount) ? max : 0;
+				if (oldVal.toLongValue() == goal) {
 					Object onGoal = state.getAttributeValue(ATTR_ON_GOAL);
 					if (onGoal == ON_GOAL_WRAP) {
 						newVal = Value.createKnown(dataWidth, (UpCount) ? 0 : max);
@@ -447,22 +448,23 @@ public class Counter extends InstanceFactory {
 					} else if (onGoal == ON_GOAL_LOAD) {
 						Value in = state.getPortValue(IN);
 						newVal = in;
-						if (newVal.toIntValue() > max)
-							newVal = Value.createKnown(dataWidth, newVal.toIntValue()&max);
+						if (newVal.isFullyDefined()
+								&& Long.compareUnsigned(newVal.toLongValue(), max) > 0)
+							newVal = Value.createKnown(dataWidth, newVal.toLongValue()&max);
 					} else if (onGoal == ON_GOAL_CONT) {
-						newVal = Value.createKnown(dataWidth, (UpCount) ? oldVal.toIntValue() + 1 : oldVal.toIntValue() - 1);
+						newVal = Value.createKnown(dataWidth, (UpCount) ? oldVal.toLongValue() + 1 : oldVal.toLongValue() - 1);
 					} else {
 						logger.error("Invalid goal attribute {}", onGoal);
 						newVal = Value.createKnown(dataWidth, ld ? max : 0);
 					}
 				} else {
-					newVal = Value.createKnown(dataWidth, (UpCount) ? oldVal.toIntValue() + 1 : oldVal.toIntValue() - 1);
+					newVal = Value.createKnown(dataWidth, (UpCount) ? oldVal.toLongValue() + 1 : oldVal.toLongValue() - 1);
 				}
 			} else {
 				newVal = oldVal;
 			}
 			newValue = newVal;
-			carry = newVal.toIntValue() == (UpCount ? max : 0);
+			carry = newVal.toLongValue() == (UpCount ? max : 0);
 			/*
 			 * I would want this if I were worried about the carry signal
 			 * outrunning the clock. But the component's delay should be enough
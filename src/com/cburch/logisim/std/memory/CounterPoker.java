@@ -43,8 +43,8 @@ import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.instance.StdAttr;
 
 public class CounterPoker extends InstancePoker {
-	private int initValue;
-	private int curValue;
+	private long initValue;
+	private long curValue;
 
 	@Override
 	public boolean init(InstanceState state, MouseEvent e) {
@@ -53,7 +53,7 @@ public class CounterPoker extends InstancePoker {
 			data = new RegisterData(state.getAttributeValue(StdAttr.WIDTH));
 			state.setData(data);
 		}
-		initValue = (data.value.isFullyDefined()) ? data.value.toIntValue() : 0;
+		initValue = (data.value.isFullyDefined()) ? data.value.toLongValue() : 0;
 		curValue = initValue;
 		return true;
 	}
@@ -67,7 +67,7 @@ public class CounterPoker extends InstancePoker {
 		BitWidth dataWidth = state.getAttributeValue(StdAttr.WIDTH);
 		if (dataWidth == null)
 			dataWidth = BitWidth.create(8);
-		curValue = (curValue * 16 + val) & dataWidth.getMask();
+		curValue = (curValue * 16 + val) & dataWidth.getLongMask();
 		RegisterData data = (RegisterData) state.getData();
 		data.value = Value.createKnown(dataWidth, curValue);
 
@@ -80,7 +80,7 @@ abstract class Mem extends InstanceFactory {
 		}
 
 		public void bytesChanged(HexModel source, long start, long numBytes,
-				int[] values) {
+				long[] values) {
 			instance.fireInvalidated();
 		}
 
@@ -201,8 +201,23 @@ abstract class Mem extends InstanceFactory {
 
 	public void loadImage(InstanceState instanceState, File imageFile)
 			throws IOException {
+		loadImage(instanceState, imageFile, MemImage.isImage(imageFile));
+	}
+
+	/**
+	 * Loads <code>imageFile</code> into the memory, mapping it as a binary
+	 * image if <code>binary</code> is set and reading it as a hex file
+	 * otherwise.
+	 */
+	public void loadImage(InstanceState instanceState, File imageFile,
+			boolean binary) throws IOException {
 		MemState s = this.getState(instanceState);
-		HexFile.open(s.getContents(), imageFile);
+		if (binary) {
+			s.getContents().mapImage(imageFile);
+		} else {
+			s.getContents().unmapImage();
+			HexFile.open(s.getContents(), imageFile);
+		}
 		this.setCurrentImage(instanceState.getInstance(), imageFile);
 	}
 
@@ -30,14 +30,22 @@
 
 package com.cburch.logisim.std.memory;
 
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.Timer;
 
 import com.cburch.hex.HexModel;
 import com.cburch.hex.HexModelListener;
 import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.util.EventSourceWeakSupport;
 
-class MemContents implements Cloneable, HexModel {
+class MemContents implements Cloneable, HexModel, Flushable {
 	static MemContents create(int addrBits, int width, boolean IsRom) {
 		return new MemContents(addrBits, width,IsRom);
 	}
@@ -47,11 +55,45 @@ class MemContents implements Cloneable, HexModel {
 
 	private static final int PAGE_MASK = PAGE_SIZE - 1;
 
+	// words stored by the simulation are announced to listeners at most
+	// this often, in one event covering everything written in between
+	private static final int WRITE_NOTIFY_DELAY = 40;
+	// packed first (high half) and last (low half) address written; the
+	// range is empty when first is above last
+	private static final long NO_WRITES = 0xFFFFFFFF00000000L;
+	private static final ConcurrentLinkedQueue<MemContents> notifyQueue = new ConcurrentLinkedQueue<MemContents>();
+	private static Timer notifyTimer = null;
+
+	private static synchronized void scheduleNotify(MemContents contents) {
+		notifyQueue.add(contents);
+		if (notifyTimer == null) {
+			notifyTimer = new Timer(WRITE_NOTIFY_DELAY, e -> notifyWrites());
+			notifyTimer.setRepeats(false);
+		}
+		notifyTimer.start();
+	}
+
+	private static void notifyWrites() {
+		MemContents contents;
+		while ((contents = notifyQueue.poll()) != null) {
+			long range = contents.pendingWrites.getAndSet(NO_WRITES);
+			long first = range >>> 32;
+			long last = range & 0xFFFFFFFFL;
+			if (first <= last)
+				contents.fireListeners(first, last - first + 1, null);
+		}
+	}
+
 	private EventSourceWeakSupport<HexModelListener> listeners = null;
 	private int width;
 	private int addrBits;
-	private int mask;
+	private long mask;
 	private MemContentsSub.ContentsInterface[] pages;
+	// written under the lock, read without it to skip the lock when unmapped
+	private volatile MemImage image = null;
+	private BitSet faulted = null;
+	private BitSet dirty = null;
+	private AtomicLong pendingWrites = new AtomicLong(NO_WRITES);
 
 	private MemContents(int addrBits, int width, boolean IsRom) {
 		listeners = null;
@@ -69,19 +111,17 @@ class MemContents implements Cloneable, HexModel {
 
 	public void clear() {
 		for (int i = 0; i < pages.length; i++) {
-			if (pages[i] != null) {
-				if (pages[i] != null)
-					clearPage(i);
-			}
+			if (page(i) != null)
+				clearPage(i);
 		}
 	}
 
 	private void clearPage(int index) {
-		MemContentsSub.ContentsInterface page = pages[index];
-		int[] oldValues = new int[page.getLength()];
+		MemContentsSub.ContentsInterface page = page(index);
+		long[] oldValues = new long[page.getLength()];
 		boolean changed = false;
 		for (int j = 0; j < oldValues.length; j++) {
-			int val = page.get(j) & mask;
+			long val = page.get(j) & mask;
 			oldValues[j] = val;
 			if (val != 0)
 				changed = true;
@@ -101,7 +141,14 @@ class MemContents implements Cloneable, HexModel {
 		try {
 			MemContents ret = (MemContents) super.clone();
 			ret.listeners = null;
+			ret.pendingWrites = new AtomicLong(NO_WRITES);
 			ret.pages = new MemContentsSub.ContentsInterface[this.pages.length];
+			if (image != null) {
+				synchronized (this) {
+					ret.faulted = (BitSet) this.faulted.clone();
+					ret.dirty = (BitSet) this.dirty.clone();
+				}
+			}
 			for (int i = 0; i < ret.pages.length; i++) {
 				if (this.pages[i] != null) {
 					ret.pages[i] = this.pages[i].clone();
@@ -114,12 +161,12 @@ class MemContents implements Cloneable, HexModel {
 	}
 
 	private void ensurePage(int index) {
-		if (pages[index] == null) {
+		if (page(index) == null) {
 			pages[index] = MemContentsSub.createContents(PAGE_SIZE, width);
 		}
 	}
 
-	public void fill(long start, long len, int value) {
+	public void fill(long start, long len, long value) {
 		if (len == 0)
 			return;
 
@@ -131,11 +178,11 @@ class MemContents implements Cloneable, HexModel {
 
 		if (pageStart == pageEnd) {
 			ensurePage(pageStart);
-			int[] vals = new int[(int) len];
+			long[] vals = new long[(int) len];
 			Arrays.fill(vals, value);
 			MemContentsSub.ContentsInterface page = pages[pageStart];
 			if (!page.matches(vals, startOffs, mask)) {
-				int[] oldValues = page.get(startOffs, (int) len);
+				long[] oldValues = page.get(startOffs, (int) len);
 				page.load(startOffs, vals, mask);
 				if (value == 0 && page.isClear())
 					pages[pageStart] = null;
@@ -145,36 +192,36 @@ class MemContents implements Cloneable, HexModel {
 			if (startOffs == 0) {
 				pageStart--;
 			} else {
-				if (value == 0 && pages[pageStart] == null) {
+				if (value == 0 && page(pageStart) == null) {
 					// nothing to do
 				} else {
 					ensurePage(pageStart);
-					int[] vals = new int[PAGE_SIZE - startOffs];
+					long[] vals = new long[PAGE_SIZE - startOffs];
 					Arrays.fill(vals, value);
 					MemContentsSub.ContentsInterface page = pages[pageStart];
 					if (!page.matches(vals, startOffs, mask)) {
-						int[] oldValues = page.get(startOffs, vals.length);
+						long[] oldValues = page.get(startOffs, vals.length);
 						page.load(startOffs, vals, mask);
 						if (value == 0 && page.isClear())
 							pages[pageStart] = null;
-						fireBytesChanged(start, PAGE_SIZE - pageStart,
+						fireBytesChanged(start, PAGE_SIZE - startOffs,
 								oldValues);
 					}
 				}
 			}
 			if (value == 0) {
 				for (int i = pageStart + 1; i < pageEnd; i++) {
-					if (pages[i] != null)
+					if (page(i) != null)
 						clearPage(i);
 				}
 			} else {
-				int[] vals = new int[PAGE_SIZE];
+				long[] vals = new long[PAGE_SIZE];
 				Arrays.fill(vals, value);
 				for (int i = pageStart + 1; i < pageEnd; i++) {
 					ensurePage(i);
 					MemContentsSub.ContentsInterface page = pages[i];
 					if (!page.matches(vals, 0, mask)) {
-						int[] oldValues = page.get(0, PAGE_SIZE);
+						long[] oldValues = page.get(0, PAGE_SIZE);
 						page.load(0, vals, mask);
 						fireBytesChanged((long) i << PAGE_SIZE_BITS, PAGE_SIZE,
 								oldValues);
@@ -182,15 +229,15 @@ class MemContents implements Cloneable, HexModel {
 				}
 			}
 			if (endOffs >= 0) {
-				MemContentsSub.ContentsInterface page = pages[pageEnd];
-				if (value == 0 && page == null) {
+				if (value == 0 && page(pageEnd) == null) {
 					// nothing to do
 				} else {
 					ensurePage(pageEnd);
-					int[] vals = new int[endOffs + 1];
+					MemContentsSub.ContentsInterface page = pages[pageEnd];
+					long[] vals = new long[endOffs + 1];
 					Arrays.fill(vals, value);
 					if (!page.matches(vals, 0, mask)) {
-						int[] oldValues = page.get(0, endOffs + 1);
+						long[] oldValues = page.get(0, endOffs + 1);
 						page.load(0, vals, mask);
 						if (value == 0 && page.isClear())
 							pages[pageEnd] = null;
@@ -202,7 +249,12 @@ class MemContents implements Cloneable, HexModel {
 		}
 	}
 
-	private void fireBytesChanged(long start, long numBytes, int[] oldValues) {
+	private void fireBytesChanged(long start, long numBytes, long[] oldValues) {
+		markDirty(start, numBytes);
+		fireListeners(start, numBytes, oldValues);
+	}
+
+	private void fireListeners(long start, long numBytes, long[] oldValues) {
 		if (listeners == null)
 			return;
 		boolean found = false;
@@ -214,6 +266,17 @@ class MemContents implements Cloneable, HexModel {
 			listeners = null;
 	}
 
+	private void markDirty(long start, long numBytes) {
+		if (image != null && numBytes > 0) {
+			int first = (int) (start >>> PAGE_SIZE_BITS);
+			int last = (int) ((start + numBytes - 1) >>> PAGE_SIZE_BITS);
+			synchronized (this) {
+				if (dirty != null)
+					dirty.set(first, Math.min(last, pages.length - 1) + 1);
+			}
+		}
+	}
+
 	private void fireMetainfoChanged() {
 		if (listeners == null)
 			return;
@@ -226,10 +289,10 @@ class MemContents implements Cloneable, HexModel {
 			listeners = null;
 	}
 
-	public int get(long addr) {
+	public long get(long addr) {
 		int page = (int) (addr >>> PAGE_SIZE_BITS);
 		int offs = (int) (addr & PAGE_MASK);
-		if (page < 0 || page >= pages.length || pages[page] == null)
+		if (page < 0 || page >= pages.length || page(page) == null)
 			return 0;
 		return pages[page].get(offs) & mask;
 	}
@@ -256,7 +319,7 @@ class MemContents implements Cloneable, HexModel {
 
 	public boolean isClear() {
 		for (int i = 0; i < pages.length; i++) {
-			MemContentsSub.ContentsInterface page = pages[i];
+			MemContentsSub.ContentsInterface page = page(i);
 			if (page != null) {
 				for (int j = page.getLength() - 1; j >= 0; j--) {
 					if (page.get(j) != 0)
@@ -275,21 +338,146 @@ class MemContents implements Cloneable, HexModel {
 			listeners = null;
 	}
 
-	public void set(long addr, int value) {
+	/**
+	 * Returns the page at the given index, copying it out of the mapped image
+	 * the first time it is touched. The simulator and the editor both get
+	 * here, so while an image is mapped the page is faulted in under the
+	 * lock; without one nothing is created and no lock is taken.
+	 */
+	private MemContentsSub.ContentsInterface page(int index) {
+		if (image == null)
+			return pages[index];
+		synchronized (this) {
+			if (pages[index] == null && image != null && !faulted.get(index)) {
+				int len = Math.min(PAGE_SIZE, 1 << addrBits);
+				long[] vals = new long[len];
+				image.read((long) index << PAGE_SIZE_BITS, vals);
+				MemContentsSub.ContentsInterface page = MemContentsSub
+						.createContents(len, width);
+				page.load(0, vals, mask);
+				if (!page.isClear())
+					pages[index] = page;
+				faulted.set(index);
+			}
+			return pages[index];
+		}
+	}
+
+	File getImageFile() {
+		MemImage cur = image;
+		return cur == null ? null : cur.getFile();
+	}
+
+	void mapImage(File file) throws IOException {
+		MemImage newImage = MemImage.open(file, width, 1L << addrBits);
+		synchronized (this) {
+			Arrays.fill(pages, null);
+			faulted = new BitSet(pages.length);
+			dirty = new BitSet(pages.length);
+			image = newImage;
+		}
+		fireBytesChanged(0, 1L << addrBits, null);
+		synchronized (this) {
+			dirty.clear();
+		}
+	}
+
+	void unmapImage() {
+		if (image == null)
+			return;
+		synchronized (this) {
+			Arrays.fill(pages, null);
+			image = null;
+			faulted = null;
+			dirty = null;
+		}
+		fireBytesChanged(0, 1L << addrBits, null);
+	}
+
+	/**
+	 * Writes the modified pages back to the mapped image, if any; called when
+	 * the circuit file is saved.
+	 */
+	public void flush() throws IOException {
+		flushImage();
+	}
+
+	/**
+	 * Writes the pages modified since the image was mapped back to the image
+	 * file.
+	 */
+	synchronized void flushImage() throws IOException {
+		if (image == null || dirty.isEmpty())
+			return;
+		image.write(this, dirty, PAGE_SIZE_BITS);
+		dirty.clear();
+	}
+
+	/**
+	 * Writes the whole contents to a binary image and maps it in place of
+	 * the current one.
+	 */
+	void saveImage(File file) throws IOException {
+		if (image != null && file.equals(image.getFile())) {
+			flushImage();
+		} else {
+			MemImage.save(file, this);
+			MemImage newImage = MemImage.open(file, width, 1L << addrBits);
+			synchronized (this) {
+				faulted = new BitSet(pages.length);
+				faulted.set(0, pages.length);
+				dirty = new BitSet(pages.length);
+				image = newImage;
+			}
+		}
+	}
+
+	public void set(long addr, long value) {
 		int page = (int) (addr >>> PAGE_SIZE_BITS);
 		int offs = (int) (addr & PAGE_MASK);
-		int old = pages[page] == null ? 0 : pages[page].get(offs) & mask;
-		int val = value & mask;
+		long old = page(page) == null ? 0 : pages[page].get(offs) & mask;
+		long val = value & mask;
 		if (old != val) {
 			if (pages[page] == null) {
 				pages[page] = MemContentsSub.createContents(PAGE_SIZE, width);
 			}
 			pages[page].set(offs, val);
-			fireBytesChanged(addr, 1, new int[] { old });
+			fireBytesChanged(addr, 1, new long[] { old });
+		}
+	}
+
+	/**
+	 * Stores a word written by the simulation without telling the listeners
+	 * right away. The words written in the meantime are announced together,
+	 * without their old values, shortly afterwards on the event thread.
+	 */
+	void setFromSimulation(long addr, long value) {
+		int page = (int) (addr >>> PAGE_SIZE_BITS);
+		int offs = (int) (addr & PAGE_MASK);
+		long old = page(page) == null ? 0 : pages[page].get(offs) & mask;
+		long val = value & mask;
+		if (old == val)
+			return;
+		if (pages[page] == null) {
+			pages[page] = MemContentsSub.createContents(PAGE_SIZE, width);
 		}
+		pages[page].set(offs, val);
+		markDirty(addr, 1);
+		if (listeners == null)
+			return;
+		long prev;
+		long next;
+		do {
+			prev = pendingWrites.get();
+			long first = Math.min(prev >>> 32, addr);
+			long last = Math.max(prev & 0xFFFFFFFFL, addr);
+			next = (first << 32) | last;
+		} while (prev != next && !pendingWrites.compareAndSet(prev, next));
+		if (prev == NO_WRITES)
+			scheduleNotify(this);
 	}
 
-	public void set(long start, int[] values) {
+	public void set(long start, long[] values) {
 		if (values.length == 0)
 			return;
 
@@ -302,7 +490,7 @@ class MemContents implements Cloneable, HexModel {
 			ensurePage(pageStart);
 			MemContentsSub.ContentsInterface page = pages[pageStart];
 			if (!page.matches(values, startOffs, mask)) {
-				int[] oldValues = page.get(startOffs, values.length);
+				long[] oldValues = page.get(startOffs, values.length);
 				page.load(startOffs, values, mask);
 				if (page.isClear())
 					pages[pageStart] = null;
@@ -315,22 +503,22 @@ class MemContents implements Cloneable, HexModel {
 				nextOffs = 0;
 			} else {
 				ensurePage(pageStart);
-				int[] vals = new int[PAGE_SIZE - startOffs];
+				long[] vals = new long[PAGE_SIZE - startOffs];
 				System.arraycopy(values, 0, vals, 0, vals.length);
 				MemContentsSub.ContentsInterface page = pages[pageStart];
 				if (!page.matches(vals, startOffs, mask)) {
-					int[] oldValues = page.get(startOffs, vals.length);
+					long[] oldValues = page.get(startOffs, vals.length);
 					page.load(startOffs, vals, mask);
 					if (page.isClear())
 						pages[pageStart] = null;
-					fireBytesChanged(start, PAGE_SIZE - pageStart, oldValues);
+					fireBytesChanged(start, PAGE_SIZE - startOffs, oldValues);
 				}
 				nextOffs = vals.length;
 			}
-			int[] vals = new int[PAGE_SIZE];
+			long[] vals = new long[PAGE_SIZE];
 			int offs = nextOffs;
 			for (int i = pageStart + 1; i < pageEnd; i++, offs += PAGE_SIZE) {
-				MemContentsSub.ContentsInterface page = pages[i];
+				MemContentsSub.ContentsInterface page = page(i);
 				if (page == null) {
 					boolean allZeroes = true;
 					for (int j = 0; j < PAGE_SIZE; j++) {
@@ -347,7 +535,7 @@ class MemContents implements Cloneable, HexModel {
 				if (page != null) {
 					System.arraycopy(values, offs, vals, 0, PAGE_SIZE);
 					if (!page.matches(vals, startOffs, mask)) {
-						int[] oldValues = page.get(0, PAGE_SIZE);
+						long[] oldValues = page.get(0, PAGE_SIZE);
 						page.load(0, vals, mask);
 						if (page.isClear())
 							pages[i] = null;
@@ -358,11 +546,11 @@ class MemContents implements Cloneable, HexModel {
 			}
 			if (endOffs >= 0) {
 				ensurePage(pageEnd);
-				vals = new int[endOffs + 1];
+				vals = new long[endOffs + 1];
 				System.arraycopy(values, offs, vals, 0, endOffs + 1);
 				MemContentsSub.ContentsInterface page = pages[pageEnd];
 				if (!page.matches(vals, startOffs, mask)) {
-					int[] oldValues = page.get(0, endOffs + 1);
+					long[] oldValues = page.get(0, endOffs + 1);
 					page.load(0, vals, mask);
 					if (page.isClear())
 						pages[pageEnd] = null;
@@ -376,9 +564,18 @@ class MemContents implements Cloneable, HexModel {
 	public void setDimensions(int addrBits, int width, boolean IsRom) {
 		if (addrBits == this.addrBits && width == this.width)
 			return;
+		if (image != null) {
+			for (int i = 0; i < pages.length; i++)
+				page(i);
+			synchronized (this) {
+				image = null;
+				faulted = null;
+				dirty = null;
+			}
+		}
 		this.addrBits = addrBits;
 		this.width = width;
-		this.mask = width == 32 ? 0xffffffff : ((1 << width) - 1);
+		this.mask = width == 64 ? -1L : ((1L << width) - 1);
 
 		MemContentsSub.ContentsInterface[] oldPages = pages;
 		int pageCount;
@@ -38,7 +38,7 @@ class MemContentsSub {
 	private static class ByteContents extends ContentsInterface {
 		private byte[] data;
 
-		public ByteContents(int size, int mask) {
+		public ByteContents(int size, long mask) {
 			data = new byte[size];
 			if (AppPreferences.Memory_Startup_Unknown.get()) {
 				java.util.Random generator = new java.util.Random();
@@ -62,8 +62,8 @@ class MemContentsSub {
 		}
 
 		@Override
-		int get(int addr) {
-			return addr >= 0 && addr < data.length ? data[addr] : 0;
+		long get(int addr) {
+			return addr >= 0 && addr < data.length ? data[addr] & 0xFFL : 0;
 		}
 
 		//
@@ -75,7 +75,7 @@ class MemContentsSub {
 		}
 
 		@Override
-		void load(int start, int[] values, int mask) {
+		void load(int start, long[] values, long mask) {
 			int n = Math.min(values.length, data.length - start);
 			for (int i = 0; i < n; i++) {
 				data[start + i] = (byte) (values[i] & mask);
@@ -83,7 +83,7 @@ class MemContentsSub {
 		}
 
 		@Override
-		void set(int addr, int value) {
+		void set(int addr, long value) {
 			if (addr >= 0 && addr < data.length) {
 				byte oldValue = data[addr];
 				if (value != oldValue) {
@@ -105,10 +105,10 @@ class MemContentsSub {
 			}
 		}
 
-		abstract int get(int addr);
+		abstract long get(int addr);
 
-		int[] get(int start, int len) {
-			int[] ret = new int[len];
+		long[] get(int start, int len) {
+			long[] ret = new long[len];
 			for (int i = 0; i < ret.length; i++)
 				ret[i] = get(start + i);
 			return ret;
@@ -124,9 +124,9 @@ class MemContentsSub {
 			return true;
 		}
 
-		abstract void load(int start, int[] values, int mask);
+		abstract void load(int start, long[] values, long mask);
 
-		boolean matches(int[] values, int start, int mask) {
+		boolean matches(long[] values, int start, long mask) {
 			for (int i = 0; i < values.length; i++) {
 				if (get(start + i) != (values[i] & mask))
 					return false;
@@ -134,18 +134,18 @@ class MemContentsSub {
 			return true;
 		}
 
-		abstract void set(int addr, int value);
+		abstract void set(int addr, long value);
 	}
 
 	private static class IntContents extends ContentsInterface {
 		private int[] data;
 
-		public IntContents(int size,int mask) {
+		public IntContents(int size, long mask) {
 			data = new int[size];
 			if (AppPreferences.Memory_Startup_Unknown.get()) {
 				java.util.Random generator = new java.util.Random();
 				for (int i = 0 ; i < size ; i++)
-					data[i]= (int)generator.nextInt()&mask;
+					data[i] = (int) (generator.nextInt() & mask);
 			}
 		}
 
@@ -163,8 +163,9 @@ class MemContentsSub {
 		}
 
 		@Override
-		int get(int addr) {
-			return addr >= 0 && addr < data.length ? data[addr] : 0;
+		long get(int addr) {
+			return addr >= 0 && addr < data.length ? data[addr] & 0xFFFFFFFFL
+					: 0;
 		}
 
 		//
@@ -176,28 +177,82 @@ class MemContentsSub {
 		}
 
 		@Override
-		void load(int start, int[] values, int mask) {
+		void load(int start, long[] values, long mask) {
 			int n = Math.min(values.length, data.length - start);
 			for (int i = 0; i < n; i++) {
-				data[i] = values[i] & mask;
+				data[i] = (int) (values[i] & mask);
 			}
 		}
 
 		@Override
-		void set(int addr, int value) {
+		void set(int addr, long value) {
 			if (addr >= 0 && addr < data.length) {
 				int oldValue = data[addr];
-				if (value != oldValue) {
-					data[addr] = value;
+				if ((int) value != oldValue) {
+					data[addr] = (int) value;
 				}
 			}
 		}
 	}
 
+	private static class LongContents extends ContentsInterface {
+		private long[] data;
+
+		public LongContents(int size, long mask) {
+			data = new long[size];
+			if (AppPreferences.Memory_Startup_Unknown.get()) {
+				java.util.Random generator = new java.util.Random();
+				for (int i = 0 ; i < size ; i++)
+					data[i] = generator.nextLong() & mask;
+			}
+		}
+
+		@Override
+		void clear() {
+			Arrays.fill(data, 0);
+		}
+
+		@Override
+		public LongContents clone() {
+			LongContents ret = (LongContents) super.clone();
+			ret.data = new long[this.data.length];
+			System.arraycopy(this.data, 0, ret.data, 0, this.data.length);
+			return ret;
+		}
+
+		@Override
+		long get(int addr) {
+			return addr >= 0 && addr < data.length ? data[addr] : 0;
+		}
+
+		//
+		// methods for accessing data within memory
+		//
+		@Override
+		int getLength() {
+			return data.length;
+		}
+
+		@Override
+		void load(int start, long[] values, long mask) {
+			int n = Math.min(values.length, data.length - start);
+			for (int i = 0; i < n; i++) {
+				data[start + i] = values[i] & mask;
+			}
+		}
+
+		@Override
+		void set(int addr, long value) {
+			if (addr >= 0 && addr < data.length) {
+				data[addr] = value;
+			}
+		}
+	}
+
 	private static class ShortContents extends ContentsInterface {
 		private short[] data;
 
-		public ShortContents(int size, int mask) {
+		public ShortContents(int size, long mask) {
 			data = new short[size];
 			if (AppPreferences.Memory_Startup_Unknown.get()) {
 				java.util.Random generator = new java.util.Random();
@@ -220,8 +275,8 @@ class MemContentsSub {
 		}
 
 		@Override
-		int get(int addr) {
-			return addr >= 0 && addr < data.length ? data[addr] : 0;
+		long get(int addr) {
+			return addr >= 0 && addr < data.length ? data[addr] & 0xFFFFL : 0;
 		}
 
 		//
@@ -233,7 +288,7 @@ class MemContentsSub {
 		}
 
 		@Override
-		void load(int start, int[] values, int mask) {
+		void load(int start, long[] values, long mask) {
 			int n = Math.min(values.length, data.length - start);
 			/* 
 			 * Bugfix in memory writing (by Roy77)
@@ -245,7 +300,7 @@ class MemContentsSub {
 		}
 
 		@Override
-		void set(int addr, int value) {
+		void set(int addr, long value) {
 			if (addr >= 0 && addr < data.length) {
 				short oldValue = data[addr];
 				if (value != oldValue) {
@@ -256,13 +311,15 @@ class MemContentsSub {
 	}
 
 	static ContentsInterface createContents(int size, int bits) {
-		int mask = (bits==32) ? 0xffffffff : (1<<bits)-1;
+		long mask = (bits==64) ? -1L : (1L<<bits)-1;
 		if (bits <= 8)
 			return new ByteContents(size,mask);
 		else if (bits <= 16)
 			return new ShortContents(size,mask);
-		else
+		else if (bits <= 32)
 			return new IntContents(size,mask);
+		else
+			return new LongContents(size,mask);
 	}
 
 	private MemContentsSub() {
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.memory;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.gui.hex.HexFile;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.tools.AddTool;
+
+public class MemContentsTest {
+
+	private static final long WIDE = 0xFEDCBA9876543210L;
+
+	private static long mask(int width) {
+		return width == 64 ? -1L : (1L << width) - 1;
+	}
+
+	@Test
+	public void testWideWordsKeepAllBits() {
+		for (int width : new int[] { 33, 40, 63, 64 }) {
+			MemContents contents = MemContents.create(10, width, false);
+			contents.set(3, WIDE);
+			assertEquals("width " + width, WIDE & mask(width), contents.get(3));
+			contents.setFromSimulation(4, WIDE >>> 4);
+			assertEquals("width " + width, (WIDE >>> 4) & mask(width),
+					contents.get(4));
+			assertEquals(0, contents.get(5));
+		}
+	}
+
+	@Test
+	public void testWideWordsAcrossPages() {
+		MemContents contents = MemContents.create(14, 64, false);
+		contents.fill(4000, 200, WIDE);
+		assertEquals(0, contents.get(3999));
+		assertEquals(WIDE, contents.get(4000));
+		assertEquals(WIDE, contents.get(4199));
+		assertEquals(0, contents.get(4200));
+
+		long[] values = new long[9000];
+		for (int i = 0; i < values.length; i++)
+			values[i] = WIDE ^ ((long) i << 40);
+		contents.set(100, values);
+		for (int i = 0; i < values.length; i++)
+			assertEquals("offset " + i, values[i], contents.get(100 + i));
+
+		MemContents copy = contents.clone();
+		copy.set(100, 1);
+		assertEquals(values[0], contents.get(100));
+		assertEquals(1, copy.get(100));
+	}
+
+	@Test
+	public void testHexFileRoundTrip() throws IOException {
+		MemContents contents = MemContents.create(8, 64, true);
+		contents.set(0, WIDE);
+		contents.set(1, -1L);
+		contents.fill(10, 20, 0x123456789AL);
+		StringWriter out = new StringWriter();
+		HexFile.save(out, contents);
+
+		MemContents reread = MemContents.create(8, 64, true);
+		HexFile.open(reread, new StringReader(out.toString()));
+		assertEquals(WIDE, reread.get(0));
+		assertEquals(-1L, reread.get(1));
+		assertEquals(0x123456789AL, reread.get(10));
+		assertEquals(0x123456789AL, reread.get(29));
+		assertEquals(0, reread.get(30));
+	}
+
+	private static Component pin(Location loc, BitWidth width, boolean output) {
+		AttributeSet attrs = Pin.FACTORY.createAttributeSet();
+		attrs.setValue(StdAttr.WIDTH, width);
+		attrs.setValue(Pin.ATTR_TYPE, Boolean.valueOf(output));
+		return Pin.FACTORY.createComponent(loc, attrs);
+	}
+
+	private static void drive(CircuitState state, Component pin, long value) {
+		InstanceState pinState = state.getInstanceState(pin);
+		BitWidth width = Pin.FACTORY.getWidth(pinState.getInstance());
+		Pin.FACTORY.setValue(pinState, Value.createKnown(width, value));
+		pinState.fireInvalidated();
+	}
+
+	@Test
+	public void testWideRamStoresAndReadsBack() {
+		for (int width : new int[] { 40, 64 }) {
+			Loader loader = new Loader(null);
+			LogisimFile file = LogisimFile.createNew(loader, null);
+			Project proj = new Project(file);
+			ComponentFactory ram = ((AddTool) loader.getBuiltin()
+					.getLibrary("Memory").getTool("RAM")).getFactory();
+			AttributeSet attrs = ram.createAttributeSet();
+			BitWidth dataWidth = BitWidth.create(width);
+			attrs.setValue(Mem.ADDR_ATTR, BitWidth.create(4));
+			attrs.setValue(Mem.DATA_ATTR, dataWidth);
+			attrs.setValue(StdAttr.TRIGGER, StdAttr.TRIG_HIGH);
+			attrs.setValue(RamAttributes.ATTR_DBUS, RamAttributes.BUS_SEP);
+			Component comp = ram.createComponent(Location.create(300, 300),
+					attrs);
+			List<EndData> ends = comp.getEnds();
+			Component out = pin(ends.get(Mem.DATA).getLocation(), dataWidth,
+					true);
+			Component addr = pin(ends.get(Mem.ADDR).getLocation(),
+					BitWidth.create(4), false);
+			Component oe = pin(ends.get(Ram.OE).getLocation(), BitWidth.ONE,
+					false);
+			Component we = pin(ends.get(Ram.WE).getLocation(), BitWidth.ONE,
+					false);
+			Component in = pin(ends.get(Ram.ADIN).getLocation(), dataWidth,
+					false);
+			Circuit circuit = file.getMainCircuit();
+			CircuitMutation m = new CircuitMutation(circuit);
+			for (Component c : new Component[] { comp, out, addr, oe, we, in })
+				m.add(c);
+			m.execute();
+
+			CircuitState state = new CircuitState(proj, circuit);
+			proj.setCircuitState(state);
+			drive(state, addr, 3);
+			drive(state, oe, 1);
+			drive(state, we, 1);
+			drive(state, in, WIDE);
+			state.getPropagator().propagate();
+			drive(state, we, 0);
+			drive(state, in, 0);
+			drive(state, addr, 4);
+			state.getPropagator().propagate();
+			drive(state, addr, 3);
+			state.getPropagator().propagate();
+
+			Value read = Pin.FACTORY.getValue(state.getInstanceState(out));
+			assertEquals("width " + width, WIDE & mask(width),
+					read.toLongValue());
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.memory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+
+import javax.swing.filechooser.FileFilter;
+
+import com.cburch.hex.HexModel;
+import com.cburch.logisim.file.Loader;
+
+/**
+ * A binary memory image mapped from disk. Words are stored little-endian in
+ * the smallest number of whole bytes that holds the data width; addresses
+ * past the end of the file read as zero. Pages are copied out of the mapping
+ * only when they are first touched, and modified pages are written back
+ * explicitly through {@link #write}.
+ */
+class MemImage {
+	static final String REFERENCE_PREFIX = Loader.IMAGE_REFERENCE_PREFIX;
+
+	static final String EXTENSION = ".bin";
+
+	/** Offered in the load dialog so a binary image can be picked by name. */
+	static final FileFilter FILTER = new FileFilter() {
+		@Override
+		public boolean accept(File f) {
+			return f.isDirectory() || isImage(f);
+		}
+
+		@Override
+		public String getDescription() {
+			return Strings.get("ramImageFilter");
+		}
+	};
+
+	/**
+	 * Returns whether the file's name marks it as a binary image. Anything
+	 * else is read as a hex file, so that a mistyped one is reported as such
+	 * instead of being mapped as raw bytes.
+	 */
+	static boolean isImage(File file) {
+		return file.getName().toLowerCase().endsWith(EXTENSION);
+	}
+
+	static MemImage open(File file, int width, long maxWords)
+			throws IOException {
+		int bytesPerWord = (width + 7) / 8;
+		RandomAccessFile in;
+		try {
+			in = new RandomAccessFile(file, "r");
+		} catch (IOException e) {
+			throw new IOException(Strings.get("ramImageOpenError"), e);
+		}
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			long words = (size + bytesPerWord - 1) / bytesPerWord;
+			if (words > maxWords || size > Integer.MAX_VALUE)
+				throw new IOException(Strings.get("ramImageSizeError"));
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					size);
+			return new MemImage(file, bytesPerWord, size, buffer);
+		} finally {
+			in.close();
+		}
+	}
+
+	static void save(File file, HexModel src) throws IOException {
+		MemImage image = new MemImage(file, (src.getValueWidth() + 7) / 8, 0,
+				null);
+		long last = src.getLastOffset();
+		while (last > src.getFirstOffset() && src.get(last) == 0)
+			last--;
+		BitSet all = new BitSet();
+		int pageBits = 12;
+		all.set(0, (int) (last >>> pageBits) + 1);
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			out.setLength(0);
+		} finally {
+			out.close();
+		}
+		image.write(src, all, pageBits);
+	}
+
+	private File file;
+	private int bytesPerWord;
+	private long size;
+	private ByteBuffer buffer;
+
+	private MemImage(File file, int bytesPerWord, long size, ByteBuffer buffer) {
+		this.file = file;
+		this.bytesPerWord = bytesPerWord;
+		this.size = size;
+		this.buffer = buffer;
+	}
+
+	long get(long addr) {
+		long pos = addr * bytesPerWord;
+		if (addr < 0 || pos >= size)
+			return 0;
+		long ret = 0;
+		int n = (int) Math.min(bytesPerWord, size - pos);
+		for (int i = 0; i < n && i < 8; i++)
+			ret |= (buffer.get((int) pos + i) & 0xffL) << (8 * i);
+		return ret;
+	}
+
+	BigInteger get(BigInteger addr, int wordBytes) {
+		if (addr.signum() < 0 || addr.bitLength() > 62 - 8)
+			return BigInteger.ZERO;
+		long pos = addr.longValue() * wordBytes;
+		if (pos >= size)
+			return BigInteger.ZERO;
+		int n = (int) Math.min(wordBytes, size - pos);
+		byte[] bytes = new byte[n];
+		for (int i = 0; i < n; i++)
+			bytes[n - 1 - i] = buffer.get((int) pos + i);
+		return new BigInteger(1, bytes);
+	}
+
+	int getBytesPerWord() {
+		return bytesPerWord;
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	void read(long start, long[] dst) {
+		for (int i = 0; i < dst.length; i++)
+			dst[i] = get(start + i);
+	}
+
+	/**
+	 * Writes the words of the given pages from <code>src</code> back to the
+	 * image file. The mapping itself is left alone: pages already copied out
+	 * never consult it again.
+	 */
+	void write(HexModel src, BitSet pages, int pageBits) throws IOException {
+		RandomAccessFile out;
+		try {
+			out = new RandomAccessFile(file, "rw");
+		} catch (IOException e) {
+			throw new IOException(Strings.get("ramImageWriteError"), e);
+		}
+		try {
+			FileChannel channel = out.getChannel();
+			ByteBuffer buf = ByteBuffer.allocate(bytesPerWord << pageBits);
+			buf.order(ByteOrder.LITTLE_ENDIAN);
+			long last = src.getLastOffset();
+			for (int p = pages.nextSetBit(0); p >= 0; p = pages.nextSetBit(p + 1)) {
+				long start = (long) p << pageBits;
+				long end = Math.min(last + 1, start + (1L << pageBits));
+				buf.clear();
+				for (long addr = start; addr < end; addr++) {
+					long val = src.get(addr);
+					for (int i = 0; i < bytesPerWord; i++)
+						buf.put((byte) (i < 8 ? val >>> (8 * i) : 0));
+				}
+				buf.flip();
+				long pos = start * bytesPerWord;
+				while (buf.hasRemaining())
+					pos += channel.write(buf, pos);
+			}
+		} catch (IOException e) {
+			throw new IOException(Strings.get("ramImageWriteError"), e);
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.tools.AddTool;
+import com.cburch.logisim.tools.Library;
+
+public class MemImageTest {
+
+	private File dir;
+	private File image;
+	private byte[] bytes;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("logisim-image").toFile();
+		image = new File(dir, "words.bin");
+		// 16-bit words, little-endian
+		bytes = new byte[2 << 16];
+		new Random(1).nextBytes(bytes);
+		FileOutputStream out = new FileOutputStream(image);
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+
+	private int word(int addr) {
+		return (bytes[2 * addr] & 0xff) | ((bytes[2 * addr + 1] & 0xff) << 8);
+	}
+
+	private int wordOnDisk(int addr) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(image, "r");
+		try {
+			in.seek(2L * addr);
+			return in.read() | (in.read() << 8);
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void testPagesFaultFromImage() throws IOException {
+		MemContents contents = MemContents.create(16, 16, false);
+		contents.mapImage(image);
+		assertEquals(image, contents.getImageFile());
+		Random rand = new Random(2);
+		for (int k = 0; k < 2000; k++) {
+			int addr = rand.nextInt(1 << 16);
+			assertEquals("address " + addr, word(addr), contents.get(addr));
+		}
+	}
+
+	@Test
+	public void testFlushWritesModifiedPages() throws IOException {
+		MemContents contents = MemContents.create(16, 16, false);
+		contents.mapImage(image);
+		contents.set(5, 0xabcd);
+		contents.fill(0x8000, 3000, 7);
+		MemContents copy = contents.clone();
+		copy.set(6, 0x1111);
+
+		// nothing reaches the file until it is flushed
+		assertEquals(word(5), wordOnDisk(5));
+		contents.flush();
+		assertEquals(0xabcd, wordOnDisk(5));
+		assertEquals(7, wordOnDisk(0x8000 + 2999));
+		assertEquals(word(6), wordOnDisk(6));
+		assertEquals(word(0x8000 + 3000), wordOnDisk(0x8000 + 3000));
+		assertEquals(0x1111, copy.get(6));
+
+		MemContents reread = MemContents.create(16, 16, false);
+		reread.mapImage(image);
+		assertEquals(0xabcd, reread.get(5));
+		assertEquals(word(6), reread.get(6));
+
+		reread.unmapImage();
+		assertNull(reread.getImageFile());
+		assertEquals(0, reread.get(5));
+	}
+
+	@Test
+	public void testSaveImage() throws IOException {
+		MemContents contents = MemContents.create(8, 8, true);
+		contents.set(3, 0x42);
+		contents.set(255, 0x99);
+		File saved = new File(dir, "small.bin");
+		contents.saveImage(saved);
+		assertEquals(256, saved.length());
+		assertEquals(saved, contents.getImageFile());
+
+		MemContents reread = MemContents.create(8, 8, true);
+		reread.mapImage(saved);
+		assertEquals(0x42, reread.get(3));
+		assertEquals(0x99, reread.get(255));
+	}
+
+	@Test(expected = IOException.class)
+	public void testImageLargerThanMemory() throws IOException {
+		MemContents.create(4, 8, true).mapImage(image);
+	}
+
+	@Test
+	public void testCircuitFileRefersToImageRelatively() throws Exception {
+		Loader loader = new Loader(null);
+		LogisimFile file = LogisimFile.createNew(loader, null);
+		Library memory = loader.getBuiltin().getLibrary("Memory");
+		file.addLibrary(memory);
+		ComponentFactory rom = ((AddTool) memory.getTool("ROM")).getFactory();
+		AttributeSet attrs = rom.createAttributeSet();
+		attrs.setValue(Mem.ADDR_ATTR, BitWidth.create(16));
+		attrs.setValue(Mem.DATA_ATTR, BitWidth.create(16));
+		MemContents contents = attrs.getValue(Rom.CONTENTS_ATTR);
+		contents.mapImage(image);
+		Component comp = rom.createComponent(Location.create(200, 200), attrs);
+		Circuit circuit = file.getMainCircuit();
+		CircuitMutation m = new CircuitMutation(circuit);
+		m.add(comp);
+		m.execute();
+		contents.set(9, 0x1234);
+
+		File circ = new File(dir, "rom.circ");
+		assertTrue(loader.save(file, circ));
+		// saving writes the image back and stores its path relative to the
+		// circuit file
+		assertEquals(0x1234, wordOnDisk(9));
+		String text = new String(Files.readAllBytes(circ.toPath()), "UTF-8");
+		assertTrue(text, text.contains(MemImage.REFERENCE_PREFIX
+				+ "words.bin"));
+
+		LogisimFile loaded = new Loader(null).openLogisimFile(circ);
+		Component loadedRom = null;
+		for (Component c : loaded.getMainCircuit().getNonWires()) {
+			if (c.getFactory() instanceof Rom)
+				loadedRom = c;
+		}
+		MemContents loadedContents = loadedRom.getAttributeSet().getValue(
+				Rom.CONTENTS_ATTR);
+		assertEquals(image.getAbsoluteFile(), loadedContents.getImageFile()
+				.getAbsoluteFile());
+		assertEquals(0x1234, loadedContents.get(9));
+		assertEquals(word(10), loadedContents.get(10));
+	}
+
+	@Test
+	public void testOnlyBinaryNamesAreImages() {
+		assertTrue(MemImage.isImage(new File(dir, "words.bin")));
+		assertTrue(MemImage.isImage(new File(dir, "WORDS.BIN")));
+		assertFalse(MemImage.isImage(new File(dir, "words.txt")));
+		assertFalse(MemImage.isImage(new File(dir, "words")));
+	}
+
+	@Test
+	public void testMistypedHexFileIsNotMapped() throws IOException {
+		Rom rom = (Rom) ((AddTool) new Loader(null).getBuiltin()
+				.getLibrary("Memory").getTool("ROM")).getFactory();
+		AttributeSet attrs = rom.createAttributeSet();
+		MemContents contents = attrs.getValue(Rom.CONTENTS_ATTR);
+		File mistyped = new File(dir, "notes.txt");
+		Files.write(mistyped.toPath(), "0 1 2 3\n".getBytes("US-ASCII"));
+		File empty = new File(dir, "empty.txt");
+		Files.write(empty.toPath(), new byte[0]);
+		for (File f : new File[] { mistyped, empty }) {
+			try {
+				rom.reloadFromSource(f, attrs);
+				fail(f.getName() + " was accepted");
+			} catch (IOException e) {
+				// reported as a bad hex file
+			}
+			assertNull(contents.getImageFile());
+		}
+	}
+
+	@Test
+	public void testConcurrentPageFaults() throws Exception {
+		for (int round = 0; round < 20; round++) {
+			final MemContents contents = MemContents.create(16, 16, false);
+			contents.mapImage(image);
+			final AtomicInteger wrong = new AtomicInteger();
+			Thread[] readers = new Thread[4];
+			for (int t = 0; t < readers.length; t++) {
+				final int first = t;
+				readers[t] = new Thread() {
+					@Override
+					public void run() {
+						// each reader walks the pages in its own order
+						for (int k = 0; k < 1 << 16; k++) {
+							int addr = (k * (2 * first + 1) + first * 4099)
+									& 0xffff;
+							if (contents.get(addr) != word(addr))
+								wrong.incrementAndGet();
+						}
+					}
+				};
+			}
+			for (Thread reader : readers)
+				reader.start();
+			for (Thread reader : readers)
+				reader.join();
+			assertEquals(0, wrong.get());
+		}
+	}
+}
@@ -135,11 +135,15 @@ class MemMenu implements ActionListener, MenuExtender {
 		if (oldSelected != null)
 			chooser.setSelectedFile(oldSelected);
 		chooser.setDialogTitle(Strings.get("ramLoadDialogTitle"));
+		chooser.addChoosableFileFilter(MemImage.FILTER);
 		int choice = chooser.showOpenDialog(frame);
 		if (choice == JFileChooser.APPROVE_OPTION) {
 			File f = chooser.getSelectedFile();
+			boolean binary = chooser.getFileFilter() == MemImage.FILTER
+					|| MemImage.isImage(f);
 			try {
-				factory.loadImage(circState.getInstanceState(instance), f);
+				factory.loadImage(circState.getInstanceState(instance), f,
+						binary);
 			} catch (IOException e) {
 				JOptionPane.showMessageDialog(frame, e.getMessage(),
 						Strings.get("ramLoadErrorTitle"),
@@ -160,7 +164,10 @@ class MemMenu implements ActionListener, MenuExtender {
 		if (choice == JFileChooser.APPROVE_OPTION) {
 			File f = chooser.getSelectedFile();
 			try {
-				HexFile.save(f, s.getContents());
+				if (s.getContents().getImageFile() != null)
+					s.getContents().saveImage(f);
+				else
+					HexFile.save(f, s.getContents());
 				factory.setCurrentImage(instance, f);
 			} catch (IOException e) {
 				JOptionPane.showMessageDialog(frame, e.getMessage(),
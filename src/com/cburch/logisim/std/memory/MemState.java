@@ -38,16 +38,21 @@ import com.cburch.hex.HexModel;
 import com.cburch.hex.HexModelListener;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.instance.InstanceData;
+import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.util.GraphicsUtil;
 import com.cburch.logisim.util.StringUtil;
 
 class MemState implements InstanceData, Cloneable, HexModelListener {
+	private static final long NO_ADDRESS = Long.MIN_VALUE;
 
 	private MemContents contents;
 	private long curScroll = 0;
 	private long cursorLoc = -1;
 	private long curAddr = -1;
 	private long usedAddr = -1;
+	// address the simulation last showed while the viewer catches up on
+	// repaint, or NO_ADDRESS when there is nothing new
+	private volatile long shownAddr = NO_ADDRESS;
 	private boolean RecalculateParameters = true;
 	private int NrOfLines = 1;
 	private int NrDataSymbolsEachLine = 1;
@@ -67,7 +72,7 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
 	}
 
 	public void bytesChanged(HexModel source, long start, long numBytes,
-			int[] oldValues) {
+			long[] oldValues) {
 	}
 
 	private void CalculateDisplayParameters(Graphics g, boolean HasDataIn) {
@@ -222,6 +227,14 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
 		topY += ControlBlockHeight;
 		if (RecalculateParameters)
 			CalculateDisplayParameters(g, HasDataIn);
+		long shown = shownAddr;
+		if (shown != NO_ADDRESS) {
+			shownAddr = NO_ADDRESS;
+			if (shown != curAddr) {
+				setCurrent(shown);
+				scrollToShow(shown);
+			}
+		}
 		int BlockHeigt = NrOfLines * (CharHeight + 2);
 		int TotalNrOfEntries = (1 << getAddrBits());
 		g.setColor(Color.LIGHT_GRAY);
@@ -253,7 +266,7 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
 					GraphicsUtil.V_CENTER);
 			/* Draw data */
 			for (int j = 0; j < NrDataSymbolsEachLine; j++) {
-				int value = contents.get(addr + j);
+				long value = contents.get(addr + j);
 				if (isValidAddr(addr + j)) {
 					if ((addr + j) == curAddr) {
 						g.setColor(Color.DARK_GRAY);
@@ -309,6 +322,30 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
 		curScroll = 0;
 	}
 
+	/**
+	 * Moves the highlight and scroll position to the address the simulation
+	 * just accessed. When memory viewers are updated on repaint only the
+	 * address is recorded here, and paint moves the view.
+	 */
+	void showAddress(long addr) {
+		if (AppPreferences.Memory_Deferred_View.get()) {
+			shownAddr = addr;
+		} else if (addr != curAddr) {
+			setCurrent(addr);
+			scrollToShow(addr);
+		}
+	}
+
+	/**
+	 * Stores a word written by the simulation.
+	 */
+	void store(long addr, long value) {
+		if (AppPreferences.Memory_Deferred_View.get())
+			contents.setFromSimulation(addr, value);
+		else
+			contents.set(addr, value);
+	}
+
 	void setCurrent(long value) {
 		curAddr = isValidAddr(value) ? value : -1L;
 	}
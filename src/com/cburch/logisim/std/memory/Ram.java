@@ -34,6 +34,7 @@ import java.awt.Graphics;
 import java.awt.Window;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -46,6 +47,8 @@ import com.bfh.logisim.designrulecheck.CorrectLabel;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.AttributeSets;
+import com.cburch.logisim.data.AttributeSnapshot;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Location;
@@ -91,7 +94,10 @@ public class Ram extends Mem {
 				int addr = Integer.parseInt(toks.nextToken());
 				int data = Integer.parseInt(toks.nextToken());
 				MemContents ret = MemContents.create(addr, data,false);
-				HexFile.open(ret, new StringReader(rest));
+				if (rest.startsWith(MemImage.REFERENCE_PREFIX))
+					ret.mapImage(new File(rest.substring(MemImage.REFERENCE_PREFIX.length()).trim()));
+				else
+					HexFile.open(ret, new StringReader(rest));
 				return ret;
 			} catch (IOException e) {
 				return null;
@@ -114,7 +120,11 @@ public class Ram extends Mem {
 			StringWriter ret = new StringWriter();
 			ret.write("addr/data: " + addr + " " + data + "\n");
 			try {
-				HexFile.save(ret, state);
+				if (state.getImageFile() != null) {
+					ret.write(MemImage.REFERENCE_PREFIX + state.getImageFile().getPath() + "\n");
+				} else {
+					HexFile.save(ret, state);
+				}
 			} catch (IOException e) {
 			}
 			return ret.toString();
@@ -757,8 +767,10 @@ public class Ram extends Mem {
 	@Override
 	public void propagate(InstanceState state) {
 		RamState myState = (RamState) getState(state);
-		Object trigger = state.getAttributeValue(StdAttr.TRIGGER);
-		Object bus = state.getAttributeValue(RamAttributes.ATTR_DBUS);
+		AttributeSnapshot attrs = AttributeSets.snapshot(state
+				.getAttributeSet());
+		Object trigger = attrs.getValue(StdAttr.TRIGGER);
+		Object bus = attrs.getValue(RamAttributes.ATTR_DBUS);
 		boolean asynch = trigger.equals(StdAttr.TRIG_HIGH)
 				|| trigger.equals(StdAttr.TRIG_LOW);
 		boolean edge = false;
@@ -774,8 +786,8 @@ public class Ram extends Mem {
 		boolean shouldStore = (!asynch || trigger.equals(StdAttr.TRIG_HIGH)) ? state
 				.getPortValue(WE) != Value.FALSE
 				: state.getPortValue(WE) == Value.FALSE;
-		BitWidth dataBits = state.getAttributeValue(DATA_ATTR);
-		Object be = state.getAttributeValue(RamAttributes.ATTR_ByteEnables);
+		BitWidth dataBits = attrs.getValue(DATA_ATTR);
+		Object be = attrs.getValue(RamAttributes.ATTR_ByteEnables);
 		boolean byteEnables = be == null ? false : be
 				.equals(RamAttributes.BUS_WITH_BYTEENABLES);
 		int NrOfByteEnables = GetNrOfByteEnables(state.getAttributeSet());
@@ -793,26 +805,20 @@ public class Ram extends Mem {
 			return;
 		}
 		if (!outputEnabled && !shouldStore) {
-			if (myState.getUsed() != myState.getCurrent()) {
-				myState.setCurrent(myState.getUsed());
-				myState.scrollToShow(myState.getUsed());
-			}
+			myState.showAddress(myState.getUsed());
 			return;
 		} else if (triggered) {
 			myState.setUsedAddr(addr);
 		}
-		if (addr != myState.getCurrent()) {
-			myState.setCurrent(addr);
-			myState.scrollToShow(addr);
-		}
+		myState.showAddress(addr);
 
 		if (triggered) {
 			if (shouldStore) {
-				int dataValue = state.getPortValue(
-						!separate ? DATA : (asynch) ? ADIN : SDIN).toIntValue();
-				int memValue = myState.getContents().get(addr);
+				long dataValue = state.getPortValue(
+						!separate ? DATA : (asynch) ? ADIN : SDIN).toLongValue();
+				long memValue = myState.getContents().get(addr);
 				if (byteEnables) {
-					int mask = 0xFF << (NrOfByteEnables - 1) * 8;
+					long mask = 0xFFL << (NrOfByteEnables - 1) * 8;
 					for (int i = 0; i < NrOfByteEnables; i++) {
 						Value bitvalue = state
 								.getPortValue(ByteEnableIndex + i);
@@ -825,14 +831,14 @@ public class Ram extends Mem {
 						mask >>= 8;
 					}
 				}
-				myState.getContents().set(addr, dataValue);
+				myState.store(addr, dataValue);
 			}
 		}
 
-		int val = myState.getContents().get(addr);
-		int currentValue = myState.GetCurrentData();
+		long val = myState.getContents().get(addr);
+		long currentValue = myState.GetCurrentData();
 		if (byteEnables) {
-			int mask = 0xFF << (NrOfByteEnables - 1) * 8;
+			long mask = 0xFFL << (NrOfByteEnables - 1) * 8;
 			for (int i = 0; i < NrOfByteEnables; i++) {
 				Value bitvalue = state.getPortValue(ByteEnableIndex + i);
 				boolean disabled = bitvalue == null ? false : bitvalue
@@ -44,7 +44,7 @@ public class RamState extends MemState implements InstanceData,
 	private Instance parent;
 	private MemListener listener;
 	private ClockState clockState;
-	private int CurrentData = 0;
+	private long CurrentData = 0;
 
 	RamState(Instance parent, MemContents contents, MemListener listener) {
 		super(contents);
@@ -80,7 +80,7 @@ public class RamState extends MemState implements InstanceData,
 		return ret;
 	}
 
-	int GetCurrentData() {
+	long GetCurrentData() {
 		return CurrentData;
 	}
 
@@ -88,7 +88,7 @@ public class RamState extends MemState implements InstanceData,
 		return clockState.updateClock(newClock, trigger);
 	}
 
-	void SetCurrentData(int data) {
+	void SetCurrentData(long data) {
 		CurrentData = data;
 	}
 
@@ -73,7 +73,7 @@ public class Register extends InstanceFactory {
 				g.setColor(Color.YELLOW);
 			String str = "";
 			if (value.isFullyDefined())
-				str = StringUtil.toHexString(nr_of_bits, value.toIntValue());
+				str = StringUtil.toHexString(nr_of_bits, value.toLongValue());
 			else {
 				for (int i = 0 ; i < len ; i++)
 					str = str.concat("?");
@@ -95,7 +95,10 @@ public class Rom extends Mem implements SourcedComponentFactory {
 				int addr = Integer.parseInt(toks.nextToken());
 				int data = Integer.parseInt(toks.nextToken());
 				MemContents ret = MemContents.create(addr, data,true);
-				HexFile.open(ret, new StringReader(rest));
+				if (rest.startsWith(MemImage.REFERENCE_PREFIX))
+					ret.mapImage(new File(rest.substring(MemImage.REFERENCE_PREFIX.length()).trim()));
+				else
+					HexFile.open(ret, new StringReader(rest));
 				return ret;
 			} catch (IOException e) {
 				return null;
@@ -118,7 +121,11 @@ public class Rom extends Mem implements SourcedComponentFactory {
 			StringWriter ret = new StringWriter();
 			ret.write("addr/data: " + addr + " " + data + "\n");
 			try {
-				HexFile.save(ret, state);
+				if (state.getImageFile() != null) {
+					ret.write(MemImage.REFERENCE_PREFIX + state.getImageFile().getPath() + "\n");
+				} else {
+					HexFile.save(ret, state);
+				}
 			} catch (IOException e) {
 			}
 			return ret.toString();
@@ -388,18 +395,21 @@ public class Rom extends Mem implements SourcedComponentFactory {
 		int addr = addrValue.toIntValue();
 		if (!addrValue.isFullyDefined() || addr < 0)
 			return;
-		if (addr != myState.getCurrent()) {
-			myState.setCurrent(addr);
-			myState.scrollToShow(addr);
-		}
+		myState.showAddress(addr);
 
-		int val = myState.getContents().get(addr);
+		long val = myState.getContents().get(addr);
 		state.setPort(DATA, Value.createKnown(dataBits, val), DELAY);
 	}
 
 	@Override
 	public void reloadFromSource(File file, AttributeSet attributeSet) throws IOException {
-		HexFile.open(attributeSet.getValue(CONTENTS_ATTR), file);
+		MemContents contents = attributeSet.getValue(CONTENTS_ATTR);
+		if (MemImage.isImage(file)) {
+			contents.mapImage(file);
+		} else {
+			contents.unmapImage();
+			HexFile.open(contents, file);
+		}
 	}
 
 	@Override
@@ -289,7 +289,7 @@ public class ShiftRegister extends InstanceFactory {
 			String Value;
 			if (data_value.isFullyDefined()) {
 				g.setColor(Color.DARK_GRAY);
-				Value = StringUtil.toHexString(nr_of_bits, data_value.toIntValue());
+				Value = StringUtil.toHexString(nr_of_bits, data_value.toLongValue());
 			} else {
 				g.setColor(Color.YELLOW);
 				Value = (data_value.isUnknown()) ? "?" : "!";
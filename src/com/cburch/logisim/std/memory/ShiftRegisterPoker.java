@@ -91,8 +91,8 @@ public class ShiftRegisterPoker extends InstancePoker {
 				BitWidth widObj = state.getAttributeValue(StdAttr.WIDTH);
 				ShiftRegisterData data = (ShiftRegisterData) state.getData();
 				int i = data.getLength() - 1 - loc;
-				int value = data.get(i).toIntValue();
-				value = ((value * 16) + val) & widObj.getMask();
+				long value = data.get(i).toLongValue();
+				value = ((value * 16) + val) & widObj.getLongMask();
 				Value valObj = Value.createKnown(widObj, value);
 				data.set(i, valObj);
 				state.fireInvalidated();
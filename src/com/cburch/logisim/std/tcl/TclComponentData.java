@@ -29,6 +29,7 @@
  *******************************************************************************/
 package com.cburch.logisim.std.tcl;
 
+import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.instance.InstanceData;
 import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.instance.InstanceStateImpl;
@@ -65,6 +66,8 @@ public class TclComponentData implements InstanceData {
 
 	private TclWrapper tclWrapper;
 
+	private TclConsoleBridge bridge;
+
 	private InstanceState instanceState;
 
         private Value prevClockValue = Value.UNKNOWN;
@@ -73,8 +76,9 @@ public class TclComponentData implements InstanceData {
 
 		instanceState = state;
 
-		tclClient = new SocketClient();
+		tclClient = new SocketClient(true);
 		tclWrapper = new TclWrapper(this);
+		bridge = new TclConsoleBridge();
 	}
 
 	@Override
@@ -82,6 +86,17 @@ public class TclComponentData implements InstanceData {
 		return null;
 	}
 
+	/**
+	 * Tells the TCL wrapper to end
+	 */
+	public void end() {
+		bridge.end(tclClient);
+	}
+
+	TclConsoleBridge getBridge() {
+		return bridge;
+	}
+
 	public InstanceState getState() {
 		return instanceState;
 	}
@@ -121,21 +136,16 @@ public class TclComponentData implements InstanceData {
                 return newTick;
         }
 
-	public String receive() {
-		return tclWrapperListenerThread.receive();
-	}
-
-	public void send(String message) {
-		tclClient.send(message);
-	}
-
 	public void tclWrapperStartCallback() {
 
 		tclClient.start();
 
+		CircuitState circuitState = ((InstanceStateImpl) instanceState)
+				.getCircuitState();
 		tclWrapperListenerThread = new TclWrapperListenerThread(tclClient,
-				((InstanceStateImpl) instanceState).getCircuitState()
-						.getProject().getSimulator());
+				bridge, circuitState, instanceState.getInstance()
+						.getComponent(), circuitState.getProject()
+						.getSimulator());
 		tclWrapperListenerThread.start();
 	}
 }
@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.tcl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.cburch.logisim.circuit.Simulator;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.Port;
+import com.cburch.logisim.util.SocketClient;
+
+/**
+ * Exchanges the port values of a Tcl component with its Tcl wrapper without
+ * ever waiting for the console.
+ * <p/>
+ * Each propagation sends at most one frame, starting with {@link #FORCE} on a
+ * new clock tick and {@link #EXAMINE} otherwise, followed by records declaring
+ * the ports the first time ({@link #DECLARE}: id, port type, name) and records
+ * for the inputs whose value changed since the previous frame, packed when
+ * fully known ({@link #BITS}: id, width, bytes, most significant bit first) or
+ * one character per bit ({@link #CHARS}: id, width, characters). Ids are the
+ * port indexes.
+ * <p/>
+ * The console answers a force with a frame of {@link #CHARS} records for the
+ * outputs it changed, and may ask for clock ticks with {@link #TICK} records.
+ * Those frames are read by the TclWrapperListenerThread, whose values are
+ * queued and then driven on the ports at the next propagation of the
+ * component. The console never stalls the propagation thread, at the price of
+ * its outputs showing up one propagation after the tick that caused them.
+ */
+class TclConsoleBridge {
+
+	static final byte END = 'E';
+	static final byte FORCE = 'F';
+	static final byte EXAMINE = 'X';
+
+	static final byte DECLARE = 'N';
+	static final byte BITS = 'B';
+	static final byte CHARS = 'V';
+	static final byte TICK = 'T';
+
+	private static class Update {
+		private final int port;
+		private final Value value;
+
+		private Update(int port, Value value) {
+			this.port = port;
+			this.value = value;
+		}
+	}
+
+	private final ConcurrentLinkedQueue<Update> updates = new ConcurrentLinkedQueue<Update>();
+	private Value[] sent = null; // last values sent to the console
+	private Value[] received = null; // last values set by the console
+	private ByteArrayOutputStream frame = new ByteArrayOutputStream();
+	private DataOutputStream out = new DataOutputStream(frame);
+
+	/**
+	 * Drives the outputs with the values received from the console so far.
+	 */
+	void apply(InstanceState state) {
+		List<Port> ports = state.getInstance().getPorts();
+		if (received == null)
+			received = new Value[ports.size()];
+
+		Update u;
+		while ((u = updates.poll()) != null) {
+			if (u.port < received.length)
+				received[u.port] = u.value;
+		}
+
+		for (int i = 0; i < received.length; i++) {
+			if (received[i] != null)
+				state.setPort(i, fit(received[i], ports.get(i)), 1);
+		}
+	}
+
+	synchronized void end(SocketClient client) {
+		frame.reset();
+		frame.write(END);
+		client.sendFrame(frame.toByteArray(), frame.size());
+	}
+
+	/**
+	 * Decodes a frame of the console, from the listener thread. Returns true
+	 * if it holds port values, so the component has to be propagated again.
+	 */
+	boolean receive(byte[] data, Simulator sim) {
+		boolean ret = false;
+		int pos = 0;
+		while (pos < data.length) {
+			if (data[pos] == TICK) {
+				sim.tick();
+				pos++;
+			} else if (data[pos] == CHARS && pos + 5 <= data.length) {
+				int id = readShort(data, pos + 1);
+				int width = readShort(data, pos + 3);
+				pos += 5;
+				if (pos + width > data.length)
+					break;
+				updates.add(new Update(id, parseValue(data, pos, width)));
+				pos += width;
+				ret = true;
+			} else {
+				break;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Sends the inputs that changed since the last frame. Nothing is sent when
+	 * nothing changed, unless it is a new tick.
+	 */
+	synchronized void send(SocketClient client, InstanceState state,
+			boolean newTick) {
+		List<Port> ports = state.getInstance().getPorts();
+		frame.reset();
+		frame.write(newTick ? FORCE : EXAMINE);
+
+		try {
+			if (sent == null) {
+				sent = new Value[ports.size()];
+				for (int i = 0; i < sent.length; i++) {
+					Port p = ports.get(i);
+					byte[] name = p.getToolTip().getBytes(
+							StandardCharsets.UTF_8);
+					out.writeByte(DECLARE);
+					out.writeShort(i);
+					out.writeByte(p.getType());
+					out.writeShort(name.length);
+					out.write(name);
+				}
+			}
+
+			for (int i = 0; i < sent.length; i++) {
+				if (ports.get(i).getType() == EndData.OUTPUT_ONLY)
+					continue;
+				Value val = state.getPortValue(i);
+				if (!val.equals(sent[i])) {
+					writeValue(i, val);
+					sent[i] = val;
+				}
+			}
+		} catch (IOException e) {
+			// not thrown by a ByteArrayOutputStream
+			throw new IllegalStateException(e);
+		}
+
+		if (newTick || frame.size() > 1)
+			client.sendFrame(frame.toByteArray(), frame.size());
+	}
+
+	/**
+	 * If the received value is too wide, the leftmost part is cut. If it is not
+	 * wide enough, it is completed with unknown bits on the MSB side.
+	 */
+	private static Value fit(Value val, Port p) {
+		int width = p.getFixedBitWidth().getWidth();
+		if (val.getWidth() == width)
+			return val;
+		Value[] bits = new Value[width];
+		for (int i = 0; i < width; i++)
+			bits[i] = i < val.getWidth() ? val.get(i) : Value.UNKNOWN;
+		return Value.create(bits);
+	}
+
+	private static Value parseValue(byte[] data, int pos, int width) {
+		Value[] bits = new Value[width];
+		for (int i = 0; i < width; i++) {
+			switch (data[pos + i]) {
+			case '0':
+				bits[width - 1 - i] = Value.FALSE;
+				break;
+			case '1':
+				bits[width - 1 - i] = Value.TRUE;
+				break;
+			case 'E':
+				bits[width - 1 - i] = Value.ERROR;
+				break;
+			default:
+				bits[width - 1 - i] = Value.UNKNOWN;
+				break;
+			}
+		}
+		return Value.create(bits);
+	}
+
+	private static int readShort(byte[] data, int pos) {
+		return ((data[pos] & 0xff) << 8) | (data[pos + 1] & 0xff);
+	}
+
+	private void writeValue(int id, Value val) throws IOException {
+		int width = val.getWidth();
+		if (width == 0) {
+			return;
+		} else if (val.isFullyDefined()) {
+			long bits = val.toLongValue();
+			out.writeByte(BITS);
+			out.writeShort(id);
+			out.writeShort(width);
+			for (int k = 0; k < (width + 7) / 8; k++) {
+				int b = 0;
+				for (int j = 0; j < 8; j++) {
+					int bit = width - 1 - (8 * k + j);
+					if (bit >= 0 && ((bits >>> bit) & 1) != 0)
+						b |= 0x80 >> j;
+				}
+				out.writeByte(b);
+			}
+		} else {
+			out.writeByte(CHARS);
+			out.writeShort(id);
+			out.writeShort(width);
+			out.writeBytes(val.toBinaryString());
+		}
+	}
+}
@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+
+package com.cburch.logisim.std.tcl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Simulator;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceFactory;
+import com.cburch.logisim.instance.InstancePainter;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.Port;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.util.SocketClient;
+import com.cburch.logisim.util.StringUtil;
+
+public class TclConsoleBridgeTest {
+
+	/** Records the frames sent, as the binder would receive them. */
+	private static class FakeClient extends SocketClient {
+		final List<byte[]> sent = new ArrayList<byte[]>();
+
+		FakeClient() {
+			super(true);
+		}
+
+		@Override
+		public byte[] receiveFrame() {
+			return null;
+		}
+
+		@Override
+		public void sendFrame(byte[] data, int length) {
+			byte[] frame = new byte[length];
+			System.arraycopy(data, 0, frame, 0, length);
+			sent.add(frame);
+		}
+	}
+
+	/** Counts the ticks asked for by the console. */
+	private static class FakeSimulator extends Simulator {
+		int ticks = 0;
+
+		@Override
+		public void tick() {
+			ticks++;
+		}
+	}
+
+	/**
+	 * Stands for a Tcl component: inputs a (10 bits) and b, output q (4
+	 * bits), driven from the bridge at each propagation.
+	 */
+	private static class Bridged extends InstanceFactory {
+		final TclConsoleBridge bridge = new TclConsoleBridge();
+
+		Bridged() {
+			super("Bridged");
+			setOffsetBounds(Bounds.create(0, 0, 40, 40));
+			Port[] ports = { new Port(0, 10, Port.INPUT, 10),
+					new Port(0, 30, Port.INPUT, 1),
+					new Port(40, 20, Port.OUTPUT, 4) };
+			String[] names = { "a", "b", "q" };
+			for (int i = 0; i < ports.length; i++)
+				ports[i].setToolTip(StringUtil.constantGetter(names[i]));
+			setPorts(ports);
+		}
+
+		@Override
+		public void paintInstance(InstancePainter painter) {
+		}
+
+		@Override
+		public void propagate(InstanceState state) {
+			bridge.apply(state);
+		}
+	}
+
+	private Bridged factory;
+	private Component comp;
+	private CircuitState circState;
+	private InstanceState pinA, pinB, pinQ;
+	private FakeClient client;
+
+	private Component pin(Location loc, int width, boolean output) {
+		AttributeSet attrs = Pin.FACTORY.createAttributeSet();
+		attrs.setValue(StdAttr.WIDTH, BitWidth.create(width));
+		attrs.setValue(Pin.ATTR_TYPE, Boolean.valueOf(output));
+		return Pin.FACTORY.createComponent(loc, attrs);
+	}
+
+	@Before
+	public void setUp() {
+		LogisimFile file = LogisimFile.createNew(new Loader(null), null);
+		Project proj = new Project(file);
+		Circuit circuit = file.getMainCircuit();
+		factory = new Bridged();
+		comp = factory.createComponent(Location.create(200, 200),
+				factory.createAttributeSet());
+		Instance instance = Instance.getInstanceFor(comp);
+		Component a = pin(instance.getPortLocation(0), 10, false);
+		Component b = pin(instance.getPortLocation(1), 1, false);
+		Component q = pin(instance.getPortLocation(2), 4, true);
+		CircuitMutation m = new CircuitMutation(circuit);
+		m.add(comp);
+		m.add(a);
+		m.add(b);
+		m.add(q);
+		m.execute();
+
+		circState = new CircuitState(proj, circuit);
+		proj.setCircuitState(circState);
+		pinA = circState.getInstanceState(a);
+		pinB = circState.getInstanceState(b);
+		pinQ = circState.getInstanceState(q);
+		client = new FakeClient();
+	}
+
+	private void drive(InstanceState pin, Value value) {
+		Pin.FACTORY.setValue(pin, value);
+		pin.fireInvalidated();
+		circState.getPropagator().propagate();
+	}
+
+	private void send(boolean newTick) {
+		factory.bridge.send(client, circState.getInstanceState(comp), newTick);
+	}
+
+	/**
+	 * Decodes a frame sent to the console the way the wrapper does, into
+	 * the names declared and the values of the inputs it carries.
+	 */
+	private static char decode(byte[] frame, Map<Integer, String> names,
+			Map<Integer, Value> values) {
+		int pos = 1;
+		while (pos < frame.length) {
+			byte kind = frame[pos];
+			int id = ((frame[pos + 1] & 0xff) << 8) | (frame[pos + 2] & 0xff);
+			if (kind == TclConsoleBridge.DECLARE) {
+				int len = ((frame[pos + 4] & 0xff) << 8)
+						| (frame[pos + 5] & 0xff);
+				names.put(id, new String(frame, pos + 6, len,
+						StandardCharsets.UTF_8));
+				pos += 6 + len;
+				continue;
+			}
+			int width = ((frame[pos + 3] & 0xff) << 8)
+					| (frame[pos + 4] & 0xff);
+			pos += 5;
+			Value[] bits = new Value[width];
+			for (int i = 0; i < width; i++) {
+				Value bit;
+				if (kind == TclConsoleBridge.BITS) {
+					int b = frame[pos + i / 8] >> (7 - i % 8) & 1;
+					bit = b != 0 ? Value.TRUE : Value.FALSE;
+				} else {
+					char c = (char) frame[pos + i];
+					bit = c == '1' ? Value.TRUE : c == '0' ? Value.FALSE
+							: c == 'E' ? Value.ERROR : Value.UNKNOWN;
+				}
+				bits[width - 1 - i] = bit;
+			}
+			values.put(id, Value.create(bits));
+			pos += kind == TclConsoleBridge.BITS ? (width + 7) / 8 : width;
+		}
+		return (char) frame[0];
+	}
+
+	private static byte[] frame(Object... items) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		for (Object item : items) {
+			if (item instanceof Character)
+				out.writeByte((Character) item);
+			else if (item instanceof Integer)
+				out.writeShort((Integer) item);
+			else
+				out.writeBytes((String) item);
+		}
+		return bytes.toByteArray();
+	}
+
+	@Test
+	public void testInputsRoundTrip() {
+		Value a = Value.createKnown(BitWidth.create(10), 0x2A5);
+		drive(pinA, a);
+		drive(pinB, Value.UNKNOWN);
+		send(true);
+		assertEquals(1, client.sent.size());
+
+		Map<Integer, String> names = new HashMap<Integer, String>();
+		Map<Integer, Value> values = new HashMap<Integer, Value>();
+		assertEquals('F', decode(client.sent.get(0), names, values));
+		assertEquals("a", names.get(0));
+		assertEquals("b", names.get(1));
+		assertEquals("q", names.get(2));
+		assertEquals(a, values.get(0));
+		// an unknown value travels one character per bit
+		assertEquals(Value.UNKNOWN, values.get(1));
+		assertFalse(values.containsKey(2));
+
+		// only what changed is sent again, and nothing at all without a
+		// new tick
+		send(false);
+		assertEquals(1, client.sent.size());
+		Value mixed = Value.create(new Value[] { Value.TRUE, Value.UNKNOWN,
+				Value.ERROR, Value.FALSE, Value.TRUE, Value.FALSE,
+				Value.FALSE, Value.TRUE, Value.UNKNOWN, Value.TRUE });
+		drive(pinA, mixed);
+		drive(pinB, Value.TRUE);
+		send(false);
+		names.clear();
+		values.clear();
+		assertEquals('X', decode(client.sent.get(1), names, values));
+		assertTrue(names.isEmpty());
+		assertEquals(mixed, values.get(0));
+		assertEquals(Value.TRUE, values.get(1));
+
+		factory.bridge.end(client);
+		assertArrayEquals(new byte[] { 'E' }, client.sent.get(2));
+	}
+
+	@Test
+	public void testOutputsRoundTrip() throws IOException {
+		FakeSimulator sim = new FakeSimulator();
+		assertFalse(factory.bridge.receive(frame('T'), sim));
+		assertEquals(1, sim.ticks);
+
+		assertTrue(factory.bridge.receive(frame('V', 2, 4, "10x1", 'T'), sim));
+		assertEquals(2, sim.ticks);
+		circState.getInstanceState(comp).fireInvalidated();
+		circState.getPropagator().propagate();
+		assertEquals(Value.create(new Value[] { Value.TRUE, Value.UNKNOWN,
+				Value.FALSE, Value.TRUE }), Pin.FACTORY.getValue(pinQ));
+
+		// a short value is completed with unknown bits, a truncated record
+		// is dropped
+		assertTrue(factory.bridge.receive(frame('V', 2, 2, "01", 'V', 2, 4,
+				"1"), sim));
+		circState.getInstanceState(comp).fireInvalidated();
+		circState.getPropagator().propagate();
+		assertEquals(Value.create(new Value[] { Value.TRUE, Value.FALSE,
+				Value.UNKNOWN, Value.UNKNOWN }), Pin.FACTORY.getValue(pinQ));
+	}
+}
@@ -214,7 +214,7 @@ public class TclWrapper {
 	}
 
 	public void stop() {
-		tclConsole.send("end");
+		tclConsole.end();
 		try {
 			tclConsole.getTclClient().getSocket().close();
 		} catch (IOException e) {
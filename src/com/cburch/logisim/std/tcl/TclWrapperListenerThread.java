@@ -29,65 +29,45 @@
  *******************************************************************************/
 package com.cburch.logisim.std.tcl;
 
-import java.util.LinkedList;
-
+import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.circuit.Simulator;
+import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.util.SocketClient;
 import com.cburch.logisim.util.UniquelyNamedThread;
 
 public class TclWrapperListenerThread extends UniquelyNamedThread {
 
 	SocketClient socket;
-	LinkedList<String> messages;
+	TclConsoleBridge bridge;
+	CircuitState circuitState;
+	Component component;
 	Simulator sim;
 
-	Boolean socket_open = true;
-
-	TclWrapperListenerThread(SocketClient socket, Simulator simulator) {
+	TclWrapperListenerThread(SocketClient socket, TclConsoleBridge bridge,
+			CircuitState circuitState, Component component, Simulator simulator) {
 		super("TclWrapperListenerThread");
 		this.socket = socket;
-		this.messages = new LinkedList<String>();
+		this.bridge = bridge;
+		this.circuitState = circuitState;
+		this.component = component;
 		this.sim = simulator;
 	}
 
-	/**
-	 * Get message from TCL wrapper Messages ar in the lister buffer Read is
-	 * blocking, unblocks if socket closes
-	 *
-	 * @return The next message
-	 */
-	public String receive() {
-
-		while (socket_open && messages.size() < 1) {
-			try {
-				sleep(100, 0);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-		}
-
-		if (messages.size() > 0)
-			return messages.pop();
-		else
-			return null;
-	}
-
 	@Override
 	public void run() {
-		String line;
+		byte[] frame;
 
-		/* Continuously receive TCL wrapper messages */
-		while ((line = socket.receive()) != null) {
-
-			/* Stock the messages in temp buffer or tick simulation if asked */
-			if (line.equals("run")) {
-				sim.tick();
-			} else {
-				messages.add(line);
+		/*
+		 * Continuously receive TCL wrapper frames. The values are queued in
+		 * the bridge, and the component propagated again once per frame to
+		 * drive them.
+		 */
+		while ((frame = socket.receiveFrame()) != null) {
+			if (bridge.receive(frame, sim)) {
+				circuitState.markComponentAsDirty(component);
+				sim.requestPropagate();
 			}
 		}
-
-		socket_open = false;
 	}
 
 }
@@ -40,19 +40,26 @@ import com.cburch.logisim.data.AttributeSet;
 public class AbstractConstantHDLGeneratorFactory extends
 		AbstractHDLGeneratorFactory {
 
-	public int GetConstant(AttributeSet attrs) {
+	public long GetConstant(AttributeSet attrs) {
 		return 0;
 	}
 
-	private String GetConvertOperator(int value, int nr_of_bits, String HDLType) {
+	private String GetConvertOperator(long value, int nr_of_bits, String HDLType) {
 		if (HDLType.equals(VHDL)) {
 			if (nr_of_bits == 1)
-				return "'"+Integer.toString(value)+"'";
-			return "std_logic_vector(to_unsigned(" + Integer.toString(value) + ","
+				return "'"+Long.toString(value)+"'";
+			if (nr_of_bits > 31) {
+				/* VHDL integers are only 32 bits wide, so use a bit string */
+				StringBuffer bits = new StringBuffer("\"");
+				for (int bit = nr_of_bits - 1; bit >= 0; bit--)
+					bits.append(((value >>> bit) & 1) != 0 ? '1' : '0');
+				return bits.append("\"").toString();
+			}
+			return "std_logic_vector(to_unsigned(" + Long.toString(value) + ","
 					+ Integer.toString(nr_of_bits) + "))";
 		} else {
 			return Integer.toString(nr_of_bits) + "'d"
-					+ Integer.toString(value);
+					+ Long.toUnsignedString(value);
 		}
 	}
 
@@ -67,8 +74,10 @@ public class AbstractConstantHDLGeneratorFactory extends
 		int NrOfBits = ComponentInfo.GetComponent().getEnd(0).getWidth()
 				.getWidth();
 		if (ComponentInfo.EndIsConnected(0)) {
-			int ConstantValue = GetConstant(ComponentInfo.GetComponent()
-					.getAttributeSet());
+			long ConstantValue = GetConstant(ComponentInfo.GetComponent()
+					.getAttributeSet())
+					& ComponentInfo.GetComponent().getEnd(0).getWidth()
+							.getLongMask();
 			if (ComponentInfo.GetComponent().getEnd(0).getWidth().getWidth() == 1) {
 				/* Single Port net */
 				Contents.add("   " + Preamble
@@ -89,7 +98,7 @@ public class AbstractConstantHDLGeneratorFactory extends
 					Contents.add("");
 				} else {
 					/* we have to enumerate all bits */
-					int mask = 1;
+					long mask = 1;
 					String ConstValue = (HDLType.equals(VHDL)) ? "'0'"
 							: "1'b0";
 					for (byte bit = 0; bit < NrOfBits; bit++) {
@@ -85,7 +85,7 @@ public class Constant extends InstanceFactory {
 			if (attr == StdAttr.WIDTH)
 				return (V) width;
 			if (attr == ATTR_VALUE)
-				return (V) Integer.valueOf(value.toIntValue());
+				return (V) Long.valueOf(value.toLongValue());
 			return null;
 		}
 
@@ -98,7 +98,7 @@ public class Constant extends InstanceFactory {
 				this.value = this.value.extendWidth(width.getWidth(),
 						this.value.get(this.value.getWidth() - 1));
 			} else if (attr == ATTR_VALUE) {
-				int val = ((Integer) value).intValue();
+				long val = ((Long) value).longValue();
 				this.value = Value.createKnown(width, val);
 			} else {
 				throw new IllegalArgumentException("unknown attribute " + attr);
@@ -116,7 +116,7 @@ public class Constant extends InstanceFactory {
 
 		public void computeExpression(Map<Location, Expression> expressionMap) {
 			AttributeSet attrs = instance.getAttributeSet();
-			int intValue = attrs.getValue(ATTR_VALUE).intValue();
+			int intValue = (int) attrs.getValue(ATTR_VALUE).longValue();
 
 			expressionMap.put(instance.getLocation(),
 					Expressions.constant(intValue));
@@ -126,13 +126,13 @@ public class Constant extends InstanceFactory {
 	private class ConstantHDLGeneratorFactory extends
 			AbstractConstantHDLGeneratorFactory {
 		@Override
-		public int GetConstant(AttributeSet attrs) {
-			return attrs.getValue(Constant.ATTR_VALUE);
+		public long GetConstant(AttributeSet attrs) {
+			return attrs.getValue(Constant.ATTR_VALUE).longValue();
 		}
 	}
 
-	public static final Attribute<Integer> ATTR_VALUE = Attributes
-			.forHexInteger("value", Strings.getter("constantValueAttr"));
+	public static final Attribute<Long> ATTR_VALUE = Attributes.forHexLong(
+			"value", Strings.getter("constantValueAttr"));
 
 	public static InstanceFactory FACTORY = new Constant();
 
@@ -313,8 +313,8 @@ public class Constant extends InstanceFactory {
 
 	@Override
 	public void paintGhost(InstancePainter painter) {
-		int v = painter.getAttributeValue(ATTR_VALUE).intValue();
-		String vStr = Integer.toHexString(v);
+		long v = painter.getAttributeValue(ATTR_VALUE).longValue();
+		String vStr = Long.toHexString(v);
 		Bounds bds = getOffsetBounds(painter.getAttributeSet());
 
 		Graphics g = painter.getGraphics();
@@ -347,7 +347,7 @@ public class Constant extends InstanceFactory {
 
 		Graphics g = painter.getGraphics();
 		if (w == 1) {
-			int v = painter.getAttributeValue(ATTR_VALUE).intValue();
+			long v = painter.getAttributeValue(ATTR_VALUE).longValue();
 			Value val = v == 1 ? Value.TRUE : Value.FALSE;
 			g.setColor(val.getColor());
 			GraphicsUtil.drawCenteredText(g, "" + v, 10, 9);
@@ -362,8 +362,8 @@ public class Constant extends InstanceFactory {
 	public void paintInstance(InstancePainter painter) {
 		Bounds bds = painter.getOffsetBounds();
 		BitWidth width = painter.getAttributeValue(StdAttr.WIDTH);
-		int intValue = painter.getAttributeValue(ATTR_VALUE).intValue();
-		Value v = Value.createKnown(width, intValue);
+		long longValue = painter.getAttributeValue(ATTR_VALUE).longValue();
+		Value v = Value.createKnown(width, longValue);
 		Location loc = painter.getLocation();
 		int x = loc.getX();
 		int y = loc.getY();
@@ -392,7 +392,7 @@ public class Constant extends InstanceFactory {
 	@Override
 	public void propagate(InstanceState state) {
 		BitWidth width = state.getAttributeValue(StdAttr.WIDTH);
-		int value = state.getAttributeValue(ATTR_VALUE).intValue();
+		long value = state.getAttributeValue(ATTR_VALUE).longValue();
 		state.setPort(0, Value.createKnown(width, value), 1);
 	}
 
@@ -131,18 +131,20 @@ public class Pin extends InstanceFactory {
 					mask = "#;-#";
 					df.setParseIntegerOnly(true);
 					df.applyPattern(mask);
-					df.setMaximumIntegerDigits(11);
+					int digits = bitWidth > 32 ? 20 : 11;
+					df.setMaximumIntegerDigits(digits);
 					text = new JFormattedTextField(df);
-					text.setColumns(11);
+					text.setColumns(digits);
 					// System.err.println("Val:" + value.toDecimalString(true));
 					text.setText(value.toDecimalString(true));
 				} else if (radix == RadixOption.RADIX_10_UNSIGNED) {
 					mask = "#;";
 					df.setParseIntegerOnly(true);
 					df.applyPattern(mask);
-					df.setMaximumIntegerDigits(10);
+					int digits = bitWidth > 32 ? 20 : 10;
+					df.setMaximumIntegerDigits(digits);
 					text = new JFormattedTextField(df);
-					text.setColumns(10);
+					text.setColumns(digits);
 					// System.err.println("Val:" +
 					// value.toDecimalString(false));
 					text.setText(value.toDecimalString(false));
@@ -173,22 +175,24 @@ public class Pin extends InstanceFactory {
 		public void keyPressed(KeyEvent e) {
 			if (e.getKeyCode() == KeyEvent.VK_ENTER) {
 				if (text.isEditValid()) {
-					if (radix == RadixOption.RADIX_10_SIGNED
-							|| radix == RadixOption.RADIX_10_UNSIGNED) {
-						try {
-							value = Value.createKnown(
-									BitWidth.create(bitWidth),
-									(int) Long.parseLong(text.getText()));
-						} catch (NumberFormatException exception) {
-							value = oldVal;
-							return;
+					BitWidth width = BitWidth.create(bitWidth);
+					try {
+						if (radix == RadixOption.RADIX_10_SIGNED) {
+							value = Value.createKnown(width,
+									Long.parseLong(text.getText()));
+						} else if (radix == RadixOption.RADIX_10_UNSIGNED) {
+							value = Value.createKnown(width,
+									Long.parseUnsignedLong(text.getText()));
+						} else if (radix == RadixOption.RADIX_16) {
+							value = Value.createKnown(width,
+									Long.parseUnsignedLong(text.getText(), 16));
+						} else if (radix == RadixOption.RADIX_8) {
+							value = Value.createKnown(width,
+									Long.parseUnsignedLong(text.getText(), 8));
 						}
-					} else if (radix == RadixOption.RADIX_16) {
-						value = Value.createKnown(BitWidth.create(bitWidth),
-								(int) Long.parseLong(text.getText(), 16));
-					} else if (radix == RadixOption.RADIX_8) {
-						value = Value.createKnown(BitWidth.create(bitWidth),
-								(int) Long.parseLong(text.getText(), 8));
+					} catch (NumberFormatException exception) {
+						value = oldVal;
+						return;
 					}
 					setVisible(false);
 				}
@@ -57,13 +57,8 @@ public class Power extends InstanceFactory {
 	private class PowerHDLGeneratorFactory extends
 			AbstractConstantHDLGeneratorFactory {
 		@Override
-		public int GetConstant(AttributeSet attrs) {
-			int ConstantValue = 0;
-			for (int bit = 0; bit < attrs.getValue(StdAttr.WIDTH).getWidth(); bit++) {
-				ConstantValue <<= 1;
-				ConstantValue |= 1;
-			}
-			return ConstantValue;
+		public long GetConstant(AttributeSet attrs) {
+			return attrs.getValue(StdAttr.WIDTH).getLongMask();
 		}
 	}
 
@@ -29,8 +29,12 @@
  *******************************************************************************/
 package com.cburch.logisim.util;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
@@ -42,7 +46,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Socket client to talk to the binder.
+ * Socket client to talk to the binder. It either exchanges text lines, or,
+ * when created in binary mode, frames made of a 32-bit big-endian length
+ * followed by that many bytes.
  *
  * @author christian.mueller@heig-vd.ch
  */
@@ -56,10 +62,20 @@ public class SocketClient {
 
 	private Socket socket;
 
+	private boolean binary;
+
 	private BufferedReader socket_reader;
 	private PrintWriter socket_writer;
 
+	private DataInputStream frame_reader;
+	private DataOutputStream frame_writer;
+
 	public SocketClient() {
+		this(false);
+	}
+
+	public SocketClient(boolean binary) {
+		this.binary = binary;
 
 		if (server == null) {
 			try {
@@ -88,6 +104,22 @@ public class SocketClient {
 		return connected;
 	}
 
+	/**
+	 * Reads the next frame, or returns null if the connection failed.
+	 */
+	public byte[] receiveFrame() {
+
+		try {
+			int length = frame_reader.readInt();
+			byte[] ret = new byte[length];
+			frame_reader.readFully(ret);
+			return ret;
+		} catch (Exception e) {
+			logger.error("Cannot read from socket : {}", e.getMessage());
+			return null;
+		}
+	}
+
 	public String receive() {
 
 		try {
@@ -108,16 +140,35 @@ public class SocketClient {
 		}
 	}
 
+	public void sendFrame(byte[] data, int length) {
+
+		try {
+			frame_writer.writeInt(length);
+			frame_writer.write(data, 0, length);
+			frame_writer.flush();
+		} catch (Exception e) {
+			logger.error("Cannot write frame to socket {}", e.getMessage());
+		}
+	}
+
 	public void start() {
 
 		try {
 			socket = server.accept();
 
-			socket_reader = new BufferedReader(new InputStreamReader(
-					socket.getInputStream()));
-
-			socket_writer = new PrintWriter(new BufferedWriter(
-					new OutputStreamWriter(socket.getOutputStream())), true);
+			if (binary) {
+				socket.setTcpNoDelay(true);
+				frame_reader = new DataInputStream(new BufferedInputStream(
+						socket.getInputStream()));
+				frame_writer = new DataOutputStream(new BufferedOutputStream(
+						socket.getOutputStream()));
+			} else {
+				socket_reader = new BufferedReader(new InputStreamReader(
+						socket.getInputStream()));
+
+				socket_writer = new PrintWriter(new BufferedWriter(
+						new OutputStreamWriter(socket.getOutputStream())), true);
+			}
 
 			connected = true;
 			return;
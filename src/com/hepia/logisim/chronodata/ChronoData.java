@@ -33,6 +33,8 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.LineNumberReader;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
 
 import com.hepia.logisim.chronogui.ChronoFrame;
@@ -58,19 +60,17 @@ public class ChronoData extends TreeMap<String, SignalData> {
 		LineNumberReader lineReader = null;
 		lineReader = new LineNumberReader(new FileReader(logisimLogFile));
 
-		ArrayList<ArrayList<String>> rawData = new ArrayList<ArrayList<String>>();
+		ArrayList<SignalColumn> rawData = new ArrayList<SignalColumn>();
 		boolean sysclkFound = false;
 
 		// read the first line with the signal name
 		// The delimiter is the tabulation
 		String line = lineReader.readLine();
-		String[] splittedLine = line.split("\\t");
-		for (int i = 0; i < splittedLine.length; ++i) {
-			ArrayList<String> v = new ArrayList<String>();
-			v.add(splittedLine[i]);
-			if (splittedLine[i].equals("sysclk"))
+		String[] names = line.split("\\t");
+		for (int i = 0; i < names.length; ++i) {
+			rawData.add(new SignalColumn());
+			if (names[i].equals("sysclk"))
 				sysclkFound = true;
-			rawData.add(v);
 		}
 
 		if (!sysclkFound) {
@@ -88,12 +88,21 @@ public class ChronoData extends TreeMap<String, SignalData> {
 
 		// read the rest of the file
 		while ((line = lineReader.readLine()) != null) {
-			splittedLine = line.split("\\t");
+			String[] splittedLine = line.split("\\t");
 			for (int i = 0; i < splittedLine.length; ++i) {
 				// if the signal added is a bus wider than 4bit, we have to
 				// remove spaces
 				// (there is a space every 4 bits in a bus in the log file)
-				rawData.get(i).add(splittedLine[i].replaceAll("\\s", ""));
+				try {
+					rawData.get(i).add(splittedLine[i].replaceAll("\\s", ""));
+				} catch (IllegalArgumentException e) {
+					int lineNumber = lineReader.getLineNumber();
+					lineReader.close();
+					for (SignalColumn column : rawData)
+						column.close();
+					throw new IOException("line " + lineNumber + ": "
+							+ e.getMessage());
+				}
 			}
 		}
 		lineReader.close();
@@ -101,15 +110,15 @@ public class ChronoData extends TreeMap<String, SignalData> {
 		// creates the SignalData et SignalDataBus
 		// and store the signal name order
 		mSignalOrder = new ArrayList<String>();
-		for (ArrayList<String> vs : rawData) {
-			String name = vs.get(0);
+		for (int i = 0; i < names.length; ++i) {
+			String name = names[i];
+			SignalColumn vs = rawData.get(i);
 			mSignalOrder.add(name);
-			if (vs.get(1).length() > 1) {
+			if (vs.getWidth() > 1) {
 				this.put(name, new SignalDataBus(name, vs));
 			} else {
 				this.put(name, new SignalData(name, vs));
 			}
-			vs.remove(0);
 		}
 
 		normalize();
@@ -120,6 +129,16 @@ public class ChronoData extends TreeMap<String, SignalData> {
 				.add(signalValue.replaceAll("\\s", ""));
 	}
 
+	/**
+	 * Releases the storage of every signal, deleting their spill files
+	 */
+	public void close() {
+		for (SignalData sd : values()) {
+			if (sd.getSignalValues() instanceof SignalColumn)
+				((SignalColumn) sd.getSignalValues()).close();
+		}
+	}
+
 	/**
 	 * Hide all signals that compose busName
 	 */
@@ -144,17 +163,13 @@ public class ChronoData extends TreeMap<String, SignalData> {
 		if (sd.getSignalValues().size() > 0) {
 			int signalNbr = sd.getSignalValues().get(0).length();
 			int busNamePos = (mSignalOrder.indexOf(sd.getName()));
+			SignalColumn column = (SignalColumn) sd.getSignalValues();
 			// for each signal that defines the bus
 
 			for (int signalI = 0; signalI < signalNbr; ++signalI) {
-				int bitPos = signalNbr - signalI - 1;
-				ArrayList<String> sig = new ArrayList<String>();
 				String name = sd.getName() + "__s__" + signalI;
-				for (String s : sd.getSignalValues()) {
-					sig.add(s.substring(bitPos, bitPos + 1));
-				}
-				// add signalData
-				this.put(name, new SignalData(name, sig));
+				// add signalData, reading its bit straight from the bus
+				this.put(name, new SignalData(name, column.bitView(signalI)));
 				// insert new signal in name signal order
 				mSignalOrder.add(busNamePos + signalI + 1, name);
 			}
@@ -171,16 +186,25 @@ public class ChronoData extends TreeMap<String, SignalData> {
 	 */
 	private void normalize() {
 		try {
-			ArrayList<String> vClk = this.get("sysclk").getSignalValues();
-			int i = 0;
-			while (i < vClk.size() - 1) {
-				if (vClk.get(i).equals(vClk.get(i + 1))) {
-					for (SignalData sd : this.values()) {
-						sd.getSignalValues().remove(i);
-					}
-				} else {
-					i++;
+			List<String> vClk = this.get("sysclk").getSignalValues();
+			int n = vClk.size();
+			boolean[] keep = new boolean[n];
+			for (int i = 0; i < n; i++) {
+				keep[i] = i == n - 1 || !vClk.get(i).equals(vClk.get(i + 1));
+			}
+			for (Map.Entry<String, SignalData> entry : this.entrySet()) {
+				SignalData sd = entry.getValue();
+				List<String> values = sd.getSignalValues();
+				SignalColumn kept = new SignalColumn();
+				for (int i = 0; i < n && i < values.size(); i++) {
+					if (keep[i])
+						kept.add(values.get(i));
 				}
+				SignalData nd = sd instanceof SignalDataBus ? new SignalDataBus(
+						sd.getName(), kept) : new SignalData(sd.getName(), kept);
+				entry.setValue(nd);
+				if (values instanceof SignalColumn)
+					((SignalColumn) values).close();
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -190,28 +214,4 @@ public class ChronoData extends TreeMap<String, SignalData> {
 	public void setSignalOrder(ArrayList<String> order) {
 		mSignalOrder = new ArrayList<String>(order);
 	}
-
-	/**
-	 * In real time mode, if a bus is expanded we need to add the new data to
-	 * every signal
-	 */
-	public void updateRealTimeExpandedBus() {
-		for (java.util.Map.Entry<String, SignalData> entry : this.entrySet()) {
-			if (entry.getValue() instanceof SignalDataBus) {
-				SignalDataBus sdb = (SignalDataBus) entry.getValue();
-				if (sdb.isExpanded()) {
-					int signalNbr = sdb.getSignalValues().get(0).length();
-					for (int signalI = 0; signalI < signalNbr; ++signalI) {
-						int bitPos = signalNbr - signalI - 1;
-						String name = sdb.getName() + "__s__" + signalI;
-						this.get(name)
-								.getSignalValues()
-								.add(sdb.getSignalValues()
-										.get(sdb.getSignalValues().size() - 1)
-										.substring(bitPos, bitPos + 1));
-					}
-				}
-			}
-		}
-	}
 }
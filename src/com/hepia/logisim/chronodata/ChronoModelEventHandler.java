@@ -78,10 +78,10 @@ public class ChronoModelEventHandler implements ModelListener {
 			// is the entry a bus?
 			if (value.length() > 1)
 				chronoData.put(name, new SignalDataBus(name,
-						new ArrayList<String>()));
+						new SignalColumn()));
 			else
 				chronoData.put(name, new SignalData(name,
-						new ArrayList<String>()));
+						new SignalColumn()));
 			// add initial data
 			chronoData.appendValueToSignal(name, value);
 			chronoData.appendValueToSignal(name, value);
@@ -110,7 +110,6 @@ public class ChronoModelEventHandler implements ModelListener {
 						chronoData.appendValueToSignal(
 								signalNamesKeepOrder[pos++], v.toString());
 					}
-					chronoFrame.getChronoData().updateRealTimeExpandedBus();
 					chronoFrame.repaintAll(false);
 				}
 			} catch (Exception ex) {
@@ -0,0 +1,376 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+package com.hepia.logisim.chronodata;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * History of one signal of up to 64 bits, seen as the list of its samples
+ * written as binary strings ('0', '1', 'x' for unknown and 'E' for error),
+ * or "-" for a signal without any bits, as Value writes it.
+ * 
+ * Samples are run-length encoded: each run holds the index of the sample
+ * where the signal changed and the value, unknown and error bit-planes. Runs
+ * are kept in fixed-size pages of longs; when a signal has too many pages in
+ * memory, the oldest ones are spilled to a temporary file and read back on
+ * demand.
+ */
+public class SignalColumn extends AbstractList<String> {
+
+	/*
+	 * A read-only view of one bit of the column, used for expanded buses.
+	 */
+	private class BitView extends AbstractList<String> {
+		private int bit;
+
+		BitView(int bit) {
+			this.bit = bit;
+		}
+
+		@Override
+		public String get(int index) {
+			synchronized (SignalColumn.this) {
+				int r = findRun(index);
+				long[] page = getPage(r / RUNS_PER_PAGE);
+				int off = (r % RUNS_PER_PAGE) * LONGS_PER_RUN;
+				long mask = 1L << bit;
+				if (isNoValue(page, off))
+					return NO_VALUE;
+				else if ((page[off + ERROR] & mask) != 0)
+					return "E";
+				else if ((page[off + UNKNOWN] & mask) != 0)
+					return "x";
+				else if ((page[off + VALUE] & mask) != 0)
+					return "1";
+				else
+					return "0";
+			}
+		}
+
+		@Override
+		public int size() {
+			return SignalColumn.this.size();
+		}
+	}
+
+	private static final int START = 0;
+	private static final int VALUE = 1;
+	private static final int UNKNOWN = 2;
+	private static final int ERROR = 3;
+	private static final int LONGS_PER_RUN = 4;
+	private static final int RUNS_PER_PAGE = 1024;
+	private static final int PAGE_BYTES = RUNS_PER_PAGE * LONGS_PER_RUN * 8;
+	private static final int MAX_RESIDENT_PAGES = 64;
+	// stored as a run with every bit both set and in error, which no
+	// binary sample produces
+	private static final String NO_VALUE = "-";
+
+	private static boolean isNoValue(long[] page, int off) {
+		return page[off + VALUE] == -1L && page[off + ERROR] == -1L;
+	}
+
+	private int width = 0;
+	private int size = 0;
+	private int runCount = 0;
+	private ArrayList<long[]> pages = new ArrayList<long[]>();
+	// first sample of each page, kept in memory even for spilled pages
+	private int[] pageStarts = new int[16];
+	private int residentPages = 0;
+	private File spillFile = null;
+	private BitSet spilled = new BitSet();
+	private boolean spillFailed = false;
+
+	// the last run looked up, and its string
+	private int lastRun = -1;
+	private String lastString = null;
+
+	/**
+	 * Appends a sample; throws IllegalArgumentException, leaving the column
+	 * unchanged, if it is wider than 64 bits or holds anything other than
+	 * '0', '1', 'x' and 'E', unless it is "-".
+	 */
+	@Override
+	public synchronized boolean add(String sample) {
+		long value = 0, unknown = 0, error = 0;
+		int n = sample.length();
+		if (sample.equals(NO_VALUE)) {
+			value = -1L;
+			error = -1L;
+			n = 0;
+		} else if (n > 64) {
+			throw new IllegalArgumentException("sample wider than 64 bits: \""
+					+ sample + "\"");
+		}
+		for (int i = 0; i < n; i++) {
+			long mask = 1L << (n - 1 - i);
+			char c = sample.charAt(i);
+			if (c == '1')
+				value |= mask;
+			else if (c == 'E')
+				error |= mask;
+			else if (c == 'x')
+				unknown |= mask;
+			else if (c != '0')
+				throw new IllegalArgumentException("unexpected character '"
+						+ c + "' in \"" + sample + "\"");
+		}
+		if (n > width)
+			width = n;
+
+		if (runCount > 0) {
+			int r = runCount - 1;
+			long[] page = getPage(r / RUNS_PER_PAGE);
+			int off = (r % RUNS_PER_PAGE) * LONGS_PER_RUN;
+			if (page[off + VALUE] == value && page[off + UNKNOWN] == unknown
+					&& page[off + ERROR] == error) {
+				size++;
+				return true;
+			}
+		}
+
+		int r = runCount;
+		int p = r / RUNS_PER_PAGE;
+		if (p == pages.size()) {
+			pages.add(new long[RUNS_PER_PAGE * LONGS_PER_RUN]);
+			if (p == pageStarts.length) {
+				int[] grown = new int[2 * p];
+				System.arraycopy(pageStarts, 0, grown, 0, p);
+				pageStarts = grown;
+			}
+			pageStarts[p] = size;
+			residentPages++;
+			if (residentPages > MAX_RESIDENT_PAGES)
+				evict(p);
+		}
+		long[] page = pages.get(p);
+		int off = (r % RUNS_PER_PAGE) * LONGS_PER_RUN;
+		page[off + START] = size;
+		page[off + VALUE] = value;
+		page[off + UNKNOWN] = unknown;
+		page[off + ERROR] = error;
+		runCount++;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Drops the samples and deletes the spill file, if any. The column is
+	 * empty afterwards.
+	 */
+	public synchronized void close() {
+		if (spillFile != null) {
+			spillFile.delete();
+			spillFile = null;
+		}
+		pages.clear();
+		spilled.clear();
+		spillFailed = false;
+		residentPages = 0;
+		runCount = 0;
+		size = 0;
+		width = 0;
+		lastRun = -1;
+		lastString = null;
+	}
+
+	/**
+	 * Returns a read-only view of one bit of every sample.
+	 */
+	public AbstractList<String> bitView(int bit) {
+		return new BitView(bit);
+	}
+
+	// Spills the lowest resident page other than the last one and keep.
+	private void evict(int keep) {
+		if (spillFailed)
+			return;
+		int last = pages.size() - 1;
+		for (int p = 0; p < last; p++) {
+			long[] page = pages.get(p);
+			if (p == keep || page == null)
+				continue;
+			if (!spilled.get(p)) {
+				try {
+					writePage(p, page);
+				} catch (IOException e) {
+					spillFailed = true;
+					return;
+				}
+				spilled.set(p);
+			}
+			pages.set(p, null);
+			residentPages--;
+			return;
+		}
+	}
+
+	// Returns the run holding the given sample.
+	private int findRun(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("index: " + index + " size: "
+					+ size);
+		if (lastRun >= 0 && index >= runStart(lastRun)
+				&& (lastRun + 1 == runCount || index < runStart(lastRun + 1)))
+			return lastRun;
+
+		int lo = 0, hi = pages.size() - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (pageStarts[mid] <= index)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		long[] page = getPage(lo);
+		int first = lo * RUNS_PER_PAGE;
+		int count = Math.min(RUNS_PER_PAGE, runCount - first);
+		int a = 0, b = count - 1;
+		while (a < b) {
+			int mid = (a + b + 1) >>> 1;
+			if (page[mid * LONGS_PER_RUN + START] <= index)
+				a = mid;
+			else
+				b = mid - 1;
+		}
+		return first + a;
+	}
+
+	@Override
+	public synchronized String get(int index) {
+		int r = findRun(index);
+		if (r == lastRun)
+			return lastString;
+
+		long[] page = getPage(r / RUNS_PER_PAGE);
+		int off = (r % RUNS_PER_PAGE) * LONGS_PER_RUN;
+		long value = page[off + VALUE];
+		long unknown = page[off + UNKNOWN];
+		long error = page[off + ERROR];
+		if (isNoValue(page, off)) {
+			lastRun = r;
+			lastString = NO_VALUE;
+			return lastString;
+		}
+		char[] ret = new char[Math.max(width, 1)];
+		for (int i = 0; i < ret.length; i++) {
+			long mask = 1L << (ret.length - 1 - i);
+			if ((error & mask) != 0)
+				ret[i] = 'E';
+			else if ((unknown & mask) != 0)
+				ret[i] = 'x';
+			else
+				ret[i] = (value & mask) != 0 ? '1' : '0';
+		}
+		lastRun = r;
+		lastString = new String(ret);
+		return lastString;
+	}
+
+	private long[] getPage(int p) {
+		long[] page = pages.get(p);
+		if (page == null) {
+			try {
+				page = readPage(p);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			pages.set(p, page);
+			residentPages++;
+			if (residentPages > MAX_RESIDENT_PAGES)
+				evict(p);
+		}
+		return page;
+	}
+
+	/**
+	 * Returns the number of times the signal changed, plus one.
+	 */
+	public synchronized int getRunCount() {
+		return runCount;
+	}
+
+	public synchronized int getWidth() {
+		return width;
+	}
+
+	private long[] readPage(int p) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(PAGE_BYTES);
+		RandomAccessFile file = new RandomAccessFile(spillFile, "r");
+		try {
+			long pos = (long) p * PAGE_BYTES;
+			while (buf.hasRemaining()) {
+				if (file.getChannel().read(buf, pos + buf.position()) < 0)
+					throw new IOException("truncated chronogram page");
+			}
+		} finally {
+			file.close();
+		}
+		buf.flip();
+		long[] page = new long[RUNS_PER_PAGE * LONGS_PER_RUN];
+		buf.asLongBuffer().get(page);
+		return page;
+	}
+
+	private int runStart(int r) {
+		return (int) getPage(r / RUNS_PER_PAGE)[(r % RUNS_PER_PAGE)
+				* LONGS_PER_RUN + START];
+	}
+
+	@Override
+	public synchronized int size() {
+		return size;
+	}
+
+	private void writePage(int p, long[] page) throws IOException {
+		if (spillFile == null) {
+			spillFile = File.createTempFile("logisim-chrono", ".dat");
+			spillFile.deleteOnExit();
+		}
+		ByteBuffer buf = ByteBuffer.allocate(PAGE_BYTES);
+		LongBuffer longs = buf.asLongBuffer();
+		longs.put(page);
+		RandomAccessFile file = new RandomAccessFile(spillFile, "rw");
+		try {
+			long pos = (long) p * PAGE_BYTES;
+			while (buf.hasRemaining()) {
+				file.getChannel().write(buf, pos + buf.position());
+			}
+		} finally {
+			file.close();
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.hepia.logisim.chronodata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SignalColumnTest {
+
+	private static final char[] BITS = { '0', '1', 'x', 'E' };
+
+	@Test
+	public void testWideSamplesRoundTrip() {
+		Random rand = new Random(4);
+		ArrayList<String> expected = new ArrayList<String>();
+		SignalColumn col = new SignalColumn();
+		try {
+			for (int k = 0; k < 3000; k++) {
+				char[] s = new char[64];
+				for (int i = 0; i < s.length; i++)
+					s[i] = BITS[rand.nextInt(k % 2 == 0 ? 2 : 4)];
+				String sample = new String(s);
+				// repeat some samples so that runs are merged
+				int n = 1 + rand.nextInt(3);
+				for (int i = 0; i < n; i++) {
+					expected.add(sample);
+					col.add(sample);
+				}
+			}
+			assertEquals(64, col.getWidth());
+			assertEquals(expected.size(), col.size());
+			for (int k = 0; k < expected.size(); k++)
+				assertEquals("sample " + k, expected.get(k), col.get(k));
+
+			for (int bit : new int[] { 0, 31, 32, 63 }) {
+				for (int k = 0; k < expected.size(); k++) {
+					String s = expected.get(k);
+					assertEquals(String.valueOf(s.charAt(63 - bit)),
+							col.bitView(bit).get(k));
+				}
+			}
+		} finally {
+			col.close();
+		}
+	}
+
+	@Test
+	public void testUnknownSymbolsAreRejected() {
+		SignalColumn col = new SignalColumn();
+		try {
+			col.add("01x");
+			char[] sample = new char[65];
+			Arrays.fill(sample, '0');
+			for (String bad : new String[] { "0Z1", "X", "01-", "a3",
+					new String(sample) }) {
+				try {
+					col.add(bad);
+					fail("accepted \"" + bad + "\"");
+				} catch (IllegalArgumentException e) {
+				}
+			}
+			assertEquals(1, col.size());
+			assertEquals(3, col.getWidth());
+			assertEquals("01x", col.get(0));
+
+			// a value without bits is kept as it is
+			col.add("-");
+			col.add("1E0");
+			assertEquals(3, col.size());
+			assertEquals("-", col.get(1));
+			assertEquals("-", col.bitView(0).get(1));
+			assertEquals("1E0", col.get(2));
+		} finally {
+			col.close();
+		}
+	}
+}
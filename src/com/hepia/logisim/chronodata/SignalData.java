@@ -29,7 +29,7 @@
  *******************************************************************************/
 package com.hepia.logisim.chronodata;
 
-import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.ImageIcon;
 
@@ -43,9 +43,9 @@ public class SignalData {
 
 	private String name;
 	protected int selectedValuePos = 0;
-	protected ArrayList<String> data;
+	protected List<String> data;
 
-	public SignalData(String name, ArrayList<String> data) {
+	public SignalData(String name, List<String> data) {
 		this.name = name;
 		this.data = data;
 	}
@@ -62,7 +62,7 @@ public class SignalData {
 		return data.size() > 0 ? data.get(selectedValuePos) : "";
 	}
 
-	public ArrayList<String> getSignalValues() {
+	public List<String> getSignalValues() {
 		return data;
 	}
 
@@ -29,7 +29,7 @@
  *******************************************************************************/
 package com.hepia.logisim.chronodata;
 
-import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.ImageIcon;
 
@@ -45,7 +45,7 @@ public class SignalDataBus extends SignalData {
 	private String format = "hexadecimal";
 	private boolean expanded = false;
 
-	public SignalDataBus(String name, ArrayList<String> data) {
+	public SignalDataBus(String name, List<String> data) {
 		super(name, data);
 	}
 
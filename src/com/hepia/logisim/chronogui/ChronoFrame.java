@@ -517,6 +517,7 @@ public class ChronoFrame extends LFrame implements KeyListener, ActionListener,
 			ChronoData tmp = new ChronoData(logFile, this);
 			if (tmp != null) {
 				realTimeMode = false;
+				chronogramData.close();
 				chronogramData = tmp;
 				fillMainSPlitPane();
 				statusLabel.setText(Strings.get("InputFileLoaded") + logFile);
@@ -613,6 +614,9 @@ public class ChronoFrame extends LFrame implements KeyListener, ActionListener,
 
 	@Override
 	public void windowClosed(WindowEvent we) {
+		// also reached when the project disposes of the frame
+		logFrame.getModel().removeModelListener(chronoModelEventHandler);
+		chronogramData.close();
 	}
 
 	@Override
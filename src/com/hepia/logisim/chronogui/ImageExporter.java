@@ -21,8 +21,8 @@ import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import javax.imageio.ImageIO;
 import javax.swing.BoxLayout;
 import javax.swing.ImageIcon;
@@ -282,7 +282,7 @@ public class ImageExporter extends javax.swing.JFrame implements ActionListener
     /**
      * Create a 20 pixel high strip.
      */
-    private BufferedImage CreateUpperBlankLine(ArrayList<String> valList) {
+    private BufferedImage CreateUpperBlankLine(List<String> valList) {
         JPanel mRightPanel = new JPanel();
         mRightPanel.setSize(tickWidth * valList.size(), /*lowPos + 6*/ 20);
         mRightPanel.setBackground(Color.white);
@@ -300,7 +300,7 @@ public class ImageExporter extends javax.swing.JFrame implements ActionListener
      *
      * @param mRightPanel
      */
-    private BufferedImage CreateSignalImage(/*ChronoData chrdata, String name, SignalData sigData,*/ArrayList<String> valList, String name) {
+    private BufferedImage CreateSignalImage(/*ChronoData chrdata, String name, SignalData sigData,*/List<String> valList, String name) {
         String prec, suiv;
         int busCrossingPosition = tickWidth - 5 < 1 ? 0 : 5;
         JPanel mRightPanel = new JPanel();
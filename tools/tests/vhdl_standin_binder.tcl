@@ -0,0 +1,57 @@
+#!/usr/bin/env tclsh
+# -------------------------------------------------------------------------------
+# Stand-in for Questasim/Modelsim, to test the Logisim <-> binder protocol
+# without a VHDL simulator. It provides the simulator commands used by
+# questasim_binder.tcl on top of an array of signal values, then runs the
+# binder itself.
+#
+# Usage : tclsh vhdl_standin_binder.tcl <port> ?model.tcl?
+#
+# The optional model script is evaluated at every "run". It reads and sets the
+# "values" array, indexed by signal name, for instance
+#     set values(adder_s) $values(adder_a)
+# Signals never forced nor set by the model examine as U.
+# -------------------------------------------------------------------------------
+
+array set values {}
+set model ""
+if {[llength $argv] > 1} {
+	set model [lindex $argv 1]
+}
+
+proc SignalName {path} {
+	regsub {^sim:/top_sim/} $path {} name
+	return $name
+}
+
+proc force {mode path value} {
+	global values
+	set values([SignalName $path]) $value
+}
+
+proc examine {path} {
+	global values
+	set name [SignalName $path]
+	if {[info exists values($name)]} {
+		return $values($name)
+	}
+	return U
+}
+
+proc run {time} {
+	global values model
+	if {$model != ""} {
+		source $model
+	}
+}
+
+proc restart {args} {
+	global values
+	array unset values
+}
+
+proc quit {args} {
+}
+
+set 1 [lindex $argv 0]
+source [file join [file dirname [info script]] .. .. resources logisim sim questasim_binder.tcl]